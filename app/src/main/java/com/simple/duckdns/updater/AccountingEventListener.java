@@ -0,0 +1,142 @@
+package com.simple.duckdns.updater;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import com.simple.duckdns.core.Endpoint;
+import com.simple.duckdns.core.NetworkAccounting;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Per-call OkHttp listener feeding {@link NetworkAccounting}: header and body
+ * bytes in both directions, whether a TLS handshake was needed and whether
+ * the call ran on a pooled connection.
+ *
+ * Header sizes use the HTTP/1.1 encoding, an upper bound for HTTP/2. The run
+ * is captured when the call is created, so asynchronous calls count towards
+ * the run that started them.
+ */
+final class AccountingEventListener extends EventListener {
+
+    // " HTTP/1.1\r\n" after the request target, "HTTP/1.1 200 \r\n" around
+    // the status message
+    private static final int REQUEST_LINE_OVERHEAD = 12;
+    private static final int STATUS_LINE_OVERHEAD = 15;
+
+    private final NetworkAccounting accounting;
+    private final Endpoint endpoint;
+    private final NetworkAccounting.Run run;
+
+    // Callbacks of one call are serialized by OkHttp
+    private long startMillis;
+    private long sent;
+    private long received;
+    private boolean connected;
+    private boolean tlsHandshake;
+
+    private AccountingEventListener(
+        NetworkAccounting accounting,
+        Endpoint endpoint
+    ) {
+        this.accounting = accounting;
+        this.endpoint = endpoint;
+        this.run = accounting.currentRun();
+    }
+
+    /** Requests must carry their {@link Endpoint} as a tag. */
+    static EventListener.Factory factory(final NetworkAccounting accounting) {
+        return new EventListener.Factory() {
+            @NonNull
+            @Override
+            public EventListener create(@NonNull Call call) {
+                Endpoint endpoint = call.request().tag(Endpoint.class);
+                if (endpoint == null) {
+                    return EventListener.NONE;
+                }
+                return new AccountingEventListener(accounting, endpoint);
+            }
+        };
+    }
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        startMillis = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void connectStart(
+        @NonNull Call call,
+        @NonNull InetSocketAddress inetSocketAddress,
+        @NonNull Proxy proxy
+    ) {
+        connected = true;
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+        tlsHandshake = true;
+    }
+
+    @Override
+    public void requestHeadersEnd(@NonNull Call call, @NonNull Request request) {
+        sent +=
+            request.method().length() +
+            1 +
+            request.url().encodedPath().length() +
+            (request.url().encodedQuery() != null
+                ? request.url().encodedQuery().length() + 1
+                : 0) +
+            REQUEST_LINE_OVERHEAD +
+            request.headers().byteCount();
+    }
+
+    @Override
+    public void requestBodyEnd(@NonNull Call call, long byteCount) {
+        sent += byteCount;
+    }
+
+    @Override
+    public void responseHeadersEnd(
+        @NonNull Call call,
+        @NonNull Response response
+    ) {
+        received +=
+            STATUS_LINE_OVERHEAD +
+            response.message().length() +
+            response.headers().byteCount();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        received += byteCount;
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        report(false);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        report(true);
+    }
+
+    private void report(boolean failed) {
+        accounting.recordCall(
+            run,
+            endpoint,
+            SystemClock.elapsedRealtime() - startMillis,
+            sent,
+            received,
+            tlsHandshake,
+            !connected,
+            failed
+        );
+    }
+}
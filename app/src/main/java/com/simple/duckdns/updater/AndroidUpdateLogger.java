@@ -0,0 +1,71 @@
+package com.simple.duckdns.updater;
+
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+import com.simple.duckdns.core.LogTimestamp;
+import com.simple.duckdns.core.UpdateLogger;
+import java.io.File;
+import java.io.FileWriter;
+
+/**
+ * Engine logger writing diagnostics to logcat and events to the log file
+ * shown in MainActivity, which is notified through a broadcast.
+ */
+public final class AndroidUpdateLogger implements UpdateLogger {
+
+    private static final String TAG = "DuckDNSUpdateWorker";
+    private static final String LOG_FILE = "duckdns_log.txt";
+    private static final String LOG_UPDATED_ACTION =
+        "com.simple.duckdns.updater.LOG_UPDATED";
+
+    private final Context context;
+
+    public AndroidUpdateLogger(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void debug(String message) {
+        Log.d(TAG, message);
+    }
+
+    @Override
+    public void warn(String message) {
+        Log.w(TAG, message);
+    }
+
+    @Override
+    public void error(String message, Throwable error) {
+        Log.e(TAG, message, error);
+    }
+
+    @Override
+    public void event(String message) {
+        writeLog("[" + LogTimestamp.now() + "] " + message);
+        notifyLogUpdate();
+    }
+
+    private synchronized void writeLog(String message) {
+        try {
+            Log.d(TAG, "Writing log: " + message);
+            File logFile = new File(context.getFilesDir(), LOG_FILE);
+            try (FileWriter writer = new FileWriter(logFile, true)) {
+                writer.append(message).append("\n");
+            }
+        } catch (Exception e) {
+            // Log to system log as fallback in case of file system issues
+            Log.e(TAG, "Failed to write log: " + message, e);
+        }
+    }
+
+    private void notifyLogUpdate() {
+        try {
+            Log.d(TAG, "Sending log update broadcast");
+            Intent logUpdateIntent = new Intent(LOG_UPDATED_ACTION);
+            context.sendBroadcast(logUpdateIntent);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to send broadcast: " + e.getMessage(), e);
+        }
+    }
+}
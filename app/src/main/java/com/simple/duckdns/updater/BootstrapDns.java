@@ -0,0 +1,32 @@
+package com.simple.duckdns.updater;
+
+import androidx.annotation.NonNull;
+import com.simple.duckdns.core.BootstrapResolver;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import okhttp3.Dns;
+
+/**
+ * OkHttp {@link Dns} resolving the app's fixed endpoints through the
+ * cached, DoH-first {@link BootstrapResolver}; any other host goes to the
+ * system resolver.
+ */
+final class BootstrapDns implements Dns {
+
+    private final BootstrapResolver resolver;
+
+    BootstrapDns(BootstrapResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname)
+        throws UnknownHostException {
+        if (!resolver.handles(hostname)) {
+            return Dns.SYSTEM.lookup(hostname);
+        }
+        return resolver.lookup(hostname);
+    }
+}
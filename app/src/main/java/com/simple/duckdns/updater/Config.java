@@ -0,0 +1,177 @@
+package com.simple.duckdns.updater;
+
+import com.simple.duckdns.core.DuckDnsToken;
+import com.simple.duckdns.core.IpAddress;
+import com.simple.duckdns.core.UpdateProfile;
+import com.simple.duckdns.core.UpdateTarget;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, pre-parsed snapshot of the user configuration.
+ *
+ * Everything the update path needs is computed once when the snapshot is
+ * built: the domain list is split and normalized to FQDNs, the IP literal is
+ * parsed and the interval is converted to minutes. Instances are obtained
+ * from {@link ConfigStore}; the engine-facing part is exposed as a core
+ * {@link UpdateTarget}.
+ *
+ * The fields edited on the main screen form the "default" profile; further
+ * {@link UpdateProfile}s for other DuckDNS accounts come with an imported
+ * configuration file.
+ */
+public final class Config {
+
+    public static final String DUCKDNS_SUFFIX = UpdateTarget.DUCKDNS_SUFFIX;
+
+    public static final Config EMPTY = new Config(
+        "",
+        "",
+        "",
+        "",
+        Collections.<UpdateProfile>emptyList()
+    );
+
+    // Schedule of the default profile when its interval field is empty
+    static final int DEFAULT_INTERVAL_MINUTES = 15;
+
+    private final UpdateTarget target;
+    private final IpAddress ipAddress;
+    private final String interval;
+    private final int intervalMinutes;
+    private final List<UpdateProfile> extraProfiles;
+    private final List<UpdateProfile> profiles;
+
+    Config(
+        String domains,
+        String token,
+        String ip,
+        String interval,
+        List<UpdateProfile> extraProfiles
+    ) {
+        this.target = new UpdateTarget(domains, token, ip);
+        this.interval = interval != null ? interval.trim() : "";
+        this.ipAddress = IpAddress.parse(target.getIp());
+        this.intervalMinutes = parseInterval(this.interval);
+        this.extraProfiles = Collections.unmodifiableList(
+            new ArrayList<>(extraProfiles)
+        );
+        this.profiles = completeProfiles();
+    }
+
+    /**
+     * Check if token looks like a valid DuckDNS token (UUID-like format)
+     *
+     * @param token Token to check
+     * @return true if the token has the DuckDNS UUID format
+     */
+    public static boolean isValidTokenFormat(String token) {
+        // DuckDNS tokens are UUID format: xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx
+        return DuckDnsToken.isValidFormat(token);
+    }
+
+    private static int parseInterval(String interval) {
+        try {
+            return interval.isEmpty() ? 0 : Integer.parseInt(interval);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** @return true if both domains and token are configured */
+    public boolean isComplete() {
+        return target.isComplete();
+    }
+
+    /** @return true if any profile has domains and token to update */
+    public boolean hasCompleteProfile() {
+        return !getProfiles().isEmpty();
+    }
+
+    /**
+     * @return Complete profiles to run: the default one, then the imported
+     *     ones in file order
+     */
+    public List<UpdateProfile> getProfiles() {
+        return profiles;
+    }
+
+    private List<UpdateProfile> completeProfiles() {
+        List<UpdateProfile> profiles = new ArrayList<>(
+            extraProfiles.size() + 1
+        );
+        if (target.isComplete()) {
+            profiles.add(
+                new UpdateProfile(
+                    UpdateProfile.DEFAULT_NAME,
+                    target,
+                    intervalMinutes > 0
+                        ? intervalMinutes
+                        : DEFAULT_INTERVAL_MINUTES
+                )
+            );
+        }
+        for (UpdateProfile profile : extraProfiles) {
+            if (profile.getTarget().isComplete()) {
+                profiles.add(profile);
+            }
+        }
+        return Collections.unmodifiableList(profiles);
+    }
+
+    /** @return Profiles beyond the default one, as stored */
+    public List<UpdateProfile> getExtraProfiles() {
+        return extraProfiles;
+    }
+
+    public boolean isEmpty() {
+        return getDomains().isEmpty() && getToken().isEmpty();
+    }
+
+    /** @return Domains, token and IP as handed to the update engine */
+    public UpdateTarget getUpdateTarget() {
+        return target;
+    }
+
+    /** @return Domains exactly as entered, used for the DuckDNS update call */
+    public String getDomains() {
+        return target.getDomains();
+    }
+
+    /** @return Normalized FQDNs used for the DNS check */
+    public List<String> getFqdns() {
+        return target.getFqdns();
+    }
+
+    public String getToken() {
+        return target.getToken();
+    }
+
+    public boolean hasToken() {
+        return !getToken().isEmpty();
+    }
+
+    /** @return Configured IP as entered, empty if DuckDNS should detect it */
+    public String getIp() {
+        return target.getIp();
+    }
+
+    public boolean hasIp() {
+        return target.hasIp();
+    }
+
+    /** @return Parsed configured IP, or null if none or not a valid literal */
+    public IpAddress getIpAddress() {
+        return ipAddress;
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+
+    /** @return Interval in minutes, 0 if missing or invalid */
+    public int getIntervalMinutes() {
+        return intervalMinutes;
+    }
+}
@@ -0,0 +1,352 @@
+package com.simple.duckdns.updater;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.simple.duckdns.core.ResolverRegistry;
+import com.simple.duckdns.core.UpdateProfile;
+import com.simple.duckdns.core.UpdateTarget;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Process-wide holder of the current {@link Config} snapshot.
+ *
+ * The snapshot is built once from the "config" SharedPreferences, so readers
+ * on any thread get a consistent, already-parsed configuration without
+ * touching SharedPreferences or the KeyStore. A preference change drops it
+ * and rebuilds it on a background thread: building decrypts tokens, which
+ * must not run on the main thread that saves the settings. For the same
+ * reason the main thread reads it with {@link #loadAsync}, never
+ * {@link #get()}, as long as it may not be built yet.
+ *
+ * Extra profiles are listed, newline-separated, under "profiles"; each has
+ * "profile.NAME.domains", ".token" (encrypted like the main token), ".ip"
+ * and ".interval". The resolvers of the DNS check are listed under
+ * "resolvers"; a change to them is handed to the {@link ResolversListener}.
+ */
+public final class ConfigStore {
+
+    private static final String TAG = "ConfigStore";
+    private static final String PREFS_NAME = "config";
+    private static final String KEY_PROFILES = "profiles";
+    private static final String PROFILE_PREFIX = "profile.";
+    private static final String KEY_RESOLVERS = "resolvers";
+    private static final String[] PROFILE_KEYS = {
+        "domains",
+        "token",
+        "ip",
+        "interval",
+    };
+
+    /** Receives the snapshot of {@link #loadAsync} on the main thread. */
+    public interface Callback {
+        void onConfigLoaded(Config config);
+    }
+
+    /** Told on the main thread when the saved resolver list changed. */
+    public interface ResolversListener {
+        void onResolversChanged(String spec);
+    }
+
+    private static volatile ConfigStore instance;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final AtomicReference<Config> snapshot = new AtomicReference<>();
+    // Bumped by every preference change; a build that saw a bump is stale
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final ExecutorService rebuilder =
+        Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile ResolversListener resolversListener;
+
+    // SharedPreferences only keeps a weak reference to its listeners
+    private final SharedPreferences.OnSharedPreferenceChangeListener prefsListener =
+        new SharedPreferences.OnSharedPreferenceChangeListener() {
+            @Override
+            public void onSharedPreferenceChanged(
+                SharedPreferences sharedPreferences,
+                String key
+            ) {
+                invalidate();
+                ResolversListener listener = resolversListener;
+                if (
+                    listener != null &&
+                    (key == null || KEY_RESOLVERS.equals(key))
+                ) {
+                    listener.onResolversChanged(getResolverSpec());
+                }
+            }
+        };
+
+    private ConfigStore(Context context) {
+        appContext = context;
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+    }
+
+    public static ConfigStore getInstance(Context context) {
+        ConfigStore store = instance;
+        if (store == null) {
+            synchronized (ConfigStore.class) {
+                store = instance;
+                if (store == null) {
+                    store = new ConfigStore(context.getApplicationContext());
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /** @return Current snapshot, built on first use */
+    public Config get() {
+        Config config = snapshot.get();
+        if (config != null) {
+            return config;
+        }
+        int seen = generation.get();
+        config = build();
+        // A preference changed while building: serve this build to the
+        // caller only, the queued rebuild publishes the current one
+        if (generation.get() == seen && !snapshot.compareAndSet(null, config)) {
+            config = snapshot.get();
+        }
+        return config;
+    }
+
+    /**
+     * Build the snapshot if needed on the rebuild thread and hand it to the
+     * callback on the main thread.
+     *
+     * @param prepare Run on the rebuild thread first, e.g. a migration of
+     *     stored values that needs the KeyStore, then the snapshot is
+     *     rebuilt; null for none
+     * @param callback Receives the snapshot
+     */
+    public void loadAsync(final Runnable prepare, final Callback callback) {
+        rebuilder.execute(
+            new Runnable() {
+                @Override
+                public void run() {
+                    Config loaded;
+                    if (prepare != null) {
+                        try {
+                            prepare.run();
+                        } catch (RuntimeException e) {
+                            Log.e(TAG, "Failed to prepare config", e);
+                        }
+                        // Its saves reach the listener only via the main
+                        // thread, after this task
+                        loaded = refresh();
+                    } else {
+                        loaded = get();
+                    }
+                    final Config config = loaded;
+                    mainHandler.post(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                callback.onConfigLoaded(config);
+                            }
+                        }
+                    );
+                }
+            }
+        );
+    }
+
+    /**
+     * @return true if some profile has no fixed IP and needs the IP echo;
+     *     cheap even before the first snapshot, which has to decrypt tokens
+     */
+    public boolean needsIpDiscovery() {
+        Config config = snapshot.get();
+        if (config != null) {
+            for (UpdateProfile profile : config.getProfiles()) {
+                if (!profile.getTarget().hasIp()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (prefs.getString("ip", "").trim().isEmpty()) {
+            return true;
+        }
+        for (String name : profileNames()) {
+            String key = PROFILE_PREFIX + name + ".ip";
+            if (prefs.getString(key, "").trim().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replace the extra profiles, encrypting their tokens. The listener
+     * publishes the new snapshot.
+     */
+    public void saveExtraProfiles(List<UpdateProfile> profiles) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String name : profileNames()) {
+            for (String key : PROFILE_KEYS) {
+                editor.remove(PROFILE_PREFIX + name + "." + key);
+            }
+        }
+        StringBuilder names = new StringBuilder();
+        for (UpdateProfile profile : profiles) {
+            String prefix = PROFILE_PREFIX + profile.getName() + ".";
+            UpdateTarget target = profile.getTarget();
+            String token = target.getToken();
+            if (!token.isEmpty()) {
+                try {
+                    token = CredentialsHolder.getInstance(appContext).encrypt(
+                        token
+                    );
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to encrypt profile token", e);
+                }
+            }
+            editor
+                .putString(prefix + "domains", target.getDomains())
+                .putString(prefix + "token", token)
+                .putString(prefix + "ip", target.getIp())
+                .putString(
+                    prefix + "interval",
+                    Integer.toString(profile.getIntervalMinutes())
+                );
+            if (names.length() > 0) {
+                names.append('\n');
+            }
+            names.append(profile.getName());
+        }
+        editor.putString(KEY_PROFILES, names.toString()).apply();
+    }
+
+    /**
+     * @return DoH URLs and plain DNS IPs to check, see
+     *     {@link ResolverRegistry#parse}; empty for the defaults
+     */
+    public String getResolverSpec() {
+        return prefs.getString(KEY_RESOLVERS, "").trim();
+    }
+
+    /**
+     * Save the resolver list; the {@link ResolversListener} applies it to
+     * the running engine.
+     *
+     * @throws IllegalArgumentException on an entry that is neither a DoH URL
+     *     nor an IP address
+     */
+    public void saveResolverSpec(String spec) {
+        ResolverRegistry.parse(spec, null, null);
+        prefs.edit().putString(KEY_RESOLVERS, spec.trim()).apply();
+    }
+
+    /** @param listener Receives resolver list changes, null for none */
+    public void setResolversListener(ResolversListener listener) {
+        resolversListener = listener;
+    }
+
+    /** Rebuild the snapshot from SharedPreferences and publish it. */
+    public Config refresh() {
+        generation.incrementAndGet();
+        snapshot.set(null);
+        return get();
+    }
+
+    // Called on the thread that saved the preference, usually the main one
+    private void invalidate() {
+        generation.incrementAndGet();
+        snapshot.set(null);
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        // Changes from here on queue another rebuild
+                        rebuildQueued.set(false);
+                        get();
+                    }
+                }
+            );
+        }
+    }
+
+    private Config build() {
+        String domains = prefs.getString("domains", "");
+        String token = decryptToken(prefs.getString("token", ""));
+        String ip = prefs.getString("ip", "");
+        String interval = prefs.getString("interval", "");
+
+        int defaultMinutes = parseMinutes(
+            interval,
+            Config.DEFAULT_INTERVAL_MINUTES
+        );
+        List<UpdateProfile> extraProfiles = new ArrayList<>();
+        for (String name : profileNames()) {
+            String prefix = PROFILE_PREFIX + name + ".";
+            extraProfiles.add(
+                new UpdateProfile(
+                    name,
+                    new UpdateTarget(
+                        prefs.getString(prefix + "domains", ""),
+                        decryptToken(prefs.getString(prefix + "token", "")),
+                        prefs.getString(prefix + "ip", "")
+                    ),
+                    parseMinutes(
+                        prefs.getString(prefix + "interval", ""),
+                        defaultMinutes
+                    )
+                )
+            );
+        }
+
+        return new Config(domains, token, ip, interval, extraProfiles);
+    }
+
+    private List<String> profileNames() {
+        List<String> names = new ArrayList<>();
+        for (String name : prefs.getString(KEY_PROFILES, "").split("\n")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+        return names;
+    }
+
+    // Profiles without a valid interval follow the default profile's
+    private static int parseMinutes(String interval, int defaultMinutes) {
+        try {
+            int minutes = Integer.parseInt(interval.trim());
+            return minutes > 0 ? minutes : defaultMinutes;
+        } catch (NumberFormatException e) {
+            return defaultMinutes;
+        }
+    }
+
+    private String decryptToken(String token) {
+        if (token.isEmpty()) {
+            return token;
+        }
+        try {
+            return CredentialsHolder.getInstance(appContext).decrypt(token);
+        } catch (Exception e) {
+            // Token might be in plain text format, keep it only if valid
+            if (!Config.isValidTokenFormat(token)) {
+                Log.e(TAG, "Failed to decrypt token", e);
+                return "";
+            }
+            return token;
+        }
+    }
+}
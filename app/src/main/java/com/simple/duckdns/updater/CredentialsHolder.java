@@ -0,0 +1,390 @@
+package com.simple.duckdns.updater;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyPermanentlyInvalidatedException;
+import android.security.keystore.KeyProperties;
+import android.util.Base64;
+import android.util.Log;
+import com.simple.duckdns.core.LatencyRecorder;
+import com.simple.duckdns.core.Span;
+import com.simple.duckdns.core.Tracer;
+import java.security.InvalidKeyException;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Process-wide holder for the token encryption key and the decrypted token.
+ *
+ * Loading the AndroidKeyStore and looking up the key alias is an IPC round
+ * trip to keystore, so the SecretKey handle is resolved once per process and
+ * dropped only when keystore rejects it. The decrypted token is kept in memory
+ * for the "token_ttl" preference in minutes (30 by default, set by a
+ * configuration import) and dropped as soon as the stored token changes in
+ * SharedPreferences.
+ *
+ * Decrypts are traced and timed once {@link #setTelemetry} has handed in the
+ * engine's tracer and latency recorder.
+ */
+public final class CredentialsHolder {
+
+    private static final String TAG = "CredentialsHolder";
+    private static final String PREFS_NAME = "config";
+    private static final String PREF_TOKEN = "token";
+    static final String PREF_TOKEN_TTL = "token_ttl";
+
+    private static final String KEY_ALIAS = "duckdns_key";
+    private static final String ANDROID_KEYSTORE = "AndroidKeyStore";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH_BITS = 128;
+
+    // How long a decrypted token stays in memory
+    public static final long DEFAULT_TOKEN_TTL_MILLIS =
+        TimeUnit.MINUTES.toMillis(30);
+
+    private static volatile CredentialsHolder instance;
+
+    private final SharedPreferences prefs;
+
+    // SharedPreferences only keeps a weak reference to its listeners
+    private final SharedPreferences.OnSharedPreferenceChangeListener prefsListener =
+        new SharedPreferences.OnSharedPreferenceChangeListener() {
+            @Override
+            public void onSharedPreferenceChanged(
+                SharedPreferences sharedPreferences,
+                String key
+            ) {
+                if (key == null || PREF_TOKEN.equals(key)) {
+                    onStoredTokenChanged(
+                        sharedPreferences.getString(PREF_TOKEN, "")
+                    );
+                }
+                if (key == null || PREF_TOKEN_TTL.equals(key)) {
+                    applyStoredTtl(sharedPreferences);
+                }
+            }
+        };
+
+    private volatile SecretKey secretKey;
+    private volatile long tokenTtlMillis = DEFAULT_TOKEN_TTL_MILLIS;
+    private volatile Tracer tracer;
+    private volatile LatencyRecorder latency;
+
+    // Guarded by this
+    private String cachedEncryptedToken;
+    private String cachedToken;
+    private long cachedAtMillis;
+
+    private CredentialsHolder(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+        applyStoredTtl(prefs);
+    }
+
+    public static CredentialsHolder getInstance(Context context) {
+        CredentialsHolder holder = instance;
+        if (holder == null) {
+            synchronized (CredentialsHolder.class) {
+                holder = instance;
+                if (holder == null) {
+                    holder = new CredentialsHolder(
+                        context.getApplicationContext()
+                    );
+                    instance = holder;
+                }
+            }
+        }
+        return holder;
+    }
+
+    /**
+     * Trace and time decrypts with the engine's tracer and latency recorder.
+     * Set by {@link UpdateEngineProvider} once the engine is built; decrypts
+     * before that are neither traced nor timed.
+     */
+    public void setTelemetry(Tracer tracer, LatencyRecorder latency) {
+        this.latency = latency;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Set how long a decrypted token is kept in memory. A TTL of 0 disables
+     * token caching; the key handle is still reused.
+     */
+    public void setTokenTtl(long duration, TimeUnit unit) {
+        tokenTtlMillis = Math.max(0, unit.toMillis(duration));
+        invalidateToken();
+    }
+
+    /**
+     * Store the token TTL, applied by the preference listener.
+     *
+     * @param minutes Whole minutes, 0 to disable caching, empty for default
+     * @throws IllegalArgumentException if not a non-negative number
+     */
+    public void saveTokenTtl(String minutes) {
+        String value = minutes.trim();
+        if (!value.isEmpty() && parseTtlMinutes(value) < 0) {
+            throw new IllegalArgumentException(
+                "Invalid token TTL \"" + minutes + "\""
+            );
+        }
+        prefs.edit().putString(PREF_TOKEN_TTL, value).apply();
+    }
+
+    /** @return Stored token TTL in minutes, empty for the default */
+    public String getStoredTokenTtl() {
+        return prefs.getString(PREF_TOKEN_TTL, "").trim();
+    }
+
+    private void applyStoredTtl(SharedPreferences sharedPreferences) {
+        long minutes = parseTtlMinutes(
+            sharedPreferences.getString(PREF_TOKEN_TTL, "").trim()
+        );
+        long millis = minutes >= 0
+            ? TimeUnit.MINUTES.toMillis(minutes)
+            : DEFAULT_TOKEN_TTL_MILLIS;
+        if (millis != tokenTtlMillis) {
+            setTokenTtl(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // -1 if empty or not a non-negative number
+    private static long parseTtlMinutes(String value) {
+        try {
+            return value.isEmpty() ? -1 : Math.max(-1, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public synchronized void invalidateToken() {
+        cachedEncryptedToken = null;
+        cachedToken = null;
+        cachedAtMillis = 0;
+    }
+
+    /**
+     * Decrypt a stored token, serving it from memory while the same ciphertext
+     * is cached and the TTL has not expired.
+     *
+     * @param encryptedText Base64 IV + ciphertext as stored in SharedPreferences
+     * @return Plain-text token
+     * @throws Exception if the value is not a token encrypted with our key
+     */
+    public String decrypt(String encryptedText) throws Exception {
+        if (encryptedText == null || encryptedText.isEmpty()) {
+            return encryptedText;
+        }
+
+        synchronized (this) {
+            if (
+                encryptedText.equals(cachedEncryptedToken) &&
+                SystemClock.elapsedRealtime() - cachedAtMillis < tokenTtlMillis
+            ) {
+                return cachedToken;
+            }
+        }
+
+        // Part of the run's trace when called from the worker
+        Tracer currentTracer = tracer;
+        Span span = currentTracer != null
+            ? currentTracer.startChildSpan(LatencyRecorder.PHASE_DECRYPT)
+            : Span.NOOP;
+        try {
+            return decryptUncached(encryptedText, span);
+        } catch (Exception e) {
+            span.setError(e.toString());
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private String decryptUncached(String encryptedText, Span span)
+        throws Exception {
+        long start = SystemClock.elapsedRealtimeNanos();
+        boolean coldKey = secretKey == null;
+        span.setAttribute("key", coldKey ? "cold" : "warm");
+
+        byte[] combined = Base64.decode(encryptedText, Base64.NO_WRAP);
+        if (combined.length <= GCM_IV_LENGTH) {
+            throw new IllegalArgumentException("Encrypted token is too short");
+        }
+
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        GCMParameterSpec gcmSpec = new GCMParameterSpec(
+            GCM_TAG_LENGTH_BITS,
+            combined,
+            0,
+            GCM_IV_LENGTH
+        );
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, getOrCreateSecretKey(), gcmSpec);
+        } catch (InvalidKeyException e) {
+            dropSecretKey(e);
+            throw e;
+        }
+
+        byte[] decryptedBytes = cipher.doFinal(
+            combined,
+            GCM_IV_LENGTH,
+            combined.length - GCM_IV_LENGTH
+        );
+        String token = new String(decryptedBytes);
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(
+            SystemClock.elapsedRealtimeNanos() - start
+        );
+        LatencyRecorder currentLatency = latency;
+        if (currentLatency != null) {
+            currentLatency.recordMicros(LatencyRecorder.PHASE_DECRYPT, micros);
+        }
+        Log.d(
+            TAG,
+            "Token decrypted in " +
+                micros +
+                " us (" +
+                (coldKey ? "cold" : "warm") +
+                " key)"
+        );
+
+        cache(encryptedText, token);
+        return token;
+    }
+
+    /**
+     * Encrypt a token for storage. The result is cached so the next read of the
+     * saved value does not need to decrypt it again.
+     *
+     * @param plainText Plain-text token
+     * @return Base64 IV + ciphertext
+     * @throws Exception if the key cannot be used
+     */
+    public String encrypt(String plainText) throws Exception {
+        if (plainText == null || plainText.isEmpty()) {
+            return plainText;
+        }
+
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, getOrCreateSecretKey());
+        } catch (InvalidKeyException e) {
+            dropSecretKey(e);
+            throw e;
+        }
+
+        byte[] encryptedBytes = cipher.doFinal(plainText.getBytes());
+        byte[] iv = cipher.getIV();
+
+        // Combine IV and encrypted data
+        byte[] combined = new byte[iv.length + encryptedBytes.length];
+        System.arraycopy(iv, 0, combined, 0, iv.length);
+        System.arraycopy(
+            encryptedBytes,
+            0,
+            combined,
+            iv.length,
+            encryptedBytes.length
+        );
+
+        String encryptedText = Base64.encodeToString(combined, Base64.NO_WRAP);
+        cache(encryptedText, plainText);
+        return encryptedText;
+    }
+
+    private synchronized void cache(String encryptedText, String token) {
+        if (tokenTtlMillis <= 0) {
+            return;
+        }
+        cachedEncryptedToken = encryptedText;
+        cachedToken = token;
+        cachedAtMillis = SystemClock.elapsedRealtime();
+    }
+
+    private synchronized void onStoredTokenChanged(String storedToken) {
+        // Our own encrypt() already cached the value that was just saved
+        if (storedToken == null || !storedToken.equals(cachedEncryptedToken)) {
+            Log.d(TAG, "Stored token changed - dropping cached token");
+            cachedEncryptedToken = null;
+            cachedToken = null;
+            cachedAtMillis = 0;
+        }
+    }
+
+    private SecretKey getOrCreateSecretKey() throws Exception {
+        SecretKey key = secretKey;
+        if (key != null) {
+            return key;
+        }
+
+        synchronized (this) {
+            if (secretKey == null) {
+                secretKey = loadOrCreateSecretKey();
+            }
+            return secretKey;
+        }
+    }
+
+    /**
+     * Forget the key handle keystore rejected, so the next call resolves it
+     * again. A key invalidated for good (e.g. the lock screen was removed)
+     * is deleted: tokens encrypted with it are lost either way, and the next
+     * encrypt() creates a fresh key instead of failing until restart.
+     */
+    private void dropSecretKey(InvalidKeyException e) {
+        synchronized (this) {
+            secretKey = null;
+        }
+        invalidateToken();
+        if (!(e instanceof KeyPermanentlyInvalidatedException)) {
+            Log.w(TAG, "Key rejected, reloading it: " + e);
+            return;
+        }
+        Log.w(TAG, "Key permanently invalidated, deleting it", e);
+        try {
+            KeyStore keyStore = KeyStore.getInstance(ANDROID_KEYSTORE);
+            keyStore.load(null);
+            keyStore.deleteEntry(KEY_ALIAS);
+        } catch (Exception deleteError) {
+            Log.e(TAG, "Failed to delete invalidated key", deleteError);
+        }
+    }
+
+    private SecretKey loadOrCreateSecretKey() throws Exception {
+        // Try to load existing key from Android KeyStore
+        KeyStore keyStore = KeyStore.getInstance(ANDROID_KEYSTORE);
+        keyStore.load(null);
+
+        if (keyStore.containsAlias(KEY_ALIAS)) {
+            KeyStore.SecretKeyEntry secretKeyEntry =
+                (KeyStore.SecretKeyEntry) keyStore.getEntry(KEY_ALIAS, null);
+            return secretKeyEntry.getSecretKey();
+        }
+
+        // Create new key
+        KeyGenerator keyGenerator = KeyGenerator.getInstance(
+            KeyProperties.KEY_ALGORITHM_AES,
+            ANDROID_KEYSTORE
+        );
+        KeyGenParameterSpec keyGenParameterSpec =
+            new KeyGenParameterSpec.Builder(
+                KEY_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT
+            )
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setRandomizedEncryptionRequired(true)
+                .build();
+
+        keyGenerator.init(keyGenParameterSpec);
+        return keyGenerator.generateKey();
+    }
+}
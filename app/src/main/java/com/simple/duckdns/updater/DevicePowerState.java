@@ -0,0 +1,79 @@
+package com.simple.duckdns.updater;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import android.util.Log;
+import com.simple.duckdns.core.EnergyPolicy;
+
+/**
+ * Reads the power state {@link EnergyPolicy} decides on: battery level and
+ * charging from the sticky battery broadcast, battery saver and Doze from
+ * PowerManager, and whether the radio is already up from ConnectivityManager.
+ */
+final class DevicePowerState {
+
+    private DevicePowerState() {}
+
+    static EnergyPolicy.Conditions read(Context context) {
+        int batteryPercent = -1;
+        boolean charging = false;
+        boolean powerSave = false;
+        boolean deviceIdle = false;
+        boolean radioActive = false;
+        try {
+            // Null receiver: returns the sticky intent without registering
+            Intent battery = context.registerReceiver(
+                null,
+                new IntentFilter(Intent.ACTION_BATTERY_CHANGED)
+            );
+            if (battery != null) {
+                int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+                int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+                if (level >= 0 && scale > 0) {
+                    batteryPercent = (level * 100) / scale;
+                }
+                int plugged = battery.getIntExtra(
+                    BatteryManager.EXTRA_PLUGGED,
+                    0
+                );
+                charging = plugged != 0;
+            }
+
+            PowerManager powerManager = (PowerManager) context.getSystemService(
+                Context.POWER_SERVICE
+            );
+            if (powerManager != null) {
+                powerSave = powerManager.isPowerSaveMode();
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                    deviceIdle = powerManager.isDeviceIdleMode();
+                }
+            }
+
+            ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(
+                    Context.CONNECTIVITY_SERVICE
+                );
+            if (connectivityManager != null) {
+                radioActive = connectivityManager.isDefaultNetworkActive();
+            }
+        } catch (Exception e) {
+            // Unknown state counts as normal, the run goes ahead
+            Log.w(
+                "DevicePowerState",
+                "Failed to read power state: " + e.getMessage()
+            );
+        }
+        return new EnergyPolicy.Conditions(
+            batteryPercent,
+            charging,
+            powerSave,
+            deviceIdle,
+            radioActive
+        );
+    }
+}
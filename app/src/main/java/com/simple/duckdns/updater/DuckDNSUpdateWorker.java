@@ -1,79 +1,188 @@
 package com.simple.duckdns.updater;
 
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
 import android.content.Context;
-import android.content.Intent;
 import android.content.SharedPreferences;
-import android.security.keystore.KeyGenParameterSpec;
-import android.security.keystore.KeyProperties;
-import android.util.Base64;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.os.Build;
 import android.util.Log;
 import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.lifecycle.LiveData;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
 import androidx.work.Data;
 import androidx.work.ExistingWorkPolicy;
+import androidx.work.ForegroundInfo;
+import androidx.work.NetworkType;
 import androidx.work.OneTimeWorkRequest;
+import androidx.work.OutOfQuotaPolicy;
+import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
 import androidx.work.Worker;
 import androidx.work.WorkerParameters;
-import java.io.File;
-import java.io.FileWriter;
-import java.net.InetAddress;
-import java.security.KeyStore;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import com.simple.duckdns.core.EnergyPolicy;
+import com.simple.duckdns.core.LatencyRecorder;
+import com.simple.duckdns.core.LogTimestamp;
+import com.simple.duckdns.core.NetworkAccounting;
+import com.simple.duckdns.core.Prewarm;
+import com.simple.duckdns.core.ProfileFanOut;
+import com.simple.duckdns.core.PropagationTracker;
+import com.simple.duckdns.core.RateLimiter;
+import com.simple.duckdns.core.RunTraffic;
+import com.simple.duckdns.core.Span;
+import com.simple.duckdns.core.TrafficCounters;
+import com.simple.duckdns.core.UpdateEngine;
+import com.simple.duckdns.core.UpdateLogger;
+import com.simple.duckdns.core.UpdateProfile;
+import com.simple.duckdns.core.UpdateResult;
+import com.simple.duckdns.core.UpdateStatus;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import javax.crypto.Cipher;
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
-import javax.crypto.spec.GCMParameterSpec;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
 
 public class DuckDNSUpdateWorker extends Worker {
 
-    private static final String LOG_FILE = "duckdns_log.txt";
     private static final String CONFIG_FILE = "duckdns_config.txt";
-    private static final String LOG_UPDATED_ACTION =
-        "com.simple.duckdns.updater.LOG_UPDATED";
-    private static final DateTimeFormatter LOG_DATE_FORMAT =
-        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private static final String WORK_NAME = "duckdns_update_work";
     private static final String KEY_INTERVAL_MINUTES = "interval_minutes";
 
-    // DNS servers to check
-    private static final String[] DNS_SERVERS = {
-        "1.1.1.1",
-        "8.8.8.8",
-        "208.67.222.222",
-    };
-
-    // Singleton OkHttpClient instance to avoid resource leaks
-    private static final OkHttpClient HTTP_CLIENT = new OkHttpClient.Builder()
-        .connectTimeout(15, TimeUnit.SECONDS)
-        .readTimeout(15, TimeUnit.SECONDS)
-        .writeTimeout(15, TimeUnit.SECONDS)
-        .build();
-
-    // OkHttpClient for quick checks with shorter timeouts
-    private static final OkHttpClient QUICK_HTTP_CLIENT =
-        new OkHttpClient.Builder()
-            .connectTimeout(2, TimeUnit.SECONDS)
-            .readTimeout(2, TimeUnit.SECONDS)
-            .writeTimeout(2, TimeUnit.SECONDS)
-            .build();
+    // Offline queue: a coalesced pending-update marker flushed on reconnect
+    private static final String FLUSH_WORK_NAME = "duckdns_flush_work";
+    private static final String KEY_FLUSH = "flush";
+    private static final String STATE_PREFS = PreferencesStateStore.PREFS_NAME;
+    private static final String KEY_PENDING_UPDATE = "pending_update";
+    private static final String KEY_PENDING_SINCE = "pending_since";
+    private static final String KEY_PENDING_RUNS = "pending_runs";
+
+    // Manual updates run as expedited work so they outlive the Activity
+    private static final String MANUAL_WORK_NAME = "duckdns_manual_update";
+    private static final String KEY_MANUAL = "manual";
+    private static final String NOTIFICATION_CHANNEL_ID = "duckdns_updates";
+
+    // Re-checks of updated records, one TTL apart, see PropagationTracker
+    private static final String PROPAGATION_WORK_NAME =
+        "duckdns_propagation_check";
+    private static final String KEY_PROPAGATION = "propagation";
+    private static final int NOTIFICATION_ID = 1;
+
+    // Output data of manual runs, read by MainActivity
+    public static final String KEY_RESULT_STATUS = "result_status";
+    public static final String KEY_RESULT_SKIPPED = "result_skipped";
+    public static final String KEY_RESULT_MESSAGE = "result_message";
+
+    // Retry policy for transient failures (network, timeout, HTTP 5xx)
+    private static final long BACKOFF_INITIAL_SECONDS = 30;
+    private static final long BACKOFF_JITTER_SECONDS = 15;
+    private static final int MAX_RETRY_ATTEMPTS = 5;
+
+    // Prefix of log file entries: "AutoUpdate" or "Manual Update"
+    private String logPrefix = "AutoUpdate";
+
+    // Set when the energy policy skipped this run's verification
+    private boolean deferred;
+
+    private final UpdateEngine engine;
+    private final UpdateLogger logger;
+    private final ProfileFanOut fanOut;
 
     public DuckDNSUpdateWorker(
         @NonNull Context context,
         @NonNull WorkerParameters params
     ) {
         super(context, params);
+        engine = UpdateEngineProvider.getEngine(context);
+        logger = UpdateEngineProvider.getLogger(context);
+        fanOut = new ProfileFanOut(engine, ProfileFanOut.DEFAULT_MAX_PARALLEL);
     }
 
     @NonNull
     @Override
     public Result doWork() {
+        LatencyRecorder latency = engine.getLatencyRecorder();
+        NetworkAccounting accounting = engine.getNetworkAccounting();
+        long start = latency.start();
+        accounting.beginRun();
+        boolean manual = getInputData().getBoolean(KEY_MANUAL, false);
+        boolean propagation = getInputData().getBoolean(
+            KEY_PROPAGATION,
+            false
+        );
+        // A manual tap may empty the rate limit buckets, other runs leave it
+        // a reserve and re-checks are shed first
+        RateLimiter.setPriority(
+            manual
+                ? RateLimiter.Priority.MANUAL
+                : propagation
+                    ? RateLimiter.Priority.VERIFICATION
+                    : RateLimiter.Priority.SCHEDULED
+        );
+        // Root of this run's trace; config load, decrypt and the engine's
+        // phases nest under it
+        try (
+            Span span = engine
+                .getTracer()
+                .startSpan(
+                    manual
+                        ? "manual_run"
+                        : propagation
+                            ? "propagation_run"
+                            : "worker_run"
+                )
+        ) {
+            span.setAttribute("attempt", getRunAttemptCount());
+            if (manual) {
+                logPrefix = "Manual Update";
+                return runManualUpdate();
+            }
+            if (propagation) {
+                return runPropagationCheck();
+            }
+            span.setAttribute(
+                "flush",
+                getInputData().getBoolean(KEY_FLUSH, false)
+            );
+            return runScheduledUpdate();
+        } finally {
+            RateLimiter.setPriority(null);
+            long runMicros = latency.record(LatencyRecorder.PHASE_RUN, start);
+            latency.flush();
+            engine.getRateLimiter().flush();
+            RunTraffic traffic = accounting.endRun();
+            accounting.flush();
+            logTraffic(traffic);
+            UpdateEngineProvider.getEnergyLedger(
+                getApplicationContext()
+            ).recordRun(runMicros / 1000, traffic, deferred);
+        }
+    }
+
+    private static void logTraffic(RunTraffic traffic) {
+        TrafficCounters total = traffic.getTotal();
+        Log.d(
+            "DuckDNSUpdateWorker",
+            "Run traffic: " +
+                total.getRequests() +
+                " requests, " +
+                total.getBytesSent() +
+                " B sent, " +
+                total.getBytesReceived() +
+                " B received, " +
+                total.getTlsHandshakes() +
+                " TLS handshakes, " +
+                total.getReusedConnections() +
+                " reused connections, radio ~" +
+                traffic.getRadioActiveMillis() +
+                " ms"
+        );
+    }
+
+    private Result runScheduledUpdate() {
+        boolean isFlush = getInputData().getBoolean(KEY_FLUSH, false);
         try {
             Log.d("DuckDNSUpdateWorker", "Worker started - doWork() called");
 
@@ -84,72 +193,101 @@ public class DuckDNSUpdateWorker extends Worker {
             );
             Log.d(
                 "DuckDNSUpdateWorker",
-                "Working with interval: " + intervalMinutes + " minutes"
+                "Working with interval: " +
+                    intervalMinutes +
+                    " minutes" +
+                    (isFlush ? " (offline queue flush)" : "")
             );
 
-            // Log that the worker is starting
-            String startMessage =
-                "[" +
-                LocalDateTime.now().format(LOG_DATE_FORMAT) +
-                "] AutoUpdate triggered by WorkManager";
-            writeLog(getApplicationContext(), startMessage);
-            Log.d("DuckDNSUpdateWorker", "Started auto update log written");
-
-            // Notify MainActivity that there might be new logs
-            notifyLogUpdate(getApplicationContext());
-
-            // Read configuration from file
-            String[] config = readConfigFromFile(getApplicationContext());
-            String domains = config[0];
-            String token = config[1];
-            String ip = config[2];
+            // Coalesce any runs missed while offline into this one
+            int missedRuns = claimPendingUpdate(getApplicationContext());
+            if (isFlush && missedRuns == 0) {
+                Log.d(
+                    "DuckDNSUpdateWorker",
+                    "No pending update to flush - already handled"
+                );
+                return Result.success();
+            }
+            if (missedRuns > 0) {
+                if (!isFlush) {
+                    // This scheduled run replaces the queued flush
+                    WorkManager.getInstance(
+                        getApplicationContext()
+                    ).cancelUniqueWork(FLUSH_WORK_NAME);
+                }
+                logger.event(
+                    "AutoUpdate: connectivity restored - " +
+                        missedRuns +
+                        " queued run(s) coalesced into one update"
+                );
+            }
 
-            Log.d(
-                "DuckDNSUpdateWorker",
-                "Read config - domains: " +
-                    domains +
-                    ", token: " +
-                    (token != null && !token.isEmpty() ? "present" : "missing")
+            // Don't burn a run on timeouts when there is no network at all
+            if (!isNetworkAvailable(getApplicationContext())) {
+                return queueOfflineUpdate(intervalMinutes, isFlush);
+            }
+
+            // Skip non-urgent checks when they would cost battery
+            EnergyPolicy.Decision decision = decideEnergy(
+                missedRuns > 0 || isFlush,
+                intervalMinutes
             );
+            if (!decision.shouldRun()) {
+                return deferVerification(decision, intervalMinutes);
+            }
+
+            // Log that the worker is starting
+            logger.event("AutoUpdate triggered by WorkManager");
+
+            // Connect to every host of the run while the configuration loads
+            Prewarm prewarm = startPrewarm(getApplicationContext());
+
+            // Read the current configuration snapshot
+            Config config = readConfig(getApplicationContext());
 
-            if (domains.isEmpty() || token.isEmpty()) {
-                String message =
-                    "[" +
-                    LocalDateTime.now().format(LOG_DATE_FORMAT) +
-                    "] AutoUpdate FAILED - No configuration found";
-                writeLog(getApplicationContext(), message);
-                notifyLogUpdate(getApplicationContext());
+            UpdateStatus status = UpdateStatus.SUCCESS;
+            List<UpdateProfile> profiles = config.getProfiles();
+            if (profiles.isEmpty()) {
+                logger.event("AutoUpdate FAILED - No configuration found");
                 Log.d(
                     "DuckDNSUpdateWorker",
-                    "Configuration missing - worker completed with success"
+                    "Configuration missing - not retrying until next run"
                 );
+                status = UpdateStatus.BAD_CONFIG;
             } else {
-                // Check if update is needed before performing it
-                if (shouldPerformUpdate(getApplicationContext(), domains, ip)) {
-                    // Perform the actual DuckDNS update
-                    boolean success = performDuckDNSUpdate(
-                        getApplicationContext(),
-                        domains,
-                        token,
-                        ip
+                // Wake up for the profile with the shortest interval
+                intervalMinutes = ProfileFanOut.minIntervalMinutes(
+                    profiles,
+                    Integer.MAX_VALUE
+                );
+                // An owed update checks every profile, otherwise the due
+                // ones; failed profiles stay due for the retry
+                List<UpdateProfile> due = missedRuns > 0 || isFlush
+                    ? profiles
+                    : fanOut.due(profiles);
+                if (due.isEmpty()) {
+                    Log.d("DuckDNSUpdateWorker", "No profile due");
+                } else {
+                    // Check if update is needed, then perform it
+                    prewarm.await();
+                    UpdateResult result = ProfileFanOut.summarize(
+                        fanOut.run(due, logPrefix)
                     );
+                    status = result.getStatus();
 
                     Log.d(
                         "DuckDNSUpdateWorker",
-                        "DuckDNS update completed with success: " + success
-                    );
-                } else {
-                    Log.d(
-                        "DuckDNSUpdateWorker",
-                        "Skipping update - DNS already up to date"
+                        result.isSkipped()
+                            ? "Skipping update - DNS already up to date"
+                            : "DuckDNS update completed with status: " +
+                                status +
+                                " " +
+                                result.getMessage()
                     );
                 }
             }
 
-            // Reschedule the next execution
-            scheduleNextExecution(getApplicationContext(), intervalMinutes);
-
-            return Result.success();
+            return finishRun(status, intervalMinutes, isFlush);
         } catch (Exception e) {
             e.printStackTrace();
             Log.e(
@@ -157,596 +295,620 @@ public class DuckDNSUpdateWorker extends Worker {
                 "Exception in doWork(): " + e.getMessage(),
                 e
             );
-            writeLog(
-                getApplicationContext(),
-                "[" +
-                    LocalDateTime.now().format(LOG_DATE_FORMAT) +
-                    "] AutoUpdate ERROR: " +
-                    e.getMessage()
-            );
-            notifyLogUpdate(getApplicationContext());
+            logger.event("AutoUpdate ERROR: " + e.getMessage());
 
-            // Even on failure, reschedule to try again
             int intervalMinutes = getInputData().getInt(
                 KEY_INTERVAL_MINUTES,
                 15
             );
-            scheduleNextExecution(getApplicationContext(), intervalMinutes);
-
-            return Result.failure();
+            return finishRun(
+                UpdateStatus.fromException(e),
+                intervalMinutes,
+                isFlush
+            );
         }
     }
 
-    private void scheduleNextExecution(Context context, int intervalMinutes) {
+    /**
+     * Re-check the records still propagating after an update, then schedule
+     * the next re-check while any remain. Never retried: a record that keeps
+     * failing is given up by the tracker and the regular run takes over.
+     *
+     * @return Always success
+     */
+    private Result runPropagationCheck() {
         try {
+            int checked = engine.verifyPropagation(logPrefix);
             Log.d(
                 "DuckDNSUpdateWorker",
-                "Scheduling next execution in " + intervalMinutes + " minutes"
-            );
-
-            Data inputData = new Data.Builder()
-                .putInt(KEY_INTERVAL_MINUTES, intervalMinutes)
-                .build();
-
-            OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(
-                DuckDNSUpdateWorker.class
-            )
-                .setInitialDelay(intervalMinutes, TimeUnit.MINUTES)
-                .setInputData(inputData)
-                .build();
-
-            WorkManager.getInstance(context).enqueueUniqueWork(
-                WORK_NAME,
-                ExistingWorkPolicy.REPLACE,
-                workRequest
-            );
-
-            Log.d(
-                "DuckDNSUpdateWorker",
-                "Successfully scheduled next execution"
+                "Propagation re-check of " + checked + " record(s)"
             );
         } catch (Exception e) {
             Log.e(
                 "DuckDNSUpdateWorker",
-                "Failed to schedule next execution: " + e.getMessage(),
+                "Exception in propagation re-check: " + e.getMessage(),
                 e
             );
         }
+        schedulePropagationCheck(getApplicationContext(), engine);
+        return Result.success();
     }
 
     /**
-     * Check if DuckDNS update should be performed by comparing current/configured IP
-     * with DNS resolution results from multiple DNS servers.
+     * Manual update requested from MainActivity. Runs every profile once, is
+     * neither retried nor rescheduled, and reports the combined outcome
+     * through the output data.
      *
-     * @param context Application context
-     * @param domains Comma-separated list of domains
-     * @param configuredIp IP configured by user (may be null/empty)
-     * @return true if update should be performed, false if DNS is already up to date
+     * @return Worker result carrying KEY_RESULT_* output data
      */
-    private boolean shouldPerformUpdate(
-        Context context,
-        String domains,
-        String configuredIp
-    ) {
-        try {
-            String targetIp;
-
-            // Case A: No IP configured - get current public IP
-            if (configuredIp == null || configuredIp.isEmpty()) {
-                Log.d(
-                    "DuckDNSUpdateWorker",
-                    "No IP configured, getting current public IP"
-                );
-                targetIp = getCurrentPublicIp();
-
-                if (targetIp == null || targetIp.isEmpty()) {
-                    Log.w(
-                        "DuckDNSUpdateWorker",
-                        "Failed to get public IP, proceeding with update"
-                    );
-                    return true; // If we can't get IP, proceed with update
-                }
+    private Result runManualUpdate() {
+        Context context = getApplicationContext();
+        promoteToForeground();
 
-                Log.d("DuckDNSUpdateWorker", "Current public IP: " + targetIp);
-            } else {
-                // Case B: IP is configured
-                targetIp = configuredIp;
-                Log.d(
-                    "DuckDNSUpdateWorker",
-                    "Using configured IP: " + targetIp
+        try {
+            Prewarm prewarm = startPrewarm(context);
+            Config config = readConfig(context);
+            if (!config.hasCompleteProfile()) {
+                return Result.failure(
+                    buildOutput(
+                        UpdateStatus.BAD_CONFIG,
+                        false,
+                        "No configuration found"
+                    )
                 );
             }
 
-            // Split domains and check each one
-            String[] domainList = domains.split(",");
-            for (String domain : domainList) {
-                domain = domain.trim();
-                if (!domain.isEmpty()) {
-                    // Add .duckdns.org if not present
-                    String fullDomain = domain.contains(".")
-                        ? domain
-                        : domain + ".duckdns.org";
-
-                    List<String> dnsResults = resolveDomainOnDnsServers(
-                        fullDomain
-                    );
-
-                    // Count how many DNS servers returned different IP
-                    int mismatchCount = 0;
-                    for (String dnsIp : dnsResults) {
-                        if (dnsIp != null && !dnsIp.equals(targetIp)) {
-                            mismatchCount++;
-                            Log.d(
-                                "DuckDNSUpdateWorker",
-                                "DNS mismatch for " +
-                                    fullDomain +
-                                    ": got " +
-                                    dnsIp +
-                                    ", expected " +
-                                    targetIp
-                            );
-                        }
-                    }
-
-                    // If 2 or more DNS servers have different IP, update is needed
-                    if (mismatchCount >= 2) {
-                        Log.d(
-                            "DuckDNSUpdateWorker",
-                            "Update needed: " +
-                                mismatchCount +
-                                " DNS servers have outdated IP for " +
-                                fullDomain
-                        );
-                        return true;
-                    }
-                }
-            }
-
-            // All domains are up to date
-            String timestamp = LocalDateTime.now().format(LOG_DATE_FORMAT);
-            String skipMessage = String.format(
-                "[%s] AutoUpdate: %s - SKIPPED (DNS already up to date with IP: %s)",
-                timestamp,
-                domains,
-                targetIp
+            prewarm.await();
+            UpdateResult result = ProfileFanOut.summarize(
+                fanOut.run(config.getProfiles(), logPrefix)
             );
-            writeLog(context, skipMessage);
-            notifyLogUpdate(context);
-            Log.d(
-                "DuckDNSUpdateWorker",
-                "DNS already up to date, skipping update"
+            Data output = buildOutput(
+                result.getStatus(),
+                result.isSkipped(),
+                result.getMessage()
             );
-            return false;
+            if (!result.isSuccess()) {
+                return Result.failure(output);
+            }
+
+            // A successful update also settles an update queued while offline
+            if (claimPendingUpdate(context) > 0) {
+                WorkManager.getInstance(context).cancelUniqueWork(
+                    FLUSH_WORK_NAME
+                );
+            }
+            schedulePropagationCheck(context, engine);
+            return Result.success(output);
         } catch (Exception e) {
             Log.e(
                 "DuckDNSUpdateWorker",
-                "Error checking if update needed: " + e.getMessage(),
+                "Exception in manual update: " + e.getMessage(),
                 e
             );
-            return true; // On error, proceed with update to be safe
+            return Result.failure(
+                buildOutput(
+                    UpdateStatus.fromException(e),
+                    false,
+                    e.getMessage()
+                )
+            );
         }
     }
 
+    private static Data buildOutput(
+        UpdateStatus status,
+        boolean skipped,
+        String message
+    ) {
+        return new Data.Builder()
+            .putString(KEY_RESULT_STATUS, status.name())
+            .putBoolean(KEY_RESULT_SKIPPED, skipped)
+            .putString(KEY_RESULT_MESSAGE, message != null ? message : "")
+            .build();
+    }
+
     /**
-     * Get current public IP address from v4.ident.me
-     *
-     * @return Public IP address or null if failed
+     * Expedited runs already get foreground priority, but once the expedited
+     * quota is used up WorkManager runs the request as regular work. Promote
+     * the run to a short-lived foreground service so a manual update still
+     * starts right away and survives the Activity going away.
      */
-    private String getCurrentPublicIp() {
+    private void promoteToForeground() {
         try {
-            Request request = new Request.Builder()
-                .url("https://v4.ident.me")
-                .build();
-
-            try (
-                Response response = QUICK_HTTP_CLIENT.newCall(request).execute()
-            ) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String ip = response.body().string().trim();
-                    Log.d(
-                        "DuckDNSUpdateWorker",
-                        "Got public IP from v4.ident.me: " + ip
-                    );
-                    return ip;
-                }
-            }
+            setForegroundAsync(createForegroundInfo()).get();
         } catch (Exception e) {
-            Log.e(
+            // Not allowed from the background on Android 12+; run as is
+            Log.w(
                 "DuckDNSUpdateWorker",
-                "Failed to get public IP: " + e.getMessage()
+                "Could not run manual update in foreground: " + e.getMessage()
             );
         }
-        return null;
     }
 
     /**
-     * Resolve domain using multiple DNS servers
-     *
-     * @param domain Domain to resolve (e.g., mydomain.duckdns.org)
-     * @return List of IP addresses resolved by each DNS server (may contain nulls)
+     * Required for expedited work on Android 11 and lower, where WorkManager
+     * runs it as a foreground service.
      */
-    private List<String> resolveDomainOnDnsServers(String domain) {
-        List<String> results = new ArrayList<>();
+    @NonNull
+    @Override
+    public ForegroundInfo getForegroundInfo() {
+        return createForegroundInfo();
+    }
 
-        for (String dnsServer : DNS_SERVERS) {
-            String resolvedIp = resolveDomainWithDns(domain, dnsServer);
-            results.add(resolvedIp);
+    private ForegroundInfo createForegroundInfo() {
+        Context context = getApplicationContext();
 
-            if (resolvedIp != null) {
-                Log.d(
-                    "DuckDNSUpdateWorker",
-                    "DNS " +
-                        dnsServer +
-                        " resolved " +
-                        domain +
-                        " to " +
-                        resolvedIp
-                );
-            } else {
-                Log.d(
-                    "DuckDNSUpdateWorker",
-                    "DNS " + dnsServer + " failed to resolve " + domain
-                );
-            }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager notificationManager =
+                context.getSystemService(NotificationManager.class);
+            NotificationChannel channel = new NotificationChannel(
+                NOTIFICATION_CHANNEL_ID,
+                "DuckDNS updates",
+                NotificationManager.IMPORTANCE_LOW
+            );
+            notificationManager.createNotificationChannel(channel);
         }
 
-        return results;
+        Notification notification = new NotificationCompat.Builder(
+            context,
+            NOTIFICATION_CHANNEL_ID
+        )
+            .setSmallIcon(R.drawable.ic_update)
+            .setContentTitle("Updating DuckDNS")
+            .setContentText("Checking DNS and updating your domains")
+            .setPriority(NotificationCompat.PRIORITY_LOW)
+            .setOngoing(true)
+            .build();
+
+        return new ForegroundInfo(NOTIFICATION_ID, notification);
     }
 
     /**
-     * Resolve domain using a specific DNS server
-     * Note: Android doesn't natively support specifying DNS servers for resolution,
-     * so we use the system's default DNS which may not give us the control we want.
-     * For a production implementation, consider using a DNS library or making
-     * HTTP requests to DNS-over-HTTPS services.
+     * Ask the energy policy whether this scheduled verification runs now.
+     * Retries and runs after a failed one are urgent, like owed updates.
      *
-     * @param domain Domain to resolve
-     * @param dnsServer DNS server IP (currently not directly used due to Android limitations)
-     * @return Resolved IP address or null if failed
+     * @param owedUpdate true if an offline-queued update is settled by this run
+     * @param intervalMinutes Regular schedule interval
+     * @return Decision with the reason, logged to logcat
      */
-    private String resolveDomainWithDns(String domain, String dnsServer) {
-        try {
-            // Note: InetAddress.getByName uses system DNS, not the specified server
-            // For true per-server DNS resolution, we'd need to use DNS-over-HTTPS
-            // or implement raw DNS queries, which is beyond basic Android APIs
-
-            // Using DoH (DNS over HTTPS) as a workaround for specific DNS servers
-            String dohUrl = null;
-            if (dnsServer.equals("1.1.1.1")) {
-                dohUrl = "https://1.1.1.1/dns-query?name=" + domain + "&type=A";
-            } else if (dnsServer.equals("8.8.8.8")) {
-                dohUrl = "https://8.8.8.8/resolve?name=" + domain + "&type=A";
-            } else if (dnsServer.equals("208.67.222.222")) {
-                // OpenDNS doesn't have public DoH, fallback to system DNS
-                InetAddress addr = InetAddress.getByName(domain);
-                return addr.getHostAddress();
-            }
+    private EnergyPolicy.Decision decideEnergy(
+        boolean owedUpdate,
+        int intervalMinutes
+    ) {
+        String lastStatus = engine
+            .getStateStore()
+            .get(UpdateEngine.STATE_LAST_STATUS, UpdateStatus.SUCCESS.name());
+        boolean urgent =
+            owedUpdate ||
+            getRunAttemptCount() > 0 ||
+            !UpdateStatus.SUCCESS.name().equals(lastStatus);
+
+        long lastCheck = engine
+            .getStateStore()
+            .getLong(UpdateEngine.STATE_LAST_CHECK, 0);
+        long sinceLastCheck = lastCheck > 0
+            ? System.currentTimeMillis() - lastCheck
+            : Long.MAX_VALUE;
+
+        EnergyPolicy.Decision decision = EnergyPolicy.decide(
+            DevicePowerState.read(getApplicationContext()),
+            urgent,
+            sinceLastCheck,
+            TimeUnit.MINUTES.toMillis(intervalMinutes)
+        );
+        Log.d(
+            "DuckDNSUpdateWorker",
+            "Energy policy: " +
+                (decision.shouldRun() ? "run" : "defer") +
+                " (" +
+                decision.getReason() +
+                ")"
+        );
+        return decision;
+    }
 
-            if (dohUrl != null) {
-                Request request = new Request.Builder()
-                    .url(dohUrl)
-                    .addHeader("accept", "application/dns-json")
-                    .build();
-
-                try (
-                    Response response = QUICK_HTTP_CLIENT.newCall(
-                        request
-                    ).execute()
-                ) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        String body = response.body().string();
-                        // Simple parsing for IP address in JSON response
-                        // Looking for "Answer":[{"data":"x.x.x.x"}]
-                        int dataIndex = body.indexOf("\"data\":\"");
-                        if (dataIndex > 0) {
-                            int startIndex = dataIndex + 8;
-                            int endIndex = body.indexOf("\"", startIndex);
-                            if (endIndex > startIndex) {
-                                return body.substring(startIndex, endIndex);
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            Log.d(
-                "DuckDNSUpdateWorker",
-                "Failed to resolve " +
-                    domain +
-                    " with DNS " +
-                    dnsServer +
-                    ": " +
-                    e.getMessage()
-            );
-        }
-        return null;
+    /**
+     * Skip this verification without touching the network and trust the
+     * last checked state until the next regular run.
+     *
+     * @param decision Deferring decision
+     * @param intervalMinutes Regular schedule interval
+     * @return Worker result
+     */
+    private Result deferVerification(
+        EnergyPolicy.Decision decision,
+        int intervalMinutes
+    ) {
+        deferred = true;
+        long lastCheck = engine
+            .getStateStore()
+            .getLong(UpdateEngine.STATE_LAST_CHECK, 0);
+        logger.event(
+            "AutoUpdate: DEFERRED - " +
+                decision.getReason() +
+                ", keeping state from last check at " +
+                LogTimestamp.format(lastCheck)
+        );
+        scheduleNextExecution(getApplicationContext(), intervalMinutes);
+        return Result.success();
     }
 
-    private boolean performDuckDNSUpdate(
-        Context context,
-        String domains,
-        String token,
-        String ip
+    /**
+     * Decide how this run ends. Network failures while offline go to the
+     * offline queue; other retryable failures are handed back to WorkManager's
+     * exponential backoff (the chain is not rescheduled, so the same request
+     * runs again); everything else schedules the next regular run.
+     *
+     * @param status Classified outcome of this run
+     * @param intervalMinutes Regular schedule interval
+     * @param isFlush true if this run is the offline queue flush
+     * @return Worker result
+     */
+    private Result finishRun(
+        UpdateStatus status,
+        int intervalMinutes,
+        boolean isFlush
     ) {
-        try {
+        if (
+            status == UpdateStatus.NETWORK_ERROR &&
+            !isNetworkAvailable(getApplicationContext())
+        ) {
+            return queueOfflineUpdate(intervalMinutes, isFlush);
+        }
+
+        if (status.isRetryable() && shouldRetry(intervalMinutes)) {
             Log.d(
                 "DuckDNSUpdateWorker",
-                "Starting DuckDNS update for domains: " + domains
+                "Transient failure (" +
+                    status +
+                    "), retry attempt " +
+                    (getRunAttemptCount() + 1) +
+                    " with backoff"
             );
+            logger.event("AutoUpdate: " + status + " - retrying with backoff");
+            return Result.retry();
+        }
 
-            // Create the URL
-            StringBuilder urlBuilder = new StringBuilder();
-            urlBuilder
-                .append("https://www.duckdns.org/update?domains=")
-                .append(domains)
-                .append("&token=")
-                .append(token);
-            if (ip != null && !ip.isEmpty()) {
-                urlBuilder.append("&ip=").append(ip);
+        if (isFlush) {
+            // The chain is still scheduled; leave an exhausted flush to it
+            if (status.isRetryable()) {
+                markPendingUpdate(getApplicationContext());
             }
-            String url = urlBuilder.toString();
-
-            // Log sanitized URL without exposing token
-            String sanitizedUrl = url.replaceAll("token=[^&]*", "token=***");
-            Log.d("DuckDNSUpdateWorker", "Constructed URL: " + sanitizedUrl);
-
-            // Create HTTP request
-            Request request = new Request.Builder().url(url).build();
+        } else {
+            // Reschedule the next execution
+            scheduleNextExecution(getApplicationContext(), intervalMinutes);
+        }
 
-            // Make HTTP request synchronously
-            try (Response response = HTTP_CLIENT.newCall(request).execute()) {
-                // Get response code
-                int responseCode = response.code();
-                Log.d(
-                    "DuckDNSUpdateWorker",
-                    "HTTP Response Code: " + responseCode
-                );
+        if (status.isSuccess()) {
+            // The regular interval is far longer than a record's TTL
+            schedulePropagationCheck(getApplicationContext(), engine);
+        }
+        return status.isSuccess() ? Result.success() : Result.failure();
+    }
 
-                // Read response body
-                String responseBody = "";
-                if (response.body() != null) {
-                    responseBody = response.body().string();
-                }
-                Log.d("DuckDNSUpdateWorker", "Response body: " + responseBody);
-
-                // Determine success based on response body content
-                boolean isSuccess = false;
-                String statusMessage = "";
-
-                if (responseBody.contains("OK")) {
-                    isSuccess = true;
-                    statusMessage = "OK";
-                } else if (responseBody.contains("KO")) {
-                    isSuccess = false;
-                    statusMessage = "KO";
-                } else {
-                    // Default to checking HTTP status code
-                    isSuccess = (responseCode == 200);
-                    statusMessage = "HTTP " + responseCode;
-                }
+    /**
+     * Record that an update is owed and make sure a flush is queued behind
+     * the network constraint. Repeated offline runs only bump the counter of
+     * the existing marker, so they collapse into a single update on reconnect.
+     *
+     * @param intervalMinutes Regular schedule interval
+     * @param isFlush true if this run is the offline queue flush
+     * @return Worker result
+     */
+    private Result queueOfflineUpdate(int intervalMinutes, boolean isFlush) {
+        Context context = getApplicationContext();
+        markPendingUpdate(context);
 
-                // Create compact log message without token
-                String timestamp = LocalDateTime.now().format(LOG_DATE_FORMAT);
-                String ipInfo = (ip != null && !ip.isEmpty())
-                    ? " [IP: " + ip + "]"
-                    : "";
-                String result = String.format(
-                    "[%s] AutoUpdate: %s%s - %s (%s)",
-                    timestamp,
-                    domains,
-                    ipInfo,
-                    isSuccess ? "SUCCESS" : "FAILED",
-                    statusMessage
-                );
+        Log.d(
+            "DuckDNSUpdateWorker",
+            "No network connection - update queued until connectivity returns"
+        );
+        logger.event(
+            "AutoUpdate: offline - update queued until connectivity returns"
+        );
 
-                // Write to log file
-                writeLog(context, result);
-                Log.d("DuckDNSUpdateWorker", "Log written: " + result);
+        if (isFlush) {
+            // Running the flush again is gated on the network constraint
+            return Result.retry();
+        }
 
-                // Notify MainActivity that there are new logs
-                notifyLogUpdate(context);
+        enqueueFlush(context, intervalMinutes);
+        scheduleNextExecution(context, intervalMinutes);
+        return Result.success();
+    }
 
-                Log.d(
-                    "DuckDNSUpdateWorker",
-                    "Update completed successfully: " + isSuccess
+    private boolean isNetworkAvailable(Context context) {
+        try {
+            ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(
+                    Context.CONNECTIVITY_SERVICE
+                );
+            if (connectivityManager == null) {
+                return true; // Can't tell, let the request decide
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                NetworkCapabilities capabilities =
+                    connectivityManager.getNetworkCapabilities(
+                        connectivityManager.getActiveNetwork()
+                    );
+                return (
+                    capabilities != null &&
+                    capabilities.hasCapability(
+                        NetworkCapabilities.NET_CAPABILITY_INTERNET
+                    )
                 );
-                return isSuccess;
             }
+            return isNetworkInfoConnected(connectivityManager);
         } catch (Exception e) {
-            e.printStackTrace();
             Log.e(
                 "DuckDNSUpdateWorker",
-                "Exception in performDuckDNSUpdate: " + e.getMessage(),
+                "Failed to read network state: " + e.getMessage(),
                 e
             );
-            String timestamp = LocalDateTime.now().format(LOG_DATE_FORMAT);
-            String errorMessage = String.format(
-                "[%s] %s - ERROR: %s",
-                timestamp,
-                domains,
-                e.getMessage()
-            );
-            writeLog(context, errorMessage);
-            notifyLogUpdate(context);
-            return false;
+            return true;
         }
     }
 
-    private String[] readConfigFromFile(Context context) {
-        String[] config = new String[] { "", "", "" }; // domains, token, ip
+    // API 21-22 have no NetworkCapabilities of the active network
+    @SuppressWarnings("deprecation")
+    private static boolean isNetworkInfoConnected(
+        ConnectivityManager connectivityManager
+    ) {
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
 
-        try {
+    private static synchronized void markPendingUpdate(Context context) {
+        SharedPreferences state = context.getSharedPreferences(
+            STATE_PREFS,
+            Context.MODE_PRIVATE
+        );
+        SharedPreferences.Editor editor = state.edit();
+        if (!state.getBoolean(KEY_PENDING_UPDATE, false)) {
+            editor.putBoolean(KEY_PENDING_UPDATE, true);
+            editor.putLong(KEY_PENDING_SINCE, System.currentTimeMillis());
+        }
+        editor.putInt(KEY_PENDING_RUNS, state.getInt(KEY_PENDING_RUNS, 0) + 1);
+        editor.commit();
+    }
+
+    /**
+     * Atomically read and clear the pending-update marker.
+     *
+     * @param context Application context
+     * @return Number of runs coalesced into the marker, 0 if none was pending
+     */
+    private static synchronized int claimPendingUpdate(Context context) {
+        SharedPreferences state = context.getSharedPreferences(
+            STATE_PREFS,
+            Context.MODE_PRIVATE
+        );
+        if (!state.getBoolean(KEY_PENDING_UPDATE, false)) {
+            return 0;
+        }
+        int pendingRuns = Math.max(1, state.getInt(KEY_PENDING_RUNS, 1));
+        long pendingSince = state.getLong(KEY_PENDING_SINCE, 0);
+        if (pendingSince > 0) {
             Log.d(
                 "DuckDNSUpdateWorker",
-                "Reading config from SharedPreferences"
+                "Pending update claimed after " +
+                    TimeUnit.MILLISECONDS.toMinutes(
+                        Math.max(0, System.currentTimeMillis() - pendingSince)
+                    ) +
+                    " min, " +
+                    pendingRuns +
+                    " run(s) coalesced"
             );
+        }
+        state
+            .edit()
+            .remove(KEY_PENDING_UPDATE)
+            .remove(KEY_PENDING_SINCE)
+            .remove(KEY_PENDING_RUNS)
+            .commit();
+        return pendingRuns;
+    }
 
-            SharedPreferences prefs = context.getSharedPreferences(
-                "config",
-                Context.MODE_PRIVATE
-            );
+    /**
+     * Queue the offline flush. It has no initial delay, so WorkManager runs it
+     * as soon as the network constraint is met; KEEP makes repeated offline
+     * runs share the one already queued.
+     *
+     * @param context Application context
+     * @param intervalMinutes Regular schedule interval
+     */
+    private static void enqueueFlush(Context context, int intervalMinutes) {
+        Data inputData = new Data.Builder()
+            .putInt(KEY_INTERVAL_MINUTES, intervalMinutes)
+            .putBoolean(KEY_FLUSH, true)
+            .build();
 
-            String domains = prefs.getString("domains", "");
-            String token = prefs.getString("token", "");
-            String ip = prefs.getString("ip", "");
+        WorkManager.getInstance(context).enqueueUniqueWork(
+            FLUSH_WORK_NAME,
+            ExistingWorkPolicy.KEEP,
+            buildWorkRequest(inputData, 0)
+        );
+    }
 
-            if (domains.isEmpty() && token.isEmpty()) {
-                writeLog(
-                    context,
-                    "[" +
-                        LocalDateTime.now().format(LOG_DATE_FORMAT) +
-                        "] No configuration found in SharedPreferences"
-                );
-                Log.d("DuckDNSUpdateWorker", "No configuration found");
-                return config;
-            }
+    /**
+     * Retries stop after MAX_RETRY_ATTEMPTS or once the next backoff delay
+     * would reach the regular interval, at which point the scheduled run is
+     * the sooner retry anyway.
+     *
+     * @param intervalMinutes Regular schedule interval
+     * @return true if the failed run should be retried
+     */
+    private boolean shouldRetry(int intervalMinutes) {
+        int attempt = getRunAttemptCount();
+        if (attempt >= MAX_RETRY_ATTEMPTS) {
+            return false;
+        }
+        long nextBackoffSeconds = BACKOFF_INITIAL_SECONDS << attempt;
+        return nextBackoffSeconds < TimeUnit.MINUTES.toSeconds(intervalMinutes);
+    }
 
-            // Decrypt token if it exists
-            if (!token.isEmpty()) {
-                try {
-                    token = decrypt(token);
-                } catch (Exception e) {
-                    Log.e("DuckDNSUpdateWorker", "Failed to decrypt token", e);
-                    // Token might be in plain text format, check if valid
-                    if (!isValidTokenFormat(token)) {
-                        token = "";
-                    }
-                }
-            }
+    /**
+     * Build a request for the self-rescheduling chain.
+     *
+     * @param intervalMinutes Interval passed on to the next run
+     * @return Request starting after intervalMinutes
+     */
+    private static OneTimeWorkRequest buildWorkRequest(int intervalMinutes) {
+        Data inputData = new Data.Builder()
+            .putInt(KEY_INTERVAL_MINUTES, intervalMinutes)
+            .build();
+        return buildWorkRequest(inputData, intervalMinutes);
+    }
+
+    /**
+     * Build a worker request. Every request only runs with a network
+     * connection and carries an exponential backoff policy whose initial
+     * delay is jittered so that devices failing at the same moment do not
+     * retry in lockstep.
+     *
+     * @param inputData Input data for the run
+     * @param initialDelayMinutes Delay before the run becomes eligible
+     * @return Request
+     */
+    private static OneTimeWorkRequest buildWorkRequest(
+        Data inputData,
+        long initialDelayMinutes
+    ) {
+        Constraints constraints = new Constraints.Builder()
+            .setRequiredNetworkType(NetworkType.CONNECTED)
+            .build();
+
+        long backoffSeconds =
+            BACKOFF_INITIAL_SECONDS +
+            ThreadLocalRandom.current().nextLong(BACKOFF_JITTER_SECONDS + 1);
+
+        return new OneTimeWorkRequest.Builder(DuckDNSUpdateWorker.class)
+            .setInitialDelay(initialDelayMinutes, TimeUnit.MINUTES)
+            .setConstraints(constraints)
+            .setBackoffCriteria(
+                BackoffPolicy.EXPONENTIAL,
+                backoffSeconds,
+                TimeUnit.SECONDS
+            )
+            .setInputData(inputData)
+            .build();
+    }
+
+    private void scheduleNextExecution(Context context, int intervalMinutes) {
+        try {
+            Log.d(
+                "DuckDNSUpdateWorker",
+                "Scheduling next execution in " + intervalMinutes + " minutes"
+            );
 
-            config[0] = domains;
-            config[1] = token;
-            config[2] = ip;
+            OneTimeWorkRequest workRequest = buildWorkRequest(intervalMinutes);
+
+            WorkManager.getInstance(context).enqueueUniqueWork(
+                WORK_NAME,
+                ExistingWorkPolicy.REPLACE,
+                workRequest
+            );
 
             Log.d(
                 "DuckDNSUpdateWorker",
-                "Parsed config - domains: " +
-                    config[0] +
-                    ", token: " +
-                    (config[1] != null && !config[1].isEmpty()
-                        ? "present"
-                        : "missing") +
-                    ", ip: " +
-                    config[2]
+                "Successfully scheduled next execution"
             );
         } catch (Exception e) {
-            e.printStackTrace();
             Log.e(
                 "DuckDNSUpdateWorker",
-                "Error reading config: " + e.getMessage(),
+                "Failed to schedule next execution: " + e.getMessage(),
                 e
             );
-            writeLog(
-                context,
-                "[" +
-                    LocalDateTime.now().format(LOG_DATE_FORMAT) +
-                    "] Error reading config: " +
-                    e.getMessage()
-            );
         }
-
-        return config;
     }
 
-    // Check if token looks like a valid DuckDNS token (UUID-like format)
-    private boolean isValidTokenFormat(String token) {
-        if (token == null || token.isEmpty()) {
-            return false;
+    /**
+     * Wake up for the earliest due re-check of a record still propagating,
+     * replacing any re-check already queued. Does nothing when no record is
+     * tracked.
+     *
+     * @param context Application context
+     * @param engine Engine whose {@link PropagationTracker} is consulted
+     */
+    private static void schedulePropagationCheck(
+        Context context,
+        UpdateEngine engine
+    ) {
+        long next = engine.getPropagationTracker().nextCheckMillis();
+        if (next < 0) {
+            return;
         }
-        // DuckDNS tokens are UUID format: xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx
-        return token.matches(
-            "^[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}$"
+        long delayMillis = Math.max(0, next - System.currentTimeMillis());
+        Log.d(
+            "DuckDNSUpdateWorker",
+            "Scheduling propagation re-check in " + delayMillis + " ms"
         );
-    }
-
-    // Encryption helper methods
-    private static final String KEY_ALIAS = "duckdns_key";
-    private static final String ANDROID_KEYSTORE = "AndroidKeyStore";
-    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
-
-    private String decrypt(String encryptedText) throws Exception {
-        if (encryptedText == null || encryptedText.isEmpty()) {
-            return encryptedText;
-        }
-
-        SecretKey secretKey = getOrCreateSecretKey();
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
 
-        byte[] combined = Base64.decode(encryptedText, Base64.NO_WRAP);
-        byte[] iv = new byte[12]; // GCM IV is typically 12 bytes
-        byte[] encryptedBytes = new byte[combined.length - 12];
+        Data inputData = new Data.Builder()
+            .putBoolean(KEY_PROPAGATION, true)
+            .build();
+        OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(
+            DuckDNSUpdateWorker.class
+        )
+            .setInitialDelay(delayMillis, TimeUnit.MILLISECONDS)
+            .setConstraints(
+                new Constraints.Builder()
+                    .setRequiredNetworkType(NetworkType.CONNECTED)
+                    .build()
+            )
+            .setInputData(inputData)
+            .build();
 
-        System.arraycopy(combined, 0, iv, 0, 12);
-        System.arraycopy(
-            combined,
-            12,
-            encryptedBytes,
-            0,
-            encryptedBytes.length
+        WorkManager.getInstance(context).enqueueUniqueWork(
+            PROPAGATION_WORK_NAME,
+            ExistingWorkPolicy.REPLACE,
+            workRequest
         );
-
-        GCMParameterSpec gcmSpec = new GCMParameterSpec(128, iv);
-        cipher.init(Cipher.DECRYPT_MODE, secretKey, gcmSpec);
-
-        byte[] decryptedBytes = cipher.doFinal(encryptedBytes);
-        return new String(decryptedBytes);
     }
 
-    private SecretKey getOrCreateSecretKey() throws Exception {
-        // Try to load existing key from Android KeyStore
-        KeyStore keyStore = KeyStore.getInstance(ANDROID_KEYSTORE);
-        keyStore.load(null);
-
-        if (keyStore.containsAlias(KEY_ALIAS)) {
-            KeyStore.SecretKeyEntry secretKeyEntry =
-                (KeyStore.SecretKeyEntry) keyStore.getEntry(KEY_ALIAS, null);
-            return secretKeyEntry.getSecretKey();
-        }
-
-        // Create new key
-        KeyGenerator keyGenerator = KeyGenerator.getInstance(
-            KeyProperties.KEY_ALGORITHM_AES,
-            ANDROID_KEYSTORE
+    // The IP echo is only needed when DuckDNS should detect an IP
+    private Prewarm startPrewarm(Context context) {
+        return engine.prewarm(
+            ConfigStore.getInstance(context).needsIpDiscovery()
         );
-        KeyGenParameterSpec keyGenParameterSpec =
-            new KeyGenParameterSpec.Builder(
-                KEY_ALIAS,
-                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT
-            )
-                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
-                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
-                .setRandomizedEncryptionRequired(true)
-                .build();
-
-        keyGenerator.init(keyGenParameterSpec);
-        return keyGenerator.generateKey();
     }
 
-    private void writeLog(Context context, String message) {
-        try {
-            Log.d("DuckDNSUpdateWorker", "Writing log: " + message);
-            File logFile = new File(context.getFilesDir(), LOG_FILE);
-            try (FileWriter writer = new FileWriter(logFile, true)) {
-                writer.append(message).append("\n");
-            }
-        } catch (Exception e) {
-            // Log to system log as fallback in case of file system issues
-            Log.e("DuckDNSUpdateWorker", "Failed to write log: " + message, e);
+    private Config readConfig(Context context) {
+        LatencyRecorder latency = engine.getLatencyRecorder();
+        long start = latency.start();
+        Config config;
+        try (
+            Span span = engine
+                .getTracer()
+                .startSpan(LatencyRecorder.PHASE_CONFIG_LOAD)
+        ) {
+            config = ConfigStore.getInstance(context).get();
+            span.setAttribute("empty", config.isEmpty());
         }
-    }
+        long loadMicros = latency.record(
+            LatencyRecorder.PHASE_CONFIG_LOAD,
+            start
+        );
 
-    private void notifyLogUpdate(Context context) {
-        try {
-            Log.d("DuckDNSUpdateWorker", "Sending log update broadcast");
-            Intent logUpdateIntent = new Intent(LOG_UPDATED_ACTION);
-            context.sendBroadcast(logUpdateIntent);
-        } catch (Exception e) {
-            Log.e(
-                "DuckDNSUpdateWorker",
-                "Failed to send broadcast: " + e.getMessage(),
-                e
-            );
+        if (config.isEmpty()) {
+            logger.event("No configuration found in SharedPreferences");
+            Log.d("DuckDNSUpdateWorker", "No configuration found");
+            return config;
         }
+
+        Log.d(
+            "DuckDNSUpdateWorker",
+            "Parsed config - domains: " +
+                config.getDomains() +
+                ", token: " +
+                (config.hasToken() ? "present" : "missing") +
+                ", ip: " +
+                config.getIp() +
+                " (loaded in " +
+                loadMicros +
+                " us)"
+        );
+        return config;
     }
 
     // Static method to start the worker chain
@@ -758,27 +920,60 @@ public class DuckDNSUpdateWorker extends Worker {
                 " minutes"
         );
 
+        OneTimeWorkRequest workRequest = buildWorkRequest(intervalMinutes);
+
+        WorkManager.getInstance(context).enqueueUniqueWork(
+            WORK_NAME,
+            ExistingWorkPolicy.REPLACE,
+            workRequest
+        );
+    }
+
+    /**
+     * Start a manual update as expedited work. Falls back to regular work,
+     * promoted to a foreground service by the worker, when the expedited quota
+     * is exhausted. A manual update already in progress is kept.
+     *
+     * @param context Context
+     */
+    public static void startManualUpdate(Context context) {
+        Log.d("DuckDNSUpdateWorker", "Starting expedited manual update");
+
         Data inputData = new Data.Builder()
-            .putInt(KEY_INTERVAL_MINUTES, intervalMinutes)
+            .putBoolean(KEY_MANUAL, true)
             .build();
 
         OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(
             DuckDNSUpdateWorker.class
         )
-            .setInitialDelay(intervalMinutes, TimeUnit.MINUTES)
+            .setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST)
             .setInputData(inputData)
             .build();
 
         WorkManager.getInstance(context).enqueueUniqueWork(
-            WORK_NAME,
-            ExistingWorkPolicy.REPLACE,
+            MANUAL_WORK_NAME,
+            ExistingWorkPolicy.KEEP,
             workRequest
         );
     }
 
+    // Observable state of the manual update, output data holds KEY_RESULT_*
+    public static LiveData<List<WorkInfo>> getManualUpdateInfo(
+        Context context
+    ) {
+        return WorkManager.getInstance(
+            context
+        ).getWorkInfosForUniqueWorkLiveData(MANUAL_WORK_NAME);
+    }
+
     // Static method to stop the worker chain
     public static void stopPeriodicWork(Context context) {
         Log.d("DuckDNSUpdateWorker", "Stopping periodic work");
         WorkManager.getInstance(context).cancelUniqueWork(WORK_NAME);
+        WorkManager.getInstance(context).cancelUniqueWork(FLUSH_WORK_NAME);
+        WorkManager.getInstance(context).cancelUniqueWork(
+            PROPAGATION_WORK_NAME
+        );
+        claimPendingUpdate(context);
     }
 }
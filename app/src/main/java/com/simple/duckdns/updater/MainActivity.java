@@ -11,11 +11,6 @@ import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
-import android.os.Handler;
-import android.os.Looper;
-import android.security.keystore.KeyGenParameterSpec;
-import android.security.keystore.KeyProperties;
-import android.util.Base64;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.View;
@@ -26,11 +21,19 @@ import android.widget.LinearLayout;
 import android.widget.ScrollView;
 import android.widget.TextView;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.work.Data;
 import androidx.work.ExistingPeriodicWorkPolicy;
 import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.snackbar.Snackbar;
+import com.simple.duckdns.core.CsvCodec;
+import com.simple.duckdns.core.LogTail;
+import com.simple.duckdns.core.UpdateProfile;
+import com.simple.duckdns.core.UpdateTarget;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
@@ -40,24 +43,13 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.net.InetAddress;
-import java.security.KeyStore;
 import java.security.SecureRandom;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import javax.crypto.Cipher;
-import javax.crypto.KeyGenerator;
-import javax.crypto.SecretKey;
-import javax.crypto.spec.GCMParameterSpec;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
+import java.util.Map;
+import java.util.UUID;
 
 public class MainActivity extends Activity {
 
@@ -68,6 +60,7 @@ public class MainActivity extends Activity {
     private MaterialButton updateButton;
     private MaterialButton scheduleToggleButton;
     private MaterialButton clearLogButton;
+    private MaterialButton statsButton;
     private TextView logTextView;
     private ScrollView logScrollView;
     private LinearLayout configurationHeader;
@@ -84,22 +77,35 @@ public class MainActivity extends Activity {
     private static final String CONFIG_FILE = "duckdns_config.txt";
     private static final String LOG_UPDATED_ACTION =
         "com.simple.duckdns.updater.LOG_UPDATED";
-    private ExecutorService executorService;
-    private OkHttpClient httpClient;
+    private static final String KEY_AWAITING_MANUAL_UPDATE =
+        "awaiting_manual_update";
     private boolean isScheduled = false;
-    private Handler mainHandler;
-    private static final DateTimeFormatter LOG_DATE_FORMAT =
-        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-    // DNS servers to check
-    private static final String[] DNS_SERVERS = {
-        "1.1.1.1",
-        "8.8.8.8",
-        "208.67.222.222",
-    };
 
-    // OkHttpClient for quick checks with shorter timeouts
-    private OkHttpClient quickHttpClient;
+    // True between starting a manual update and showing its result
+    private boolean awaitingManualUpdate = false;
+    private LiveData<List<WorkInfo>> manualUpdateInfo;
+    // Last finished manual update seen, so it is never reported twice
+    private UUID finishedManualUpdateId;
+    private final Observer<List<WorkInfo>> manualUpdateObserver =
+        new Observer<List<WorkInfo>>() {
+            @Override
+            public void onChanged(List<WorkInfo> workInfos) {
+                if (workInfos == null || workInfos.isEmpty()) {
+                    return;
+                }
+                WorkInfo workInfo = workInfos.get(0);
+                if (
+                    !workInfo.getState().isFinished() ||
+                    workInfo.getId().equals(finishedManualUpdateId)
+                ) {
+                    return;
+                }
+                finishedManualUpdateId = workInfo.getId();
+                if (awaitingManualUpdate) {
+                    onManualUpdateFinished(workInfo);
+                }
+            }
+        };
 
     // BroadcastReceiver per ascoltare gli aggiornamenti del log
     private BroadcastReceiver logUpdateReceiver = new BroadcastReceiver() {
@@ -124,6 +130,7 @@ public class MainActivity extends Activity {
         updateButton = findViewById(R.id.updateButton);
         scheduleToggleButton = findViewById(R.id.scheduleToggleButton);
         clearLogButton = findViewById(R.id.clearLogButton);
+        statsButton = findViewById(R.id.statsButton);
         logTextView = findViewById(R.id.logTextView);
         logScrollView = findViewById(R.id.logScrollView);
         configurationHeader = findViewById(R.id.configurationHeader);
@@ -135,21 +142,15 @@ public class MainActivity extends Activity {
         exportConfigButton = findViewById(R.id.exportConfigButton);
         importConfigButton = findViewById(R.id.importConfigButton);
 
-        // Initialize executor service for background tasks
-        executorService = Executors.newFixedThreadPool(2);
-
-        // Initialize HTTP client
-        httpClient = new OkHttpClient();
-
-        // Initialize quick HTTP client with shorter timeouts for DNS checks
-        quickHttpClient = new OkHttpClient.Builder()
-            .connectTimeout(2, TimeUnit.SECONDS)
-            .readTimeout(2, TimeUnit.SECONDS)
-            .writeTimeout(2, TimeUnit.SECONDS)
-            .build();
-
-        // Initialize handler for UI updates
-        mainHandler = new Handler(Looper.getMainLooper());
+        // Follow manual updates, including one started before a rotation
+        if (savedInstanceState != null) {
+            awaitingManualUpdate = savedInstanceState.getBoolean(
+                KEY_AWAITING_MANUAL_UPDATE,
+                false
+            );
+        }
+        manualUpdateInfo = DuckDNSUpdateWorker.getManualUpdateInfo(this);
+        manualUpdateInfo.observeForever(manualUpdateObserver);
 
         // Set click listeners
         updateButton.setOnClickListener(
@@ -199,6 +200,17 @@ public class MainActivity extends Activity {
             }
         );
 
+        statsButton.setOnClickListener(
+            new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    startActivity(
+                        new Intent(MainActivity.this, StatsActivity.class)
+                    );
+                }
+            }
+        );
+
         // Configuration collapse/expand toggle
         configurationHeader.setOnClickListener(
             new View.OnClickListener() {
@@ -229,19 +241,13 @@ public class MainActivity extends Activity {
             }
         );
 
-        // Load configuration from file
-        boolean hasConfig = loadConfigFromFile();
+        // Keep configuration section open until the stored config is loaded
+        isConfigurationExpanded = true;
+        configurationToggleIcon.setText("▼");
 
-        // Set initial state of configuration section
-        if (hasConfig) {
-            // Close configuration section if config exists
-            isConfigurationExpanded = true; // Set to true so toggle will close it
-            toggleConfigurationSection();
-        } else {
-            // Keep configuration section open if no config exists
-            isConfigurationExpanded = true;
-            configurationToggleIcon.setText("▼");
-        }
+        // Load configuration off the main thread, decrypting the token is a
+        // KeyStore round trip
+        loadConfigFromFile();
 
         // Load log on startup
         loadLog();
@@ -250,7 +256,27 @@ public class MainActivity extends Activity {
         displayFooterInfo();
     }
 
-    private boolean loadConfigFromFile() {
+    private void loadConfigFromFile() {
+        ConfigStore.getInstance(this).loadAsync(
+            new Runnable() {
+                @Override
+                public void run() {
+                    migrateStoredConfig();
+                }
+            },
+            new ConfigStore.Callback() {
+                @Override
+                public void onConfigLoaded(Config config) {
+                    if (!isFinishing() && !isDestroyed()) {
+                        showConfig(config);
+                    }
+                }
+            }
+        );
+    }
+
+    // Runs on the ConfigStore thread: both steps may encrypt the token
+    private void migrateStoredConfig() {
         try {
             // Load from encrypted SharedPreferences
             SharedPreferences prefs = getSharedPreferences(
@@ -258,68 +284,52 @@ public class MainActivity extends Activity {
                 Context.MODE_PRIVATE
             );
 
-            String domains = prefs.getString("domains", "");
-            String token = prefs.getString("token", "");
-            String ip = prefs.getString("ip", "");
-            String interval = prefs.getString("interval", "");
-
             // Check if we need to migrate from old config file
-            if (domains.isEmpty() && token.isEmpty()) {
-                boolean migrated = migrateFromOldConfigFile();
-                if (migrated) {
-                    // Reload from SharedPreferences after migration
-                    domains = prefs.getString("domains", "");
-                    token = prefs.getString("token", "");
-                    ip = prefs.getString("ip", "");
-                    interval = prefs.getString("interval", "");
-                }
-            }
-
-            // Decrypt token if it exists
-            if (!token.isEmpty()) {
-                try {
-                    token = decrypt(token);
-                } catch (Exception e) {
-                    // Token might be in plain text (old format or migration)
-                    // Check if it looks like a valid DuckDNS token (UUID format)
-                    if (isValidTokenFormat(token)) {
-                        // It's a plain text token, re-encrypt and save it
-                        Log.i(
-                            "MainActivity",
-                            "Migrating plain text token to encrypted format"
-                        );
-                        String encryptedToken = encrypt(token);
-                        prefs.edit().putString("token", encryptedToken).apply();
-                    } else {
-                        Log.e(
-                            "MainActivity",
-                            "Failed to decrypt token and token format is invalid",
-                            e
-                        );
-                        token = "";
-                    }
-                }
+            if (ConfigStore.getInstance(this).get().isEmpty()) {
+                migrateFromOldConfigFile();
             }
 
-            // Populate the EditText fields
-            if (!domains.isEmpty()) {
-                domainsEditText.setText(domains);
-            }
-            if (!token.isEmpty()) {
-                tokenEditText.setText(token);
-            }
-            if (!ip.isEmpty()) {
-                ipEditText.setText(ip);
-            }
-            if (!interval.isEmpty()) {
-                intervalEditText.setText(interval);
+            // Token might be in plain text (old format), re-encrypt and save it.
+            // A stored UUID is never valid Base64 ciphertext.
+            String storedToken = prefs.getString("token", "");
+            if (Config.isValidTokenFormat(storedToken)) {
+                Log.i(
+                    "MainActivity",
+                    "Migrating plain text token to encrypted format"
+                );
+                String encryptedToken = encrypt(storedToken);
+                prefs.edit().putString("token", encryptedToken).apply();
             }
-
-            // Return true if at least domains and token are present
-            return !domains.isEmpty() && !token.isEmpty();
         } catch (Exception e) {
             e.printStackTrace();
-            return false;
+        }
+    }
+
+    // The snapshot was built after the migration saved its values
+    private void showConfig(Config config) {
+        String domains = config.getDomains();
+        String token = config.getToken();
+        String ip = config.getIp();
+        String interval = config.getInterval();
+
+        // Populate the EditText fields
+        if (!domains.isEmpty()) {
+            domainsEditText.setText(domains);
+        }
+        if (!token.isEmpty()) {
+            tokenEditText.setText(token);
+        }
+        if (!ip.isEmpty()) {
+            ipEditText.setText(ip);
+        }
+        if (!interval.isEmpty()) {
+            intervalEditText.setText(interval);
+        }
+
+        // Close configuration section if at least domains and token exist
+        boolean complete = !domains.isEmpty() && !token.isEmpty();
+        if (complete && isConfigurationExpanded) {
+            toggleConfigurationSection();
         }
     }
 
@@ -417,10 +427,46 @@ public class MainActivity extends Activity {
             writer.write("key,value\n");
 
             // Write values with proper CSV escaping for special characters
-            writer.write("domains," + escapeCsvValue(domains) + "\n");
-            writer.write("token," + escapeCsvValue(token) + "\n");
-            writer.write("ip," + escapeCsvValue(ip) + "\n");
-            writer.write("interval," + escapeCsvValue(interval) + "\n");
+            writer.write("domains," + CsvCodec.escape(domains) + "\n");
+            writer.write("token," + CsvCodec.escape(token) + "\n");
+            writer.write("ip," + CsvCodec.escape(ip) + "\n");
+            writer.write("interval," + CsvCodec.escape(interval) + "\n");
+            String resolvers = ConfigStore.getInstance(this).getResolverSpec();
+            if (!resolvers.isEmpty()) {
+                writer.write("resolvers," + CsvCodec.escape(resolvers) + "\n");
+            }
+            String tokenTtl = CredentialsHolder.getInstance(
+                this
+            ).getStoredTokenTtl();
+            if (!tokenTtl.isEmpty()) {
+                writer.write("token_ttl," + CsvCodec.escape(tokenTtl) + "\n");
+            }
+
+            // Further DuckDNS accounts as profile.NAME.KEY rows
+            for (UpdateProfile profile : ConfigStore.getInstance(this)
+                .get()
+                .getExtraProfiles()) {
+                String prefix = "profile." + profile.getName() + ".";
+                UpdateTarget target = profile.getTarget();
+                writer.write(
+                    prefix +
+                        "domains," +
+                        CsvCodec.escape(target.getDomains()) +
+                        "\n"
+                );
+                writer.write(
+                    prefix +
+                        "token," +
+                        CsvCodec.escape(target.getToken()) +
+                        "\n"
+                );
+                writer.write(
+                    prefix + "ip," + CsvCodec.escape(target.getIp()) + "\n"
+                );
+                writer.write(
+                    prefix + "interval," + profile.getIntervalMinutes() + "\n"
+                );
+            }
 
             writer.flush();
             writer.close();
@@ -449,6 +495,10 @@ public class MainActivity extends Activity {
             String token = "";
             String ip = "";
             String interval = "";
+            String resolvers = null;
+            String tokenTtl = null;
+            // Profile name to domains, token, ip and interval
+            Map<String, String[]> profiles = new LinkedHashMap<>();
 
             boolean isFirstLine = true;
             while ((line = reader.readLine()) != null) {
@@ -461,7 +511,7 @@ public class MainActivity extends Activity {
                 }
 
                 // Parse CSV line
-                String[] parts = parseCsvLine(line);
+                String[] parts = CsvCodec.parseLine(line);
                 if (parts.length >= 2) {
                     String key = parts[0].trim();
                     String value = parts[1].trim();
@@ -479,6 +529,15 @@ public class MainActivity extends Activity {
                         case "interval":
                             interval = value;
                             break;
+                        case "resolvers":
+                            resolvers = value;
+                            break;
+                        case "token_ttl":
+                            tokenTtl = value;
+                            break;
+                        default:
+                            readProfileValue(profiles, key, value);
+                            break;
                     }
                 }
             }
@@ -486,6 +545,16 @@ public class MainActivity extends Activity {
             reader.close();
             inputStream.close();
 
+            // An invalid resolver list fails the import before anything is
+            // applied; files without a resolvers row keep the current list
+            if (resolvers != null) {
+                ConfigStore.getInstance(this).saveResolverSpec(resolvers);
+            }
+            // Minutes a decrypted token stays in memory, 0 to never keep it
+            if (tokenTtl != null) {
+                CredentialsHolder.getInstance(this).saveTokenTtl(tokenTtl);
+            }
+
             // Update UI with imported values
             if (!domains.isEmpty()) {
                 domainsEditText.setText(domains);
@@ -502,6 +571,10 @@ public class MainActivity extends Activity {
 
             // Save imported configuration
             saveConfigToFile(domains, token, ip);
+            // Files without profile rows keep the current extra profiles
+            if (!profiles.isEmpty()) {
+                saveProfiles(profiles);
+            }
 
             showSnackbar("Configuration imported successfully", "success");
         } catch (Exception e) {
@@ -510,61 +583,6 @@ public class MainActivity extends Activity {
         }
     }
 
-    private String escapeCsvValue(String value) {
-        if (value == null || value.isEmpty()) {
-            return "";
-        }
-        // If value contains comma, newline, or double quote, wrap in quotes and escape quotes
-        if (
-            value.contains(",") ||
-            value.contains("\n") ||
-            value.contains("\"") ||
-            value.contains("\r")
-        ) {
-            return "\"" + value.replace("\"", "\"\"") + "\"";
-        }
-        return value;
-    }
-
-    private String[] parseCsvLine(String line) {
-        List<String> result = new ArrayList<>();
-        StringBuilder current = new StringBuilder();
-        boolean inQuotes = false;
-        boolean hadQuotes = false;
-
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-
-            if (inQuotes) {
-                if (c == '"') {
-                    // Check if it's an escaped quote
-                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
-                        current.append('"');
-                        i++; // Skip next quote
-                    } else {
-                        inQuotes = false;
-                    }
-                } else {
-                    current.append(c);
-                }
-            } else {
-                if (c == '"') {
-                    inQuotes = true;
-                    hadQuotes = true;
-                } else if (c == ',') {
-                    result.add(current.toString());
-                    current = new StringBuilder();
-                    hadQuotes = false;
-                } else {
-                    current.append(c);
-                }
-            }
-        }
-        result.add(current.toString());
-
-        return result.toArray(new String[0]);
-    }
-
     private void performUpdate() {
         String domains = domainsEditText.getText().toString().trim();
         String token = tokenEditText.getText().toString().trim();
@@ -578,352 +596,109 @@ public class MainActivity extends Activity {
             return;
         }
 
-        // Execute the update in background
-        executorService.execute(
-            new Runnable() {
-                @Override
-                public void run() {
-                    // Check if update is needed
-                    if (!shouldPerformUpdate(domains, ip)) {
-                        // DNS already up to date, skip update
-                        mainHandler.post(
-                            new Runnable() {
-                                @Override
-                                public void run() {
-                                    loadLog();
-                                    showSnackbar(
-                                        "Update skipped - DNS already up to date",
-                                        "info"
-                                    );
-                                }
-                            }
-                        );
-                        return;
-                    }
-
-                    String result;
-                    boolean isSuccess = false;
-                    String statusMessage = "";
-
-                    try {
-                        // Create the URL
-                        String url =
-                            "https://www.duckdns.org/update?domains=" +
-                            domains +
-                            "&token=" +
-                            token;
-                        if (!ip.isEmpty()) {
-                            url += "&ip=" + ip;
-                        }
-
-                        // Create HTTP request
-                        Request request = new Request.Builder()
-                            .url(url)
-                            .build();
-
-                        // Make HTTP request and get response
-                        Response response = httpClient
-                            .newCall(request)
-                            .execute();
+        if (awaitingManualUpdate) {
+            showSnackbar("Update already in progress", "info");
+            return;
+        }
 
-                        // Get response code
-                        int responseCode = response.code();
+        // Run the update as expedited work so it survives leaving the screen
+        DuckDNSUpdateWorker.startManualUpdate(this);
+        awaitingManualUpdate = true;
+        showSnackbar("Update started", "info");
+    }
 
-                        // Read response body
-                        String responseBody = "";
-                        if (response.body() != null) {
-                            responseBody = response.body().string();
-                        }
+    private void onManualUpdateFinished(WorkInfo workInfo) {
+        awaitingManualUpdate = false;
+        loadLog();
 
-                        // Determine success based on response body content
-                        if (responseBody.contains("OK")) {
-                            isSuccess = true;
-                            statusMessage = "OK";
-                        } else if (responseBody.contains("KO")) {
-                            isSuccess = false;
-                            statusMessage = "KO";
-                        } else {
-                            isSuccess = (responseCode == 200);
-                            statusMessage = "HTTP " + responseCode;
-                        }
+        if (workInfo.getState() == WorkInfo.State.CANCELLED) {
+            showSnackbar("Update cancelled", "error");
+            return;
+        }
 
-                        // Create compact log message without token
-                        String timestamp = LocalDateTime.now().format(
-                            LOG_DATE_FORMAT
-                        );
-                        String ipInfo = ip.isEmpty() ? "" : " [IP: " + ip + "]";
-                        result = String.format(
-                            "[%s] %s%s - %s (%s)",
-                            timestamp,
-                            domains,
-                            ipInfo,
-                            isSuccess ? "SUCCESS" : "FAILED",
-                            statusMessage
-                        );
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        isSuccess = false;
-                        statusMessage = e.getMessage();
-                        String timestamp = LocalDateTime.now().format(
-                            LOG_DATE_FORMAT
-                        );
-                        result = String.format(
-                            "[%s] %s - ERROR: %s",
-                            timestamp,
-                            domains,
-                            statusMessage
-                        );
-                    }
+        Data output = workInfo.getOutputData();
+        if (output.getBoolean(DuckDNSUpdateWorker.KEY_RESULT_SKIPPED, false)) {
+            showSnackbar("Update skipped - DNS already up to date", "info");
+            return;
+        }
 
-                    // Write to log file (synchronously)
-                    writeLogSync(result);
-
-                    // Update UI on main thread
-                    final boolean finalIsSuccess = isSuccess;
-                    final String finalStatusMessage = statusMessage;
-                    mainHandler.post(
-                        new Runnable() {
-                            @Override
-                            public void run() {
-                                loadLog();
-                                showSnackbar(
-                                    finalIsSuccess
-                                        ? "Update completed: " +
-                                          finalStatusMessage
-                                        : "Update failed: " +
-                                          finalStatusMessage,
-                                    finalIsSuccess ? "success" : "error"
-                                );
-                            }
-                        }
-                    );
-                }
-            }
+        boolean isSuccess = workInfo.getState() == WorkInfo.State.SUCCEEDED;
+        String statusMessage = output.getString(
+            DuckDNSUpdateWorker.KEY_RESULT_MESSAGE
+        );
+        showSnackbar(
+            isSuccess
+                ? "Update completed: " + statusMessage
+                : "Update failed: " + statusMessage,
+            isSuccess ? "success" : "error"
         );
     }
 
-    /**
-     * Check if DuckDNS update should be performed by comparing current/configured IP
-     * with DNS resolution results from multiple DNS servers.
-     *
-     * @param domains Comma-separated list of domains
-     * @param configuredIp IP configured by user (may be empty)
-     * @return true if update should be performed, false if DNS is already up to date
-     */
-    private boolean shouldPerformUpdate(String domains, String configuredIp) {
-        try {
-            String targetIp;
-
-            // Case A: No IP configured - get current public IP
-            if (configuredIp == null || configuredIp.isEmpty()) {
-                Log.d(
-                    "MainActivity",
-                    "No IP configured, getting current public IP"
-                );
-                targetIp = getCurrentPublicIp();
-
-                if (targetIp == null || targetIp.isEmpty()) {
-                    Log.w(
-                        "MainActivity",
-                        "Failed to get public IP, proceeding with update"
-                    );
-                    return true; // If we can't get IP, proceed with update
-                }
-
-                Log.d("MainActivity", "Current public IP: " + targetIp);
-            } else {
-                // Case B: IP is configured
-                targetIp = configuredIp;
-                Log.d("MainActivity", "Using configured IP: " + targetIp);
-            }
-
-            // Split domains and check each one
-            String[] domainList = domains.split(",");
-            for (String domain : domainList) {
-                domain = domain.trim();
-                if (!domain.isEmpty()) {
-                    // Add .duckdns.org if not present
-                    String fullDomain = domain.contains(".")
-                        ? domain
-                        : domain + ".duckdns.org";
-
-                    List<String> dnsResults = resolveDomainOnDnsServers(
-                        fullDomain
-                    );
-
-                    // Count how many DNS servers returned different IP
-                    int mismatchCount = 0;
-                    for (String dnsIp : dnsResults) {
-                        if (dnsIp != null && !dnsIp.equals(targetIp)) {
-                            mismatchCount++;
-                            Log.d(
-                                "MainActivity",
-                                "DNS mismatch for " +
-                                    fullDomain +
-                                    ": got " +
-                                    dnsIp +
-                                    ", expected " +
-                                    targetIp
-                            );
-                        }
-                    }
-
-                    // If 2 or more DNS servers have different IP, update is needed
-                    if (mismatchCount >= 2) {
-                        Log.d(
-                            "MainActivity",
-                            "Update needed: " +
-                                mismatchCount +
-                                " DNS servers have outdated IP for " +
-                                fullDomain
-                        );
-                        return true;
-                    }
-                }
-            }
-
-            // All domains are up to date
-            String timestamp = LocalDateTime.now().format(LOG_DATE_FORMAT);
-            String skipMessage = String.format(
-                "[%s] Manual Update: %s - SKIPPED (DNS already up to date with IP: %s)",
-                timestamp,
-                domains,
-                targetIp
-            );
-            writeLogSync(skipMessage);
-            Log.d("MainActivity", "DNS already up to date, skipping update");
-            return false;
-        } catch (Exception e) {
-            Log.e(
-                "MainActivity",
-                "Error checking if update needed: " + e.getMessage(),
-                e
-            );
-            return true; // On error, proceed with update to be safe
+    // profile.NAME.KEY rows of an imported file
+    private static void readProfileValue(
+        Map<String, String[]> profiles,
+        String key,
+        String value
+    ) {
+        int dot = key.lastIndexOf('.');
+        if (!key.startsWith("profile.") || dot <= "profile.".length()) {
+            return;
         }
-    }
-
-    /**
-     * Get current public IP address from v4.ident.me
-     *
-     * @return Public IP address or null if failed
-     */
-    private String getCurrentPublicIp() {
-        try {
-            Request request = new Request.Builder()
-                .url("https://v4.ident.me")
-                .build();
-
-            try (
-                Response response = quickHttpClient.newCall(request).execute()
-            ) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String ip = response.body().string().trim();
-                    Log.d(
-                        "MainActivity",
-                        "Got public IP from v4.ident.me: " + ip
-                    );
-                    return ip;
-                }
-            }
-        } catch (Exception e) {
-            Log.e("MainActivity", "Failed to get public IP: " + e.getMessage());
+        String name = key.substring("profile.".length(), dot);
+        int field;
+        switch (key.substring(dot + 1).toLowerCase()) {
+            case "domains":
+                field = 0;
+                break;
+            case "token":
+                field = 1;
+                break;
+            case "ip":
+                field = 2;
+                break;
+            case "interval":
+                field = 3;
+                break;
+            default:
+                return;
+        }
+        if (name.trim().isEmpty() || UpdateProfile.DEFAULT_NAME.equals(name)) {
+            return;
+        }
+        String[] values = profiles.get(name);
+        if (values == null) {
+            values = new String[] { "", "", "", "" };
+            profiles.put(name, values);
         }
-        return null;
+        values[field] = value;
     }
 
-    /**
-     * Resolve domain using multiple DNS servers
-     *
-     * @param domain Domain to resolve (e.g., mydomain.duckdns.org)
-     * @return List of IP addresses resolved by each DNS server (may contain nulls)
-     */
-    private List<String> resolveDomainOnDnsServers(String domain) {
-        List<String> results = new ArrayList<>();
-
-        for (String dnsServer : DNS_SERVERS) {
-            String resolvedIp = resolveDomainWithDns(domain, dnsServer);
-            results.add(resolvedIp);
-
-            if (resolvedIp != null) {
-                Log.d(
-                    "MainActivity",
-                    "DNS " +
-                        dnsServer +
-                        " resolved " +
-                        domain +
-                        " to " +
-                        resolvedIp
-                );
-            } else {
-                Log.d(
-                    "MainActivity",
-                    "DNS " + dnsServer + " failed to resolve " + domain
-                );
-            }
+    private void saveProfiles(Map<String, String[]> profiles) {
+        int defaultMinutes = parseIntervalOr(
+            intervalEditText.getText().toString().trim(),
+            15
+        );
+        List<UpdateProfile> list = new ArrayList<>(profiles.size());
+        for (Map.Entry<String, String[]> entry : profiles.entrySet()) {
+            String[] values = entry.getValue();
+            list.add(
+                new UpdateProfile(
+                    entry.getKey(),
+                    new UpdateTarget(values[0], values[1], values[2]),
+                    parseIntervalOr(values[3], defaultMinutes)
+                )
+            );
         }
-
-        return results;
+        ConfigStore.getInstance(this).saveExtraProfiles(list);
     }
 
-    /**
-     * Resolve domain using a specific DNS server via DNS-over-HTTPS
-     *
-     * @param domain Domain to resolve
-     * @param dnsServer DNS server IP
-     * @return Resolved IP address or null if failed
-     */
-    private String resolveDomainWithDns(String domain, String dnsServer) {
+    private static int parseIntervalOr(String interval, int defaultMinutes) {
         try {
-            String dohUrl = null;
-            if (dnsServer.equals("1.1.1.1")) {
-                dohUrl = "https://1.1.1.1/dns-query?name=" + domain + "&type=A";
-            } else if (dnsServer.equals("8.8.8.8")) {
-                dohUrl = "https://8.8.8.8/resolve?name=" + domain + "&type=A";
-            } else if (dnsServer.equals("208.67.222.222")) {
-                // OpenDNS doesn't have public DoH, fallback to system DNS
-                InetAddress addr = InetAddress.getByName(domain);
-                return addr.getHostAddress();
-            }
-
-            if (dohUrl != null) {
-                Request request = new Request.Builder()
-                    .url(dohUrl)
-                    .addHeader("accept", "application/dns-json")
-                    .build();
-
-                try (
-                    Response response = quickHttpClient
-                        .newCall(request)
-                        .execute()
-                ) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        String body = response.body().string();
-                        // Simple parsing for IP address in JSON response
-                        // Looking for "Answer":[{"data":"x.x.x.x"}]
-                        int dataIndex = body.indexOf("\"data\":\"");
-                        if (dataIndex > 0) {
-                            int startIndex = dataIndex + 8;
-                            int endIndex = body.indexOf("\"", startIndex);
-                            if (endIndex > startIndex) {
-                                return body.substring(startIndex, endIndex);
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            Log.d(
-                "MainActivity",
-                "Failed to resolve " +
-                    domain +
-                    " with DNS " +
-                    dnsServer +
-                    ": " +
-                    e.getMessage()
-            );
+            int minutes = Integer.parseInt(interval);
+            return minutes > 0 ? minutes : defaultMinutes;
+        } catch (NumberFormatException e) {
+            return defaultMinutes;
         }
-        return null;
     }
 
     private void saveConfigToFile(String domains, String token, String ip) {
@@ -956,42 +731,12 @@ public class MainActivity extends Activity {
         }
     }
 
-    private synchronized void writeLogSync(String message) {
-        try {
-            File logFile = new File(getFilesDir(), LOG_FILE);
-            try (FileWriter writer = new FileWriter(logFile, true)) {
-                writer.write(message + "\n");
-                writer.flush();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
     private void loadLog() {
         try {
             File logFile = new File(getFilesDir(), LOG_FILE);
             if (logFile.exists()) {
-                List<String> lines = new ArrayList<>();
-                try (
-                    BufferedReader reader = new BufferedReader(
-                        new FileReader(logFile)
-                    )
-                ) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        lines.add(line);
-                    }
-                }
-
-                // Show only the last 100 lines
-                StringBuilder content = new StringBuilder();
-                int start = Math.max(0, lines.size() - 100);
-                for (int i = start; i < lines.size(); i++) {
-                    content.append(lines.get(i)).append("\n");
-                }
-
-                logTextView.setText(content.toString());
+                // Show only the last 100 lines, without reading the whole file
+                logTextView.setText(LogTail.read(logFile, 100));
 
                 // Scroll to bottom to show the latest logs
                 scrollToBottom();
@@ -1187,11 +932,18 @@ public class MainActivity extends Activity {
         }
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(KEY_AWAITING_MANUAL_UPDATE, awaitingManualUpdate);
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (executorService != null) {
-            executorService.shutdown();
+        // The update itself keeps running in WorkManager
+        if (manualUpdateInfo != null) {
+            manualUpdateInfo.removeObserver(manualUpdateObserver);
         }
     }
 
@@ -1335,103 +1087,7 @@ public class MainActivity extends Activity {
         }
     }
 
-    // Check if token looks like a valid DuckDNS token (UUID-like format)
-    private boolean isValidTokenFormat(String token) {
-        if (token == null || token.isEmpty()) {
-            return false;
-        }
-        // DuckDNS tokens are UUID format: xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx
-        return token.matches(
-            "^[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}$"
-        );
-    }
-
-    // Encryption helper methods
-    private static final String KEY_ALIAS = "duckdns_key";
-    private static final String ANDROID_KEYSTORE = "AndroidKeyStore";
-    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
-
     private String encrypt(String plainText) throws Exception {
-        if (plainText == null || plainText.isEmpty()) {
-            return plainText;
-        }
-
-        SecretKey secretKey = getOrCreateSecretKey();
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-
-        byte[] encryptedBytes = cipher.doFinal(plainText.getBytes());
-        byte[] iv = cipher.getIV();
-
-        // Combine IV and encrypted data
-        byte[] combined = new byte[iv.length + encryptedBytes.length];
-        System.arraycopy(iv, 0, combined, 0, iv.length);
-        System.arraycopy(
-            encryptedBytes,
-            0,
-            combined,
-            iv.length,
-            encryptedBytes.length
-        );
-
-        return Base64.encodeToString(combined, Base64.NO_WRAP);
-    }
-
-    private String decrypt(String encryptedText) throws Exception {
-        if (encryptedText == null || encryptedText.isEmpty()) {
-            return encryptedText;
-        }
-
-        SecretKey secretKey = getOrCreateSecretKey();
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-
-        byte[] combined = Base64.decode(encryptedText, Base64.NO_WRAP);
-        byte[] iv = new byte[12]; // GCM IV is typically 12 bytes
-        byte[] encryptedBytes = new byte[combined.length - 12];
-
-        System.arraycopy(combined, 0, iv, 0, 12);
-        System.arraycopy(
-            combined,
-            12,
-            encryptedBytes,
-            0,
-            encryptedBytes.length
-        );
-
-        GCMParameterSpec gcmSpec = new GCMParameterSpec(128, iv);
-        cipher.init(Cipher.DECRYPT_MODE, secretKey, gcmSpec);
-
-        byte[] decryptedBytes = cipher.doFinal(encryptedBytes);
-        return new String(decryptedBytes);
-    }
-
-    private SecretKey getOrCreateSecretKey() throws Exception {
-        // Try to load existing key from Android KeyStore
-        KeyStore keyStore = KeyStore.getInstance(ANDROID_KEYSTORE);
-        keyStore.load(null);
-
-        if (keyStore.containsAlias(KEY_ALIAS)) {
-            KeyStore.SecretKeyEntry secretKeyEntry =
-                (KeyStore.SecretKeyEntry) keyStore.getEntry(KEY_ALIAS, null);
-            return secretKeyEntry.getSecretKey();
-        }
-
-        // Create new key
-        KeyGenerator keyGenerator = KeyGenerator.getInstance(
-            KeyProperties.KEY_ALGORITHM_AES,
-            ANDROID_KEYSTORE
-        );
-        KeyGenParameterSpec keyGenParameterSpec =
-            new KeyGenParameterSpec.Builder(
-                KEY_ALIAS,
-                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT
-            )
-                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
-                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
-                .setRandomizedEncryptionRequired(true)
-                .build();
-
-        keyGenerator.init(keyGenParameterSpec);
-        return keyGenerator.generateKey();
+        return CredentialsHolder.getInstance(this).encrypt(plainText);
     }
 }
@@ -0,0 +1,196 @@
+package com.simple.duckdns.updater;
+
+import com.simple.duckdns.core.BootstrapResolver;
+import com.simple.duckdns.core.ConnectionPrewarmer;
+import com.simple.duckdns.core.Endpoint;
+import com.simple.duckdns.core.HttpRequest;
+import com.simple.duckdns.core.HttpResponse;
+import com.simple.duckdns.core.HttpTransport;
+import com.simple.duckdns.core.NetworkAccounting;
+import com.simple.duckdns.core.Prewarm;
+import androidx.annotation.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLSocket;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * OkHttp-backed transport for the update engine. Every call is reported to
+ * {@link NetworkAccounting} through an {@link AccountingEventListener}; with
+ * a {@link BootstrapResolver}, the app's own endpoints are resolved through
+ * it instead of the system resolver.
+ *
+ * Pre-connects send no request: each resolves its origin, opens a socket
+ * and completes a TLS handshake on the dispatcher's threads, all in
+ * parallel, then closes it. The session lands in the clients' session
+ * cache, so the real call resumes it instead of a full handshake. They
+ * bypass OkHttp and thus {@link NetworkAccounting}: no endpoint is called.
+ */
+public final class OkHttpTransport
+    implements HttpTransport, ConnectionPrewarmer {
+
+    // Singleton OkHttpClient instance to avoid resource leaks
+    private static final OkHttpClient HTTP_CLIENT = new OkHttpClient.Builder()
+        .connectTimeout(15, TimeUnit.SECONDS)
+        .readTimeout(15, TimeUnit.SECONDS)
+        .writeTimeout(15, TimeUnit.SECONDS)
+        .build();
+
+    // Bounds a pre-connect's TCP connect and TLS handshake each
+    private static final int PREWARM_TIMEOUT_MILLIS =
+        (int) Prewarm.TIMEOUT_MILLIS;
+
+    private final OkHttpClient httpClient;
+    private final OkHttpClient quickHttpClient;
+
+    /** Transport on the system resolver, e.g. for IP-literal DoH servers */
+    public OkHttpTransport(NetworkAccounting accounting) {
+        this(accounting, null, null);
+    }
+
+    /**
+     * @param accounting Receives per-call traffic
+     * @param bootstrap Resolver for the fixed endpoints, or null for system
+     * @param tlsSessionDir Where TLS sessions persist across restarts, or
+     *     null to keep them in memory only
+     */
+    public OkHttpTransport(
+        NetworkAccounting accounting,
+        final BootstrapResolver bootstrap,
+        File tlsSessionDir
+    ) {
+        OkHttpClient.Builder base = HTTP_CLIENT.newBuilder()
+            .eventListenerFactory(AccountingEventListener.factory(accounting));
+        if (tlsSessionDir != null) {
+            TlsSessionCache.install(base, tlsSessionDir);
+        }
+        if (bootstrap != null) {
+            base
+                .dns(new BootstrapDns(bootstrap))
+                .addNetworkInterceptor(
+                    new Interceptor() {
+                        @NonNull
+                        @Override
+                        public Response intercept(@NonNull Chain chain)
+                            throws IOException {
+                            // Feeds the resolver's address family preference
+                            Connection connection = chain.connection();
+                            if (connection != null) {
+                                InetSocketAddress address = connection
+                                    .route()
+                                    .socketAddress();
+                                bootstrap.reportConnected(
+                                    chain.request().url().host(),
+                                    address.getAddress()
+                                );
+                            }
+                            return chain.proceed(chain.request());
+                        }
+                    }
+                );
+        }
+        httpClient = base.build();
+
+        // Client for quick checks with shorter timeouts, sharing the pool
+        quickHttpClient = httpClient
+            .newBuilder()
+            .connectTimeout(2, TimeUnit.SECONDS)
+            .readTimeout(2, TimeUnit.SECONDS)
+            .writeTimeout(2, TimeUnit.SECONDS)
+            .build();
+
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        Request.Builder builder = new Request.Builder()
+            .url(request.getUrl())
+            .tag(Endpoint.class, request.getEndpoint());
+        Map<String, String> headers = request.getHeaders();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            builder.addHeader(header.getKey(), header.getValue());
+        }
+
+        try (
+            Response response = clientFor(request.getEndpoint())
+                .newCall(builder.build())
+                .execute()
+        ) {
+            String body = response.body() != null
+                ? response.body().string()
+                : "";
+            return new HttpResponse(response.code(), body);
+        }
+    }
+
+    @Override
+    public CountDownLatch prewarm(List<HttpRequest> requests) {
+        final CountDownLatch connected = new CountDownLatch(requests.size());
+        ExecutorService executor = httpClient.dispatcher().executorService();
+        for (HttpRequest request : requests) {
+            final HttpUrl url = HttpUrl.parse(request.getUrl());
+            executor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (url != null && url.isHttps()) {
+                                handshake(url.host(), url.port());
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            // The real call connects again
+                        } finally {
+                            connected.countDown();
+                        }
+                    }
+                }
+            );
+        }
+        return connected;
+    }
+
+    // Through the clients' own Dns and SSLSocketFactory, whose session cache
+    // the later call looks up by host and port
+    private void handshake(String host, int port) throws IOException {
+        InetAddress address = httpClient.dns().lookup(host).get(0);
+        Socket socket = httpClient.socketFactory().createSocket();
+        try {
+            socket.connect(
+                new InetSocketAddress(address, port),
+                PREWARM_TIMEOUT_MILLIS
+            );
+            socket.setSoTimeout(PREWARM_TIMEOUT_MILLIS);
+            SSLSocket tls = (SSLSocket) httpClient
+                .sslSocketFactory()
+                .createSocket(socket, host, port, true);
+            try {
+                tls.startHandshake();
+            } finally {
+                tls.close();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    private OkHttpClient clientFor(Endpoint endpoint) {
+        // IP lookups and DNS checks must stay fast, the update call may not
+        return endpoint == Endpoint.DUCKDNS_UPDATE
+            ? httpClient
+            : quickHttpClient;
+    }
+}
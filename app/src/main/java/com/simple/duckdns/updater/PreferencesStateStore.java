@@ -0,0 +1,44 @@
+package com.simple.duckdns.updater;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import com.simple.duckdns.core.StateStore;
+
+/**
+ * Engine state kept in the "update_state" SharedPreferences.
+ */
+public final class PreferencesStateStore implements StateStore {
+
+    static final String PREFS_NAME = "update_state";
+
+    private final SharedPreferences prefs;
+
+    public PreferencesStateStore(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public String get(String key, String defaultValue) {
+        return prefs.getString(key, defaultValue);
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        return prefs.getLong(key, defaultValue);
+    }
+
+    @Override
+    public void put(String key, String value) {
+        prefs.edit().putString(key, value).apply();
+    }
+
+    @Override
+    public void putLong(String key, long value) {
+        prefs.edit().putLong(key, value).apply();
+    }
+
+    @Override
+    public void remove(String key) {
+        prefs.edit().remove(key).apply();
+    }
+}
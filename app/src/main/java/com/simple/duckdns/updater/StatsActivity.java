@@ -0,0 +1,412 @@
+package com.simple.duckdns.updater;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+import com.google.android.material.button.MaterialButton;
+import com.google.android.material.snackbar.Snackbar;
+import com.simple.duckdns.core.EnergyLedger;
+import com.simple.duckdns.core.Endpoint;
+import com.simple.duckdns.core.FileTraceStore;
+import com.simple.duckdns.core.LatencyHistogram;
+import com.simple.duckdns.core.LatencyRecorder;
+import com.simple.duckdns.core.LogTimestamp;
+import com.simple.duckdns.core.NetworkAccounting;
+import com.simple.duckdns.core.SpanData;
+import com.simple.duckdns.core.TraceExporter;
+import com.simple.duckdns.core.TrafficCounters;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Shows the persisted per-phase latency percentiles, network usage per run
+ * and per day, energy use per day and the last run traces; exports latencies
+ * as CSV and traces as OTLP/JSON or Chrome trace JSON.
+ */
+public class StatsActivity extends Activity {
+
+    private static final int REQUEST_CODE_EXPORT_STATS = 2001;
+    private static final int REQUEST_CODE_EXPORT_OTLP = 2002;
+    private static final int REQUEST_CODE_EXPORT_CHROME_TRACE = 2003;
+
+    // Traces listed on screen, all stored ones are exported
+    private static final int MAX_LISTED_TRACES = 10;
+    private static final int MAX_LISTED_DAYS = 7;
+
+    private TextView latencyStatsTextView;
+    private TextView trafficTextView;
+    private TextView energyEstimateTextView;
+    private TextView energyTextView;
+    private TextView tracesTextView;
+    private LatencyRecorder latency;
+    private NetworkAccounting traffic;
+    private EnergyLedger energy;
+    private FileTraceStore traceStore;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_stats);
+
+        latency = UpdateEngineProvider.getEngine(this).getLatencyRecorder();
+        traffic = UpdateEngineProvider.getEngine(this).getNetworkAccounting();
+        energy = UpdateEngineProvider.getEnergyLedger(this);
+        traceStore = UpdateEngineProvider.getTraceStore(this);
+        latencyStatsTextView = findViewById(R.id.latencyStatsTextView);
+        trafficTextView = findViewById(R.id.trafficTextView);
+        energyEstimateTextView = findViewById(R.id.energyEstimateTextView);
+        energyTextView = findViewById(R.id.energyTextView);
+        tracesTextView = findViewById(R.id.tracesTextView);
+        MaterialButton exportStatsButton = findViewById(R.id.exportStatsButton);
+        MaterialButton resetStatsButton = findViewById(R.id.resetStatsButton);
+        MaterialButton exportOtlpButton = findViewById(R.id.exportOtlpButton);
+        MaterialButton exportChromeTraceButton = findViewById(
+            R.id.exportChromeTraceButton
+        );
+
+        exportStatsButton.setOnClickListener(
+            new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    createDocument(
+                        "text/csv",
+                        "duckdns_latency_stats.csv",
+                        REQUEST_CODE_EXPORT_STATS
+                    );
+                }
+            }
+        );
+
+        exportOtlpButton.setOnClickListener(
+            new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    createDocument(
+                        "application/json",
+                        "duckdns_traces_otlp.json",
+                        REQUEST_CODE_EXPORT_OTLP
+                    );
+                }
+            }
+        );
+
+        exportChromeTraceButton.setOnClickListener(
+            new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    createDocument(
+                        "application/json",
+                        "duckdns_traces_chrome.json",
+                        REQUEST_CODE_EXPORT_CHROME_TRACE
+                    );
+                }
+            }
+        );
+
+        resetStatsButton.setOnClickListener(
+            new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    latency.reset();
+                    traffic.reset();
+                    energy.reset();
+                    render();
+                    showSnackbar("Statistics reset");
+                }
+            }
+        );
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        render();
+    }
+
+    private void createDocument(String mimeType, String title, int requestCode) {
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType(mimeType);
+        intent.putExtra(Intent.EXTRA_TITLE, title);
+        startActivityForResult(intent, requestCode);
+    }
+
+    private void render() {
+        renderLatency();
+        renderTraffic();
+        renderEnergy();
+        renderTraces();
+    }
+
+    private void renderLatency() {
+        Map<String, LatencyHistogram> histograms = latency.getHistograms();
+        if (histograms.isEmpty()) {
+            latencyStatsTextView.setText("No runs recorded yet");
+            return;
+        }
+
+        StringBuilder table = new StringBuilder();
+        table.append(
+            String.format(
+                Locale.ROOT,
+                "%-22s %6s %8s %8s %8s\n",
+                "phase",
+                "n",
+                "p50",
+                "p95",
+                "p99"
+            )
+        );
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            table.append(
+                String.format(
+                    Locale.ROOT,
+                    "%-22s %6d %8.1f %8.1f %8.1f\n",
+                    entry.getKey(),
+                    h.getCount(),
+                    h.getPercentileMicros(50) / 1000.0,
+                    h.getPercentileMicros(95) / 1000.0,
+                    h.getPercentileMicros(99) / 1000.0
+                )
+            );
+        }
+        latencyStatsTextView.setText(table.toString());
+    }
+
+    // Last run per endpoint, then daily totals newest first
+    private void renderTraffic() {
+        Map<String, Map<Endpoint, TrafficCounters>> days =
+            traffic.getDailyTotals();
+        if (days.isEmpty()) {
+            trafficTextView.setText("No traffic recorded yet");
+            return;
+        }
+
+        StringBuilder table = new StringBuilder();
+        appendTrafficHeader(table, "last run");
+        for (Map.Entry<Endpoint, TrafficCounters> entry : traffic
+            .getLastRun()
+            .entrySet()) {
+            appendTrafficRow(table, entry.getKey().name(), entry.getValue());
+        }
+        table.append('\n');
+        appendTrafficHeader(table, "day");
+        int listed = 0;
+        for (Map.Entry<String, Map<Endpoint, TrafficCounters>> day : days
+            .entrySet()) {
+            appendTrafficRow(
+                table,
+                day.getKey(),
+                NetworkAccounting.total(day.getValue())
+            );
+            if (++listed == MAX_LISTED_DAYS) {
+                break;
+            }
+        }
+        trafficTextView.setText(table.toString());
+    }
+
+    private static void appendTrafficHeader(StringBuilder table, String label) {
+        table.append(
+            String.format(
+                Locale.ROOT,
+                "%-14s %5s %8s %8s %4s %6s\n",
+                label,
+                "req",
+                "sent KB",
+                "recv KB",
+                "tls",
+                "reused"
+            )
+        );
+    }
+
+    private static void appendTrafficRow(
+        StringBuilder table,
+        String label,
+        TrafficCounters counters
+    ) {
+        table.append(
+            String.format(
+                Locale.ROOT,
+                "%-14s %5d %8.1f %8.1f %4d %6d\n",
+                label,
+                counters.getRequests(),
+                counters.getBytesSent() / 1024.0,
+                counters.getBytesReceived() / 1024.0,
+                counters.getTlsHandshakes(),
+                counters.getReusedConnections()
+            )
+        );
+    }
+
+    // Estimate for the configured interval, then daily figures newest first
+    private void renderEnergy() {
+        int intervalMinutes = ConfigStore.getInstance(this)
+            .get()
+            .getIntervalMinutes();
+        long estimate = energy.estimateDailyMillijoules(intervalMinutes);
+        energyEstimateTextView.setText(
+            estimate < 0
+                ? "No estimate yet"
+                : String.format(
+                    Locale.ROOT,
+                    "Every %d min: ~%.1f J/day (~%.2f mAh/day)",
+                    intervalMinutes,
+                    estimate / 1000.0,
+                    EnergyLedger.toMilliampHours(estimate)
+                )
+        );
+
+        Map<String, EnergyLedger.Usage> days = energy.getDailyTotals();
+        if (days.isEmpty()) {
+            energyTextView.setText("No runs recorded yet");
+            return;
+        }
+        StringBuilder table = new StringBuilder();
+        table.append(
+            String.format(
+                Locale.ROOT,
+                "%-10s %4s %5s %6s %7s %7s %7s\n",
+                "day",
+                "runs",
+                "defer",
+                "radio",
+                "radio s",
+                "wall s",
+                "J"
+            )
+        );
+        int listed = 0;
+        for (Map.Entry<String, EnergyLedger.Usage> day : days.entrySet()) {
+            EnergyLedger.Usage usage = day.getValue();
+            table.append(
+                String.format(
+                    Locale.ROOT,
+                    "%-10s %4d %5d %6d %7.1f %7.1f %7.1f\n",
+                    day.getKey(),
+                    usage.getRuns(),
+                    usage.getDeferredRuns(),
+                    usage.getRadioWakeups(),
+                    usage.getRadioMillis() / 1000.0,
+                    usage.getWallMillis() / 1000.0,
+                    usage.getMillijoules() / 1000.0
+                )
+            );
+            if (++listed == MAX_LISTED_DAYS) {
+                break;
+            }
+        }
+        energyTextView.setText(table.toString());
+    }
+
+    // Newest first: start time, root span, total duration and outcome
+    private void renderTraces() {
+        List<List<SpanData>> traces = traceStore.readAll();
+        if (traces.isEmpty()) {
+            tracesTextView.setText("No traces recorded yet");
+            return;
+        }
+
+        StringBuilder list = new StringBuilder();
+        int listed = 0;
+        for (int i = traces.size() - 1; i >= 0; i--) {
+            List<SpanData> trace = traces.get(i);
+            SpanData root = trace.get(trace.size() - 1);
+            String outcome = root.getError() != null ? "ERROR" : "OK";
+            for (SpanData span : trace) {
+                String value = span.getAttributes().get("outcome");
+                if (value != null) {
+                    outcome = value;
+                }
+            }
+            list.append(
+                String.format(
+                    Locale.ROOT,
+                    "%s %-12s %8.1f ms %3d spans %s\n",
+                    LogTimestamp.format(root.getStartEpochNanos() / 1000000L),
+                    root.getName(),
+                    root.getDurationNanos() / 1000000.0,
+                    trace.size(),
+                    outcome
+                )
+            );
+            if (++listed == MAX_LISTED_TRACES) {
+                break;
+            }
+        }
+        tracesTextView.setText(list.toString());
+    }
+
+    @Override
+    protected void onActivityResult(
+        int requestCode,
+        int resultCode,
+        Intent data
+    ) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode != RESULT_OK || data == null || data.getData() == null) {
+            return;
+        }
+        switch (requestCode) {
+            case REQUEST_CODE_EXPORT_STATS:
+                performExport(data.getData(), latency.exportCsv(), "Statistics");
+                break;
+            case REQUEST_CODE_EXPORT_OTLP:
+                performExport(
+                    data.getData(),
+                    TraceExporter.toOtlpJson(traceStore.readAll()),
+                    "Traces"
+                );
+                break;
+            case REQUEST_CODE_EXPORT_CHROME_TRACE:
+                performExport(
+                    data.getData(),
+                    TraceExporter.toChromeTrace(traceStore.readAll()),
+                    "Traces"
+                );
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void performExport(Uri uri, String content, String what) {
+        try (
+            OutputStream outputStream = getContentResolver().openOutputStream(
+                uri
+            )
+        ) {
+            if (outputStream == null) {
+                showSnackbar("Failed to open file for writing");
+                return;
+            }
+            OutputStreamWriter writer = new OutputStreamWriter(
+                outputStream,
+                "UTF-8"
+            );
+            writer.write(content);
+            writer.flush();
+            showSnackbar(what + " exported successfully");
+        } catch (Exception e) {
+            Log.e("StatsActivity", "Failed to export " + what, e);
+            showSnackbar("Failed to export: " + e.getMessage());
+        }
+    }
+
+    private void showSnackbar(String message) {
+        Snackbar.make(
+            findViewById(android.R.id.content),
+            message,
+            Snackbar.LENGTH_SHORT
+        ).show();
+    }
+}
@@ -0,0 +1,68 @@
+package com.simple.duckdns.updater;
+
+import android.net.SSLCertificateSocketFactory;
+import android.net.SSLSessionCache;
+import android.util.Log;
+import java.io.File;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import okhttp3.OkHttpClient;
+
+/**
+ * TLS sessions persisted across process restarts, so the first handshake of
+ * a run can resume a session from an earlier run instead of a full
+ * handshake. WorkManager usually starts a fresh process per run, where the
+ * in-memory session cache is always empty.
+ *
+ * Uses the platform's file-backed {@link SSLSessionCache}, the only
+ * persistent cache Android exposes. Its socket factory completes the
+ * handshake while creating the socket, before OkHttp can offer ALPN, so
+ * these connections speak HTTP/1.1; the app's calls are single small GETs
+ * where HTTP/2 buys nothing. Whether TLS 1.3 tickets survive depends on the
+ * platform's Conscrypt version; TLS 1.2 sessions do.
+ */
+final class TlsSessionCache {
+
+    private static final String TAG = "TlsSessionCache";
+
+    // The clients' read timeouts bound the handshake as well
+    private static final int HANDSHAKE_TIMEOUT_MILLIS =
+        (int) TimeUnit.SECONDS.toMillis(15);
+
+    private TlsSessionCache() {}
+
+    /**
+     * Configure the builder's TLS to resume sessions stored in dir. Leaves
+     * OkHttp's default TLS in place if the cache can't be set up.
+     */
+    @SuppressWarnings("deprecation")
+    static void install(OkHttpClient.Builder builder, File dir) {
+        try {
+            SSLSocketFactory factory = SSLCertificateSocketFactory.getDefault(
+                HANDSHAKE_TIMEOUT_MILLIS,
+                new SSLSessionCache(dir)
+            );
+            builder.sslSocketFactory(factory, platformTrustManager());
+        } catch (Exception e) {
+            Log.w(TAG, "TLS sessions won't persist: " + e.getMessage());
+        }
+    }
+
+    // Same trust store as the factory, for OkHttp's certificate chain cleaning
+    private static X509TrustManager platformTrustManager() throws Exception {
+        TrustManagerFactory factory = TrustManagerFactory.getInstance(
+            TrustManagerFactory.getDefaultAlgorithm()
+        );
+        factory.init((KeyStore) null);
+        for (TrustManager manager : factory.getTrustManagers()) {
+            if (manager instanceof X509TrustManager) {
+                return (X509TrustManager) manager;
+            }
+        }
+        throw new IllegalStateException("No X509TrustManager");
+    }
+}
@@ -0,0 +1,210 @@
+package com.simple.duckdns.updater;
+
+import android.content.Context;
+import com.simple.duckdns.core.BootstrapResolver;
+import com.simple.duckdns.core.Clock;
+import com.simple.duckdns.core.DnsResolver;
+import com.simple.duckdns.core.DohJsonResolver;
+import com.simple.duckdns.core.EnergyLedger;
+import com.simple.duckdns.core.FileTraceStore;
+import com.simple.duckdns.core.NetworkAccounting;
+import com.simple.duckdns.core.ResolverRegistry;
+import com.simple.duckdns.core.StateStore;
+import com.simple.duckdns.core.Tracer;
+import com.simple.duckdns.core.UpdateEngine;
+import com.simple.duckdns.core.UpdateLogger;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide update engine wired to the Android adapters.
+ */
+public final class UpdateEngineProvider {
+
+    private static final String TRACE_DIR = "traces";
+    private static final String TLS_SESSION_DIR = "tls_sessions";
+
+    private static volatile UpdateEngine engine;
+    private static volatile UpdateLogger logger;
+    private static volatile FileTraceStore traceStore;
+    private static volatile EnergyLedger energyLedger;
+
+    private UpdateEngineProvider() {}
+
+    public static UpdateEngine getEngine(Context context) {
+        UpdateEngine current = engine;
+        if (current == null) {
+            synchronized (UpdateEngineProvider.class) {
+                current = engine;
+                if (current == null) {
+                    Context appContext = context.getApplicationContext();
+                    StateStore stateStore = new PreferencesStateStore(
+                        appContext
+                    );
+                    NetworkAccounting accounting = new NetworkAccounting(
+                        stateStore,
+                        Clock.SYSTEM
+                    );
+                    current = UpdateEngine.builder()
+                        .transport(
+                            new OkHttpTransport(
+                                accounting,
+                                createBootstrapResolver(
+                                    accounting,
+                                    stateStore,
+                                    getLogger(appContext)
+                                ),
+                                new File(
+                                    appContext.getCacheDir(),
+                                    TLS_SESSION_DIR
+                                )
+                            )
+                        )
+                        .resolverSpec(
+                            checkedResolverSpec(
+                                ConfigStore.getInstance(
+                                    appContext
+                                ).getResolverSpec(),
+                                getLogger(appContext)
+                            )
+                        )
+                        .stateStore(stateStore)
+                        .networkAccounting(accounting)
+                        .logger(getLogger(appContext))
+                        .tracer(
+                            new Tracer(Clock.SYSTEM, getTraceStore(appContext))
+                        )
+                        .build();
+                    // Decrypts join the run's trace and latency figures
+                    CredentialsHolder.getInstance(appContext).setTelemetry(
+                        current.getTracer(),
+                        current.getLatencyRecorder()
+                    );
+                    watchResolvers(appContext, current);
+                    engine = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // A list saved by an import takes effect from the next check on
+    private static void watchResolvers(
+        final Context appContext,
+        final UpdateEngine engine
+    ) {
+        ConfigStore.getInstance(appContext).setResolversListener(
+            new ConfigStore.ResolversListener() {
+                @Override
+                public void onResolversChanged(String spec) {
+                    UpdateLogger logger = getLogger(appContext);
+                    engine.setResolverSpec(checkedResolverSpec(spec, logger));
+                    logger.debug(
+                        "Resolvers changed to " +
+                            engine.getResolvers().size() +
+                            " server(s)"
+                    );
+                }
+            }
+        );
+    }
+
+    // Imports validate the list; fall back to the defaults if it broke anyway
+    private static String checkedResolverSpec(
+        String spec,
+        UpdateLogger logger
+    ) {
+        try {
+            ResolverRegistry.parse(spec, null, null);
+            return spec;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring resolvers: " + e.getMessage());
+            return "";
+        }
+    }
+
+    /**
+     * Resolver for DuckDNS, the IP echo and named DoH servers. Its own DoH
+     * queries go to the IP-literal default servers on the system resolver.
+     */
+    private static BootstrapResolver createBootstrapResolver(
+        NetworkAccounting accounting,
+        StateStore stateStore,
+        UpdateLogger logger
+    ) {
+        List<String> hosts = new ArrayList<>();
+        hosts.add(BootstrapResolver.hostOf(UpdateEngine.DUCKDNS_UPDATE_URL));
+        hosts.add(BootstrapResolver.hostOf(UpdateEngine.IP_ECHO_URL));
+        List<DohJsonResolver> dohServers = new ArrayList<>();
+        for (DnsResolver resolver : UpdateEngine.defaultResolvers(
+            new OkHttpTransport(accounting)
+        )) {
+            if (resolver instanceof DohJsonResolver) {
+                DohJsonResolver doh = (DohJsonResolver) resolver;
+                dohServers.add(doh);
+                hosts.add(BootstrapResolver.hostOf(doh.getBaseUrl()));
+            }
+        }
+        return new BootstrapResolver(
+            hosts,
+            dohServers,
+            stateStore,
+            Clock.SYSTEM,
+            logger
+        );
+    }
+
+    /** @return Ring buffer of the last run traces in the app's files dir */
+    public static FileTraceStore getTraceStore(Context context) {
+        FileTraceStore current = traceStore;
+        if (current == null) {
+            synchronized (UpdateEngineProvider.class) {
+                current = traceStore;
+                if (current == null) {
+                    Context appContext = context.getApplicationContext();
+                    current = new FileTraceStore(
+                        new File(appContext.getFilesDir(), TRACE_DIR),
+                        FileTraceStore.DEFAULT_CAPACITY,
+                        getLogger(appContext)
+                    );
+                    traceStore = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** @return Per-day energy figures of worker runs, in the engine's state */
+    public static EnergyLedger getEnergyLedger(Context context) {
+        EnergyLedger current = energyLedger;
+        if (current == null) {
+            synchronized (UpdateEngineProvider.class) {
+                current = energyLedger;
+                if (current == null) {
+                    UpdateEngine engine = getEngine(context);
+                    current = new EnergyLedger(
+                        engine.getStateStore(),
+                        engine.getClock()
+                    );
+                    energyLedger = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public static UpdateLogger getLogger(Context context) {
+        UpdateLogger current = logger;
+        if (current == null) {
+            synchronized (UpdateEngineProvider.class) {
+                current = logger;
+                if (current == null) {
+                    current = new AndroidUpdateLogger(context);
+                    logger = current;
+                }
+            }
+        }
+        return current;
+    }
+}
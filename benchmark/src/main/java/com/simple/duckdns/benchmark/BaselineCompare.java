@@ -0,0 +1,145 @@
+package com.simple.duckdns.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result file with a stored baseline.
+ *
+ * Usage: BaselineCompare BASELINE.json RESULTS.json [TOLERANCE]
+ *
+ * A benchmark regresses when its score (time per op) or its allocation per
+ * op (gc.alloc.rate.norm, from -prof gc) grows by more than TOLERANCE
+ * (0.20 = 20%). Exits with 1 if anything regressed.
+ */
+public final class BaselineCompare {
+
+    private static final String ENTRY_START = "\"jmhVersion\"";
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm\"";
+
+    // Allocation noise floor, in bytes per op
+    private static final double ALLOC_SLACK_BYTES = 8;
+
+    private BaselineCompare() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(
+                "Usage: BaselineCompare BASELINE.json RESULTS.json [TOLERANCE]"
+            );
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.2;
+        Map<String, double[]> baseline = parse(read(args[0]));
+        Map<String, double[]> results = parse(read(args[1]));
+
+        int regressions = 0;
+        for (Map.Entry<String, double[]> entry : results.entrySet()) {
+            double[] now = entry.getValue();
+            double[] before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println("NEW   " + entry.getKey());
+                continue;
+            }
+            boolean slower = now[0] > before[0] * (1 + tolerance);
+            boolean allocates =
+                now[1] > before[1] * (1 + tolerance) + ALLOC_SLACK_BYTES;
+            if (slower || allocates) {
+                regressions++;
+            }
+            System.out.println(
+                String.format(
+                    Locale.ROOT,
+                    "%-5s %s  time %.1f -> %.1f (%+.0f%%)  alloc %.0f -> %.0f B/op",
+                    slower || allocates ? "REGR" : "ok",
+                    entry.getKey(),
+                    before[0],
+                    now[0],
+                    change(before[0], now[0]),
+                    before[1],
+                    now[1]
+                )
+            );
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed");
+            System.exit(1);
+        }
+    }
+
+    private static double change(double before, double now) {
+        return before == 0 ? 0 : (now - before) * 100 / before;
+    }
+
+    private static String read(String path) throws IOException {
+        return new String(
+            Files.readAllBytes(Paths.get(path)),
+            StandardCharsets.UTF_8
+        );
+    }
+
+    /**
+     * Minimal scan of JMH's JSON output, in the same indexOf style as the DoH
+     * parser, to avoid a JSON dependency.
+     *
+     * @return benchmark[params] -> {score, allocation bytes per op}
+     */
+    static Map<String, double[]> parse(String json) {
+        Map<String, double[]> result = new LinkedHashMap<>();
+        int start = json.indexOf(ENTRY_START);
+        while (start >= 0) {
+            int next = json.indexOf(ENTRY_START, start + 1);
+            String entry = json.substring(
+                start,
+                next >= 0 ? next : json.length()
+            );
+            String key = stringValue(entry, "\"benchmark\"");
+            int params = entry.indexOf("\"params\"");
+            if (params >= 0) {
+                int open = entry.indexOf('{', params);
+                int close = entry.indexOf('}', open);
+                key += entry
+                    .substring(open, close + 1)
+                    .replaceAll("[\\s\"]", "");
+            }
+            int primary = entry.indexOf("\"primaryMetric\"");
+            int alloc = entry.indexOf(ALLOC_METRIC);
+            result.put(
+                key,
+                new double[] {
+                    numberAfter(entry, "\"score\"", primary),
+                    alloc >= 0 ? numberAfter(entry, "\"score\"", alloc) : 0,
+                }
+            );
+            start = next;
+        }
+        return result;
+    }
+
+    private static String stringValue(String entry, String field) {
+        int colon = entry.indexOf(':', entry.indexOf(field));
+        int open = entry.indexOf('"', colon);
+        return entry.substring(open + 1, entry.indexOf('"', open + 1));
+    }
+
+    private static double numberAfter(String entry, String field, int from) {
+        int colon = entry.indexOf(':', entry.indexOf(field, from));
+        int end = colon + 1;
+        while (
+            end < entry.length() &&
+            entry.charAt(end) != ',' &&
+            entry.charAt(end) != '\n' &&
+            entry.charAt(end) != '}'
+        ) {
+            end++;
+        }
+        String number = entry.substring(colon + 1, end).trim();
+        return "\"NaN\"".equals(number) ? Double.NaN : Double.parseDouble(number);
+    }
+}
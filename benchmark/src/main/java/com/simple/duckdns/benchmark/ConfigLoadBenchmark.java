@@ -0,0 +1,126 @@
+package com.simple.duckdns.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Token decrypt of a config load: the old per-load key store lookup, the
+ * CredentialsHolder path with a warm key handle (token TTL expired), and
+ * its cached token. A PKCS12 key store loaded from memory stands in for
+ * the AndroidKeyStore, whose lookup is a keystore IPC on a device.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigLoadBenchmark {
+
+    private static final char[] PASSWORD = "benchmark".toCharArray();
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH_BITS = 128;
+
+    byte[] keyStoreBytes;
+    SecretKey warmKey;
+    String encryptedToken;
+
+    // CredentialsHolder's cache entry
+    String cachedEncryptedToken;
+    String cachedToken;
+    long cachedAtMillis;
+    long tokenTtlMillis = TimeUnit.MINUTES.toMillis(30);
+
+    @Setup
+    public void setup() throws Exception {
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(256);
+        warmKey = keyGenerator.generateKey();
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, PASSWORD);
+        keyStore.setEntry(
+            "duckdns_key",
+            new KeyStore.SecretKeyEntry(warmKey),
+            new KeyStore.PasswordProtection(PASSWORD)
+        );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        keyStore.store(out, PASSWORD);
+        keyStoreBytes = out.toByteArray();
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, warmKey);
+        byte[] encrypted = cipher.doFinal(
+            "a7c4d2e1-9b3f-4e5a-8c6d-1f2e3d4c5b6a".getBytes()
+        );
+        byte[] iv = cipher.getIV();
+        byte[] combined = new byte[iv.length + encrypted.length];
+        System.arraycopy(iv, 0, combined, 0, iv.length);
+        System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
+        encryptedToken = Base64.getEncoder().encodeToString(combined);
+
+        cachedEncryptedToken = encryptedToken;
+        cachedToken = warmDecrypt(encryptedToken);
+        cachedAtMillis = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public String coldKeyStore() throws Exception {
+        return Legacy.decryptToken(keyStoreBytes, PASSWORD, encryptedToken);
+    }
+
+    @Benchmark
+    public String warmKey() throws Exception {
+        return warmDecrypt(encryptedToken);
+    }
+
+    @Benchmark
+    public String cachedToken() throws Exception {
+        // CredentialsHolder.decrypt before falling back to the cipher
+        synchronized (this) {
+            if (
+                encryptedToken.equals(cachedEncryptedToken) &&
+                System.currentTimeMillis() - cachedAtMillis < tokenTtlMillis
+            ) {
+                return cachedToken;
+            }
+        }
+        return warmDecrypt(encryptedToken);
+    }
+
+    // CredentialsHolder.decryptUncached with the key handle resolved
+    private String warmDecrypt(String encryptedText) throws Exception {
+        byte[] combined = Base64.getDecoder().decode(encryptedText);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        GCMParameterSpec gcmSpec = new GCMParameterSpec(
+            GCM_TAG_LENGTH_BITS,
+            combined,
+            0,
+            GCM_IV_LENGTH
+        );
+        cipher.init(Cipher.DECRYPT_MODE, warmKey, gcmSpec);
+        return new String(
+            cipher.doFinal(
+                combined,
+                GCM_IV_LENGTH,
+                combined.length - GCM_IV_LENGTH
+            )
+        );
+    }
+}
@@ -0,0 +1,58 @@
+package com.simple.duckdns.benchmark;
+
+import com.simple.duckdns.core.CsvCodec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Config export/import CSV: MainActivity's original helpers against
+ * CsvCodec, for a plain and a quoted field.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvBenchmark {
+
+    @Param({ "myhome,myserver,office", "myhome" })
+    String value;
+
+    String line;
+
+    @Setup
+    public void setup() {
+        line = "domains," + CsvCodec.escape(value);
+    }
+
+    @Benchmark
+    public String escapeLegacy() {
+        return Legacy.escapeCsvValue(value);
+    }
+
+    @Benchmark
+    public String escapeCodec() {
+        return CsvCodec.escape(value);
+    }
+
+    @Benchmark
+    public String[] parseLegacy() {
+        return Legacy.parseCsvLine(line);
+    }
+
+    @Benchmark
+    public String[] parseCodec() {
+        return CsvCodec.parseLine(line);
+    }
+}
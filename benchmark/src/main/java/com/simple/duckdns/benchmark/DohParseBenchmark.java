@@ -0,0 +1,52 @@
+package com.simple.duckdns.benchmark;
+
+import com.simple.duckdns.core.DohJsonResolver;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * First-answer extraction from a DoH JSON response: the indexOf scan used by
+ * DohJsonResolver against a regex.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DohParseBenchmark {
+
+    private static final Pattern DATA_PATTERN = Pattern.compile(
+        "\"data\":\"([^\"]*)\""
+    );
+
+    // Cloudflare-style answer for an A query
+    String body =
+        "{\"Status\":0,\"TC\":false,\"RD\":true,\"RA\":true,\"AD\":false," +
+        "\"CD\":false,\"Question\":[{\"name\":\"myhome.duckdns.org\"," +
+        "\"type\":1}],\"Answer\":[{\"name\":\"myhome.duckdns.org\"," +
+        "\"type\":1,\"TTL\":60,\"data\":\"203.0.113.42\"}]}";
+
+    @Benchmark
+    public String indexOf() {
+        return DohJsonResolver.parseAnswers(body, DohJsonResolver.TYPE_A)
+            .get(0)
+            .getAddress();
+    }
+
+    @Benchmark
+    public String regex() {
+        Matcher matcher = DATA_PATTERN.matcher(body);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.simple.duckdns.benchmark;
+
+import com.simple.duckdns.core.IpAddress;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Address handling of the DNS check: literals parsed with InetAddress
+ * against IpAddress, and an AAAA record's bytes formatted to text (the old
+ * DnsMessage path) against packing them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IpAddressBenchmark {
+
+    String ipv4 = "203.0.113.42";
+    String ipv6 = "2001:db8:85a3::8a2e:370:7334";
+    byte[] aaaa = new byte[] {
+        0x20, 0x01, 0x0d, (byte) 0xb8, (byte) 0x85, (byte) 0xa3, 0, 0,
+        0, 0, (byte) 0x8a, 0x2e, 0x03, 0x70, 0x73, 0x34,
+    };
+
+    @Benchmark
+    public InetAddress parseIpv4InetAddress() throws IOException {
+        return InetAddress.getByName(ipv4);
+    }
+
+    @Benchmark
+    public IpAddress parseIpv4Packed() {
+        return IpAddress.parse(ipv4);
+    }
+
+    @Benchmark
+    public InetAddress parseIpv6InetAddress() throws IOException {
+        return InetAddress.getByName(ipv6);
+    }
+
+    @Benchmark
+    public IpAddress parseIpv6Packed() {
+        return IpAddress.parse(ipv6);
+    }
+
+    @Benchmark
+    public String aaaaRecordText() throws IOException {
+        return Legacy.formatAddress(aaaa);
+    }
+
+    @Benchmark
+    public IpAddress aaaaRecordPacked() {
+        return IpAddress.fromBytes(aaaa, 0, aaaa.length);
+    }
+}
@@ -0,0 +1,189 @@
+package com.simple.duckdns.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Verbatim copies of the implementations the core replacements were measured
+ * against, kept so every benchmark reports old and new side by side.
+ */
+final class Legacy {
+
+    private Legacy() {}
+
+    // MainActivity.escapeCsvValue
+    static String escapeCsvValue(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        if (
+            value.contains(",") ||
+            value.contains("\n") ||
+            value.contains("\"") ||
+            value.contains("\r")
+        ) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    // MainActivity.parseCsvLine
+    static String[] parseCsvLine(String line) {
+        List<String> result = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (inQuotes) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else {
+                if (c == '"') {
+                    inQuotes = true;
+                } else if (c == ',') {
+                    result.add(current.toString());
+                    current = new StringBuilder();
+                } else {
+                    current.append(c);
+                }
+            }
+        }
+        result.add(current.toString());
+
+        return result.toArray(new String[0]);
+    }
+
+    // MainActivity.isValidTokenFormat before the precompiled pattern
+    static boolean isValidTokenFormat(String token) {
+        if (token == null || token.isEmpty()) {
+            return false;
+        }
+        return token.matches(
+            "^[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}$"
+        );
+    }
+
+    // MainActivity.loadLog: read every line, keep the last maxLines
+    static String loadLog(File logFile, int maxLines) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (
+            BufferedReader reader = new BufferedReader(new FileReader(logFile))
+        ) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+
+        StringBuilder content = new StringBuilder();
+        int start = Math.max(0, lines.size() - maxLines);
+        for (int i = start; i < lines.size(); i++) {
+            content.append(lines.get(i)).append("\n");
+        }
+        return content.toString();
+    }
+
+    // LocalAddresses.format: RFC 5952 text of a DNS record's address bytes
+    static String formatAddress(byte[] raw) throws IOException {
+        InetAddress address = InetAddress.getByAddress(raw);
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            return address.getHostAddress();
+        }
+        int[] groups = new int[8];
+        for (int i = 0; i < 8; i++) {
+            groups[i] =
+                ((bytes[2 * i] & 0xff) << 8) | (bytes[2 * i + 1] & 0xff);
+        }
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int i = 0; i < 8; ) {
+            int length = 0;
+            while (i + length < 8 && groups[i + length] == 0) {
+                length++;
+            }
+            if (length > bestLength) {
+                bestStart = i;
+                bestLength = length;
+            }
+            i += Math.max(length, 1);
+        }
+        StringBuilder text = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                text.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (text.length() > 0 && text.charAt(text.length() - 1) != ':') {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(groups[i]));
+        }
+        return text.toString();
+    }
+
+    // DuckDNSUpdateWorker.decrypt with getOrCreateSecretKey, run for every
+    // config load. The JVM has no AndroidKeyStore: the key store is a
+    // PKCS12 one loaded from bytes, and java.util.Base64 stands in for
+    // android.util.Base64.
+    static String decryptToken(
+        byte[] keyStoreBytes,
+        char[] password,
+        String encryptedText
+    ) throws Exception {
+        if (encryptedText == null || encryptedText.isEmpty()) {
+            return encryptedText;
+        }
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(new ByteArrayInputStream(keyStoreBytes), password);
+        KeyStore.SecretKeyEntry secretKeyEntry =
+            (KeyStore.SecretKeyEntry) keyStore.getEntry(
+                "duckdns_key",
+                new KeyStore.PasswordProtection(password)
+            );
+        SecretKey secretKey = secretKeyEntry.getSecretKey();
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+
+        byte[] combined = Base64.getDecoder().decode(encryptedText);
+        byte[] iv = new byte[12]; // GCM IV is typically 12 bytes
+        byte[] encryptedBytes = new byte[combined.length - 12];
+
+        System.arraycopy(combined, 0, iv, 0, 12);
+        System.arraycopy(
+            combined,
+            12,
+            encryptedBytes,
+            0,
+            encryptedBytes.length
+        );
+
+        GCMParameterSpec gcmSpec = new GCMParameterSpec(128, iv);
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, gcmSpec);
+
+        byte[] decryptedBytes = cipher.doFinal(encryptedBytes);
+        return new String(decryptedBytes);
+    }
+}
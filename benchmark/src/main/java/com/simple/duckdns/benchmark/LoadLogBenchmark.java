@@ -0,0 +1,69 @@
+package com.simple.duckdns.benchmark;
+
+import com.simple.duckdns.core.LogTail;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Showing the last 100 log lines: reading the whole file (original loadLog)
+ * against LogTail's backwards scan, for a young and a months-old log.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadLogBenchmark {
+
+    private static final int SHOWN_LINES = 100;
+
+    @Param({ "200", "50000" })
+    int lines;
+
+    File logFile;
+
+    @Setup
+    public void setup() throws IOException {
+        logFile = File.createTempFile("duckdns_log", ".txt");
+        try (Writer writer = new FileWriter(logFile)) {
+            for (int i = 0; i < lines; i++) {
+                writer
+                    .append("[2026-01-01 12:00:00] AutoUpdate: myhome ")
+                    .append("[IP: 203.0.113.42] - SUCCESS (OK) #")
+                    .append(Integer.toString(i))
+                    .append('\n');
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        logFile.delete();
+    }
+
+    @Benchmark
+    public String fullRead() throws IOException {
+        return Legacy.loadLog(logFile, SHOWN_LINES);
+    }
+
+    @Benchmark
+    public String tail() throws IOException {
+        return LogTail.read(logFile, SHOWN_LINES);
+    }
+}
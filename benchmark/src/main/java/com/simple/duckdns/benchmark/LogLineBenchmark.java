@@ -0,0 +1,71 @@
+package com.simple.duckdns.benchmark;
+
+import com.simple.duckdns.core.LogTimestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building a log line: timestamp formatting per line against the cached
+ * LogTimestamp, and String.format against concatenation for the message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogLineBenchmark {
+
+    String prefix = "AutoUpdate";
+    String domains = "myhome,myserver";
+    String ip = "203.0.113.42";
+    String status = "OK";
+
+    @Benchmark
+    public String stampLocalDateTime() {
+        return LocalDateTime.now().format(LogTimestamp.LOG_DATE_FORMAT);
+    }
+
+    @Benchmark
+    public String stampCached() {
+        return LogTimestamp.now();
+    }
+
+    @Benchmark
+    public String lineStringFormat() {
+        return String.format(
+            "[%s] %s: %s [IP: %s] - SUCCESS (%s)",
+            LogTimestamp.now(),
+            prefix,
+            domains,
+            ip,
+            status
+        );
+    }
+
+    @Benchmark
+    public String lineConcat() {
+        return (
+            "[" +
+            LogTimestamp.now() +
+            "] " +
+            prefix +
+            ": " +
+            domains +
+            " [IP: " +
+            ip +
+            "] - SUCCESS (" +
+            status +
+            ")"
+        );
+    }
+}
@@ -0,0 +1,48 @@
+package com.simple.duckdns.benchmark;
+
+import com.simple.duckdns.core.DuckDnsToken;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Token format check: String.matches (compiles the regex per call), a
+ * precompiled Pattern, and the hand-rolled DuckDnsToken scan.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenValidationBenchmark {
+
+    private static final Pattern TOKEN_PATTERN = Pattern.compile(
+        "^[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}$"
+    );
+
+    String token = "a7c4d2e1-9b3f-4e5a-8c6d-1f2e3d4c5b6a";
+
+    @Benchmark
+    public boolean stringMatches() {
+        return Legacy.isValidTokenFormat(token);
+    }
+
+    @Benchmark
+    public boolean precompiledPattern() {
+        return TOKEN_PATTERN.matcher(token).matches();
+    }
+
+    @Benchmark
+    public boolean handRolled() {
+        return DuckDnsToken.isValidFormat(token);
+    }
+}
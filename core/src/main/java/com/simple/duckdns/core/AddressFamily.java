@@ -0,0 +1,56 @@
+package com.simple.duckdns.core;
+
+/**
+ * IP address family checked and updated independently: its own public
+ * address, DNS record type and DuckDNS update parameter.
+ */
+public enum AddressFamily {
+    IPV4("IPv4", "A", DohJsonResolver.TYPE_A, "ip"),
+    IPV6("IPv6", "AAAA", DohJsonResolver.TYPE_AAAA, "ipv6");
+
+    private final String label;
+    private final String recordType;
+    private final int typeCode;
+    private final String updateParam;
+
+    AddressFamily(
+        String label,
+        String recordType,
+        int typeCode,
+        String updateParam
+    ) {
+        this.label = label;
+        this.recordType = recordType;
+        this.typeCode = typeCode;
+        this.updateParam = updateParam;
+    }
+
+    /** @return DNS record type name, "A" or "AAAA" */
+    public String getRecordType() {
+        return recordType;
+    }
+
+    /** @return DNS record type code */
+    public int getTypeCode() {
+        return typeCode;
+    }
+
+    /** @return Query parameter of the DuckDNS update API */
+    public String getUpdateParam() {
+        return updateParam;
+    }
+
+    /** @return "IPv4" or "IPv6", for logs */
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    /**
+     * @param address Textual address
+     * @return Family of the literal, by the presence of a colon
+     */
+    public static AddressFamily of(String address) {
+        return address.indexOf(':') >= 0 ? IPV6 : IPV4;
+    }
+}
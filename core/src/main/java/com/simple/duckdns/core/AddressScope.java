@@ -0,0 +1,118 @@
+package com.simple.duckdns.core;
+
+import java.net.InetAddress;
+
+/**
+ * Reachability class of an interface address, deciding whether it can be
+ * published as is or the public address has to come from the IP echo.
+ */
+public enum AddressScope {
+    /**
+     * Never the host's public address: loopback, unspecified, multicast,
+     * "this network" 0.0.0.0/8, reserved 240.0.0.0/4, IETF 192.0.0.0/24,
+     * benchmarking 198.18.0.0/15, the documentation ranges (192.0.2.0/24,
+     * 198.51.100.0/24, 203.0.113.0/24, 2001:db8::/32), IPv4-compatible
+     * ::/96, discard 100::/64 and deprecated site-local fec0::/10
+     */
+    SPECIAL,
+    /** 169.254.0.0/16 and fe80::/10, never routed */
+    LINK_LOCAL,
+    /** RFC 1918: 10.0.0.0/8, 172.16.0.0/12 and 192.168.0.0/16 */
+    PRIVATE,
+    /** RFC 6598 carrier-grade NAT: 100.64.0.0/10 */
+    CGNAT,
+    /** RFC 4193 unique local IPv6: fc00::/7 */
+    ULA,
+    /**
+     * IPv6 side of a translator or tunnel: NAT64 64:ff9b::/96 and
+     * 64:ff9b:1::/48, Teredo 2001::/32 and 6to4 2002::/16
+     */
+    TUNNELED,
+    /** Anything else: publicly routable, usable without the IP echo */
+    GLOBAL;
+
+    /**
+     * @param address Interface address; IPv4-mapped IPv6 addresses arrive
+     *     as IPv4 from InetAddress already
+     * @return Scope of the address
+     */
+    public static AddressScope of(InetAddress address) {
+        return of(IpAddress.of(address));
+    }
+
+    /** @return Scope of the address, from its bits alone */
+    public static AddressScope of(IpAddress address) {
+        if (address.getFamily() == AddressFamily.IPV4) {
+            int bits = address.getIpv4Bits();
+            int first = bits >>> 24;
+            int second = (bits >>> 16) & 0xff;
+            // This network, loopback, multicast and reserved (with broadcast)
+            if (first == 0 || first == 127 || first >= 224) {
+                return SPECIAL;
+            }
+            int third = (bits >>> 8) & 0xff;
+            if (
+                (first == 192 && second == 0 && (third == 0 || third == 2)) ||
+                (first == 198 && (second & 0xfe) == 18) ||
+                (first == 198 && second == 51 && third == 100) ||
+                (first == 203 && second == 0 && third == 113)
+            ) {
+                return SPECIAL;
+            }
+            if (first == 169 && second == 254) {
+                return LINK_LOCAL;
+            }
+            if (
+                first == 10 ||
+                (first == 172 && (second & 0xf0) == 16) ||
+                (first == 192 && second == 168)
+            ) {
+                return PRIVATE;
+            }
+            if (first == 100 && (second & 0xc0) == 64) {
+                return CGNAT;
+            }
+            return GLOBAL;
+        }
+        long high = address.getHighBits();
+        long low = address.getLowBits();
+        int first = (int) (high >>> 56);
+        int group1 = (int) (high >>> 48);
+        int group2 = (int) (high >>> 32) & 0xffff;
+        // Unspecified, loopback and IPv4-compatible (mapped ones are IPv4)
+        if ((high == 0 && (low >>> 32) == 0) || first == 0xff) {
+            return SPECIAL;
+        }
+        if (
+            (high == 0x0100000000000000L) ||
+            (group1 == 0x2001 && group2 == 0x0db8) ||
+            (high >>> 54) == (0xfec0 >>> 6)
+        ) {
+            return SPECIAL;
+        }
+        if ((high >>> 54) == (0xfe80 >>> 6)) {
+            return LINK_LOCAL;
+        }
+        if ((first & 0xfe) == 0xfc) {
+            return ULA;
+        }
+        if (
+            (group1 == 0x0064 && group2 == 0xff9b) ||
+            (group1 == 0x2001 && group2 == 0) ||
+            group1 == 0x2002
+        ) {
+            return TUNNELED;
+        }
+        return GLOBAL;
+    }
+
+    /** @return true if traffic from the address is translated on its way out */
+    public boolean isTranslated() {
+        return (
+            this == PRIVATE ||
+            this == CGNAT ||
+            this == ULA ||
+            this == TUNNELED
+        );
+    }
+}
@@ -0,0 +1,204 @@
+package com.simple.duckdns.core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolver asking the zone's authoritative nameservers directly, so the
+ * answer is the record DuckDNS serves right now instead of whatever a
+ * recursive resolver still holds in its cache.
+ *
+ * The zone is the domain without its first label (duckdns.org for DuckDNS
+ * names, which are never delegated further). Its nameservers come from an
+ * NS lookup on a recursive server and are cached in memory and in the
+ * {@link StateStore} for the records' TTL. Queries go over UDP with
+ * recursion off, one nameserver after the other, and only answers with the
+ * AA flag count.
+ */
+public final class AuthoritativeResolver implements DnsResolver {
+
+    public static final String NAME = "authoritative";
+
+    /** Recursive server of the NS lookups */
+    public static final String DEFAULT_BOOTSTRAP = "1.1.1.1";
+
+    // TTL clamps of the nameserver cache
+    static final long MIN_TTL_SECONDS = TimeUnit.MINUTES.toSeconds(5);
+    static final long MAX_TTL_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    private static final String STATE_PREFIX = "dns_authoritative.";
+
+    private final UdpDnsResolver bootstrap;
+    private final int port;
+    private final StateStore stateStore;
+    private final Clock clock;
+    private final NetworkAccounting accounting;
+
+    // Guarded by this; loaded from the state store on first use per zone
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * @param bootstrap IP literal of the recursive server for NS lookups
+     * @param port Port of the bootstrap server and the nameservers,
+     *     {@link UdpDnsResolver#DEFAULT_PORT} outside tests
+     * @param accounting Counts each query under {@link Endpoint#DNS}, or null
+     * @throws IllegalArgumentException if bootstrap is not an IP literal
+     */
+    public AuthoritativeResolver(
+        String bootstrap,
+        int port,
+        StateStore stateStore,
+        Clock clock,
+        NetworkAccounting accounting
+    ) {
+        this.bootstrap = new UdpDnsResolver(
+            bootstrap,
+            UdpDnsResolver.parseLiteral(bootstrap),
+            port,
+            true,
+            accounting
+        );
+        this.port = port;
+        this.stateStore = stateStore;
+        this.clock = clock;
+        this.accounting = accounting;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public DnsAnswer resolveRecord(String domain, AddressFamily family)
+        throws IOException {
+        String zone = zoneOf(domain);
+        IOException failure = null;
+        for (String server : nameservers(zone)) {
+            try {
+                List<DnsAnswer> answers = new UdpDnsResolver(
+                    NAME,
+                    InetAddress.getByName(server),
+                    port,
+                    false,
+                    accounting
+                ).resolveAll(domain, family.getTypeCode());
+                return answers.isEmpty() ? null : answers.get(0);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        // Every nameserver failed, the delegation may have moved
+        forget(zone);
+        throw failure != null
+            ? failure
+            : new IOException("No nameservers for " + zone);
+    }
+
+    /** @return Zone holding a domain's records, e.g. "duckdns.org" */
+    static String zoneOf(String domain) {
+        int dot = domain.indexOf('.');
+        return dot > 0 && domain.indexOf('.', dot + 1) > 0
+            ? domain.substring(dot + 1)
+            : domain;
+    }
+
+    // Cached nameserver addresses, looked up again once expired
+    private synchronized List<String> nameservers(String zone)
+        throws IOException {
+        long now = clock.currentTimeMillis();
+        Entry entry = entries.get(zone);
+        if (entry == null) {
+            entry = Entry.decode(stateStore.get(STATE_PREFIX + zone, ""));
+        }
+        if (entry == null || entry.expiresAt <= now) {
+            entry = lookup(zone, now);
+            stateStore.put(STATE_PREFIX + zone, entry.encode());
+        }
+        entries.put(zone, entry);
+        return entry.addresses;
+    }
+
+    private Entry lookup(String zone, long now) throws IOException {
+        long ttl = MAX_TTL_SECONDS;
+        List<String> addresses = new ArrayList<>();
+        for (DnsAnswer host : bootstrap.resolveAll(zone, DnsMessage.TYPE_NS)) {
+            ttl = Math.min(ttl, host.getTtlSeconds());
+            try {
+                for (DnsAnswer address : bootstrap.resolveAll(
+                    host.getAddress(),
+                    DohJsonResolver.TYPE_A
+                )) {
+                    ttl = Math.min(ttl, address.getTtlSeconds());
+                    addresses.add(address.getAddress());
+                }
+            } catch (IOException e) {
+                // Other nameservers may still resolve
+            }
+        }
+        if (addresses.isEmpty()) {
+            throw new IOException("No nameserver addresses for " + zone);
+        }
+        return new Entry(
+            addresses,
+            now + TimeUnit.SECONDS.toMillis(Math.max(MIN_TTL_SECONDS, ttl))
+        );
+    }
+
+    private synchronized void forget(String zone) {
+        entries.remove(zone);
+        stateStore.remove(STATE_PREFIX + zone);
+    }
+
+    private static final class Entry {
+
+        final List<String> addresses;
+        final long expiresAt;
+
+        Entry(List<String> addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+
+        // "expiresAt;addr addr ..."
+        String encode() {
+            StringBuilder out = new StringBuilder(64);
+            out.append(expiresAt).append(';');
+            for (int i = 0; i < addresses.size(); i++) {
+                if (i > 0) {
+                    out.append(' ');
+                }
+                out.append(addresses.get(i));
+            }
+            return out.toString();
+        }
+
+        static Entry decode(String encoded) {
+            int semicolon = encoded.indexOf(';');
+            if (semicolon <= 0) {
+                return null;
+            }
+            try {
+                String[] addresses = encoded
+                    .substring(semicolon + 1)
+                    .trim()
+                    .split(" ");
+                if (addresses.length == 0 || addresses[0].isEmpty()) {
+                    return null;
+                }
+                return new Entry(
+                    Arrays.asList(addresses),
+                    Long.parseLong(encoded.substring(0, semicolon))
+                );
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.simple.duckdns.core;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the app's own fixed endpoints (DuckDNS, the IP echo, DoH servers
+ * given by name) without depending on the system resolver the DNS check is
+ * meant to bypass.
+ *
+ * Addresses come from DNS-over-HTTPS at IP-literal servers, fall back to the
+ * system resolver, and are cached in the {@link StateStore} for their TTL so
+ * a cold process start usually needs no lookup at all. When every source
+ * fails, an expired entry is served for up to {@link #MAX_STALE_MILLIS}.
+ *
+ * Results are ordered Happy-Eyeballs style (RFC 8305): address families
+ * interleaved, starting with the family that last connected for the host.
+ */
+public final class BootstrapResolver {
+
+    // TTL clamps, so neither a 0 nor a week-long TTL hurts
+    static final long MIN_TTL_SECONDS = 60;
+    static final long MAX_TTL_SECONDS = TimeUnit.DAYS.toSeconds(1);
+    // The system resolver does not expose TTLs
+    static final long SYSTEM_TTL_SECONDS = 300;
+
+    /** Longest time an expired entry is still served when lookups fail */
+    public static final long MAX_STALE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static final String STATE_PREFIX = "dns_bootstrap.";
+    private static final String STATE_FAMILY_PREFIX = "dns_family.";
+
+    private final Set<String> hosts;
+    private final List<DohJsonResolver> dohResolvers;
+    private final StateStore stateStore;
+    private final Clock clock;
+    private final UpdateLogger logger;
+
+    // Guarded by this; loaded from the state store on first use per host
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * @param hosts Host names to handle, see {@link #handles(String)}
+     * @param dohResolvers DoH servers, which must be IP literals
+     */
+    public BootstrapResolver(
+        Collection<String> hosts,
+        List<DohJsonResolver> dohResolvers,
+        StateStore stateStore,
+        Clock clock,
+        UpdateLogger logger
+    ) {
+        this.hosts = new HashSet<>();
+        for (String host : hosts) {
+            this.hosts.add(host.toLowerCase(Locale.ROOT));
+        }
+        this.dohResolvers = new ArrayList<>(dohResolvers);
+        this.stateStore = stateStore;
+        this.clock = clock;
+        this.logger = logger;
+    }
+
+    /** @return Host of an http(s) URL, lower case */
+    public static String hostOf(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+            end++;
+        }
+        String host = url.substring(start, end);
+        if (host.startsWith("[")) {
+            int close = host.indexOf(']');
+            return host.substring(1, close > 0 ? close : host.length());
+        }
+        int port = host.lastIndexOf(':');
+        if (port > 0 && host.indexOf(':') == port) {
+            host = host.substring(0, port);
+        }
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+    /** @return true for the fixed endpoints this resolver is for */
+    public boolean handles(String host) {
+        return hosts.contains(host.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param host Host name or IP literal
+     * @return Addresses in connection order
+     * @throws UnknownHostException if no source, fresh or stale, has one
+     */
+    public List<InetAddress> lookup(String host) throws UnknownHostException {
+        host = host.toLowerCase(Locale.ROOT);
+        if (isIpLiteral(host)) {
+            return Arrays.asList(InetAddress.getByName(host));
+        }
+
+        long now = clock.currentTimeMillis();
+        Entry cached = entry(host);
+        if (cached != null && now < cached.expiresAt) {
+            return order(host, cached.addresses);
+        }
+
+        Entry fresh = resolve(host, now);
+        if (fresh != null) {
+            store(host, fresh);
+            return order(host, fresh.addresses);
+        }
+        if (cached != null && now - cached.expiresAt < MAX_STALE_MILLIS) {
+            logger.warn("All lookups failed for " + host + ", serving stale");
+            return order(host, cached.addresses);
+        }
+        throw new UnknownHostException("No address for " + host);
+    }
+
+    /**
+     * Remember the address family that connected, so the next lookup for
+     * the host tries it first.
+     */
+    public void reportConnected(String host, InetAddress address) {
+        host = host.toLowerCase(Locale.ROOT);
+        if (!handles(host)) {
+            return;
+        }
+        String family = address instanceof Inet6Address ? "6" : "4";
+        String key = STATE_FAMILY_PREFIX + host;
+        synchronized (this) {
+            if (!family.equals(stateStore.get(key, ""))) {
+                stateStore.put(key, family);
+            }
+        }
+    }
+
+    private Entry resolve(String host, long now) {
+        for (DohJsonResolver doh : dohResolvers) {
+            try {
+                List<DnsAnswer> answers = new ArrayList<>(
+                    doh.resolveAll(host, DohJsonResolver.TYPE_A)
+                );
+                try {
+                    answers.addAll(
+                        doh.resolveAll(host, DohJsonResolver.TYPE_AAAA)
+                    );
+                } catch (IOException e) {
+                    // IPv4 alone is enough to connect
+                }
+                if (!answers.isEmpty()) {
+                    long ttl = MAX_TTL_SECONDS;
+                    List<String> addresses = new ArrayList<>(answers.size());
+                    for (DnsAnswer answer : answers) {
+                        ttl = Math.min(ttl, answer.getTtlSeconds());
+                        addresses.add(answer.getAddress());
+                    }
+                    logger.debug(
+                        "Bootstrap " +
+                            host +
+                            " via " +
+                            doh.getName() +
+                            ": " +
+                            addresses +
+                            " (ttl " +
+                            ttl +
+                            "s)"
+                    );
+                    return new Entry(addresses, expiry(now, ttl));
+                }
+            } catch (IOException e) {
+                logger.debug(
+                    "Bootstrap DoH " +
+                        doh.getName() +
+                        " failed for " +
+                        host +
+                        ": " +
+                        e.getMessage()
+                );
+            }
+        }
+
+        try {
+            InetAddress[] system = InetAddress.getAllByName(host);
+            List<String> addresses = new ArrayList<>(system.length);
+            for (InetAddress address : system) {
+                addresses.add(address.getHostAddress());
+            }
+            logger.debug("Bootstrap " + host + " via system: " + addresses);
+            return new Entry(addresses, expiry(now, SYSTEM_TTL_SECONDS));
+        } catch (UnknownHostException e) {
+            logger.debug("Bootstrap system lookup failed for " + host);
+            return null;
+        }
+    }
+
+    private static long expiry(long now, long ttlSeconds) {
+        long clamped = Math.max(
+            MIN_TTL_SECONDS,
+            Math.min(MAX_TTL_SECONDS, ttlSeconds)
+        );
+        return now + TimeUnit.SECONDS.toMillis(clamped);
+    }
+
+    // Interleave families, preferred one first (RFC 8305 section 4)
+    private List<InetAddress> order(String host, List<String> addresses)
+        throws UnknownHostException {
+        List<InetAddress> v4 = new ArrayList<>();
+        List<InetAddress> v6 = new ArrayList<>();
+        for (String address : addresses) {
+            IpAddress ip = IpAddress.parse(address);
+            if (ip == null) {
+                continue;
+            }
+            InetAddress parsed = InetAddress.getByAddress(host, ip.toBytes());
+            (ip.getFamily() == AddressFamily.IPV6 ? v6 : v4).add(parsed);
+        }
+        boolean preferV6 = "6".equals(
+            stateStore.get(STATE_FAMILY_PREFIX + host, "4")
+        );
+        List<InetAddress> first = preferV6 ? v6 : v4;
+        List<InetAddress> second = preferV6 ? v4 : v6;
+        List<InetAddress> ordered = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+            if (i < first.size()) {
+                ordered.add(first.get(i));
+            }
+            if (i < second.size()) {
+                ordered.add(second.get(i));
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * @return true for dotted IPv4 and for IPv6 literals, which never need
+     *     a lookup
+     */
+    static boolean isIpLiteral(String host) {
+        return IpAddress.parse(host) != null;
+    }
+
+    private synchronized Entry entry(String host) {
+        Entry entry = entries.get(host);
+        if (entry == null) {
+            entry = Entry.decode(stateStore.get(STATE_PREFIX + host, ""));
+            if (entry != null) {
+                entries.put(host, entry);
+            }
+        }
+        return entry;
+    }
+
+    private synchronized void store(String host, Entry entry) {
+        entries.put(host, entry);
+        stateStore.put(STATE_PREFIX + host, entry.encode());
+    }
+
+    private static final class Entry {
+
+        final List<String> addresses;
+        final long expiresAt;
+
+        Entry(List<String> addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+
+        // "expiresAt;addr addr ..."
+        String encode() {
+            StringBuilder out = new StringBuilder(64);
+            out.append(expiresAt).append(';');
+            for (int i = 0; i < addresses.size(); i++) {
+                if (i > 0) {
+                    out.append(' ');
+                }
+                out.append(addresses.get(i));
+            }
+            return out.toString();
+        }
+
+        static Entry decode(String encoded) {
+            int semicolon = encoded.indexOf(';');
+            if (semicolon <= 0) {
+                return null;
+            }
+            try {
+                String[] addresses = encoded
+                    .substring(semicolon + 1)
+                    .trim()
+                    .split(" ");
+                if (addresses.length == 0 || addresses[0].isEmpty()) {
+                    return null;
+                }
+                return new Entry(
+                    Arrays.asList(addresses),
+                    Long.parseLong(encoded.substring(0, semicolon))
+                );
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.simple.duckdns.core;
+
+/**
+ * Time source used by the engine, replaceable for tests and simulations.
+ */
+public interface Clock {
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /** @return Wall-clock time in milliseconds since the epoch */
+    long currentTimeMillis();
+
+    /** @return Monotonic time in nanoseconds, only meaningful for durations */
+    long nanoTime();
+}
@@ -0,0 +1,21 @@
+package com.simple.duckdns.core;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Optional {@link HttpTransport} capability: set up connections ahead of the
+ * calls that will use them, without sending a request.
+ */
+public interface ConnectionPrewarmer {
+    /**
+     * Start connecting to the origin of each request, all in parallel, and
+     * return without waiting. What is kept for the calls that follow, a
+     * pooled connection or a resumable TLS session, is up to the transport;
+     * no request is sent, and failures are ignored, the real call retries.
+     *
+     * @param requests One request per origin, carrying its endpoint class
+     * @return Latch counted down once per request, connected or failed
+     */
+    CountDownLatch prewarm(List<HttpRequest> requests);
+}
@@ -0,0 +1,32 @@
+package com.simple.duckdns.core;
+
+/**
+ * Decides from the resolvers' weighted votes whether a record is outdated.
+ *
+ * The engine queries the selected resolvers one after the other and
+ * evaluates the tally after every answer, so a policy ends the check as
+ * soon as the resolvers still pending can no longer change its verdict.
+ */
+public interface ConsensusPolicy {
+
+    enum Verdict {
+        /** Enough resolvers serve the expected address */
+        UP_TO_DATE,
+        /** Enough resolvers serve another address, or none */
+        OUTDATED,
+        /** Too few resolvers answered to tell, see {@link EvidencePolicy} */
+        INSUFFICIENT_EVIDENCE,
+        /** The pending resolvers may still decide */
+        UNDECIDED;
+    }
+
+    /** @return Weight of the resolver's vote, at least 1 */
+    int weight(DnsResolver resolver);
+
+    /**
+     * @param tally Weighted votes so far and the weight still pending
+     * @return Verdict, never {@link Verdict#UNDECIDED} once nothing is
+     *     pending
+     */
+    Verdict evaluate(ConsensusTally tally);
+}
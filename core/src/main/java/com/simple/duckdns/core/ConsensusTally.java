@@ -0,0 +1,58 @@
+package com.simple.duckdns.core;
+
+import java.util.Locale;
+
+/**
+ * Weighted votes of the resolvers on one record, for a
+ * {@link ConsensusPolicy}.
+ */
+public final class ConsensusTally {
+
+    public enum Vote {
+        /** Answered with the expected address */
+        MATCH,
+        /** Answered with another address */
+        MISMATCH,
+        /** Answered that the name has no record of the family (NXDOMAIN) */
+        NO_ANSWER,
+        /** No usable answer: SERVFAIL, timeout or transport error */
+        FAILED;
+    }
+
+    private final int[] weights = new int[Vote.values().length];
+    private int pending;
+
+    /** @param pending Total weight of the resolvers to query */
+    public ConsensusTally(int pending) {
+        this.pending = pending;
+    }
+
+    /** Count one resolver's vote, moving its weight off the pending one */
+    public void add(Vote vote, int weight) {
+        weights[vote.ordinal()] += weight;
+        pending = Math.max(0, pending - weight);
+    }
+
+    /** @return Total weight of the resolvers that voted so */
+    public int get(Vote vote) {
+        return weights[vote.ordinal()];
+    }
+
+    /** @return Weight of the resolvers not queried yet */
+    public int getPending() {
+        return pending;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Vote vote : Vote.values()) {
+            text
+                .append(vote.name().toLowerCase(Locale.ROOT))
+                .append('=')
+                .append(weights[vote.ordinal()])
+                .append(' ');
+        }
+        return text.append("pending=").append(pending).toString();
+    }
+}
@@ -0,0 +1,93 @@
+package com.simple.duckdns.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal CSV encoding used by the configuration export/import file.
+ */
+public final class CsvCodec {
+
+    private CsvCodec() {}
+
+    /**
+     * Quote a value if it contains a comma, quote or line break.
+     *
+     * @param value Raw value, may be null
+     * @return CSV field, empty for null or empty input
+     */
+    public static String escape(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        // One pass instead of a contains() scan per special character
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return "\"" + value.replace("\"", "\"\"") + "\"";
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Split a CSV line into fields, unquoting quoted fields.
+     *
+     * @param line One line without its terminator
+     * @return Fields, including trailing empty ones
+     */
+    public static String[] parseLine(String line) {
+        if (line.indexOf('"') < 0) {
+            return splitUnquoted(line);
+        }
+
+        List<String> result = new ArrayList<>(4);
+        StringBuilder current = new StringBuilder(line.length());
+        boolean inQuotes = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (inQuotes) {
+                if (c == '"') {
+                    // Check if it's an escaped quote
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++; // Skip next quote
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                result.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        result.add(current.toString());
+
+        return result.toArray(new String[0]);
+    }
+
+    // Fast path for the common case: no quotes, fields are plain substrings
+    private static String[] splitUnquoted(String line) {
+        int fields = 1;
+        for (int i = line.indexOf(','); i >= 0; i = line.indexOf(',', i + 1)) {
+            fields++;
+        }
+        String[] result = new String[fields];
+        int start = 0;
+        for (int field = 0; field < fields - 1; field++) {
+            int end = line.indexOf(',', start);
+            result[field] = line.substring(start, end);
+            start = end + 1;
+        }
+        result[fields - 1] = line.substring(start);
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+package com.simple.duckdns.core;
+
+/**
+ * One address record of a DNS answer, or the host name of an NS record.
+ */
+public final class DnsAnswer {
+
+    /** TTL of answers from sources that hide it, e.g. the system resolver */
+    public static final long UNKNOWN_TTL = -1;
+
+    private final String address;
+    // Null for NS host names
+    private final IpAddress ip;
+    private final long ttlSeconds;
+
+    /** @param address Address literal or NS host name */
+    public DnsAnswer(String address, long ttlSeconds) {
+        this.address = address;
+        this.ip = IpAddress.parse(address);
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public DnsAnswer(IpAddress ip, long ttlSeconds) {
+        this.address = null;
+        this.ip = ip;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /** @return Textual IPv4 or IPv6 address, or the NS host name */
+    public String getAddress() {
+        return address != null ? address : ip.toString();
+    }
+
+    /** @return Address of an A or AAAA record, null for an NS host name */
+    public IpAddress getIp() {
+        return ip;
+    }
+
+    /** @return Remaining TTL, or {@link #UNKNOWN_TTL} */
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return getAddress() + " (ttl " + ttlSeconds + "s)";
+    }
+}
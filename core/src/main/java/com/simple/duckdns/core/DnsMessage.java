@@ -0,0 +1,219 @@
+package com.simple.duckdns.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Minimal RFC 1035 wire format: one-question queries and the address and
+ * NS records of their responses, enough for plain DNS over UDP with the
+ * TCP retry of truncated responses.
+ */
+final class DnsMessage {
+
+    /** Classic UDP payload limit without EDNS */
+    static final int MAX_UDP_SIZE = 512;
+
+    static final int TYPE_NS = 2;
+
+    private static final int HEADER_SIZE = 12;
+    private static final int CLASS_IN = 1;
+    private static final int FLAG_RD = 0x0100;
+    private static final int FLAG_QR = 0x8000;
+    private static final int FLAG_AA = 0x0400;
+    private static final int FLAG_TC = 0x0200;
+    private static final int RCODE_NXDOMAIN = 3;
+
+    private DnsMessage() {}
+
+    /**
+     * @param id Transaction ID echoed by the server
+     * @param name Name to query, without trailing dot
+     * @param type Record type code
+     * @param recursion true to set RD, false for authoritative servers
+     * @return Query datagram
+     */
+    static byte[] query(int id, String name, int type, boolean recursion) {
+        byte[] ascii = name.getBytes(StandardCharsets.US_ASCII);
+        byte[] message = new byte[HEADER_SIZE + ascii.length + 2 + 4];
+        putShort(message, 0, id);
+        putShort(message, 2, recursion ? FLAG_RD : 0);
+        putShort(message, 4, 1);
+        int offset = HEADER_SIZE;
+        int labelStart = 0;
+        for (int i = 0; i <= ascii.length; i++) {
+            if (i == ascii.length || ascii[i] == '.') {
+                int length = i - labelStart;
+                if (length == 0 || length > 63) {
+                    if (i == ascii.length && length == 0) {
+                        break;
+                    }
+                    throw new IllegalArgumentException("Invalid name: " + name);
+                }
+                message[offset++] = (byte) length;
+                System.arraycopy(ascii, labelStart, message, offset, length);
+                offset += length;
+                labelStart = i + 1;
+            }
+        }
+        message[offset++] = 0;
+        putShort(message, offset, type);
+        putShort(message, offset + 2, CLASS_IN);
+        offset += 4;
+        if (offset == message.length) {
+            return message;
+        }
+        byte[] trimmed = new byte[offset];
+        System.arraycopy(message, 0, trimmed, 0, offset);
+        return trimmed;
+    }
+
+    /**
+     * @param message Response datagram
+     * @param length Bytes received
+     * @return Transaction ID, or -1 if the datagram is no response
+     */
+    static int responseId(byte[] message, int length) {
+        if (length < HEADER_SIZE || (getShort(message, 2) & FLAG_QR) == 0) {
+            return -1;
+        }
+        return getShort(message, 0);
+    }
+
+    /** @return true if the AA flag is set: the server owns the zone */
+    static boolean isAuthoritative(byte[] message) {
+        return (getShort(message, 2) & FLAG_AA) != 0;
+    }
+
+    /**
+     * @return true if the TC flag is set: the answer did not fit the
+     *     datagram and must be asked again over TCP
+     */
+    static boolean isTruncated(byte[] message) {
+        return (getShort(message, 2) & FLAG_TC) != 0;
+    }
+
+    /**
+     * Address records of one type in the answer section, or the nameserver
+     * host names for {@link #TYPE_NS}.
+     *
+     * @return Records in answer order, empty for NXDOMAIN or no data
+     * @throws IOException on a malformed message or a server error (SERVFAIL,
+     *     REFUSED, ...)
+     */
+    static List<DnsAnswer> parseAnswers(byte[] message, int length, int type)
+        throws IOException {
+        int flags = getShort(message, 2);
+        int rcode = flags & 0x0f;
+        if (rcode == RCODE_NXDOMAIN) {
+            return Collections.emptyList();
+        }
+        if (rcode != 0) {
+            throw new IOException("DNS error, rcode " + rcode);
+        }
+        int questions = getShort(message, 4);
+        int answers = getShort(message, 6);
+        int offset = HEADER_SIZE;
+        try {
+            for (int i = 0; i < questions; i++) {
+                offset = skipName(message, offset, length) + 4;
+            }
+            List<DnsAnswer> result = new ArrayList<>(answers);
+            for (int i = 0; i < answers; i++) {
+                offset = skipName(message, offset, length);
+                int recordType = getShort(message, offset);
+                long ttl = getInt(message, offset + 4) & 0xffffffffL;
+                int dataLength = getShort(message, offset + 8);
+                offset += 10;
+                if (offset + dataLength > length) {
+                    throw new IOException("Truncated DNS record");
+                }
+                int addressLength = type == DohJsonResolver.TYPE_AAAA ? 16 : 4;
+                if (recordType == type && type == TYPE_NS) {
+                    result.add(
+                        new DnsAnswer(readName(message, offset, length), ttl)
+                    );
+                } else if (recordType == type && dataLength == addressLength) {
+                    result.add(
+                        new DnsAnswer(
+                            IpAddress.fromBytes(message, offset, dataLength),
+                            ttl
+                        )
+                    );
+                }
+                offset += dataLength;
+            }
+            return result;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Malformed DNS response", e);
+        }
+    }
+
+    // Dotted form of a possibly compressed name
+    private static String readName(byte[] message, int offset, int length)
+        throws IOException {
+        StringBuilder name = new StringBuilder();
+        // A malicious pointer chain can loop, bound the jumps
+        int jumps = 0;
+        while (jumps < 64) {
+            if (offset >= length) {
+                throw new IOException("Truncated DNS name");
+            }
+            int label = message[offset] & 0xff;
+            if (label == 0) {
+                return name.toString();
+            }
+            if ((label & 0xc0) == 0xc0) {
+                offset = getShort(message, offset) & 0x3fff;
+                jumps++;
+                continue;
+            }
+            if (offset + 1 + label > length) {
+                throw new IOException("Truncated DNS name");
+            }
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            name.append(
+                new String(message, offset + 1, label, StandardCharsets.US_ASCII)
+            );
+            offset += label + 1;
+        }
+        throw new IOException("DNS name compression loop");
+    }
+
+    // Offset after a possibly compressed name
+    private static int skipName(byte[] message, int offset, int length)
+        throws IOException {
+        while (true) {
+            if (offset >= length) {
+                throw new IOException("Truncated DNS name");
+            }
+            int label = message[offset] & 0xff;
+            if (label == 0) {
+                return offset + 1;
+            }
+            if ((label & 0xc0) == 0xc0) {
+                return offset + 2;
+            }
+            offset += label + 1;
+        }
+    }
+
+    private static void putShort(byte[] message, int offset, int value) {
+        message[offset] = (byte) (value >>> 8);
+        message[offset + 1] = (byte) value;
+    }
+
+    private static int getShort(byte[] message, int offset) {
+        return ((message[offset] & 0xff) << 8) | (message[offset + 1] & 0xff);
+    }
+
+    private static int getInt(byte[] message, int offset) {
+        return (
+            (getShort(message, offset) << 16) | getShort(message, offset + 2)
+        );
+    }
+}
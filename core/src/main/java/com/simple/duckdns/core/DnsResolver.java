@@ -0,0 +1,24 @@
+package com.simple.duckdns.core;
+
+/**
+ * One DNS server queried by the smart DNS check.
+ */
+public interface DnsResolver {
+    /** @return Name shown in logs, e.g. the resolver IP */
+    String getName();
+
+    /**
+     * Resolve the A or AAAA record of a domain with its TTL.
+     *
+     * @param domain Domain to resolve (e.g., mydomain.duckdns.org)
+     * @param family Record family to query
+     * @return First record of that family, its TTL
+     *     {@link DnsAnswer#UNKNOWN_TTL} where the server's is not visible;
+     *     null if the name has none (NXDOMAIN or an empty answer), which the
+     *     consensus counts as disagreeing with the expected address
+     * @throws Exception on network or protocol errors and server failures
+     *     such as SERVFAIL, which abstain from the consensus
+     */
+    DnsAnswer resolveRecord(String domain, AddressFamily family)
+        throws Exception;
+}
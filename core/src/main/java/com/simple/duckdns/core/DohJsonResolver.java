@@ -0,0 +1,180 @@
+package com.simple.duckdns.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DNS-over-HTTPS resolver using the JSON API ("application/dns-json") served
+ * by Cloudflare's /dns-query and Google's /resolve endpoints.
+ */
+public final class DohJsonResolver implements DnsResolver {
+
+    private static final String DATA_FIELD = "\"data\":\"";
+    private static final String ANSWER_FIELD = "\"Answer\":[";
+    private static final String TYPE_FIELD = "\"type\":";
+    private static final String TTL_FIELD = "\"TTL\":";
+    private static final String STATUS_FIELD = "\"Status\":";
+
+    // DNS response codes that still answer the question
+    private static final int RCODE_NOERROR = 0;
+    private static final int RCODE_NXDOMAIN = 3;
+
+    // Record type codes
+    public static final int TYPE_A = 1;
+    public static final int TYPE_AAAA = 28;
+
+    private final String name;
+    private final String baseUrl;
+    private final HttpTransport transport;
+
+    /**
+     * @param name Name shown in logs
+     * @param baseUrl Endpoint URL without query, e.g. https://1.1.1.1/dns-query
+     * @param transport Transport used for the query
+     */
+    public DohJsonResolver(
+        String name,
+        String baseUrl,
+        HttpTransport transport
+    ) {
+        this.name = name;
+        this.baseUrl = baseUrl;
+        this.transport = transport;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    @Override
+    public DnsAnswer resolveRecord(String domain, AddressFamily family)
+        throws IOException {
+        List<DnsAnswer> answers = resolveAll(domain, family.getTypeCode());
+        return answers.isEmpty() ? null : answers.get(0);
+    }
+
+    /**
+     * Query all records of one address type, with their TTLs.
+     *
+     * @param domain Name to resolve
+     * @param type {@link #TYPE_A} or {@link #TYPE_AAAA}
+     * @return Address records, empty if the name has none
+     * @throws IOException on transport errors or a non-2xx status
+     */
+    public List<DnsAnswer> resolveAll(String domain, int type)
+        throws IOException {
+        HttpRequest request = HttpRequest.get(
+            baseUrl +
+                "?name=" +
+                domain +
+                "&type=" +
+                (type == TYPE_AAAA ? "AAAA" : "A"),
+            Endpoint.DOH
+        ).withHeader("accept", "application/dns-json");
+
+        HttpResponse response = transport.execute(request);
+        UpdateEngine.setHttpAttributes(Tracer.current(), response);
+        if (!response.isSuccessful()) {
+            throw new IOException(
+                "HTTP " + response.getCode() + " from " + name
+            );
+        }
+        checkStatus(response.getBody());
+        return parseAnswers(response.getBody(), type);
+    }
+
+    /**
+     * Fail on DNS errors such as SERVFAIL, which the JSON API reports with
+     * HTTP 200, so they are not mistaken for a name without records.
+     *
+     * @throws IOException if the "Status" is neither NOERROR nor NXDOMAIN
+     */
+    static void checkStatus(String body) throws IOException {
+        long status = readNumber(body, STATUS_FIELD, 0, body.length());
+        if (status > RCODE_NOERROR && status != RCODE_NXDOMAIN) {
+            throw new IOException("DNS error, rcode " + status);
+        }
+    }
+
+    /**
+     * Parse the address records of one type from the "Answer" array,
+     * skipping the CNAMEs that precede them for aliased names. Addresses are
+     * parsed in place into {@link IpAddress}es.
+     *
+     * @param body JSON response body
+     * @param type {@link #TYPE_A} or {@link #TYPE_AAAA}
+     * @return Records in answer order, without data that is no literal
+     */
+    public static List<DnsAnswer> parseAnswers(String body, int type) {
+        int index = body.indexOf(ANSWER_FIELD);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        int end = body.indexOf(']', index);
+        if (end < 0) {
+            return Collections.emptyList();
+        }
+        List<DnsAnswer> answers = new ArrayList<>(2);
+        // Records are flat objects; address data never contains braces
+        int open = body.indexOf('{', index);
+        while (open >= 0 && open < end) {
+            int close = body.indexOf('}', open);
+            if (close < 0) {
+                break;
+            }
+            if (readNumber(body, TYPE_FIELD, open, close) == type) {
+                IpAddress data = readAddress(body, open, close);
+                if (data != null) {
+                    long ttl = readNumber(body, TTL_FIELD, open, close);
+                    answers.add(new DnsAnswer(data, Math.max(0, ttl)));
+                }
+            }
+            open = body.indexOf('{', close);
+        }
+        return answers;
+    }
+
+    private static long readNumber(
+        String body,
+        String field,
+        int from,
+        int to
+    ) {
+        int index = body.indexOf(field, from);
+        if (index < 0 || index > to) {
+            return -1;
+        }
+        long value = 0;
+        boolean digits = false;
+        for (int i = index + field.length(); i < to; i++) {
+            char c = body.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits = true;
+            } else if (c != ' ' || digits) {
+                break;
+            }
+        }
+        return digits ? value : -1;
+    }
+
+    // The "data" string parsed in place, null if it is no address literal
+    private static IpAddress readAddress(String body, int from, int to) {
+        int index = body.indexOf(DATA_FIELD, from);
+        if (index < 0 || index > to) {
+            return null;
+        }
+        int start = index + DATA_FIELD.length();
+        int endQuote = body.indexOf('"', start);
+        return endQuote > start && endQuote < to
+            ? IpAddress.parse(body, start, endQuote)
+            : null;
+    }
+}
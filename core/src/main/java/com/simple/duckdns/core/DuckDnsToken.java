@@ -0,0 +1,47 @@
+package com.simple.duckdns.core;
+
+/**
+ * DuckDNS token format check.
+ */
+public final class DuckDnsToken {
+
+    // xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx
+    private static final int LENGTH = 36;
+
+    private DuckDnsToken() {}
+
+    /**
+     * Check if token looks like a valid DuckDNS token (UUID-like format).
+     *
+     * Hand-rolled equivalent of matching
+     * ^[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}$
+     * without a regex engine or any allocation.
+     *
+     * @param token Token to check, may be null
+     * @return true if the token has the DuckDNS UUID format
+     */
+    public static boolean isValidFormat(String token) {
+        if (token == null || token.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            char c = token.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!isHexDigit(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHexDigit(char c) {
+        return (
+            (c >= '0' && c <= '9') ||
+            (c >= 'a' && c <= 'f') ||
+            (c >= 'A' && c <= 'F')
+        );
+    }
+}
@@ -0,0 +1,16 @@
+package com.simple.duckdns.core;
+
+/**
+ * Class of remote endpoint a request goes to. Transports use it to pick
+ * timeouts; it is also the unit for accounting and limits.
+ */
+public enum Endpoint {
+    /** Public IP echo service (v4.ident.me) */
+    IP_ECHO,
+    /** DNS-over-HTTPS resolver */
+    DOH,
+    /** Plain DNS server queried over UDP */
+    DNS,
+    /** DuckDNS update API */
+    DUCKDNS_UPDATE,
+}
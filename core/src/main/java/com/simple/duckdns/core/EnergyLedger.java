@@ -0,0 +1,240 @@
+package com.simple.duckdns.core;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-day wall time, radio-active time and wakeups of worker runs, persisted
+ * in the {@link StateStore}, with a rough energy estimate.
+ *
+ * The power figures are typical mid-range phone values, not measurements of
+ * this device; the estimate is meant for comparing intervals and changes,
+ * not for absolute numbers.
+ */
+public final class EnergyLedger {
+
+    /** Days kept in the state store */
+    public static final int MAX_DAYS = 14;
+
+    // Rough power model
+    static final long CPU_AWAKE_MILLIWATTS = 200;
+    static final long RADIO_ACTIVE_MILLIWATTS = 1000;
+    static final long WAKEUP_MILLIJOULES = 30;
+    static final double BATTERY_VOLTS = 3.85;
+
+    private static final String STATE_DAYS = "energy_days";
+    private static final String STATE_DAY_PREFIX = "energy.";
+
+    private final StateStore stateStore;
+    private final Clock clock;
+
+    // Guarded by this; day ("yyyy-MM-dd", local time) to usage, oldest first
+    private TreeMap<String, Usage> days;
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat(
+        "yyyy-MM-dd",
+        Locale.ROOT
+    );
+
+    public EnergyLedger(StateStore stateStore, Clock clock) {
+        this.stateStore = stateStore;
+        this.clock = clock;
+    }
+
+    /**
+     * Record one worker run; each run is one device wakeup.
+     *
+     * @param wallMillis Run duration
+     * @param traffic Network usage of the run
+     * @param deferred true if the policy skipped the verification
+     */
+    public synchronized void recordRun(
+        long wallMillis,
+        RunTraffic traffic,
+        boolean deferred
+    ) {
+        String day = dayFormat.format(new Date(clock.currentTimeMillis()));
+        Usage usage = loaded().get(day);
+        if (usage == null) {
+            usage = new Usage();
+            days.put(day, usage);
+            while (days.size() > MAX_DAYS) {
+                String oldest = days.pollFirstEntry().getKey();
+                stateStore.remove(STATE_DAY_PREFIX + oldest);
+            }
+            stateStore.put(STATE_DAYS, join(days.keySet()));
+        }
+        usage.runs++;
+        if (deferred) {
+            usage.deferredRuns++;
+        }
+        usage.radioWakeups += traffic.getRadioWakeups();
+        usage.wallMillis += wallMillis;
+        usage.radioMillis += traffic.getRadioActiveMillis();
+        stateStore.put(STATE_DAY_PREFIX + day, usage.encode());
+    }
+
+    /** @return Day ("yyyy-MM-dd") to usage, newest first */
+    public synchronized Map<String, Usage> getDailyTotals() {
+        Map<String, Usage> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Usage> day : loaded()
+            .descendingMap()
+            .entrySet()) {
+            copy.put(day.getKey(), new Usage(day.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Expected energy per day if every run costs what the recorded runs cost
+     * on average.
+     *
+     * @param intervalMinutes Regular schedule interval
+     * @return Millijoules per day, -1 if no run was recorded yet
+     */
+    public synchronized long estimateDailyMillijoules(int intervalMinutes) {
+        Usage all = new Usage();
+        for (Usage usage : loaded().values()) {
+            all.add(usage);
+        }
+        if (all.runs == 0 || intervalMinutes <= 0) {
+            return -1;
+        }
+        double runsPerDay =
+            (double) TimeUnit.DAYS.toMinutes(1) / intervalMinutes;
+        double perRun = all.getMillijoules() / (double) all.runs;
+        return Math.round(perRun * runsPerDay);
+    }
+
+    /** @return Battery charge in mAh for an energy in millijoules */
+    public static double toMilliampHours(long millijoules) {
+        return millijoules / (BATTERY_VOLTS * 3600.0);
+    }
+
+    public synchronized void reset() {
+        for (String day : loaded().keySet()) {
+            stateStore.remove(STATE_DAY_PREFIX + day);
+        }
+        stateStore.remove(STATE_DAYS);
+        days.clear();
+    }
+
+    private TreeMap<String, Usage> loaded() {
+        if (days == null) {
+            days = new TreeMap<>();
+            String keys = stateStore.get(STATE_DAYS, "");
+            if (!keys.isEmpty()) {
+                for (String day : keys.split("\n")) {
+                    days.put(
+                        day,
+                        Usage.decode(stateStore.get(STATE_DAY_PREFIX + day, ""))
+                    );
+                }
+            }
+        }
+        return days;
+    }
+
+    private static String join(Iterable<String> days) {
+        StringBuilder out = new StringBuilder();
+        for (String day : days) {
+            if (out.length() > 0) {
+                out.append('\n');
+            }
+            out.append(day);
+        }
+        return out.toString();
+    }
+
+    /** Energy-relevant totals of a set of runs. */
+    public static final class Usage {
+
+        private long runs;
+        private long deferredRuns;
+        private long radioWakeups;
+        private long wallMillis;
+        private long radioMillis;
+
+        Usage() {}
+
+        Usage(Usage other) {
+            add(other);
+        }
+
+        void add(Usage other) {
+            runs += other.runs;
+            deferredRuns += other.deferredRuns;
+            radioWakeups += other.radioWakeups;
+            wallMillis += other.wallMillis;
+            radioMillis += other.radioMillis;
+        }
+
+        /** @return Worker runs, each one device wakeup */
+        public long getRuns() {
+            return runs;
+        }
+
+        /** @return Runs whose verification the policy deferred */
+        public long getDeferredRuns() {
+            return deferredRuns;
+        }
+
+        public long getRadioWakeups() {
+            return radioWakeups;
+        }
+
+        public long getWallMillis() {
+            return wallMillis;
+        }
+
+        public long getRadioMillis() {
+            return radioMillis;
+        }
+
+        /** @return Estimated energy under the rough power model */
+        public long getMillijoules() {
+            return (
+                (wallMillis * CPU_AWAKE_MILLIWATTS) / 1000 +
+                (radioMillis * RADIO_ACTIVE_MILLIWATTS) / 1000 +
+                runs * WAKEUP_MILLIJOULES
+            );
+        }
+
+        String encode() {
+            return (
+                runs +
+                "," +
+                deferredRuns +
+                "," +
+                radioWakeups +
+                "," +
+                wallMillis +
+                "," +
+                radioMillis
+            );
+        }
+
+        static Usage decode(String encoded) {
+            Usage usage = new Usage();
+            String[] fields = encoded.split(",");
+            if (fields.length != 5) {
+                return usage;
+            }
+            try {
+                usage.runs = Long.parseLong(fields[0]);
+                usage.deferredRuns = Long.parseLong(fields[1]);
+                usage.radioWakeups = Long.parseLong(fields[2]);
+                usage.wallMillis = Long.parseLong(fields[3]);
+                usage.radioMillis = Long.parseLong(fields[4]);
+            } catch (NumberFormatException e) {
+                return new Usage();
+            }
+            return usage;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.simple.duckdns.core;
+
+/**
+ * Decides whether a scheduled verification runs now or is deferred to save
+ * energy.
+ *
+ * Urgent runs (owed updates, retries, failed last runs) always go ahead. So
+ * do runs while charging and runs that find the radio already active, which
+ * batches the check with traffic the device pays for anyway. Otherwise a
+ * low battery, battery saver or Doze defers the check and the last verified
+ * state is trusted, for at most {@link #MAX_DEFERRED_INTERVALS} intervals.
+ */
+public final class EnergyPolicy {
+
+    public static final int LOW_BATTERY_PERCENT = 20;
+
+    /** Staleness bound: a deferred check runs at the latest after this */
+    public static final int MAX_DEFERRED_INTERVALS = 4;
+
+    private EnergyPolicy() {}
+
+    /**
+     * @param conditions Device power state
+     * @param urgent true if the run settles an owed update or a failure
+     * @param millisSinceLastCheck Time since the last DNS check, or
+     *     Long.MAX_VALUE if there was none
+     * @param intervalMillis Regular schedule interval
+     */
+    public static Decision decide(
+        Conditions conditions,
+        boolean urgent,
+        long millisSinceLastCheck,
+        long intervalMillis
+    ) {
+        if (urgent) {
+            return Decision.run("urgent");
+        }
+        if (conditions.charging) {
+            return Decision.run("charging");
+        }
+        if (conditions.radioActive) {
+            return Decision.run("radio already active");
+        }
+        if (millisSinceLastCheck >= MAX_DEFERRED_INTERVALS * intervalMillis) {
+            return Decision.run("last check too old to defer");
+        }
+        if (conditions.deviceIdle) {
+            return Decision.defer("device idle (Doze)");
+        }
+        if (conditions.powerSave) {
+            return Decision.defer("battery saver on");
+        }
+        if (
+            conditions.batteryPercent >= 0 &&
+            conditions.batteryPercent <= LOW_BATTERY_PERCENT
+        ) {
+            return Decision.defer(
+                "battery low (" + conditions.batteryPercent + "%)"
+            );
+        }
+        return Decision.run("normal");
+    }
+
+    /** Device power state at the start of a run. */
+    public static final class Conditions {
+
+        final int batteryPercent;
+        final boolean charging;
+        final boolean powerSave;
+        final boolean deviceIdle;
+        final boolean radioActive;
+
+        /**
+         * @param batteryPercent Battery level, -1 if unknown
+         * @param charging true if plugged in
+         * @param powerSave true if battery saver is on
+         * @param deviceIdle true if the device is in Doze
+         * @param radioActive true if the default network is already active
+         */
+        public Conditions(
+            int batteryPercent,
+            boolean charging,
+            boolean powerSave,
+            boolean deviceIdle,
+            boolean radioActive
+        ) {
+            this.batteryPercent = batteryPercent;
+            this.charging = charging;
+            this.powerSave = powerSave;
+            this.deviceIdle = deviceIdle;
+            this.radioActive = radioActive;
+        }
+    }
+
+    public static final class Decision {
+
+        private final boolean run;
+        private final String reason;
+
+        private Decision(boolean run, String reason) {
+            this.run = run;
+            this.reason = reason;
+        }
+
+        static Decision run(String reason) {
+            return new Decision(true, reason);
+        }
+
+        static Decision defer(String reason) {
+            return new Decision(false, reason);
+        }
+
+        public boolean shouldRun() {
+            return run;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.simple.duckdns.core;
+
+/**
+ * What the smart DNS check does when too few resolvers answered for the
+ * {@link ConsensusPolicy} to decide, e.g. when DoH is blocked.
+ */
+public enum EvidencePolicy {
+    /** Update anyway, a redundant DuckDNS call is cheap (fail-safe) */
+    UPDATE,
+    /** Skip until the resolvers answer again */
+    SKIP;
+}
@@ -0,0 +1,293 @@
+package com.simple.duckdns.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded on-disk ring buffer of traces: one small file per trace in a fixed
+ * number of slots, the oldest slot overwritten once all are used.
+ *
+ * Each file starts with the trace's sequence number, followed by one
+ * tab-separated line per span, so reading back needs no JSON parser.
+ */
+public final class FileTraceStore implements TraceSink {
+
+    public static final int DEFAULT_CAPACITY = 50;
+
+    private static final String FILE_PREFIX = "trace_";
+    private static final String FILE_SUFFIX = ".tsv";
+    private static final int FIXED_FIELDS = 6;
+
+    private final File directory;
+    private final int capacity;
+    private final UpdateLogger logger;
+
+    // Guarded by this; -1 until the directory has been scanned
+    private long nextSequence = -1;
+
+    /**
+     * @param directory Directory holding the slot files, created on demand
+     * @param capacity Number of traces kept
+     * @param logger Receives write failures, tracing never fails a run
+     */
+    public FileTraceStore(File directory, int capacity, UpdateLogger logger) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.directory = directory;
+        this.capacity = capacity;
+        this.logger = logger;
+    }
+
+    @Override
+    public synchronized void onTraceFinished(List<SpanData> spans) {
+        if (spans.isEmpty()) {
+            return;
+        }
+        if (nextSequence < 0) {
+            nextSequence = scanNextSequence();
+        }
+        long sequence = nextSequence++;
+        File file = slotFile((int) (sequence % capacity));
+        File tmp = new File(directory, file.getName() + ".tmp");
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            try (
+                Writer out = new BufferedWriter(
+                    new OutputStreamWriter(
+                        new FileOutputStream(tmp),
+                        StandardCharsets.UTF_8
+                    )
+                )
+            ) {
+                out.write(Long.toString(sequence));
+                out.write('\n');
+                for (SpanData span : spans) {
+                    writeSpan(out, span);
+                }
+            }
+            if (!tmp.renameTo(file)) {
+                // Windows-style filesystems refuse to rename over a file
+                if (!file.delete() || !tmp.renameTo(file)) {
+                    throw new IOException("Cannot replace " + file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to store trace: " + e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    /** @return Stored traces, oldest first */
+    public synchronized List<List<SpanData>> readAll() {
+        Map<Long, List<SpanData>> traces = new LinkedHashMap<>();
+        for (int slot = 0; slot < capacity; slot++) {
+            File file = slotFile(slot);
+            if (!file.isFile()) {
+                continue;
+            }
+            try {
+                readTrace(file, traces);
+            } catch (IOException | RuntimeException e) {
+                logger.warn(
+                    "Skipping unreadable trace " + file + ": " + e.getMessage()
+                );
+            }
+        }
+        List<Long> sequences = new ArrayList<>(traces.keySet());
+        Collections.sort(sequences);
+        List<List<SpanData>> result = new ArrayList<>(sequences.size());
+        for (Long sequence : sequences) {
+            result.add(traces.get(sequence));
+        }
+        return result;
+    }
+
+    /** Delete all stored traces. */
+    public synchronized void clear() {
+        for (int slot = 0; slot < capacity; slot++) {
+            slotFile(slot).delete();
+        }
+        nextSequence = 0;
+    }
+
+    private File slotFile(int slot) {
+        return new File(directory, FILE_PREFIX + slot + FILE_SUFFIX);
+    }
+
+    private long scanNextSequence() {
+        long next = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            File file = slotFile(slot);
+            if (!file.isFile()) {
+                continue;
+            }
+            try (BufferedReader in = open(file)) {
+                String first = in.readLine();
+                if (first != null) {
+                    next = Math.max(next, Long.parseLong(first.trim()) + 1);
+                }
+            } catch (IOException | NumberFormatException e) {
+                // Corrupt slot, it will simply be overwritten
+            }
+        }
+        return next;
+    }
+
+    private static void readTrace(File file, Map<Long, List<SpanData>> traces)
+        throws IOException {
+        try (BufferedReader in = open(file)) {
+            String first = in.readLine();
+            if (first == null) {
+                throw new IOException("empty file");
+            }
+            long sequence = Long.parseLong(first.trim());
+            List<SpanData> spans = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    spans.add(parseSpan(line));
+                }
+            }
+            traces.put(sequence, spans);
+        }
+    }
+
+    private static BufferedReader open(File file) throws IOException {
+        return new BufferedReader(
+            new InputStreamReader(
+                new FileInputStream(file),
+                StandardCharsets.UTF_8
+            )
+        );
+    }
+
+    // traceId, spanId, parentSpanId, name, start, end, error, then
+    // attribute keys and values alternating
+    private static void writeSpan(Writer out, SpanData span)
+        throws IOException {
+        out.write(span.getTraceId());
+        out.write('\t');
+        out.write(span.getSpanId());
+        out.write('\t');
+        out.write(span.getParentSpanId());
+        out.write('\t');
+        out.write(escape(span.getName()));
+        out.write('\t');
+        out.write(Long.toString(span.getStartEpochNanos()));
+        out.write('\t');
+        out.write(Long.toString(span.getEndEpochNanos()));
+        out.write('\t');
+        out.write(span.getError() != null ? "!" + escape(span.getError()) : "");
+        for (Map.Entry<String, String> attribute : span
+            .getAttributes()
+            .entrySet()) {
+            out.write('\t');
+            out.write(escape(attribute.getKey()));
+            out.write('\t');
+            out.write(escape(attribute.getValue()));
+        }
+        out.write('\n');
+    }
+
+    private static SpanData parseSpan(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length < FIXED_FIELDS + 1) {
+            throw new IllegalArgumentException("truncated span");
+        }
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (int i = FIXED_FIELDS + 1; i + 1 < fields.length; i += 2) {
+            attributes.put(unescape(fields[i]), unescape(fields[i + 1]));
+        }
+        String error = fields[6].isEmpty()
+            ? null
+            : unescape(fields[6].substring(1));
+        return new SpanData(
+            fields[0],
+            fields[1],
+            fields[2],
+            unescape(fields[3]),
+            Long.parseLong(fields[4]),
+            Long.parseLong(fields[5]),
+            Collections.unmodifiableMap(attributes),
+            error
+        );
+    }
+
+    static String escape(String value) {
+        StringBuilder out = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = escapeChar(c);
+            if (replacement != null) {
+                if (out == null) {
+                    out = new StringBuilder(value.length() + 8);
+                    out.append(value, 0, i);
+                }
+                out.append(replacement);
+            } else if (out != null) {
+                out.append(c);
+            }
+        }
+        return out != null ? out.toString() : value;
+    }
+
+    private static String escapeChar(char c) {
+        switch (c) {
+            case '\\':
+                return "\\\\";
+            case '\t':
+                return "\\t";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            default:
+                return null;
+        }
+    }
+
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    default:
+                        out.append(next);
+                }
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
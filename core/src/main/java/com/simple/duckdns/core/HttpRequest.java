@@ -0,0 +1,56 @@
+package com.simple.duckdns.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable HTTP GET request issued by the engine.
+ */
+public final class HttpRequest {
+
+    private final String url;
+    private final Endpoint endpoint;
+    private final Map<String, String> headers;
+
+    private HttpRequest(
+        String url,
+        Endpoint endpoint,
+        Map<String, String> headers
+    ) {
+        this.url = url;
+        this.endpoint = endpoint;
+        this.headers = headers;
+    }
+
+    public static HttpRequest get(String url, Endpoint endpoint) {
+        return new HttpRequest(
+            url,
+            endpoint,
+            Collections.<String, String>emptyMap()
+        );
+    }
+
+    /** @return Copy of this request with an extra header */
+    public HttpRequest withHeader(String name, String value) {
+        Map<String, String> copy = new LinkedHashMap<>(headers);
+        copy.put(name, value);
+        return new HttpRequest(
+            url,
+            endpoint,
+            Collections.unmodifiableMap(copy)
+        );
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+}
@@ -0,0 +1,27 @@
+package com.simple.duckdns.core;
+
+/**
+ * HTTP response with its body fully read.
+ */
+public final class HttpResponse {
+
+    private final int code;
+    private final String body;
+
+    public HttpResponse(int code, String body) {
+        this.code = code;
+        this.body = body != null ? body : "";
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public boolean isSuccessful() {
+        return code >= 200 && code < 300;
+    }
+}
@@ -0,0 +1,17 @@
+package com.simple.duckdns.core;
+
+import java.io.IOException;
+
+/**
+ * Blocking HTTP client used by the engine for every outbound call.
+ */
+public interface HttpTransport {
+    /**
+     * Execute the request and read the whole body.
+     *
+     * @param request Request to execute
+     * @return Response, also for non-2xx status codes
+     * @throws IOException on network errors and timeouts
+     */
+    HttpResponse execute(HttpRequest request) throws IOException;
+}
@@ -0,0 +1,47 @@
+package com.simple.duckdns.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Non-persistent StateStore, for tools and simulations.
+ */
+public final class InMemoryStateStore implements StateStore {
+
+    private final ConcurrentMap<String, String> values =
+        new ConcurrentHashMap<>();
+
+    @Override
+    public String get(String key, String defaultValue) {
+        String value = values.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public void put(String key, String value) {
+        values.put(key, value);
+    }
+
+    @Override
+    public void putLong(String key, long value) {
+        values.put(key, Long.toString(value));
+    }
+
+    @Override
+    public void remove(String key) {
+        values.remove(key);
+    }
+}
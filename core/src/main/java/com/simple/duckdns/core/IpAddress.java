@@ -0,0 +1,440 @@
+package com.simple.duckdns.core;
+
+import java.net.InetAddress;
+
+/**
+ * Immutable IP address packed into primitives: IPv4 in an int, IPv6 in two
+ * longs, so comparing the configured, detected and resolved addresses is a
+ * couple of integer compares instead of a string compare that tells
+ * "::ffff:1.2.3.4" from "1.2.3.4" or "01.2.3.4".
+ *
+ * IPv4-mapped IPv6 addresses (::ffff:0:0/96) are IPv4. Parsing reads text
+ * straight from a char sequence or an ASCII byte array without allocating
+ * anything but the result; the text form is RFC 5952 for IPv6 (lowercase,
+ * longest zero run compressed), formatted once on first use.
+ */
+public final class IpAddress implements Comparable<IpAddress> {
+
+    private static final long MAPPED_PREFIX = 0xffffL;
+
+    private final AddressFamily family;
+    // Big-endian; 0 for IPv6
+    private final int ipv4;
+    // Upper and lower 64 bits; 0 for IPv4
+    private final long high;
+    private final long low;
+
+    // Racy but idempotent cache, like String.hashCode
+    private String text;
+
+    private IpAddress(AddressFamily family, int ipv4, long high, long low) {
+        this.family = family;
+        this.ipv4 = ipv4;
+        this.high = high;
+        this.low = low;
+    }
+
+    /** @param bits Big-endian IPv4 address, e.g. 0x01020304 for 1.2.3.4 */
+    public static IpAddress ipv4(int bits) {
+        return new IpAddress(AddressFamily.IPV4, bits, 0, 0);
+    }
+
+    /** IPv6 address from its upper and lower 64 bits, IPv4 if mapped */
+    public static IpAddress ipv6(long high, long low) {
+        if (high == 0 && (low >>> 32) == MAPPED_PREFIX) {
+            return ipv4((int) low);
+        }
+        return new IpAddress(AddressFamily.IPV6, 0, high, low);
+    }
+
+    /**
+     * @param raw Network-order address, 4 or 16 bytes from offset, e.g. the
+     *     data of a DNS A or AAAA record
+     * @throws IllegalArgumentException on another length
+     */
+    public static IpAddress fromBytes(byte[] raw, int offset, int length) {
+        if (length == 4) {
+            return ipv4(getInt(raw, offset));
+        }
+        if (length == 16) {
+            return ipv6(getLong(raw, offset), getLong(raw, offset + 8));
+        }
+        throw new IllegalArgumentException("Invalid address length " + length);
+    }
+
+    public static IpAddress of(InetAddress address) {
+        byte[] raw = address.getAddress();
+        return fromBytes(raw, 0, raw.length);
+    }
+
+    /**
+     * @param text Address literal, surrounding whitespace ignored
+     * @return Parsed address, or null if not an IPv4 or IPv6 literal
+     */
+    public static IpAddress parse(String text) {
+        return text != null ? parse(text, 0, text.length()) : null;
+    }
+
+    /**
+     * Parse a literal from part of a char sequence, e.g. a response body or
+     * a CharBuffer, without copying it out.
+     *
+     * @return Parsed address, or null if the range is not a literal
+     */
+    public static IpAddress parse(CharSequence chars, int start, int end) {
+        return parse(chars, null, start, end);
+    }
+
+    /**
+     * Parse a literal from ASCII bytes, e.g. a received buffer.
+     *
+     * @return Parsed address, or null if the range is not a literal
+     */
+    public static IpAddress parse(byte[] ascii, int offset, int length) {
+        return parse(null, ascii, offset, offset + length);
+    }
+
+    // Reads from whichever source is set, so both share one parser
+    private static IpAddress parse(
+        CharSequence chars,
+        byte[] ascii,
+        int start,
+        int end
+    ) {
+        while (start < end && charAt(chars, ascii, start) <= ' ') {
+            start++;
+        }
+        while (end > start && charAt(chars, ascii, end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        for (int i = start; i < end; i++) {
+            if (charAt(chars, ascii, i) == ':') {
+                return parseIpv6(chars, ascii, start, end);
+            }
+        }
+        long bits = parseIpv4(chars, ascii, start, end);
+        return bits >= 0 ? ipv4((int) bits) : null;
+    }
+
+    /**
+     * Dotted quad with decimal octets; leading zeros are decimal too, as
+     * in InetAddress, not octal.
+     *
+     * @return Unsigned address, or -1 if invalid
+     */
+    private static long parseIpv4(
+        CharSequence chars,
+        byte[] ascii,
+        int start,
+        int end
+    ) {
+        long bits = 0;
+        int octets = 0;
+        int i = start;
+        while (i <= end) {
+            int value = 0;
+            int digits = 0;
+            while (i < end) {
+                char c = charAt(chars, ascii, i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+                if (++digits > 3) {
+                    return -1;
+                }
+                i++;
+            }
+            if (digits == 0 || value > 255 || ++octets > 4) {
+                return -1;
+            }
+            bits = (bits << 8) | value;
+            if (i == end) {
+                break;
+            }
+            if (charAt(chars, ascii, i) != '.') {
+                return -1;
+            }
+            i++;
+        }
+        return octets == 4 ? bits : -1;
+    }
+
+    /**
+     * Up to eight groups of 1 to 4 hex digits, one "::" standing for the
+     * missing zero groups, the last two groups optionally a dotted quad.
+     * Zone suffixes ("%eth0") are rejected, they never reach DNS.
+     */
+    private static IpAddress parseIpv6(
+        CharSequence chars,
+        byte[] ascii,
+        int start,
+        int end
+    ) {
+        // Groups before "::" (all of them without one) and after it
+        long headHigh = 0;
+        long headLow = 0;
+        long tailHigh = 0;
+        long tailLow = 0;
+        int headGroups = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+
+        int i = start;
+        if (
+            end - start >= 2 &&
+            charAt(chars, ascii, i) == ':' &&
+            charAt(chars, ascii, i + 1) == ':'
+        ) {
+            compressed = true;
+            i += 2;
+        } else if (charAt(chars, ascii, i) == ':') {
+            return null;
+        }
+        while (i < end) {
+            int groupStart = i;
+            int value = 0;
+            while (i < end && i - groupStart < 5) {
+                int digit = Character.digit(charAt(chars, ascii, i), 16);
+                if (digit < 0) {
+                    break;
+                }
+                value = (value << 4) | digit;
+                i++;
+            }
+            int groups = 1;
+            if (i < end && charAt(chars, ascii, i) == '.') {
+                long bits = parseIpv4(chars, ascii, groupStart, end);
+                if (bits < 0) {
+                    return null;
+                }
+                groups = 2;
+                i = end;
+                if (compressed) {
+                    tailHigh = (tailHigh << 32) | (tailLow >>> 32);
+                    tailLow = (tailLow << 32) | bits;
+                } else {
+                    headHigh = (headHigh << 32) | (headLow >>> 32);
+                    headLow = (headLow << 32) | bits;
+                }
+            } else if (i == groupStart || i - groupStart > 4) {
+                return null;
+            } else if (compressed) {
+                tailHigh = (tailHigh << 16) | (tailLow >>> 48);
+                tailLow = (tailLow << 16) | value;
+            } else {
+                headHigh = (headHigh << 16) | (headLow >>> 48);
+                headLow = (headLow << 16) | value;
+            }
+            if (compressed) {
+                tailGroups += groups;
+            } else {
+                headGroups += groups;
+            }
+            if (headGroups + tailGroups > 8) {
+                return null;
+            }
+            if (i == end) {
+                break;
+            }
+            if (charAt(chars, ascii, i) != ':') {
+                return null;
+            }
+            i++;
+            if (i < end && charAt(chars, ascii, i) == ':') {
+                if (compressed) {
+                    return null;
+                }
+                compressed = true;
+                i++;
+            } else if (i == end) {
+                return null; // Trailing single colon
+            }
+        }
+
+        if (!compressed) {
+            return headGroups == 8 ? ipv6(headHigh, headLow) : null;
+        }
+        if (headGroups + tailGroups > 7) {
+            return null;
+        }
+        // Move the head groups up past the zeros and the tail
+        for (int shift = 8 - headGroups; shift > 0; shift--) {
+            headHigh = (headHigh << 16) | (headLow >>> 48);
+            headLow <<= 16;
+        }
+        return ipv6(headHigh | tailHigh, headLow | tailLow);
+    }
+
+    private static char charAt(CharSequence chars, byte[] ascii, int index) {
+        return chars != null
+            ? chars.charAt(index)
+            : (char) (ascii[index] & 0xff);
+    }
+
+    private static int getInt(byte[] raw, int offset) {
+        return (
+            ((raw[offset] & 0xff) << 24) |
+            ((raw[offset + 1] & 0xff) << 16) |
+            ((raw[offset + 2] & 0xff) << 8) |
+            (raw[offset + 3] & 0xff)
+        );
+    }
+
+    private static long getLong(byte[] raw, int offset) {
+        return (
+            ((getInt(raw, offset) & 0xffffffffL) << 32) |
+            (getInt(raw, offset + 4) & 0xffffffffL)
+        );
+    }
+
+    public AddressFamily getFamily() {
+        return family;
+    }
+
+    /** @return Big-endian IPv4 address, 0 for IPv6 */
+    public int getIpv4Bits() {
+        return ipv4;
+    }
+
+    /** @return Upper 64 bits of an IPv6 address, 0 for IPv4 */
+    public long getHighBits() {
+        return high;
+    }
+
+    /** @return Lower 64 bits of an IPv6 address, 0 for IPv4 */
+    public long getLowBits() {
+        return low;
+    }
+
+    /** @return Network-order address, 4 or 16 bytes */
+    public byte[] toBytes() {
+        if (family == AddressFamily.IPV4) {
+            return new byte[] {
+                (byte) (ipv4 >>> 24),
+                (byte) (ipv4 >>> 16),
+                (byte) (ipv4 >>> 8),
+                (byte) ipv4,
+            };
+        }
+        byte[] raw = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            raw[i] = (byte) (high >>> (56 - 8 * i));
+            raw[i + 8] = (byte) (low >>> (56 - 8 * i));
+        }
+        return raw;
+    }
+
+    // 16-bit group 0..7 of an IPv6 address
+    private int group(int index) {
+        long half = index < 4 ? high : low;
+        return (int) (half >>> (48 - 16 * (index & 3))) & 0xffff;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IpAddress)) {
+            return false;
+        }
+        IpAddress other = (IpAddress) o;
+        return (
+            family == other.family &&
+            ipv4 == other.ipv4 &&
+            high == other.high &&
+            low == other.low
+        );
+    }
+
+    @Override
+    public int hashCode() {
+        if (family == AddressFamily.IPV4) {
+            return ipv4;
+        }
+        long mixed = high * 31 + low;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    /** IPv4 before IPv6, then by unsigned address */
+    @Override
+    public int compareTo(IpAddress other) {
+        if (family != other.family) {
+            return family == AddressFamily.IPV4 ? -1 : 1;
+        }
+        if (family == AddressFamily.IPV4) {
+            return Integer.compare(
+                ipv4 ^ Integer.MIN_VALUE,
+                other.ipv4 ^ Integer.MIN_VALUE
+            );
+        }
+        int upper = Long.compare(
+            high ^ Long.MIN_VALUE,
+            other.high ^ Long.MIN_VALUE
+        );
+        return upper != 0
+            ? upper
+            : Long.compare(low ^ Long.MIN_VALUE, other.low ^ Long.MIN_VALUE);
+    }
+
+    /**
+     * Text as DoH resolvers and the IP echo write it: dotted IPv4, RFC 5952
+     * IPv6 (lowercase, longest zero run compressed).
+     */
+    @Override
+    public String toString() {
+        String formatted = text;
+        if (formatted == null) {
+            formatted = format();
+            text = formatted;
+        }
+        return formatted;
+    }
+
+    private String format() {
+        StringBuilder out = new StringBuilder(
+            family == AddressFamily.IPV4 ? 15 : 39
+        );
+        if (family == AddressFamily.IPV4) {
+            return out
+                .append(ipv4 >>> 24)
+                .append('.')
+                .append((ipv4 >>> 16) & 0xff)
+                .append('.')
+                .append((ipv4 >>> 8) & 0xff)
+                .append('.')
+                .append(ipv4 & 0xff)
+                .toString();
+        }
+        // Longest run of at least two zero groups, the first one on ties
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int i = 0; i < 8; ) {
+            int length = 0;
+            while (i + length < 8 && group(i + length) == 0) {
+                length++;
+            }
+            if (length > bestLength) {
+                bestStart = i;
+                bestLength = length;
+            }
+            i += Math.max(length, 1);
+        }
+        for (int i = 0; i < 8; i++) {
+            if (i == bestStart) {
+                out.append("::");
+                i += bestLength - 1;
+                continue;
+            }
+            if (out.length() > 0 && out.charAt(out.length() - 1) != ':') {
+                out.append(':');
+            }
+            out.append(Integer.toHexString(group(i)));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package com.simple.duckdns.core;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-memory log-linear histogram of durations in microseconds.
+ *
+ * Values below 32 us get one bucket each; above that every power of two is
+ * split into 16 linear sub-buckets, so any recorded value is reported within
+ * about 6% using 464 counters, whatever the number of samples. Values above
+ * {@link #MAX_VALUE_MICROS} (about an hour) are clamped.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    public static final long MAX_VALUE_MICROS = (1L << 32) - 1;
+
+    private static final int BUCKET_COUNT = indexOf(MAX_VALUE_MICROS) + 1;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long maxValue;
+    private long sum;
+
+    /** Record one duration. */
+    public synchronized void record(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_VALUE_MICROS));
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    public synchronized long getCount() {
+        return totalCount;
+    }
+
+    public synchronized long getMaxMicros() {
+        return maxValue;
+    }
+
+    public synchronized long getMeanMicros() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    /**
+     * @param percentile 0-100, e.g. 99 for p99
+     * @return Value at the percentile (bucket midpoint), 0 if empty
+     */
+    public synchronized long getPercentileMicros(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(
+            1,
+            (long) Math.ceil(percentile / 100.0 * totalCount)
+        );
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long mid = lowestValueAt(i) + (bucketWidthAt(i) - 1) / 2;
+                return Math.min(mid, maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        maxValue = 0;
+        sum = 0;
+    }
+
+    /**
+     * Compact persistent form: "count,sum,max;index:count,..." listing only
+     * non-empty buckets.
+     */
+    public synchronized String encode() {
+        StringBuilder out = new StringBuilder(32);
+        out
+            .append(totalCount)
+            .append(',')
+            .append(sum)
+            .append(',')
+            .append(maxValue)
+            .append(';');
+        boolean first = true;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                if (!first) {
+                    out.append(',');
+                }
+                out.append(i).append(':').append(counts[i]);
+                first = false;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * @param encoded Output of {@link #encode()}
+     * @return Decoded histogram, empty if the value is missing or corrupt
+     */
+    public static LatencyHistogram decode(String encoded) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        if (encoded == null || encoded.isEmpty()) {
+            return histogram;
+        }
+        try {
+            int semicolon = encoded.indexOf(';');
+            String[] totals = encoded.substring(0, semicolon).split(",");
+            histogram.totalCount = Long.parseLong(totals[0]);
+            histogram.sum = Long.parseLong(totals[1]);
+            histogram.maxValue = Long.parseLong(totals[2]);
+            String buckets = encoded.substring(semicolon + 1);
+            if (!buckets.isEmpty()) {
+                for (String bucket : buckets.split(",")) {
+                    int colon = bucket.indexOf(':');
+                    int index = Integer.parseInt(bucket.substring(0, colon));
+                    histogram.counts[index] = Long.parseLong(
+                        bucket.substring(colon + 1)
+                    );
+                }
+            }
+        } catch (RuntimeException e) {
+            histogram.reset();
+        }
+        return histogram;
+    }
+
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return (shift + 1) * SUB_BUCKETS + (subBucket - SUB_BUCKETS);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return subBucket << shift;
+    }
+
+    static long bucketWidthAt(int index) {
+        return index < 2 * SUB_BUCKETS ? 1 : 1L << (index / SUB_BUCKETS - 1);
+    }
+}
@@ -0,0 +1,167 @@
+package com.simple.duckdns.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-phase latency histograms, persisted in the {@link StateStore}.
+ *
+ * Phases are timed with {@link #start()} / {@link #record(String, long)};
+ * histograms stay in memory and are written back by {@link #flush()} at the
+ * end of a run, so a run costs one store write per touched phase.
+ */
+public final class LatencyRecorder {
+
+    // Phases of a run
+    public static final String PHASE_RUN = "run";
+    public static final String PHASE_CONFIG_LOAD = "config_load";
+    public static final String PHASE_PREWARM = "prewarm";
+    public static final String PHASE_DECRYPT = "decrypt";
+    public static final String PHASE_IP_DISCOVERY = "ip_discovery";
+    public static final String PHASE_IP6_DISCOVERY = "ip6_discovery";
+    public static final String PHASE_DNS_CHECK = "dns_check";
+    public static final String PHASE_UPDATE_CALL = "update_call";
+
+    /**
+     * Time from a successful update until a check saw the new address,
+     * see {@link PropagationTracker}; not part of a run
+     */
+    public static final String PHASE_PROPAGATION = "propagation";
+
+    /** Prefix of per-resolver phases, e.g. "resolver:1.1.1.1" */
+    public static final String PHASE_RESOLVER_PREFIX = "resolver:";
+
+    private static final String STATE_PHASES = "latency_phases";
+    private static final String STATE_PREFIX = "latency.";
+
+    private final StateStore stateStore;
+    private final Clock clock;
+
+    // Guarded by this
+    private Map<String, LatencyHistogram> histograms;
+    private final List<String> dirty = new ArrayList<>();
+
+    public LatencyRecorder(StateStore stateStore, Clock clock) {
+        this.stateStore = stateStore;
+        this.clock = clock;
+    }
+
+    /** @return Start timestamp to pass to {@link #record(String, long)} */
+    public long start() {
+        return clock.nanoTime();
+    }
+
+    /**
+     * Record the time elapsed since startNanos under a phase.
+     *
+     * @return Elapsed time in microseconds
+     */
+    public long record(String phase, long startNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(
+            clock.nanoTime() - startNanos
+        );
+        recordMicros(phase, micros);
+        return micros;
+    }
+
+    public synchronized void recordMicros(String phase, long micros) {
+        LatencyHistogram histogram = loaded().get(phase);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            histograms.put(phase, histogram);
+            stateStore.put(STATE_PHASES, join(histograms.keySet()));
+        }
+        histogram.record(micros);
+        if (!dirty.contains(phase)) {
+            dirty.add(phase);
+        }
+    }
+
+    /** Persist the histograms touched since the last flush. */
+    public synchronized void flush() {
+        for (String phase : dirty) {
+            stateStore.put(STATE_PREFIX + phase, histograms.get(phase).encode());
+        }
+        dirty.clear();
+    }
+
+    /** @return Phase name to histogram, in first-seen order */
+    public synchronized Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(
+            new LinkedHashMap<>(loaded())
+        );
+    }
+
+    public synchronized void reset() {
+        for (String phase : loaded().keySet()) {
+            stateStore.remove(STATE_PREFIX + phase);
+        }
+        stateStore.remove(STATE_PHASES);
+        histograms.clear();
+        dirty.clear();
+    }
+
+    /**
+     * @return CSV report: phase, count, p50, p95, p99 and max in milliseconds
+     */
+    public synchronized String exportCsv() {
+        StringBuilder out = new StringBuilder(
+            "phase,count,p50_ms,p95_ms,p99_ms,max_ms\n"
+        );
+        for (Map.Entry<String, LatencyHistogram> entry : loaded().entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            out
+                .append(CsvCodec.escape(entry.getKey()))
+                .append(',')
+                .append(h.getCount())
+                .append(',')
+                .append(millis(h.getPercentileMicros(50)))
+                .append(',')
+                .append(millis(h.getPercentileMicros(95)))
+                .append(',')
+                .append(millis(h.getPercentileMicros(99)))
+                .append(',')
+                .append(millis(h.getMaxMicros()))
+                .append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.1f", micros / 1000.0);
+    }
+
+    private Map<String, LatencyHistogram> loaded() {
+        if (histograms == null) {
+            histograms = new LinkedHashMap<>();
+            String phases = stateStore.get(STATE_PHASES, "");
+            if (!phases.isEmpty()) {
+                for (String phase : phases.split("\n")) {
+                    histograms.put(
+                        phase,
+                        LatencyHistogram.decode(
+                            stateStore.get(STATE_PREFIX + phase, "")
+                        )
+                    );
+                }
+            }
+        }
+        return histograms;
+    }
+
+    private static String join(Iterable<String> phases) {
+        StringBuilder out = new StringBuilder();
+        for (String phase : phases) {
+            if (out.length() > 0) {
+                out.append('\n');
+            }
+            out.append(phase);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.simple.duckdns.core;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Addresses assigned to the host's network interfaces, read before asking
+ * the IP echo: a host holding a global address already knows its public IP.
+ */
+public interface LocalAddressSource {
+    /** Addresses of the interfaces that are up, loopback excluded */
+    LocalAddressSource SYSTEM = new LocalAddressSource() {
+        @Override
+        public List<InetAddress> getAddresses() throws IOException {
+            Enumeration<NetworkInterface> interfaces =
+                NetworkInterface.getNetworkInterfaces();
+            if (interfaces == null) {
+                return Collections.emptyList();
+            }
+            List<InetAddress> addresses = new ArrayList<>();
+            for (NetworkInterface networkInterface : Collections.list(
+                interfaces
+            )) {
+                if (
+                    !networkInterface.isUp() || networkInterface.isLoopback()
+                ) {
+                    continue;
+                }
+                addresses.addAll(
+                    Collections.list(networkInterface.getInetAddresses())
+                );
+            }
+            return addresses;
+        }
+    };
+
+    /** No local addresses: every detected IP comes from the IP echo */
+    LocalAddressSource NONE = new LocalAddressSource() {
+        @Override
+        public List<InetAddress> getAddresses() {
+            return Collections.emptyList();
+        }
+    };
+
+    /**
+     * @return Current interface addresses, in interface order
+     * @throws IOException if the interfaces cannot be listed
+     */
+    List<InetAddress> getAddresses() throws IOException;
+}
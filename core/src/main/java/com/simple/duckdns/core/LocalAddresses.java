@@ -0,0 +1,105 @@
+package com.simple.duckdns.core;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshot of the interface addresses of one check, deciding per family
+ * where the public address comes from: a global interface address, the IP
+ * echo when the family sits behind NAT, or nowhere when the host has no
+ * connectivity in that family.
+ */
+final class LocalAddresses {
+
+    /** Prefix of the interface address published last, per family */
+    static final String STATE_LOCAL_IP_PREFIX = "local_ip.";
+
+    // Null if the interfaces could not be listed
+    private final List<InetAddress> addresses;
+
+    private LocalAddresses(List<InetAddress> addresses) {
+        this.addresses = addresses;
+    }
+
+    static LocalAddresses read(LocalAddressSource source, UpdateLogger logger) {
+        try {
+            return new LocalAddresses(source.getAddresses());
+        } catch (Exception e) {
+            logger.debug("Failed to list interface addresses: " + e);
+            return new LocalAddresses(null);
+        }
+    }
+
+    /** @return false if the interfaces could not be listed */
+    boolean isKnown() {
+        return addresses != null;
+    }
+
+    /**
+     * Choose the global address to publish. With several (IPv6 privacy
+     * addresses), the one published last wins while it stays assigned,
+     * then an EUI-64 one, which outlives the temporary ones, then the
+     * first; the choice is kept in the state store so runs don't flap.
+     *
+     * @return Address, null if the family has no global address
+     */
+    IpAddress pickGlobal(AddressFamily family, StateStore stateStore) {
+        List<IpAddress> global = new ArrayList<>(2);
+        for (IpAddress address : ofFamily(family)) {
+            if (AddressScope.of(address) == AddressScope.GLOBAL) {
+                global.add(address);
+            }
+        }
+        if (global.isEmpty()) {
+            return null;
+        }
+        String key = STATE_LOCAL_IP_PREFIX + family;
+        IpAddress previous = IpAddress.parse(stateStore.get(key, ""));
+        IpAddress chosen = global.get(0);
+        for (IpAddress address : global) {
+            if (address.equals(previous)) {
+                return previous;
+            }
+            if (isEui64(address) && !isEui64(chosen)) {
+                chosen = address;
+            }
+        }
+        stateStore.put(key, chosen.toString());
+        return chosen;
+    }
+
+    /**
+     * @return true if the family has a private, CGNAT, ULA or tunneled
+     *     address, so its public address is only known to the IP echo
+     */
+    boolean isTranslated(AddressFamily family) {
+        for (IpAddress address : ofFamily(family)) {
+            if (AddressScope.of(address).isTranslated()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<IpAddress> ofFamily(AddressFamily family) {
+        List<IpAddress> result = new ArrayList<>(addresses.size());
+        for (InetAddress address : addresses) {
+            IpAddress ip = IpAddress.of(address);
+            if (ip.getFamily() == family) {
+                result.add(ip);
+            }
+        }
+        return result;
+    }
+
+    // Interface identifier derived from the MAC: ....:xxff:fexx:....
+    private static boolean isEui64(IpAddress address) {
+        long low = address.getLowBits();
+        return (
+            address.getFamily() == AddressFamily.IPV6 &&
+            ((low >>> 32) & 0xff) == 0xff &&
+            ((low >>> 24) & 0xff) == 0xfe
+        );
+    }
+}
@@ -0,0 +1,77 @@
+package com.simple.duckdns.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the last lines of the append-only log file.
+ *
+ * The log grows without bound, so instead of reading every line into a list
+ * to keep the last few, the file is scanned backwards from its end and only
+ * the requested tail is read and decoded.
+ */
+public final class LogTail {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private LogTail() {}
+
+    /**
+     * @param file Log file, lines separated by '\n'
+     * @param maxLines Maximum number of lines to return
+     * @return Last lines, each terminated by '\n'; empty if the file is empty
+     * @throws IOException if the file cannot be read
+     */
+    public static String read(File file, int maxLines) throws IOException {
+        if (maxLines <= 0) {
+            return "";
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            if (length == 0) {
+                return "";
+            }
+
+            // A trailing newline ends the last line, it doesn't start a new one
+            long end = length;
+            raf.seek(length - 1);
+            if (raf.read() == '\n') {
+                end--;
+            }
+
+            long start = findTailStart(raf, end, maxLines);
+            byte[] bytes = new byte[(int) (length - start)];
+            raf.seek(start);
+            raf.readFully(bytes);
+
+            String tail = new String(bytes, StandardCharsets.UTF_8);
+            return tail.endsWith("\n") ? tail : tail + "\n";
+        }
+    }
+
+    // Offset of the first byte after the maxLines-th newline from the end
+    private static long findTailStart(
+        RandomAccessFile raf,
+        long end,
+        int maxLines
+    ) throws IOException {
+        byte[] chunk = new byte[(int) Math.min(CHUNK_SIZE, Math.max(end, 1))];
+        int newlines = 0;
+        long chunkEnd = end;
+        while (chunkEnd > 0) {
+            int size = (int) Math.min(chunk.length, chunkEnd);
+            long chunkStart = chunkEnd - size;
+            raf.seek(chunkStart);
+            raf.readFully(chunk, 0, size);
+            for (int i = size - 1; i >= 0; i--) {
+                if (chunk[i] == '\n' && ++newlines == maxLines) {
+                    return chunkStart + i + 1;
+                }
+            }
+            chunkEnd = chunkStart;
+        }
+        return 0;
+    }
+}
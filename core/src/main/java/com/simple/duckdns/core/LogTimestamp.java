@@ -0,0 +1,58 @@
+package com.simple.duckdns.core;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * "yyyy-MM-dd HH:mm:ss" stamps for log lines.
+ *
+ * Log entries come in bursts within the same second, so the last formatted
+ * second is cached and reused instead of formatting a new LocalDateTime for
+ * every line.
+ */
+public final class LogTimestamp {
+
+    public static final DateTimeFormatter LOG_DATE_FORMAT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static volatile Entry last = new Entry(Long.MIN_VALUE, "");
+
+    private LogTimestamp() {}
+
+    /** @return Current local time formatted for the log */
+    public static String now() {
+        return format(System.currentTimeMillis());
+    }
+
+    /**
+     * @param epochMillis Wall-clock time in milliseconds since the epoch
+     * @return Local time formatted for the log
+     */
+    public static String format(long epochMillis) {
+        long second = Math.floorDiv(epochMillis, 1000L);
+        Entry entry = last;
+        if (entry.second == second) {
+            return entry.text;
+        }
+        String text = LocalDateTime.ofInstant(
+            Instant.ofEpochSecond(second),
+            ZoneId.systemDefault()
+        ).format(LOG_DATE_FORMAT);
+        last = new Entry(second, text);
+        return text;
+    }
+
+    // Immutable so readers never see a second paired with another's text
+    private static final class Entry {
+
+        final long second;
+        final String text;
+
+        Entry(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.simple.duckdns.core;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Requests, bytes, TLS handshakes and connection reuse per endpoint class,
+ * per run and per day, persisted in the {@link StateStore}.
+ *
+ * Transports report each finished call with
+ * {@link #recordCall(Run, Endpoint, long, long, long, boolean, boolean,
+ * boolean)}. A run is bracketed by {@link #beginRun()} / {@link #endRun()} on
+ * the thread that executes it; calls started on that thread count towards it,
+ * also when they finish on another one, and their timing gives the run's
+ * radio-active estimate. Daily totals stay in memory
+ * until {@link #flush()}, like {@link LatencyRecorder}.
+ */
+public final class NetworkAccounting {
+
+    /** Days of totals kept in the state store */
+    public static final int MAX_DAYS = 14;
+
+    /**
+     * How long a cellular radio stays in its high-power state after the last
+     * packet; typical LTE inactivity timers are around 10 seconds.
+     */
+    public static final long RADIO_TAIL_MILLIS = 10000;
+
+    private static final String STATE_DAYS = "traffic_days";
+    private static final String STATE_DAY_PREFIX = "traffic.";
+    private static final String STATE_LAST_RUN = "traffic_last_run";
+
+    private static final ThreadLocal<Run> RUN = new ThreadLocal<>();
+
+    private final StateStore stateStore;
+    private final Clock clock;
+
+    // Guarded by this; day ("yyyy-MM-dd", local time) to totals, oldest first
+    private TreeMap<String, Map<Endpoint, TrafficCounters>> days;
+    private final List<String> dirty = new ArrayList<>();
+    private final SimpleDateFormat dayFormat = new SimpleDateFormat(
+        "yyyy-MM-dd",
+        Locale.ROOT
+    );
+
+    public NetworkAccounting(StateStore stateStore, Clock clock) {
+        this.stateStore = stateStore;
+        this.clock = clock;
+    }
+
+    /** Start counting the calls of this thread as one run. */
+    public void beginRun() {
+        RUN.set(new Run());
+    }
+
+    /**
+     * Stop counting this thread's run and keep it as the last run.
+     *
+     * @return Totals of the run, empty if none was begun
+     */
+    public RunTraffic endRun() {
+        Run run = RUN.get();
+        RUN.remove();
+        if (run == null) {
+            return RunTraffic.EMPTY;
+        }
+        synchronized (run) {
+            stateStore.put(STATE_LAST_RUN, encode(run.byEndpoint));
+            return new RunTraffic(
+                run.byEndpoint,
+                run.radioActiveMillis,
+                run.radioWakeups
+            );
+        }
+    }
+
+    /**
+     * Transports capture this when a call starts and hand it back to
+     * {@link #recordCall}, so calls finishing on other threads still count
+     * towards the run that started them.
+     *
+     * @return Run of the calling thread, or null outside a run
+     */
+    public Run currentRun() {
+        return RUN.get();
+    }
+
+    /**
+     * Count this thread's calls towards a run begun on another thread, e.g.
+     * on a pool thread working for it.
+     *
+     * @param run From {@link #currentRun()}, or null to detach
+     */
+    public void attachRun(Run run) {
+        if (run != null) {
+            RUN.set(run);
+        } else {
+            RUN.remove();
+        }
+    }
+
+    /**
+     * Count one finished HTTP call.
+     *
+     * @param run Run current when the call started, or null
+     * @param durationMillis Time from call start to end
+     * @param sent Request bytes written
+     * @param received Response bytes read
+     * @param tlsHandshake true if the call had to open a TLS session
+     * @param reusedConnection true if it ran on a pooled connection
+     * @param failed true if the call ended with an exception
+     */
+    public void recordCall(
+        Run run,
+        Endpoint endpoint,
+        long durationMillis,
+        long sent,
+        long received,
+        boolean tlsHandshake,
+        boolean reusedConnection,
+        boolean failed
+    ) {
+        if (run != null) {
+            synchronized (run) {
+                run.radio(clock.currentTimeMillis(), durationMillis);
+                counters(run.byEndpoint, endpoint).addCall(
+                    sent,
+                    received,
+                    tlsHandshake,
+                    reusedConnection,
+                    failed
+                );
+            }
+        }
+        synchronized (this) {
+            String day = dayFormat.format(new Date(clock.currentTimeMillis()));
+            Map<Endpoint, TrafficCounters> totals = loaded().get(day);
+            if (totals == null) {
+                totals = new EnumMap<>(Endpoint.class);
+                days.put(day, totals);
+                while (days.size() > MAX_DAYS) {
+                    String oldest = days.firstKey();
+                    days.remove(oldest);
+                    dirty.remove(oldest);
+                    stateStore.remove(STATE_DAY_PREFIX + oldest);
+                }
+                stateStore.put(STATE_DAYS, join(days.keySet()));
+            }
+            counters(totals, endpoint).addCall(
+                sent,
+                received,
+                tlsHandshake,
+                reusedConnection,
+                failed
+            );
+            if (!dirty.contains(day)) {
+                dirty.add(day);
+            }
+        }
+    }
+
+    /** Persist the daily totals touched since the last flush. */
+    public synchronized void flush() {
+        for (String day : dirty) {
+            stateStore.put(STATE_DAY_PREFIX + day, encode(days.get(day)));
+        }
+        dirty.clear();
+    }
+
+    /** @return Day ("yyyy-MM-dd") to per-endpoint totals, newest first */
+    public synchronized Map<String, Map<Endpoint, TrafficCounters>> getDailyTotals() {
+        Map<String, Map<Endpoint, TrafficCounters>> copy =
+            new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Endpoint, TrafficCounters>> day : loaded()
+            .descendingMap()
+            .entrySet()) {
+            copy.put(day.getKey(), copyOf(day.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /** @return Per-endpoint totals of the last finished run */
+    public Map<Endpoint, TrafficCounters> getLastRun() {
+        return Collections.unmodifiableMap(
+            decode(stateStore.get(STATE_LAST_RUN, ""))
+        );
+    }
+
+    /** @return Sum over all endpoints */
+    public static TrafficCounters total(
+        Map<Endpoint, TrafficCounters> byEndpoint
+    ) {
+        TrafficCounters total = new TrafficCounters();
+        for (TrafficCounters counters : byEndpoint.values()) {
+            total.add(counters);
+        }
+        return total;
+    }
+
+    public synchronized void reset() {
+        for (String day : loaded().keySet()) {
+            stateStore.remove(STATE_DAY_PREFIX + day);
+        }
+        stateStore.remove(STATE_DAYS);
+        stateStore.remove(STATE_LAST_RUN);
+        days.clear();
+        dirty.clear();
+    }
+
+    private static TrafficCounters counters(
+        Map<Endpoint, TrafficCounters> byEndpoint,
+        Endpoint endpoint
+    ) {
+        TrafficCounters counters = byEndpoint.get(endpoint);
+        if (counters == null) {
+            counters = new TrafficCounters();
+            byEndpoint.put(endpoint, counters);
+        }
+        return counters;
+    }
+
+    private static Map<Endpoint, TrafficCounters> copyOf(
+        Map<Endpoint, TrafficCounters> byEndpoint
+    ) {
+        Map<Endpoint, TrafficCounters> copy = new EnumMap<>(Endpoint.class);
+        for (Map.Entry<Endpoint, TrafficCounters> entry : byEndpoint.entrySet()) {
+            copy.put(entry.getKey(), new TrafficCounters(entry.getValue()));
+        }
+        return copy;
+    }
+
+    private TreeMap<String, Map<Endpoint, TrafficCounters>> loaded() {
+        if (days == null) {
+            days = new TreeMap<>();
+            String keys = stateStore.get(STATE_DAYS, "");
+            if (!keys.isEmpty()) {
+                for (String day : keys.split("\n")) {
+                    days.put(
+                        day,
+                        decode(stateStore.get(STATE_DAY_PREFIX + day, ""))
+                    );
+                }
+            }
+        }
+        return days;
+    }
+
+    // "DOH=requests,failures,...;IP_ECHO=..."
+    private static String encode(Map<Endpoint, TrafficCounters> byEndpoint) {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<Endpoint, TrafficCounters> entry : byEndpoint.entrySet()) {
+            if (out.length() > 0) {
+                out.append(';');
+            }
+            out.append(entry.getKey().name()).append('=');
+            out.append(entry.getValue().encode());
+        }
+        return out.toString();
+    }
+
+    private static Map<Endpoint, TrafficCounters> decode(String encoded) {
+        Map<Endpoint, TrafficCounters> byEndpoint = new EnumMap<>(
+            Endpoint.class
+        );
+        if (encoded.isEmpty()) {
+            return byEndpoint;
+        }
+        for (String entry : encoded.split(";")) {
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                byEndpoint.put(
+                    Endpoint.valueOf(entry.substring(0, separator)),
+                    TrafficCounters.decode(entry.substring(separator + 1))
+                );
+            } catch (IllegalArgumentException e) {
+                // Endpoint class no longer exists, drop its counters
+            }
+        }
+        return byEndpoint;
+    }
+
+    /** Calls of one run and the radio state they imply; guarded by itself. */
+    public static final class Run {
+
+        private Run() {}
+
+        final Map<Endpoint, TrafficCounters> byEndpoint = new EnumMap<>(
+            Endpoint.class
+        );
+        long radioActiveMillis;
+        int radioWakeups;
+        // Wall-clock time the radio drops back to idle, 0 before any call
+        private long radioIdleAt;
+
+        // A call starting after the tail of the previous one wakes the
+        // radio again and pays a full tail; overlapping ones extend it
+        void radio(long endMillis, long durationMillis) {
+            long startMillis = endMillis - durationMillis;
+            long idleAt = endMillis + RADIO_TAIL_MILLIS;
+            if (startMillis >= radioIdleAt) {
+                radioWakeups++;
+                radioActiveMillis += idleAt - startMillis;
+            } else if (idleAt > radioIdleAt) {
+                radioActiveMillis += idleAt - radioIdleAt;
+            }
+            radioIdleAt = Math.max(radioIdleAt, idleAt);
+        }
+    }
+
+    private static String join(Iterable<String> days) {
+        StringBuilder out = new StringBuilder();
+        for (String day : days) {
+            if (out.length() > 0) {
+                out.append('\n');
+            }
+            out.append(day);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,145 @@
+package com.simple.duckdns.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs engine tasks on a short-lived bounded pool whose threads join the
+ * caller's trace, traffic run and rate limit priority, so concurrent work
+ * shows up in the same run as sequential work would.
+ */
+final class ParallelUpdates {
+
+    private ParallelUpdates() {}
+
+    /**
+     * Run the tasks, a single one inline on the calling thread.
+     *
+     * @param spanName Span wrapping each task on a pool thread
+     * @param threadName Prefix of the pool thread names
+     * @return Results in task order; a task that threw yields the result
+     *     classified from its exception
+     */
+    static List<UpdateResult> invokeAll(
+        UpdateEngine engine,
+        List<Callable<UpdateResult>> tasks,
+        int maxParallel,
+        String spanName,
+        String threadName
+    ) {
+        List<UpdateResult> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<UpdateResult> future : runAll(
+                engine,
+                tasks,
+                maxParallel,
+                spanName,
+                threadName
+            )) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    results.add(failed(e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            while (results.size() < tasks.size()) {
+                results.add(
+                    UpdateResult.of(UpdateStatus.TIMEOUT, "Interrupted")
+                );
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Run the tasks like {@link #invokeAll} and wait for all of them.
+     *
+     * @return Completed futures in task order
+     * @throws InterruptedException if interrupted while waiting, the tasks
+     *     still running are cancelled
+     */
+    static <T> List<Future<T>> runAll(
+        UpdateEngine engine,
+        List<Callable<T>> tasks,
+        int maxParallel,
+        final String spanName,
+        String threadName
+    ) throws InterruptedException {
+        if (tasks.size() == 1) {
+            FutureTask<T> inline = new FutureTask<>(tasks.get(0));
+            inline.run();
+            return Collections.<Future<T>>singletonList(inline);
+        }
+
+        final Tracer tracer = engine.getTracer();
+        final Span parent = Tracer.current();
+        final NetworkAccounting accounting = engine.getNetworkAccounting();
+        final NetworkAccounting.Run run = accounting.currentRun();
+        final RateLimiter.Priority priority = RateLimiter.currentPriority();
+        List<Callable<T>> joined = new ArrayList<>(tasks.size());
+        for (final Callable<T> task : tasks) {
+            joined.add(
+                new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        accounting.attachRun(run);
+                        RateLimiter.setPriority(priority);
+                        try (Span span = tracer.startSpan(spanName, parent)) {
+                            span.setAttribute(
+                                "thread",
+                                Thread.currentThread().getName()
+                            );
+                            return task.call();
+                        } finally {
+                            accounting.attachRun(null);
+                            RateLimiter.setPriority(null);
+                        }
+                    }
+                }
+            );
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(maxParallel, tasks.size())),
+            threadFactory(threadName)
+        );
+        try {
+            return executor.invokeAll(joined);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static UpdateResult failed(Throwable cause) {
+        Exception e = cause instanceof Exception
+            ? (Exception) cause
+            : new RuntimeException(cause);
+        return UpdateResult.of(UpdateStatus.fromException(e), e.getMessage());
+    }
+
+    private static ThreadFactory threadFactory(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(
+                    task,
+                    name + "-" + count.incrementAndGet()
+                );
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package com.simple.duckdns.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pre-connect stage of a run, started by {@link UpdateEngine#prewarm} and
+ * awaited right before the first call so that connection setup overlaps
+ * with whatever the caller does in between.
+ */
+public final class Prewarm {
+
+    /** Longest wait for the pre-connects, the quick clients' timeout */
+    public static final long TIMEOUT_MILLIS = 2000;
+
+    static final Prewarm NONE = new Prewarm(
+        new CountDownLatch(0),
+        0,
+        0,
+        null,
+        null
+    );
+
+    private final CountDownLatch connected;
+    private final int origins;
+    private final long startNanos;
+    private final LatencyRecorder latency;
+    private final Tracer tracer;
+
+    Prewarm(
+        CountDownLatch connected,
+        int origins,
+        long startNanos,
+        LatencyRecorder latency,
+        Tracer tracer
+    ) {
+        this.connected = connected;
+        this.origins = origins;
+        this.startNanos = startNanos;
+        this.latency = latency;
+        this.tracer = tracer;
+    }
+
+    /** @return Origins being connected, 0 if the transport can't pre-connect */
+    public int getOrigins() {
+        return origins;
+    }
+
+    /**
+     * Wait up to {@link #TIMEOUT_MILLIS} for every pre-connect to finish.
+     * The time since the stage started is recorded as
+     * {@link LatencyRecorder#PHASE_PREWARM}.
+     *
+     * @return true if all finished in time
+     */
+    public boolean await() {
+        if (origins == 0) {
+            return true;
+        }
+        boolean done;
+        try (Span span = tracer.startSpan(LatencyRecorder.PHASE_PREWARM)) {
+            span.setAttribute("origins", origins);
+            try {
+                done = connected.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                done = false;
+            }
+            if (!done) {
+                span.setError("Timed out");
+            }
+        }
+        latency.record(LatencyRecorder.PHASE_PREWARM, startNanos);
+        return done;
+    }
+}
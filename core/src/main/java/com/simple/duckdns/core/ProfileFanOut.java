@@ -0,0 +1,287 @@
+package com.simple.duckdns.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks and updates several {@link UpdateProfile}s in one run.
+ *
+ * Profiles sharing a token and IP mode are merged into one group, so their
+ * domains go out in a single update call; groups run concurrently, at most
+ * maxParallel at a time. Group threads join the caller's trace and traffic
+ * run. Every profile gets the result of its group, and profiles are due
+ * again once their own interval has passed since their last successful
+ * check.
+ */
+public final class ProfileFanOut {
+
+    /** Concurrent groups by default, polite to DuckDNS and the resolvers */
+    public static final int DEFAULT_MAX_PARALLEL = 3;
+
+    // A run woken a little early still checks the profiles due by then
+    private static final long DUE_SLACK_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final String STATE_LAST_CHECK_PREFIX = "profile_last_check.";
+    private static final String STATE_STATUS_PREFIX = "profile_status.";
+
+    private final UpdateEngine engine;
+    private final int maxParallel;
+
+    public ProfileFanOut(UpdateEngine engine, int maxParallel) {
+        this.engine = engine;
+        this.maxParallel = Math.max(1, maxParallel);
+    }
+
+    /** @return Shortest interval of the profiles, the run schedule */
+    public static int minIntervalMinutes(
+        List<UpdateProfile> profiles,
+        int defaultMinutes
+    ) {
+        int min = defaultMinutes;
+        for (UpdateProfile profile : profiles) {
+            min = Math.min(min, profile.getIntervalMinutes());
+        }
+        return min;
+    }
+
+    /** @return Profiles whose interval has passed since their last check */
+    public List<UpdateProfile> due(List<UpdateProfile> profiles) {
+        long now = engine.getClock().currentTimeMillis();
+        List<UpdateProfile> due = new ArrayList<>();
+        for (UpdateProfile profile : profiles) {
+            long lastCheck = engine
+                .getStateStore()
+                .getLong(STATE_LAST_CHECK_PREFIX + profile.getName(), 0);
+            long intervalMillis = TimeUnit.MINUTES.toMillis(
+                profile.getIntervalMinutes()
+            );
+            if (now - lastCheck + DUE_SLACK_MILLIS >= intervalMillis) {
+                due.add(profile);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Merge profiles with the same token and IP modes, keeping the order of
+     * first appearance. Domains listed by several profiles are sent once.
+     */
+    public static List<Group> group(List<UpdateProfile> profiles) {
+        Map<String, List<UpdateProfile>> byKey = new LinkedHashMap<>();
+        for (UpdateProfile profile : profiles) {
+            UpdateTarget target = profile.getTarget();
+            String key =
+                target.getToken() +
+                '\n' +
+                target.getIp() +
+                '\n' +
+                target.getIpv6();
+            List<UpdateProfile> members = byKey.get(key);
+            if (members == null) {
+                members = new ArrayList<>();
+                byKey.put(key, members);
+            }
+            members.add(profile);
+        }
+        List<Group> groups = new ArrayList<>(byKey.size());
+        for (List<UpdateProfile> members : byKey.values()) {
+            groups.add(new Group(members));
+        }
+        return groups;
+    }
+
+    /**
+     * Check and update the given profiles.
+     *
+     * @param profiles Profiles to run, e.g. {@link #due(List)}
+     * @param logPrefix Prefix of event log entries; the group's profile
+     *     names are appended when there is more than one profile
+     * @return Result per profile name, in the given order
+     */
+    public Map<String, UpdateResult> run(
+        List<UpdateProfile> profiles,
+        final String logPrefix
+    ) {
+        List<Group> groups = group(profiles);
+        final int profileCount = profiles.size();
+        List<Callable<UpdateResult>> tasks = new ArrayList<>(groups.size());
+        for (final Group group : groups) {
+            tasks.add(
+                new Callable<UpdateResult>() {
+                    @Override
+                    public UpdateResult call() {
+                        return runGroup(group, logPrefix, profileCount);
+                    }
+                }
+            );
+        }
+        List<UpdateResult> results = ParallelUpdates.invokeAll(
+            engine,
+            tasks,
+            maxParallel,
+            "profile_group",
+            "duckdns-profile"
+        );
+
+        Map<String, UpdateResult> byProfile = new LinkedHashMap<>();
+        long now = engine.getClock().currentTimeMillis();
+        for (int i = 0; i < groups.size(); i++) {
+            UpdateResult result = results.get(i);
+            for (UpdateProfile profile : groups.get(i).getProfiles()) {
+                byProfile.put(profile.getName(), result);
+                engine
+                    .getStateStore()
+                    .put(
+                        STATE_STATUS_PREFIX + profile.getName(),
+                        result.getStatus().name()
+                    );
+                // Failed profiles stay due for the retry
+                if (result.isSuccess()) {
+                    engine
+                        .getStateStore()
+                        .putLong(
+                            STATE_LAST_CHECK_PREFIX + profile.getName(),
+                            now
+                        );
+                }
+            }
+        }
+        return byProfile;
+    }
+
+    /**
+     * Fold per-profile results into the run's result: the first retryable
+     * failure, else the first failure, else success; skipped only if every
+     * profile was.
+     *
+     * @return Combined result, its message lists each profile's outcome
+     */
+    public static UpdateResult summarize(Map<String, UpdateResult> results) {
+        UpdateResult worst = null;
+        boolean allSkipped = true;
+        StringBuilder message = new StringBuilder();
+        for (Map.Entry<String, UpdateResult> entry : results.entrySet()) {
+            UpdateResult result = entry.getValue();
+            if (
+                !result.isSuccess() &&
+                (worst == null ||
+                    (result.getStatus().isRetryable() &&
+                        !worst.getStatus().isRetryable()))
+            ) {
+                worst = result;
+            }
+            allSkipped &= result.isSkipped();
+            if (message.length() > 0) {
+                message.append(", ");
+            }
+            message
+                .append(entry.getKey())
+                .append(": ")
+                .append(describe(result));
+        }
+        if (results.size() == 1) {
+            return results.values().iterator().next();
+        }
+        if (worst != null) {
+            return UpdateResult.of(worst.getStatus(), message.toString());
+        }
+        return allSkipped
+            ? UpdateResult.skipped()
+            : UpdateResult.of(UpdateStatus.SUCCESS, message.toString());
+    }
+
+    /** @return Status of the profile's last run, null if it never ran */
+    public String getLastStatus(String profileName) {
+        return engine
+            .getStateStore()
+            .get(STATE_STATUS_PREFIX + profileName, null);
+    }
+
+    private static String describe(UpdateResult result) {
+        if (result.isSkipped()) {
+            return "up to date";
+        }
+        return result.getMessage().isEmpty()
+            ? result.getStatus().name()
+            : result.getMessage();
+    }
+
+    private UpdateResult runGroup(
+        Group group,
+        String logPrefix,
+        int profileCount
+    ) {
+        Tracer.current().setAttribute("profiles", group.getName());
+        engine.getLogger().debug(
+            "Checking profile(s) " +
+                group.getName() +
+                ": " +
+                group.getTarget().getDomains()
+        );
+        return engine.checkAndUpdate(
+            group.getTarget(),
+            profileCount > 1
+                ? logPrefix + " [" + group.getName() + "]"
+                : logPrefix
+        );
+    }
+
+    /** Profiles sharing a token and IP mode, updated with one call. */
+    public static final class Group {
+
+        private final List<UpdateProfile> profiles;
+        private final UpdateTarget target;
+
+        Group(List<UpdateProfile> profiles) {
+            this.profiles = Collections.unmodifiableList(profiles);
+            Set<String> seen = new LinkedHashSet<>();
+            StringBuilder domains = new StringBuilder();
+            for (UpdateProfile profile : profiles) {
+                String[] listed = profile.getTarget().getDomains().split(",");
+                for (String domain : listed) {
+                    domain = domain.trim();
+                    if (
+                        !domain.isEmpty() &&
+                        seen.add(domain.toLowerCase(Locale.ROOT))
+                    ) {
+                        if (domains.length() > 0) {
+                            domains.append(',');
+                        }
+                        domains.append(domain);
+                    }
+                }
+            }
+            UpdateTarget first = profiles.get(0).getTarget();
+            this.target = first.withDomains(domains.toString());
+        }
+
+        public List<UpdateProfile> getProfiles() {
+            return profiles;
+        }
+
+        /** @return Merged target: the members' domains, token and addresses */
+        public UpdateTarget getTarget() {
+            return target;
+        }
+
+        /** @return Member names joined with "+" */
+        public String getName() {
+            StringBuilder name = new StringBuilder();
+            for (UpdateProfile profile : profiles) {
+                if (name.length() > 0) {
+                    name.append('+');
+                }
+                name.append(profile.getName());
+            }
+            return name.toString();
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.simple.duckdns.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records updated by DuckDNS whose new address resolvers may not serve
+ * yet, persisted in the {@link StateStore}.
+ *
+ * After a successful update every record is pending with its expected
+ * address and the TTL the check observed for it: caches holding the old
+ * address expire within that TTL. Re-checks are due one TTL (plus a margin)
+ * apart; while a record is pending, mismatches for the same address are
+ * stale caches and suppress another update. The first check seeing the
+ * expected address confirms the record, and the time since the update is
+ * its time to consistency. After {@value #MAX_CHECKS} re-checks the record
+ * is given up and the next check may update again.
+ */
+public final class PropagationTracker {
+
+    /** TTL DuckDNS serves its records with, when none was observed */
+    public static final long DEFAULT_TTL_SECONDS = 60;
+
+    static final int MAX_CHECKS = 3;
+    // Slack for resolvers refreshing right at expiry
+    static final long MARGIN_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    // Bounds of observed TTLs, so neither 0 nor a day-long TTL stalls checks
+    static final long MIN_TTL_SECONDS = 10;
+    static final long MAX_TTL_SECONDS = TimeUnit.HOURS.toSeconds(1);
+
+    private static final String STATE_PENDING = "propagation_pending";
+
+    private final StateStore stateStore;
+    private final Clock clock;
+
+    // Guarded by this; keyed by "fqdn/TYPE"
+    private Map<String, Pending> pending;
+    private final Map<String, Long> observedTtls = new HashMap<>();
+
+    public PropagationTracker(StateStore stateStore, Clock clock) {
+        this.stateStore = stateStore;
+        this.clock = clock;
+    }
+
+    /** One record waiting for resolvers to serve its new address. */
+    public static final class Pending {
+
+        private final String fqdn;
+        private final AddressFamily family;
+        private final IpAddress expectedIp;
+        private final long updatedMillis;
+        private final long ttlSeconds;
+        private long nextCheckMillis;
+        private int checks;
+
+        Pending(
+            String fqdn,
+            AddressFamily family,
+            IpAddress expectedIp,
+            long updatedMillis,
+            long ttlSeconds,
+            long nextCheckMillis,
+            int checks
+        ) {
+            this.fqdn = fqdn;
+            this.family = family;
+            this.expectedIp = expectedIp;
+            this.updatedMillis = updatedMillis;
+            this.ttlSeconds = ttlSeconds;
+            this.nextCheckMillis = nextCheckMillis;
+            this.checks = checks;
+        }
+
+        public String getFqdn() {
+            return fqdn;
+        }
+
+        public AddressFamily getFamily() {
+            return family;
+        }
+
+        public IpAddress getExpectedIp() {
+            return expectedIp;
+        }
+
+        public long getUpdatedMillis() {
+            return updatedMillis;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public long getNextCheckMillis() {
+            return nextCheckMillis;
+        }
+
+        long interval() {
+            return TimeUnit.SECONDS.toMillis(ttlSeconds) + MARGIN_MILLIS;
+        }
+
+        // Past the last re-check, the update did not propagate
+        long deadline() {
+            return updatedMillis + MAX_CHECKS * interval();
+        }
+    }
+
+    /**
+     * Remember the largest TTL seen for a record during a check, the time
+     * caches may hold its current address.
+     */
+    public synchronized void observeTtl(
+        String fqdn,
+        AddressFamily family,
+        long ttlSeconds
+    ) {
+        if (ttlSeconds == DnsAnswer.UNKNOWN_TTL) {
+            return;
+        }
+        String key = key(fqdn, family);
+        Long seen = observedTtls.get(key);
+        if (seen == null || ttlSeconds > seen) {
+            observedTtls.put(key, ttlSeconds);
+        }
+    }
+
+    /**
+     * Start tracking the records of a successful update.
+     *
+     * @param target Updated target; families without an address literal
+     *     are not tracked, DuckDNS chose the address
+     */
+    public synchronized void track(UpdateTarget target) {
+        long now = clock.currentTimeMillis();
+        Map<String, Pending> records = load();
+        for (AddressFamily family : AddressFamily.values()) {
+            IpAddress ip = IpAddress.parse(target.getIp(family));
+            if (ip == null) {
+                continue;
+            }
+            for (String fqdn : target.getFqdns()) {
+                String key = key(fqdn, family);
+                Long observed = observedTtls.remove(key);
+                long ttl = observed != null
+                    ? Math.max(
+                        MIN_TTL_SECONDS,
+                        Math.min(MAX_TTL_SECONDS, observed)
+                    )
+                    : DEFAULT_TTL_SECONDS;
+                Pending record = new Pending(
+                    fqdn,
+                    family,
+                    ip,
+                    now,
+                    ttl,
+                    0,
+                    0
+                );
+                record.nextCheckMillis = now + record.interval();
+                records.put(key, record);
+            }
+        }
+        save();
+    }
+
+    /**
+     * @return true if the record is pending for this very address, so
+     *     resolvers disagreeing with it are stale caches
+     */
+    public synchronized boolean isPending(
+        String fqdn,
+        AddressFamily family,
+        IpAddress ip
+    ) {
+        Pending record = load().get(key(fqdn, family));
+        return (
+            record != null &&
+            record.expectedIp.equals(ip) &&
+            clock.currentTimeMillis() < record.deadline()
+        );
+    }
+
+    /**
+     * Resolvers agree on an address; confirms the record if it is the
+     * expected one.
+     *
+     * @return Time to consistency in milliseconds, or -1 if the record
+     *     was not pending for that address
+     */
+    public synchronized long confirm(
+        String fqdn,
+        AddressFamily family,
+        IpAddress ip
+    ) {
+        String key = key(fqdn, family);
+        Pending record = load().get(key);
+        if (record == null || !record.expectedIp.equals(ip)) {
+            return -1;
+        }
+        pending.remove(key);
+        save();
+        return Math.max(0, clock.currentTimeMillis() - record.updatedMillis);
+    }
+
+    /** @return Records whose re-check is due, oldest update first */
+    public synchronized List<Pending> due() {
+        long now = clock.currentTimeMillis();
+        List<Pending> due = new ArrayList<>();
+        for (Pending record : load().values()) {
+            if (record.nextCheckMillis <= now) {
+                due.add(record);
+            }
+        }
+        return due;
+    }
+
+    /** @return true until the record is confirmed or given up */
+    public synchronized boolean isTracked(Pending record) {
+        return load().containsKey(key(record.fqdn, record.family));
+    }
+
+    /**
+     * Schedule the next re-check of a record still pending after one.
+     *
+     * @return false if the record was given up after {@value #MAX_CHECKS}
+     *     re-checks, or is no longer tracked
+     */
+    public synchronized boolean reschedule(Pending checked) {
+        String key = key(checked.fqdn, checked.family);
+        Pending record = load().get(key);
+        if (record == null) {
+            return false;
+        }
+        record.checks++;
+        if (record.checks >= MAX_CHECKS) {
+            pending.remove(key);
+            save();
+            return false;
+        }
+        record.nextCheckMillis =
+            clock.currentTimeMillis() + record.interval();
+        save();
+        return true;
+    }
+
+    /**
+     * @return Earliest due re-check in epoch millis, or -1 if no record is
+     *     pending
+     */
+    public synchronized long nextCheckMillis() {
+        long next = -1;
+        for (Pending record : load().values()) {
+            if (next < 0 || record.nextCheckMillis < next) {
+                next = record.nextCheckMillis;
+            }
+        }
+        return next;
+    }
+
+    /** @return Pending records, oldest update first */
+    public synchronized List<Pending> getPending() {
+        return new ArrayList<>(load().values());
+    }
+
+    private static String key(String fqdn, AddressFamily family) {
+        return fqdn + "/" + family.getRecordType();
+    }
+
+    // One record per line: "fqdn;TYPE;ip;updated;ttl;nextCheck;checks"
+    private Map<String, Pending> load() {
+        if (pending != null) {
+            return pending;
+        }
+        pending = new LinkedHashMap<>();
+        for (String line : stateStore.get(STATE_PENDING, "").split("\n")) {
+            String[] fields = line.split(";");
+            if (fields.length != 7) {
+                continue;
+            }
+            IpAddress expectedIp = IpAddress.parse(fields[2]);
+            if (expectedIp == null) {
+                continue;
+            }
+            try {
+                AddressFamily family = AddressFamily.IPV6
+                        .getRecordType()
+                        .equals(fields[1])
+                    ? AddressFamily.IPV6
+                    : AddressFamily.IPV4;
+                pending.put(
+                    key(fields[0], family),
+                    new Pending(
+                        fields[0],
+                        family,
+                        expectedIp,
+                        Long.parseLong(fields[3]),
+                        Long.parseLong(fields[4]),
+                        Long.parseLong(fields[5]),
+                        Integer.parseInt(fields[6])
+                    )
+                );
+            } catch (NumberFormatException e) {
+                // Skip the corrupt line
+            }
+        }
+        return pending;
+    }
+
+    private void save() {
+        if (pending.isEmpty()) {
+            stateStore.remove(STATE_PENDING);
+            return;
+        }
+        StringBuilder encoded = new StringBuilder();
+        for (Pending record : pending.values()) {
+            encoded
+                .append(record.fqdn)
+                .append(';')
+                .append(record.family.getRecordType())
+                .append(';')
+                .append(record.expectedIp)
+                .append(';')
+                .append(record.updatedMillis)
+                .append(';')
+                .append(record.ttlSeconds)
+                .append(';')
+                .append(record.nextCheckMillis)
+                .append(';')
+                .append(record.checks)
+                .append('\n');
+        }
+        stateStore.put(STATE_PENDING, encoded.toString());
+    }
+}
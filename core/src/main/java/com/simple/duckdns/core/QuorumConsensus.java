@@ -0,0 +1,164 @@
+package com.simple.duckdns.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * N-of-M consensus: a record is outdated once resolvers weighing N serve
+ * another address, and up to date once that can no longer happen and
+ * resolvers weighing at least M answered. With fewer answers the evidence
+ * is insufficient.
+ *
+ * An answer without a record of the family (NXDOMAIN or an empty NOERROR)
+ * disagrees with the expected address unless configured to abstain;
+ * failed queries (SERVFAIL, timeouts) always abstain. The default, 2-of-2
+ * with unit weights, is the classic "2 or more DNS servers differ" rule.
+ */
+public final class QuorumConsensus implements ConsensusPolicy {
+
+    public static final QuorumConsensus DEFAULT = new QuorumConsensus(
+        UpdateEngine.MISMATCH_THRESHOLD,
+        UpdateEngine.MISMATCH_THRESHOLD,
+        true,
+        Collections.<String, Integer>emptyMap()
+    );
+
+    private final int mismatches;
+    private final int answers;
+    private final boolean noAnswerMismatches;
+    private final Map<String, Integer> weights;
+
+    /**
+     * @param mismatches Weight of disagreeing resolvers that makes a record
+     *     outdated (N)
+     * @param answers Weight of answering resolvers needed to call it up to
+     *     date (M)
+     * @param noAnswerMismatches false to let answers without a record
+     *     abstain
+     * @param weights Vote weight by resolver name, 1 for those not listed
+     * @throws IllegalArgumentException if a threshold or weight is not
+     *     positive
+     */
+    public QuorumConsensus(
+        int mismatches,
+        int answers,
+        boolean noAnswerMismatches,
+        Map<String, Integer> weights
+    ) {
+        if (mismatches <= 0 || answers <= 0) {
+            throw new IllegalArgumentException(
+                "Invalid consensus: " + mismatches + "/" + answers
+            );
+        }
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            if (entry.getValue() <= 0) {
+                throw new IllegalArgumentException(
+                    "Invalid weight of " + entry.getKey()
+                );
+            }
+        }
+        this.mismatches = mismatches;
+        this.answers = answers;
+        this.noAnswerMismatches = noAnswerMismatches;
+        this.weights = Collections.unmodifiableMap(
+            new LinkedHashMap<>(weights)
+        );
+    }
+
+    /**
+     * Parse the daemon's consensus keys.
+     *
+     * @param quorum "N" or "N/M", empty for the default 2/2; M defaults to N
+     * @param weights Resolver weights, "name=weight" separated by commas or
+     *     whitespace, empty for unit weights
+     * @param noAnswerMismatches false to let answers without a record
+     *     abstain
+     * @throws IllegalArgumentException on malformed or non-positive values
+     */
+    public static QuorumConsensus parse(
+        String quorum,
+        String weights,
+        boolean noAnswerMismatches
+    ) {
+        int mismatches = DEFAULT.mismatches;
+        int answers = DEFAULT.answers;
+        String trimmed = quorum.trim();
+        if (!trimmed.isEmpty()) {
+            int slash = trimmed.indexOf('/');
+            mismatches = parseNumber(
+                slash < 0 ? trimmed : trimmed.substring(0, slash),
+                quorum
+            );
+            answers = slash < 0
+                ? mismatches
+                : parseNumber(trimmed.substring(slash + 1), quorum);
+        }
+
+        Map<String, Integer> parsed = new LinkedHashMap<>();
+        for (String entry : weights.trim().split("[,\\s]+")) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int equals = entry.lastIndexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException(
+                    "Invalid resolver weight: " + entry
+                );
+            }
+            parsed.put(
+                entry.substring(0, equals),
+                parseNumber(entry.substring(equals + 1), entry)
+            );
+        }
+        return new QuorumConsensus(
+            mismatches,
+            answers,
+            noAnswerMismatches,
+            parsed
+        );
+    }
+
+    private static int parseNumber(String number, String context) {
+        try {
+            return Integer.parseInt(number.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in " + context);
+        }
+    }
+
+    @Override
+    public int weight(DnsResolver resolver) {
+        Integer weight = weights.get(resolver.getName());
+        return weight != null ? weight : 1;
+    }
+
+    @Override
+    public Verdict evaluate(ConsensusTally tally) {
+        int against = tally.get(ConsensusTally.Vote.MISMATCH);
+        if (noAnswerMismatches) {
+            against += tally.get(ConsensusTally.Vote.NO_ANSWER);
+        }
+        if (against >= mismatches) {
+            return Verdict.OUTDATED;
+        }
+        int pending = tally.getPending();
+        if (against + pending >= mismatches) {
+            return Verdict.UNDECIDED;
+        }
+        // Can no longer become outdated, decided once enough answered
+        int answered = tally.get(ConsensusTally.Vote.MATCH) + against;
+        if (answered >= answers) {
+            return Verdict.UP_TO_DATE;
+        }
+        return answered + pending >= answers
+            ? Verdict.UNDECIDED
+            : Verdict.INSUFFICIENT_EVIDENCE;
+    }
+
+    @Override
+    public String toString() {
+        String quorum = mismatches + "/" + answers;
+        return weights.isEmpty() ? quorum : quorum + " " + weights;
+    }
+}
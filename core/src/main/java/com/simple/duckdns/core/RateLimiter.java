@@ -0,0 +1,448 @@
+package com.simple.duckdns.core;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token buckets, one per {@link Endpoint}, persisted in the
+ * {@link StateStore}.
+ *
+ * Buckets stay in memory and are written back by {@link #flush()} at the end
+ * of a run, like {@link LatencyRecorder}. A new limiter starts from the
+ * stored buckets, and a flush merges this limiter's calls into what the store
+ * holds by then, keeping the lower count, so limiters sharing a store do not
+ * hand back each other's tokens. The limit is only as shared as the store:
+ * a store read once when opened, like the daemon's state file, leaves each
+ * process limiting itself between starts.
+ *
+ * A bucket holds up to its burst and refills at its hourly rate; every
+ * outbound call takes one token. Callers rank by {@link Priority}: lower
+ * priorities leave a reserve in the bucket, so a burst of scheduled runs or
+ * re-checks cannot starve a manual update. Checks ({@link #tryAcquire}) are
+ * shed at once when no token is left for them; calls that must happen
+ * ({@link #acquire}) wait a bounded time for the next token.
+ *
+ * The priority of the calls a thread makes is thread-local, set around a
+ * run with {@link #setPriority}; engine pool threads inherit the caller's.
+ */
+public final class RateLimiter {
+
+    /** Who a call is made for; each leaves a share of the bucket unused. */
+    public enum Priority {
+        /** User-requested update, may empty the bucket */
+        MANUAL(0),
+        /** Scheduled or network-triggered run, keeps a fifth for manual */
+        SCHEDULED(0.2),
+        /** Propagation re-checks and pre-connects, shed first */
+        VERIFICATION(0.5);
+
+        private final double reserve;
+
+        Priority(double reserve) {
+            this.reserve = reserve;
+        }
+    }
+
+    /** Burst and refill rate of one bucket. */
+    public static final class Limit {
+
+        /** No bucket, calls are never limited */
+        public static final Limit NONE = new Limit(0, 0);
+
+        private final int burst;
+        private final int perHour;
+
+        private Limit(int burst, int perHour) {
+            this.burst = burst;
+            this.perHour = perHour;
+        }
+
+        /**
+         * @param burst Calls allowed back to back, at least 1
+         * @param perHour Tokens refilled per hour
+         */
+        public static Limit of(int burst, int perHour) {
+            if (burst < 1 || perHour < 0) {
+                throw new IllegalArgumentException(
+                    "Invalid limit " + burst + "/" + perHour
+                );
+            }
+            return new Limit(burst, perHour);
+        }
+
+        public boolean isLimited() {
+            return burst > 0;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public int getPerHour() {
+            return perHour;
+        }
+
+        @Override
+        public String toString() {
+            return isLimited() ? burst + "/" + perHour : "off";
+        }
+    }
+
+    /**
+     * Defaults sized for a run every minute with a few profiles: DuckDNS
+     * takes an update every two minutes, the echoes both families each
+     * minute, resolvers a quorum of queries per family and profile.
+     */
+    public static final Map<Endpoint, Limit> DEFAULT_LIMITS;
+
+    static {
+        Map<Endpoint, Limit> limits = new EnumMap<>(Endpoint.class);
+        limits.put(Endpoint.IP_ECHO, Limit.of(20, 120));
+        limits.put(Endpoint.DOH, Limit.of(60, 600));
+        limits.put(Endpoint.DNS, Limit.of(60, 600));
+        limits.put(Endpoint.DUCKDNS_UPDATE, Limit.of(10, 30));
+        DEFAULT_LIMITS = Collections.unmodifiableMap(limits);
+    }
+
+    private static final String STATE_PREFIX = "rate_limit.";
+
+    private static final ThreadLocal<Priority> PRIORITY = new ThreadLocal<>();
+
+    private final StateStore stateStore;
+    private final Clock clock;
+    private final Map<Endpoint, Limit> limits;
+
+    // Guarded by this
+    private final Map<Endpoint, Bucket> buckets = new EnumMap<>(
+        Endpoint.class
+    );
+
+    private static final class Bucket {
+
+        double tokens;
+        long updatedMillis;
+        // Tokens taken since the last flush, merged into the stored bucket
+        int taken;
+        long granted;
+        long delayed;
+        long shed;
+    }
+
+    public RateLimiter(StateStore stateStore, Clock clock) {
+        this(stateStore, clock, DEFAULT_LIMITS);
+    }
+
+    /**
+     * @param limits Limit per endpoint; missing endpoints are not limited
+     */
+    public RateLimiter(
+        StateStore stateStore,
+        Clock clock,
+        Map<Endpoint, Limit> limits
+    ) {
+        this.stateStore = stateStore;
+        this.clock = clock;
+        this.limits = new EnumMap<>(Endpoint.class);
+        this.limits.putAll(limits);
+    }
+
+    /**
+     * Parse limits over the defaults: entries separated by commas or
+     * whitespace, each "ENDPOINT=burst/perHour" or "ENDPOINT=off"; a bare
+     * "off" turns every limit off.
+     *
+     * @param spec e.g. "DUCKDNS_UPDATE=5/12, DOH=off"
+     * @return Limit per endpoint, the defaults for a blank spec
+     * @throws IllegalArgumentException on a malformed entry
+     */
+    public static Map<Endpoint, Limit> parseLimits(String spec) {
+        Map<Endpoint, Limit> parsed = new EnumMap<>(DEFAULT_LIMITS);
+        for (String entry : spec.trim().split("[,\\s]+")) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            if (entry.equalsIgnoreCase("off")) {
+                for (Endpoint endpoint : Endpoint.values()) {
+                    parsed.put(endpoint, Limit.NONE);
+                }
+                continue;
+            }
+            int equals = entry.indexOf('=');
+            int slash = entry.indexOf('/', equals);
+            try {
+                Endpoint endpoint = Endpoint.valueOf(
+                    entry.substring(0, Math.max(0, equals))
+                        .toUpperCase(Locale.ROOT)
+                );
+                String value = entry.substring(equals + 1);
+                if (value.equalsIgnoreCase("off")) {
+                    parsed.put(endpoint, Limit.NONE);
+                } else if (slash > equals) {
+                    parsed.put(
+                        endpoint,
+                        Limit.of(
+                            Integer.parseInt(
+                                entry.substring(equals + 1, slash)
+                            ),
+                            Integer.parseInt(entry.substring(slash + 1))
+                        )
+                    );
+                } else {
+                    throw new IllegalArgumentException("No rate in " + entry);
+                }
+            } catch (IllegalArgumentException e) {
+                // Also NumberFormatException and unknown endpoint names
+                throw new IllegalArgumentException(
+                    "Invalid rate limit \"" + entry + "\"",
+                    e
+                );
+            }
+        }
+        return parsed;
+    }
+
+    /** @return Priority of this thread's calls, SCHEDULED unless set */
+    public static Priority currentPriority() {
+        Priority priority = PRIORITY.get();
+        return priority != null ? priority : Priority.SCHEDULED;
+    }
+
+    /** @param priority Priority of this thread's calls, null to reset */
+    public static void setPriority(Priority priority) {
+        if (priority != null) {
+            PRIORITY.set(priority);
+        } else {
+            PRIORITY.remove();
+        }
+    }
+
+    public Limit getLimit(Endpoint endpoint) {
+        Limit limit = limits.get(endpoint);
+        return limit != null ? limit : Limit.NONE;
+    }
+
+    /**
+     * Take a token if one is left above the priority's reserve, without
+     * waiting.
+     *
+     * @return false if the call is shed
+     */
+    public boolean tryAcquire(Endpoint endpoint, Priority priority) {
+        if (take(endpoint, priority) == 0) {
+            return true;
+        }
+        count(endpoint, false);
+        return false;
+    }
+
+    /**
+     * Take a token, waiting for the refill if it comes within maxWaitMillis.
+     * VERIFICATION calls never wait.
+     *
+     * @return false if the call is shed, also when interrupted
+     */
+    public boolean acquire(
+        Endpoint endpoint,
+        Priority priority,
+        long maxWaitMillis
+    ) {
+        long waited = 0;
+        while (true) {
+            long wait = take(endpoint, priority);
+            if (wait == 0) {
+                if (waited > 0) {
+                    count(endpoint, true);
+                }
+                return true;
+            }
+            if (
+                priority == Priority.VERIFICATION ||
+                waited + wait > maxWaitMillis
+            ) {
+                count(endpoint, false);
+                return false;
+            }
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                count(endpoint, false);
+                return false;
+            }
+            waited += wait;
+        }
+    }
+
+    /**
+     * @return true if a call of that priority would get a token now; takes
+     *     none, e.g. to skip pre-connecting to origins that would be shed
+     */
+    public synchronized boolean isAvailable(
+        Endpoint endpoint,
+        Priority priority
+    ) {
+        Bucket bucket = refilled(endpoint);
+        return (
+            bucket == null ||
+            bucket.tokens >= floor(getLimit(endpoint), priority) + 1
+        );
+    }
+
+    /** @return Calls granted since start, including delayed ones */
+    public synchronized long getGranted(Endpoint endpoint) {
+        Bucket bucket = buckets.get(endpoint);
+        return bucket != null ? bucket.granted : 0;
+    }
+
+    /** @return Calls granted after waiting for the refill since start */
+    public synchronized long getDelayed(Endpoint endpoint) {
+        Bucket bucket = buckets.get(endpoint);
+        return bucket != null ? bucket.delayed : 0;
+    }
+
+    /** @return Calls shed since start */
+    public synchronized long getShed(Endpoint endpoint) {
+        Bucket bucket = buckets.get(endpoint);
+        return bucket != null ? bucket.shed : 0;
+    }
+
+    /**
+     * Persist the buckets used since the last flush, each merged with the
+     * stored one: the store's tokens refilled to now less this limiter's
+     * calls, if lower than this limiter's own count.
+     */
+    public synchronized void flush() {
+        long now = clock.currentTimeMillis();
+        for (Map.Entry<Endpoint, Bucket> entry : buckets.entrySet()) {
+            Bucket bucket = entry.getValue();
+            if (bucket.taken == 0) {
+                continue;
+            }
+            Endpoint endpoint = entry.getKey();
+            Limit limit = getLimit(endpoint);
+            refill(bucket, limit, now);
+            Bucket stored = load(endpoint, limit);
+            if (stored != null) {
+                refill(stored, limit, now);
+                bucket.tokens = Math.min(
+                    bucket.tokens,
+                    Math.max(0, stored.tokens - bucket.taken)
+                );
+            }
+            bucket.taken = 0;
+            stateStore.put(
+                STATE_PREFIX + endpoint.name(),
+                bucket.tokens + ";" + bucket.updatedMillis
+            );
+        }
+    }
+
+    /** Refill all buckets, e.g. after changing limits. */
+    public synchronized void reset() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            stateStore.remove(STATE_PREFIX + endpoint.name());
+        }
+        buckets.clear();
+    }
+
+    /**
+     * @return 0 if a token was taken, else milliseconds until the refill
+     *     lifts the bucket above the priority's reserve
+     */
+    private synchronized long take(Endpoint endpoint, Priority priority) {
+        Bucket bucket = refilled(endpoint);
+        if (bucket == null) {
+            return 0;
+        }
+        Limit limit = getLimit(endpoint);
+        double missing = floor(limit, priority) + 1 - bucket.tokens;
+        if (missing <= 0) {
+            bucket.tokens -= 1;
+            bucket.taken++;
+            bucket.granted++;
+            return 0;
+        }
+        if (limit.perHour == 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(
+            1,
+            (long) Math.ceil(
+                (missing * TimeUnit.HOURS.toMillis(1)) / limit.perHour
+            )
+        );
+    }
+
+    private synchronized void count(Endpoint endpoint, boolean delayed) {
+        Bucket bucket = buckets.get(endpoint);
+        if (bucket == null) {
+            return;
+        }
+        if (delayed) {
+            bucket.delayed++;
+        } else {
+            bucket.shed++;
+        }
+    }
+
+    private static double floor(Limit limit, Priority priority) {
+        return limit.burst * priority.reserve;
+    }
+
+    // Null for endpoints without a limit
+    private Bucket refilled(Endpoint endpoint) {
+        Limit limit = getLimit(endpoint);
+        if (!limit.isLimited()) {
+            return null;
+        }
+        long now = clock.currentTimeMillis();
+        Bucket bucket = buckets.get(endpoint);
+        if (bucket == null) {
+            bucket = load(endpoint, limit);
+            if (bucket == null) {
+                // Start full
+                bucket = new Bucket();
+                bucket.tokens = limit.burst;
+                bucket.updatedMillis = now;
+            }
+            buckets.put(endpoint, bucket);
+        }
+        refill(bucket, limit, now);
+        return bucket;
+    }
+
+    // Persisted as "tokens;updated", null if missing or malformed
+    private Bucket load(Endpoint endpoint, Limit limit) {
+        String[] fields = stateStore
+            .get(STATE_PREFIX + endpoint.name(), "")
+            .split(";");
+        if (fields.length != 2) {
+            return null;
+        }
+        try {
+            Bucket bucket = new Bucket();
+            bucket.tokens = Math.min(
+                limit.burst,
+                Double.parseDouble(fields[0])
+            );
+            bucket.updatedMillis = Long.parseLong(fields[1]);
+            return bucket;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void refill(Bucket bucket, Limit limit, long now) {
+        // A clock set back restarts the refill from now
+        long elapsed = Math.max(0, now - bucket.updatedMillis);
+        bucket.tokens = Math.min(
+            limit.burst,
+            bucket.tokens +
+                (elapsed * (double) limit.perHour) / TimeUnit.HOURS.toMillis(1)
+        );
+        bucket.updatedMillis = now;
+    }
+}
@@ -0,0 +1,387 @@
+package com.simple.duckdns.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Health of every configured resolver, persisted in the {@link StateStore},
+ * and the choice of which ones a check queries.
+ *
+ * Each resolver keeps an EWMA of its latency, its error rate and its
+ * staleness (how often its answer disagreed with the majority, i.e. it
+ * served an outdated record). Figures not refreshed for
+ * {@link #REEXPLORE_MILLIS} count as unmeasured, so a resolver pushed out
+ * of the quorum gets another chance. {@value #FAILURES_TO_OPEN} failures in
+ * a row open its circuit breaker: the resolver is left out until the
+ * cool-down ends, then one half-open probe decides whether it closes again
+ * or stays open for twice as long.
+ *
+ * Like {@link LatencyRecorder}, updates stay in memory until
+ * {@link #flush()}, which writes a single state key.
+ */
+public final class ResolverRegistry {
+
+    /** Resolvers queried per check, the same as the default set */
+    public static final int DEFAULT_QUORUM = 3;
+
+    static final int FAILURES_TO_OPEN = 3;
+    static final long OPEN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long MAX_OPEN_MILLIS = TimeUnit.HOURS.toMillis(6);
+    static final long REEXPLORE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    // Weight of the newest sample in the averages
+    private static final double ALPHA = 0.3;
+
+    private static final String STATE_HEALTH = "resolver_health";
+
+    private final List<DnsResolver> resolvers;
+    private final StateStore stateStore;
+    private final Clock clock;
+
+    // Guarded by this; keyed by resolver name
+    private Map<String, Health> health;
+    private boolean dirty;
+
+    public ResolverRegistry(
+        List<DnsResolver> resolvers,
+        StateStore stateStore,
+        Clock clock
+    ) {
+        this.resolvers = Collections.unmodifiableList(
+            new ArrayList<>(resolvers)
+        );
+        this.stateStore = stateStore;
+        this.clock = clock;
+    }
+
+    /** @return Every configured resolver, in configuration order */
+    public List<DnsResolver> getResolvers() {
+        return resolvers;
+    }
+
+    /**
+     * Choose the resolvers of one check: the fastest closed ones up to the
+     * quorum, ranked by latency weighted with error rate and staleness, and
+     * those whose cool-down ended as half-open probes. Probes fill a short
+     * quorum first; at most one more probes on top of a full one. Resolvers
+     * never measured rank first so new ones get explored.
+     *
+     * @param quorum Number of healthy resolvers wanted
+     * @return Resolvers to query, fastest first; fewer than the quorum when
+     *     too many breakers are open
+     */
+    public synchronized List<DnsResolver> select(int quorum) {
+        final long now = clock.currentTimeMillis();
+        List<DnsResolver> closed = new ArrayList<>(resolvers.size());
+        List<DnsResolver> probes = new ArrayList<>(1);
+        for (DnsResolver resolver : resolvers) {
+            Health h = health(resolver);
+            if (h.openUntilMillis == 0) {
+                closed.add(resolver);
+            } else if (now >= h.openUntilMillis) {
+                probes.add(resolver);
+            }
+        }
+        Collections.sort(
+            closed,
+            new Comparator<DnsResolver>() {
+                @Override
+                public int compare(DnsResolver a, DnsResolver b) {
+                    return Double.compare(
+                        health(a).score(now),
+                        health(b).score(now)
+                    );
+                }
+            }
+        );
+        List<DnsResolver> selected = new ArrayList<>(
+            closed.subList(0, Math.min(quorum, closed.size()))
+        );
+        int probeSlots = Math.max(quorum - selected.size(), 0) + 1;
+        for (int i = 0; i < probes.size() && i < probeSlots; i++) {
+            selected.add(probes.get(i));
+        }
+        return selected;
+    }
+
+    /**
+     * Record one query.
+     *
+     * @param latencyMicros Time the query took, including failures
+     * @param failed true if it threw (timeout, HTTP or server error); an
+     *     empty answer is a success
+     */
+    public synchronized void record(
+        DnsResolver resolver,
+        long latencyMicros,
+        boolean failed
+    ) {
+        Health h = health(resolver);
+        long now = clock.currentTimeMillis();
+        double millis = latencyMicros / 1000.0;
+        h.latencyMillis = h.samples == 0
+            ? millis
+            : ALPHA * millis + (1 - ALPHA) * h.latencyMillis;
+        h.errorRate = ALPHA * (failed ? 1 : 0) + (1 - ALPHA) * h.errorRate;
+        h.samples++;
+        h.lastSampleMillis = now;
+        if (failed) {
+            h.consecutiveFailures++;
+            if (h.openUntilMillis != 0) {
+                // Failed half-open probe, or a query made while open
+                h.openMillis = Math.min(h.openMillis * 2, MAX_OPEN_MILLIS);
+                h.openUntilMillis = now + h.openMillis;
+            } else if (h.consecutiveFailures >= FAILURES_TO_OPEN) {
+                h.openMillis = OPEN_MILLIS;
+                h.openUntilMillis = now + h.openMillis;
+            }
+        } else {
+            h.consecutiveFailures = 0;
+            h.openUntilMillis = 0;
+            h.openMillis = 0;
+            h.lastSuccessMillis = now;
+        }
+        dirty = true;
+    }
+
+    /**
+     * Record whether a resolver's answer matched the majority of the
+     * answers to the same question.
+     */
+    public synchronized void recordAgreement(
+        DnsResolver resolver,
+        boolean agreed
+    ) {
+        Health h = health(resolver);
+        h.staleRate = ALPHA * (agreed ? 0 : 1) + (1 - ALPHA) * h.staleRate;
+        dirty = true;
+    }
+
+    /**
+     * @return true unless the resolver's breaker is open and its cool-down
+     *     still runs, for resolvers queried outside {@link #select}
+     */
+    public synchronized boolean isAvailable(DnsResolver resolver) {
+        return health(resolver).openUntilMillis <= clock.currentTimeMillis();
+    }
+
+    /** @return Snapshot of a resolver's health */
+    public synchronized Health getHealth(DnsResolver resolver) {
+        return health(resolver).copy();
+    }
+
+    /** Persist the health changed since the last flush. */
+    public synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        StringBuilder encoded = new StringBuilder();
+        for (Map.Entry<String, Health> entry : health.entrySet()) {
+            Health h = entry.getValue();
+            if (h.samples == 0) {
+                continue;
+            }
+            encoded
+                .append(entry.getKey())
+                .append(';')
+                .append(h.samples)
+                .append(';')
+                .append(String.format(Locale.ROOT, "%.3f", h.latencyMillis))
+                .append(';')
+                .append(String.format(Locale.ROOT, "%.4f", h.errorRate))
+                .append(';')
+                .append(String.format(Locale.ROOT, "%.4f", h.staleRate))
+                .append(';')
+                .append(h.consecutiveFailures)
+                .append(';')
+                .append(h.openUntilMillis)
+                .append(';')
+                .append(h.openMillis)
+                .append(';')
+                .append(h.lastSuccessMillis)
+                .append(';')
+                .append(h.lastSampleMillis)
+                .append('\n');
+        }
+        stateStore.put(STATE_HEALTH, encoded.toString());
+        dirty = false;
+    }
+
+    /** Forget all health, closing every breaker. */
+    public synchronized void reset() {
+        health = new LinkedHashMap<>();
+        dirty = false;
+        stateStore.remove(STATE_HEALTH);
+    }
+
+    private Health health(DnsResolver resolver) {
+        if (health == null) {
+            health = decode(stateStore.get(STATE_HEALTH, ""));
+        }
+        Health h = health.get(resolver.getName());
+        if (h == null) {
+            h = new Health();
+            health.put(resolver.getName(), h);
+        }
+        return h;
+    }
+
+    // Corrupt lines are dropped, the resolver starts over
+    private static Map<String, Health> decode(String encoded) {
+        Map<String, Health> decoded = new LinkedHashMap<>();
+        for (String line : encoded.split("\n")) {
+            String[] fields = line.split(";");
+            if (fields.length != 10) {
+                continue;
+            }
+            try {
+                Health h = new Health();
+                h.samples = Long.parseLong(fields[1]);
+                h.latencyMillis = Double.parseDouble(fields[2]);
+                h.errorRate = Double.parseDouble(fields[3]);
+                h.staleRate = Double.parseDouble(fields[4]);
+                h.consecutiveFailures = Integer.parseInt(fields[5]);
+                h.openUntilMillis = Long.parseLong(fields[6]);
+                h.openMillis = Long.parseLong(fields[7]);
+                h.lastSuccessMillis = Long.parseLong(fields[8]);
+                h.lastSampleMillis = Long.parseLong(fields[9]);
+                decoded.put(fields[0], h);
+            } catch (NumberFormatException e) {
+                // Skip the line
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Parse a resolver list: entries separated by commas or whitespace,
+     * each an optional "name=" followed by a DoH JSON endpoint URL
+     * ("https://...") or the IP address of a plain DNS server.
+     *
+     * @param spec e.g. "quad9=https://9.9.9.9:5053/dns-query, 1.0.0.1"
+     * @param transport Transport of the DoH resolvers
+     * @param accounting Traffic accounting of the plain DNS resolvers
+     * @return Resolvers in the listed order, empty for a blank spec
+     * @throws IllegalArgumentException on an entry that is neither
+     */
+    public static List<DnsResolver> parse(
+        String spec,
+        HttpTransport transport,
+        NetworkAccounting accounting
+    ) {
+        List<DnsResolver> parsed = new ArrayList<>();
+        for (String entry : spec.trim().split("[,\\s]+")) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            String name = null;
+            int equals = entry.indexOf('=');
+            if (equals > 0 && !entry.startsWith("https://")) {
+                name = entry.substring(0, equals);
+                entry = entry.substring(equals + 1);
+            }
+            if (entry.startsWith("https://")) {
+                parsed.add(
+                    new DohJsonResolver(
+                        name != null ? name : BootstrapResolver.hostOf(entry),
+                        entry,
+                        transport
+                    )
+                );
+            } else {
+                parsed.add(
+                    new UdpDnsResolver(
+                        name != null ? name : entry,
+                        entry,
+                        accounting
+                    )
+                );
+            }
+        }
+        return parsed;
+    }
+
+    /** Health of one resolver; fields are only read through a snapshot. */
+    public static final class Health {
+
+        long samples;
+        double latencyMillis;
+        double errorRate;
+        double staleRate;
+        int consecutiveFailures;
+        // 0 while the breaker is closed
+        long openUntilMillis;
+        long openMillis;
+        long lastSuccessMillis;
+        long lastSampleMillis;
+
+        Health() {}
+
+        // Lower is better; unmeasured and long unused resolvers first
+        double score(long now) {
+            if (samples == 0 || now - lastSampleMillis > REEXPLORE_MILLIS) {
+                return -1;
+            }
+            return latencyMillis * (1 + 2 * errorRate + staleRate);
+        }
+
+        Health copy() {
+            Health h = new Health();
+            h.samples = samples;
+            h.latencyMillis = latencyMillis;
+            h.errorRate = errorRate;
+            h.staleRate = staleRate;
+            h.consecutiveFailures = consecutiveFailures;
+            h.openUntilMillis = openUntilMillis;
+            h.openMillis = openMillis;
+            h.lastSuccessMillis = lastSuccessMillis;
+            h.lastSampleMillis = lastSampleMillis;
+            return h;
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        /** @return EWMA of the query latency */
+        public double getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        /** @return EWMA of failed queries, 0..1 */
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        /** @return EWMA of answers disagreeing with the majority, 0..1 */
+        public double getStaleRate() {
+            return staleRate;
+        }
+
+        /** @return true while the breaker is open or half-open */
+        public boolean isOpen() {
+            return openUntilMillis != 0;
+        }
+
+        /** @return End of the cool-down, 0 while closed */
+        public long getOpenUntilMillis() {
+            return openUntilMillis;
+        }
+
+        /** @return Time of the last successful query, 0 if none */
+        public long getLastSuccessMillis() {
+            return lastSuccessMillis;
+        }
+
+        /** @return Time of the last query, 0 if none */
+        public long getLastSampleMillis() {
+            return lastSampleMillis;
+        }
+    }
+}
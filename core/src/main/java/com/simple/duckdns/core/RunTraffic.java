@@ -0,0 +1,52 @@
+package com.simple.duckdns.core;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Network usage of one run: per-endpoint counters and an estimate of how
+ * long the cellular radio was kept in its high-power state.
+ */
+public final class RunTraffic {
+
+    static final RunTraffic EMPTY = new RunTraffic(
+        Collections.<Endpoint, TrafficCounters>emptyMap(),
+        0,
+        0
+    );
+
+    private final Map<Endpoint, TrafficCounters> byEndpoint;
+    private final long radioActiveMillis;
+    private final int radioWakeups;
+
+    RunTraffic(
+        Map<Endpoint, TrafficCounters> byEndpoint,
+        long radioActiveMillis,
+        int radioWakeups
+    ) {
+        this.byEndpoint = Collections.unmodifiableMap(byEndpoint);
+        this.radioActiveMillis = radioActiveMillis;
+        this.radioWakeups = radioWakeups;
+    }
+
+    public Map<Endpoint, TrafficCounters> getByEndpoint() {
+        return byEndpoint;
+    }
+
+    public TrafficCounters getTotal() {
+        return NetworkAccounting.total(byEndpoint);
+    }
+
+    /**
+     * @return Time spent in calls plus the radio's tail after each burst,
+     *     see {@link NetworkAccounting#RADIO_TAIL_MILLIS}
+     */
+    public long getRadioActiveMillis() {
+        return radioActiveMillis;
+    }
+
+    /** @return Bursts of calls that each had to power the radio up */
+    public int getRadioWakeups() {
+        return radioWakeups;
+    }
+}
@@ -0,0 +1,123 @@
+package com.simple.duckdns.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A timed operation within a run's trace, created by {@link Tracer}.
+ *
+ * Spans are meant for try-with-resources; ending a span makes its parent
+ * the current span of the thread again. {@link #NOOP} stands in when no
+ * trace is active, so callers never need null checks.
+ */
+public final class Span implements AutoCloseable {
+
+    /** Span that records nothing. */
+    public static final Span NOOP = new Span();
+
+    private final Tracer tracer;
+    private final Tracer.Trace trace;
+    private final Span parent;
+    private final String spanId;
+    private final String name;
+    private final long startEpochNanos;
+
+    // Guarded by this
+    private final Map<String, String> attributes;
+    private String error;
+    private boolean ended;
+
+    private Span() {
+        tracer = null;
+        trace = null;
+        parent = null;
+        spanId = "";
+        name = "";
+        startEpochNanos = 0;
+        attributes = Collections.emptyMap();
+        ended = true;
+    }
+
+    Span(
+        Tracer tracer,
+        Tracer.Trace trace,
+        Span parent,
+        String spanId,
+        String name,
+        long startEpochNanos
+    ) {
+        this.tracer = tracer;
+        this.trace = trace;
+        this.parent = parent;
+        this.spanId = spanId;
+        this.name = name;
+        this.startEpochNanos = startEpochNanos;
+        this.attributes = new LinkedHashMap<>();
+    }
+
+    /** @return false for {@link #NOOP} and ended spans */
+    public synchronized boolean isRecording() {
+        return !ended;
+    }
+
+    public synchronized Span setAttribute(String key, String value) {
+        if (!ended && value != null) {
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    public Span setAttribute(String key, long value) {
+        return setAttribute(key, Long.toString(value));
+    }
+
+    public Span setAttribute(String key, boolean value) {
+        return setAttribute(key, Boolean.toString(value));
+    }
+
+    /** Mark the span as failed. */
+    public synchronized Span setError(String message) {
+        if (!ended) {
+            error = message != null ? message : "error";
+        }
+        return this;
+    }
+
+    /** End the span; later calls are ignored. */
+    public void end() {
+        SpanData data;
+        synchronized (this) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            data = new SpanData(
+                trace.traceId,
+                spanId,
+                parent != null ? parent.spanId : "",
+                name,
+                startEpochNanos,
+                trace.epochNanos(),
+                Collections.unmodifiableMap(
+                    new LinkedHashMap<>(attributes)
+                ),
+                error
+            );
+        }
+        tracer.onSpanEnded(this, data);
+    }
+
+    @Override
+    public void close() {
+        end();
+    }
+
+    Span getParent() {
+        return parent;
+    }
+
+    Tracer.Trace getTrace() {
+        return trace;
+    }
+}
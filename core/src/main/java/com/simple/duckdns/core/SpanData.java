@@ -0,0 +1,83 @@
+package com.simple.duckdns.core;
+
+import java.util.Map;
+
+/**
+ * Immutable record of a finished span.
+ */
+public final class SpanData {
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final long startEpochNanos;
+    private final long endEpochNanos;
+    private final Map<String, String> attributes;
+    private final String error;
+
+    /**
+     * @param parentSpanId Parent span id, empty for the root span
+     * @param attributes Unmodifiable attributes in insertion order
+     * @param error Error message, or null if the span succeeded
+     */
+    public SpanData(
+        String traceId,
+        String spanId,
+        String parentSpanId,
+        String name,
+        long startEpochNanos,
+        long endEpochNanos,
+        Map<String, String> attributes,
+        String error
+    ) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.startEpochNanos = startEpochNanos;
+        this.endEpochNanos = endEpochNanos;
+        this.attributes = attributes;
+        this.error = error;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    public boolean isRoot() {
+        return parentSpanId.isEmpty();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    public long getEndEpochNanos() {
+        return endEpochNanos;
+    }
+
+    public long getDurationNanos() {
+        return endEpochNanos - startEpochNanos;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
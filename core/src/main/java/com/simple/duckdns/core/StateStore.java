@@ -0,0 +1,17 @@
+package com.simple.duckdns.core;
+
+/**
+ * Small persistent key/value store for state the engine keeps between runs.
+ */
+public interface StateStore {
+    /** @return Stored value, or defaultValue if absent */
+    String get(String key, String defaultValue);
+
+    long getLong(String key, long defaultValue);
+
+    void put(String key, String value);
+
+    void putLong(String key, long value);
+
+    void remove(String key);
+}
@@ -0,0 +1,37 @@
+package com.simple.duckdns.core;
+
+import java.net.InetAddress;
+
+/**
+ * Resolver backed by the platform's default DNS (InetAddress), used where
+ * the intended server has no public DNS-over-HTTPS endpoint.
+ *
+ * InetAddress reports NXDOMAIN and SERVFAIL alike, so an unknown name is a
+ * failure here; a name with records of the other family only answers
+ * empty.
+ */
+public final class SystemDnsResolver implements DnsResolver {
+
+    private final String name;
+
+    public SystemDnsResolver(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public DnsAnswer resolveRecord(String domain, AddressFamily family)
+        throws Exception {
+        for (InetAddress address : InetAddress.getAllByName(domain)) {
+            IpAddress ip = IpAddress.of(address);
+            if (ip.getFamily() == family) {
+                return new DnsAnswer(ip, DnsAnswer.UNKNOWN_TTL);
+            }
+        }
+        return null;
+    }
+}
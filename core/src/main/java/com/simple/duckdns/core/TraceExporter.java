@@ -0,0 +1,180 @@
+package com.simple.duckdns.core;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes stored traces for external tools: OTLP/JSON (the OpenTelemetry
+ * collector's file and HTTP format) or the Chrome trace event format that
+ * chrome://tracing and Perfetto open directly.
+ */
+public final class TraceExporter {
+
+    public static final String SERVICE_NAME = "duckdns-updater";
+
+    // OTLP enum values
+    private static final int SPAN_KIND_INTERNAL = 1;
+    private static final int STATUS_CODE_OK = 1;
+    private static final int STATUS_CODE_ERROR = 2;
+
+    private TraceExporter() {}
+
+    /**
+     * @param traces Traces as returned by {@link FileTraceStore#readAll()}
+     * @return One OTLP ExportTraceServiceRequest as JSON
+     */
+    public static String toOtlpJson(List<List<SpanData>> traces) {
+        StringBuilder out = new StringBuilder(1024 * (traces.size() + 1));
+        out.append("{\"resourceSpans\":[{\"resource\":{\"attributes\":[");
+        appendOtlpAttribute(out, "service.name", SERVICE_NAME);
+        out.append("]},\"scopeSpans\":[{\"scope\":{\"name\":");
+        appendString(out, TraceExporter.class.getPackage().getName());
+        out.append("},\"spans\":[");
+        boolean first = true;
+        for (List<SpanData> trace : traces) {
+            for (SpanData span : trace) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                appendOtlpSpan(out, span);
+            }
+        }
+        out.append("]}]}]}\n");
+        return out.toString();
+    }
+
+    /**
+     * @param traces Traces as returned by {@link FileTraceStore#readAll()}
+     * @return Chrome trace event JSON, one timeline row per run
+     */
+    public static String toChromeTrace(List<List<SpanData>> traces) {
+        StringBuilder out = new StringBuilder(1024 * (traces.size() + 1));
+        out.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        int row = 0;
+        for (List<SpanData> trace : traces) {
+            row++;
+            for (SpanData span : trace) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append("{\"name\":");
+                appendString(out, span.getName());
+                out.append(",\"cat\":\"duckdns\",\"ph\":\"X\",\"ts\":");
+                appendMicros(out, span.getStartEpochNanos());
+                out.append(",\"dur\":");
+                appendMicros(out, span.getDurationNanos());
+                out.append(",\"pid\":1,\"tid\":").append(row);
+                out.append(",\"args\":{\"trace_id\":");
+                appendString(out, span.getTraceId());
+                for (Map.Entry<String, String> attribute : span
+                    .getAttributes()
+                    .entrySet()) {
+                    out.append(',');
+                    appendString(out, attribute.getKey());
+                    out.append(':');
+                    appendString(out, attribute.getValue());
+                }
+                if (span.getError() != null) {
+                    out.append(",\"error\":");
+                    appendString(out, span.getError());
+                }
+                out.append("}}");
+            }
+        }
+        out.append("]}\n");
+        return out.toString();
+    }
+
+    private static void appendOtlpSpan(StringBuilder out, SpanData span) {
+        out.append("{\"traceId\":\"").append(span.getTraceId());
+        out.append("\",\"spanId\":\"").append(span.getSpanId());
+        out.append("\",\"parentSpanId\":\"").append(span.getParentSpanId());
+        out.append("\",\"name\":");
+        appendString(out, span.getName());
+        out.append(",\"kind\":").append(SPAN_KIND_INTERNAL);
+        // 64-bit integers are strings in OTLP/JSON
+        out.append(",\"startTimeUnixNano\":\"");
+        out.append(span.getStartEpochNanos());
+        out.append("\",\"endTimeUnixNano\":\"");
+        out.append(span.getEndEpochNanos());
+        out.append("\",\"attributes\":[");
+        boolean first = true;
+        for (Map.Entry<String, String> attribute : span
+            .getAttributes()
+            .entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            appendOtlpAttribute(out, attribute.getKey(), attribute.getValue());
+        }
+        out.append("],\"status\":{");
+        if (span.getError() != null) {
+            out.append("\"code\":").append(STATUS_CODE_ERROR);
+            out.append(",\"message\":");
+            appendString(out, span.getError());
+        } else {
+            out.append("\"code\":").append(STATUS_CODE_OK);
+        }
+        out.append("}}");
+    }
+
+    private static void appendOtlpAttribute(
+        StringBuilder out,
+        String key,
+        String value
+    ) {
+        out.append("{\"key\":");
+        appendString(out, key);
+        out.append(",\"value\":{\"stringValue\":");
+        appendString(out, value);
+        out.append("}}");
+    }
+
+    // Microseconds with nanosecond fraction, as Chrome expects
+    private static void appendMicros(StringBuilder out, long nanos) {
+        out.append(nanos / 1000).append('.');
+        long fraction = nanos % 1000;
+        if (fraction < 100) {
+            out.append('0');
+        }
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
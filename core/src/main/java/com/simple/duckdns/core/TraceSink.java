@@ -0,0 +1,13 @@
+package com.simple.duckdns.core;
+
+import java.util.List;
+
+/**
+ * Receives each trace once its root span has ended.
+ */
+public interface TraceSink {
+    /**
+     * @param spans Finished spans of one trace, in end order (root last)
+     */
+    void onTraceFinished(List<SpanData> spans);
+}
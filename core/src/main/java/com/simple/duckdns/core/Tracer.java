@@ -0,0 +1,133 @@
+package com.simple.duckdns.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Creates the spans of a run's trace.
+ *
+ * The current span is tracked per thread: {@link #startSpan(String)} starts
+ * a child of it, or a new trace when there is none, so the worker's root
+ * span, the engine's phases and the resolvers' HTTP details end up in one
+ * trace without passing spans around. Finished traces go to the
+ * {@link TraceSink}.
+ */
+public final class Tracer {
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private final Clock clock;
+    private final TraceSink sink;
+
+    /**
+     * @param clock Time source
+     * @param sink Receiver of finished traces, or null to drop them
+     */
+    public Tracer(Clock clock, TraceSink sink) {
+        this.clock = clock;
+        this.sink = sink;
+    }
+
+    /** @return Active span of this thread, {@link Span#NOOP} if none */
+    public static Span current() {
+        Span span = CURRENT.get();
+        return span != null ? span : Span.NOOP;
+    }
+
+    /**
+     * Start a span as a child of the current one, or as the root of a new
+     * trace, and make it current.
+     */
+    public Span startSpan(String name) {
+        return startSpan(name, CURRENT.get());
+    }
+
+    /**
+     * Start a span under an explicit parent and make it current, for work
+     * handed to another thread; a null or ended parent starts a new trace.
+     */
+    public Span startSpan(String name, Span parent) {
+        Trace trace;
+        if (parent != null && parent.isRecording()) {
+            trace = parent.getTrace();
+        } else {
+            parent = null;
+            trace = new Trace(randomHex(2), clock);
+        }
+        Span span = new Span(
+            this,
+            trace,
+            parent,
+            randomHex(1),
+            name,
+            trace.epochNanos()
+        );
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Like {@link #startSpan(String)}, but only inside an active trace, for
+     * work that also runs outside update runs (e.g. from the UI).
+     */
+    public Span startChildSpan(String name) {
+        return current().isRecording() ? startSpan(name) : Span.NOOP;
+    }
+
+    void onSpanEnded(Span span, SpanData data) {
+        Trace trace = span.getTrace();
+        trace.add(data);
+        if (CURRENT.get() == span) {
+            if (span.getParent() != null) {
+                CURRENT.set(span.getParent());
+            } else {
+                CURRENT.remove();
+            }
+        }
+        if (span.getParent() == null && sink != null) {
+            sink.onTraceFinished(trace.spans());
+        }
+    }
+
+    // 64-bit words of random hex: 1 for span ids, 2 for trace ids
+    private static String randomHex(int words) {
+        StringBuilder out = new StringBuilder(words * 16);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < words; i++) {
+            out.append(String.format(Locale.ROOT, "%016x", random.nextLong()));
+        }
+        return out.toString();
+    }
+
+    /** Spans of one trace, timed against a single wall-clock anchor. */
+    static final class Trace {
+
+        final String traceId;
+        private final Clock clock;
+        private final long anchorEpochNanos;
+        private final long anchorNanos;
+        private final List<SpanData> finished = new ArrayList<>();
+
+        Trace(String traceId, Clock clock) {
+            this.traceId = traceId;
+            this.clock = clock;
+            this.anchorEpochNanos = clock.currentTimeMillis() * 1000000L;
+            this.anchorNanos = clock.nanoTime();
+        }
+
+        // Monotonic within the trace, wall-clock based across traces
+        long epochNanos() {
+            return anchorEpochNanos + (clock.nanoTime() - anchorNanos);
+        }
+
+        synchronized void add(SpanData data) {
+            finished.add(data);
+        }
+
+        synchronized List<SpanData> spans() {
+            return new ArrayList<>(finished);
+        }
+    }
+}
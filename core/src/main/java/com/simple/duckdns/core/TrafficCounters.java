@@ -0,0 +1,122 @@
+package com.simple.duckdns.core;
+
+/**
+ * Network usage counters of one endpoint class over a run or a day.
+ *
+ * Byte counts are HTTP headers plus body as seen on the connection, without
+ * TLS record and TCP/IP overhead. Not thread-safe; {@link NetworkAccounting}
+ * guards its instances and hands out copies.
+ */
+public final class TrafficCounters {
+
+    private long requests;
+    private long failures;
+    private long bytesSent;
+    private long bytesReceived;
+    private long tlsHandshakes;
+    private long reusedConnections;
+
+    public TrafficCounters() {}
+
+    public TrafficCounters(TrafficCounters other) {
+        add(other);
+    }
+
+    /**
+     * Count one HTTP call.
+     *
+     * @param tlsHandshake true if the call had to open a TLS session
+     * @param reusedConnection true if it ran on a pooled connection
+     * @param failed true if the call ended with an exception
+     */
+    public void addCall(
+        long sent,
+        long received,
+        boolean tlsHandshake,
+        boolean reusedConnection,
+        boolean failed
+    ) {
+        requests++;
+        bytesSent += sent;
+        bytesReceived += received;
+        if (tlsHandshake) {
+            tlsHandshakes++;
+        }
+        if (reusedConnection) {
+            reusedConnections++;
+        }
+        if (failed) {
+            failures++;
+        }
+    }
+
+    public void add(TrafficCounters other) {
+        requests += other.requests;
+        failures += other.failures;
+        bytesSent += other.bytesSent;
+        bytesReceived += other.bytesReceived;
+        tlsHandshakes += other.tlsHandshakes;
+        reusedConnections += other.reusedConnections;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getTlsHandshakes() {
+        return tlsHandshakes;
+    }
+
+    public long getReusedConnections() {
+        return reusedConnections;
+    }
+
+    /** @return Compact form: requests,failures,sent,received,tls,reused */
+    public String encode() {
+        return (
+            requests +
+            "," +
+            failures +
+            "," +
+            bytesSent +
+            "," +
+            bytesReceived +
+            "," +
+            tlsHandshakes +
+            "," +
+            reusedConnections
+        );
+    }
+
+    /** @return Counters from {@link #encode()}, empty if malformed */
+    public static TrafficCounters decode(String encoded) {
+        TrafficCounters counters = new TrafficCounters();
+        String[] fields = encoded.split(",");
+        if (fields.length != 6) {
+            return counters;
+        }
+        try {
+            counters.requests = Long.parseLong(fields[0]);
+            counters.failures = Long.parseLong(fields[1]);
+            counters.bytesSent = Long.parseLong(fields[2]);
+            counters.bytesReceived = Long.parseLong(fields[3]);
+            counters.tlsHandshakes = Long.parseLong(fields[4]);
+            counters.reusedConnections = Long.parseLong(fields[5]);
+        } catch (NumberFormatException e) {
+            return new TrafficCounters();
+        }
+        return counters;
+    }
+}
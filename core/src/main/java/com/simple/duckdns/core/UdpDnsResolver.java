@@ -0,0 +1,210 @@
+package com.simple.duckdns.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plain DNS resolver querying one server over UDP port 53, for servers
+ * without a DNS-over-HTTPS endpoint. Unlike {@link SystemDnsResolver} the
+ * question really goes to the named server. A truncated response (TC set)
+ * is asked again over TCP on the same port, as RFC 1035 says.
+ */
+public final class UdpDnsResolver implements DnsResolver {
+
+    public static final int DEFAULT_PORT = 53;
+
+    // Same budget as the quick HTTP client used for DoH
+    private static final int TIMEOUT_MILLIS =
+        (int) TimeUnit.SECONDS.toMillis(2);
+
+    private final String name;
+    private final InetAddress server;
+    private final int port;
+    private final boolean recursion;
+    private final NetworkAccounting accounting;
+
+    /**
+     * @param name Name shown in logs
+     * @param server IP literal of the DNS server
+     * @param accounting Counts each query under {@link Endpoint#DNS}, or null
+     * @throws IllegalArgumentException if server is not an IP literal
+     */
+    public UdpDnsResolver(
+        String name,
+        String server,
+        NetworkAccounting accounting
+    ) {
+        this(name, parseLiteral(server), DEFAULT_PORT, true, accounting);
+    }
+
+    /**
+     * @param name Name shown in logs
+     * @param server Server address
+     * @param port Server port, {@link #DEFAULT_PORT} outside tests
+     * @param recursion false to query authoritative servers (RD clear)
+     * @param accounting Counts each query under {@link Endpoint#DNS}, or null
+     */
+    public UdpDnsResolver(
+        String name,
+        InetAddress server,
+        int port,
+        boolean recursion,
+        NetworkAccounting accounting
+    ) {
+        this.name = name;
+        this.server = server;
+        this.port = port;
+        this.recursion = recursion;
+        this.accounting = accounting;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public DnsAnswer resolveRecord(String domain, AddressFamily family)
+        throws IOException {
+        List<DnsAnswer> answers = resolveAll(domain, family.getTypeCode());
+        return answers.isEmpty() ? null : answers.get(0);
+    }
+
+    /**
+     * @param type {@link DohJsonResolver#TYPE_A},
+     *     {@link DohJsonResolver#TYPE_AAAA} or NS (2)
+     * @return Address records or nameserver names, empty for NXDOMAIN or
+     *     no data
+     * @throws IOException on timeouts, server errors and malformed answers;
+     *     without recursion also on answers not marked authoritative
+     */
+    public List<DnsAnswer> resolveAll(String domain, int type)
+        throws IOException {
+        NetworkAccounting.Run run = accounting != null
+            ? accounting.currentRun()
+            : null;
+        int id = ThreadLocalRandom.current().nextInt(0x10000);
+        byte[] query = DnsMessage.query(id, domain, type, recursion);
+        byte[] buffer = new byte[DnsMessage.MAX_UDP_SIZE];
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        long sent = query.length;
+        long received = 0;
+        boolean failed = true;
+        try {
+            byte[] response = buffer;
+            int length = 0;
+            try (DatagramSocket socket = new DatagramSocket()) {
+                socket.setSoTimeout(TIMEOUT_MILLIS);
+                socket.send(
+                    new DatagramPacket(query, query.length, server, port)
+                );
+                while (true) {
+                    DatagramPacket packet = new DatagramPacket(
+                        buffer,
+                        buffer.length
+                    );
+                    socket.receive(packet);
+                    received += packet.getLength();
+                    // Stray or spoofed datagrams don't carry our ID, keep
+                    // waiting
+                    if (
+                        packet.getAddress().equals(server) &&
+                        DnsMessage.responseId(buffer, packet.getLength()) == id
+                    ) {
+                        length = packet.getLength();
+                        break;
+                    }
+                    socket.setSoTimeout(millisLeft(deadline));
+                }
+            }
+            if (DnsMessage.isTruncated(response)) {
+                sent += 2 + query.length;
+                response = exchangeTcp(query, deadline);
+                received += 2 + response.length;
+                length = response.length;
+                if (DnsMessage.responseId(response, length) != id) {
+                    throw new IOException("DNS response ID mismatch: " + name);
+                }
+            }
+            if (!recursion && !DnsMessage.isAuthoritative(response)) {
+                // Lame delegation or a referral
+                throw new IOException("Not authoritative: " + name);
+            }
+            List<DnsAnswer> answers = DnsMessage.parseAnswers(
+                response,
+                length,
+                type
+            );
+            failed = false;
+            return answers;
+        } finally {
+            if (accounting != null) {
+                accounting.recordCall(
+                    run,
+                    Endpoint.DNS,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    sent,
+                    received,
+                    false,
+                    false,
+                    failed
+                );
+            }
+        }
+    }
+
+    // The query again over TCP, each message with a two-byte length prefix
+    private byte[] exchangeTcp(byte[] query, long deadline) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(
+                new InetSocketAddress(server, port),
+                millisLeft(deadline)
+            );
+            socket.setSoTimeout(millisLeft(deadline));
+            DataOutputStream out = new DataOutputStream(
+                socket.getOutputStream()
+            );
+            out.writeShort(query.length);
+            out.write(query);
+            out.flush();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] response = new byte[in.readUnsignedShort()];
+            in.readFully(response);
+            return response;
+        }
+    }
+
+    private static int millisLeft(long deadline) throws IOException {
+        long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (left <= 0) {
+            throw new SocketTimeoutException("DNS query timed out");
+        }
+        return (int) left;
+    }
+
+    static InetAddress parseLiteral(String server) {
+        if (!BootstrapResolver.isIpLiteral(server)) {
+            throw new IllegalArgumentException(
+                "DNS server must be an IP address: " + server
+            );
+        }
+        try {
+            return InetAddress.getByName(server);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(
+                "Invalid DNS server address: " + server
+            );
+        }
+    }
+}
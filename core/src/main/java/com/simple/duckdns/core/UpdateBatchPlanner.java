@@ -0,0 +1,134 @@
+package com.simple.duckdns.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits a target's domains into update calls whose URLs stay under a length
+ * budget, using as few calls as it can.
+ *
+ * Chunks are packed first-fit-decreasing, which never needs more than
+ * 11/9 of the optimal number of calls plus one; within a chunk the domains
+ * keep the order they were entered in.
+ */
+public final class UpdateBatchPlanner {
+
+    /**
+     * Conservative URL length limit; common servers and proxies accept at
+     * least 8 KB, but some stop at 2 KB.
+     */
+    public static final int DEFAULT_MAX_URL_LENGTH = 2000;
+
+    private UpdateBatchPlanner() {}
+
+    /**
+     * @param updateUrl Update endpoint without query
+     * @param target What to update
+     * @param maxUrlLength Longest URL a chunk may produce
+     * @return Targets sharing the token and IP, one per update call; the
+     *     target itself if it fits in one. A domain too long for any chunk
+     *     gets one of its own.
+     */
+    public static List<UpdateTarget> plan(
+        String updateUrl,
+        UpdateTarget target,
+        int maxUrlLength
+    ) {
+        if (
+            UpdateEngine.buildUpdateUrl(updateUrl, target).length() <=
+            maxUrlLength
+        ) {
+            return Collections.singletonList(target);
+        }
+        final List<String> domains = split(target.getDomains());
+        int overhead = UpdateEngine.buildUpdateUrl(
+            updateUrl,
+            target.withDomains("")
+        ).length();
+        // Every domain costs its length plus a comma, the first one none
+        int capacity = maxUrlLength - overhead + 1;
+
+        List<Integer> bySize = new ArrayList<>(domains.size());
+        for (int i = 0; i < domains.size(); i++) {
+            bySize.add(i);
+        }
+        Collections.sort(
+            bySize,
+            new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return (
+                        domains.get(b).length() - domains.get(a).length()
+                    );
+                }
+            }
+        );
+
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> free = new ArrayList<>();
+        for (Integer index : bySize) {
+            int cost = domains.get(index).length() + 1;
+            int chunk = 0;
+            while (chunk < chunks.size() && free.get(chunk) < cost) {
+                chunk++;
+            }
+            if (chunk == chunks.size()) {
+                chunks.add(new ArrayList<Integer>());
+                free.add(capacity);
+            }
+            chunks.get(chunk).add(index);
+            free.set(chunk, free.get(chunk) - cost);
+        }
+
+        List<UpdateTarget> targets = new ArrayList<>(chunks.size());
+        for (List<Integer> chunk : chunks) {
+            Collections.sort(chunk);
+            List<String> members = new ArrayList<>(chunk.size());
+            for (Integer index : chunk) {
+                members.add(domains.get(index));
+            }
+            targets.add(target.withDomains(join(members)));
+        }
+        return targets;
+    }
+
+    /**
+     * @return The target's domains in two halves, for bisecting a rejected
+     *     call; requires at least two domains
+     */
+    public static List<UpdateTarget> halves(UpdateTarget target) {
+        List<String> domains = split(target.getDomains());
+        int middle = domains.size() / 2;
+        List<UpdateTarget> halves = new ArrayList<>(2);
+        halves.add(target.withDomains(join(domains.subList(0, middle))));
+        halves.add(
+            target.withDomains(join(domains.subList(middle, domains.size())))
+        );
+        return halves;
+    }
+
+    /** @return Domains as entered, trimmed, empty entries dropped */
+    public static List<String> split(String domains) {
+        List<String> result = new ArrayList<>();
+        for (String domain : domains.split(",")) {
+            domain = domain.trim();
+            if (!domain.isEmpty()) {
+                result.add(domain);
+            }
+        }
+        return result;
+    }
+
+    static String join(List<String> domains) {
+        StringBuilder out = new StringBuilder();
+        for (String domain : domains) {
+            if (out.length() > 0) {
+                out.append(',');
+            }
+            out.append(domain);
+        }
+        return out.toString();
+    }
+}
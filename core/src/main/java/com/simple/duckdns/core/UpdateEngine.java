@@ -0,0 +1,1578 @@
+package com.simple.duckdns.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Android-free DuckDNS update engine: public IP discovery, the smart DNS
+ * check across several resolvers, URL building and response parsing.
+ *
+ * All I/O goes through the pluggable {@link HttpTransport},
+ * {@link DnsResolver}s, {@link StateStore} and {@link UpdateLogger}, so the
+ * same engine runs in the Android worker and on a plain JVM.
+ */
+public final class UpdateEngine {
+
+    public static final String DUCKDNS_UPDATE_URL =
+        "https://www.duckdns.org/update";
+    public static final String IP_ECHO_URL = "https://v4.ident.me";
+    public static final String IP6_ECHO_URL = "https://v6.ident.me";
+
+    // DNS servers that must disagree with the target IP to trigger an
+    // update, counted per address family; see QuorumConsensus
+    public static final int MISMATCH_THRESHOLD = 2;
+
+    // State keys
+    public static final String STATE_LAST_CHECK = "last_check_millis";
+    public static final String STATE_LAST_UPDATE = "last_update_millis";
+    public static final String STATE_LAST_STATUS = "last_status";
+
+    /**
+     * Prefix of per-domain outcomes of the last update call that carried
+     * the domain, keyed by FQDN: "STATUS;epochMillis"
+     */
+    public static final String STATE_DOMAIN_STATUS_PREFIX = "domain_status.";
+
+    // Update calls of one run in flight at once
+    private static final int MAX_PARALLEL_UPDATE_CALLS = 3;
+
+    // Longest wait for a rate limit token before an echo or update call is
+    // shed; DNS queries never wait
+    private static final long RATE_LIMIT_WAIT_MILLIS =
+        TimeUnit.SECONDS.toMillis(10);
+
+    private final HttpTransport transport;
+    private final String updateUrl;
+    private final String ipEchoUrl;
+    private final String ipv6EchoUrl;
+    private final LocalAddressSource localAddresses;
+    // Swapped as a whole by setResolverSpec
+    private volatile ResolverRegistry registry;
+    private final int resolverQuorum;
+    private final ConsensusPolicy consensus;
+    private final EvidencePolicy insufficientEvidence;
+    private final AuthoritativeResolver authoritative;
+    private final PropagationTracker propagation;
+    private final Clock clock;
+    private final StateStore stateStore;
+    private final UpdateLogger logger;
+    private final LatencyRecorder latency;
+    private final Tracer tracer;
+    private final NetworkAccounting networkAccounting;
+    private final RateLimiter rateLimiter;
+    private final int maxUrlLength;
+
+    private UpdateEngine(Builder builder) {
+        this.transport = builder.transport;
+        this.updateUrl = builder.updateUrl;
+        this.ipEchoUrl = builder.ipEchoUrl;
+        this.ipv6EchoUrl = builder.ipv6EchoUrl;
+        this.localAddresses = builder.localAddresses;
+        this.clock = builder.clock;
+        this.stateStore = builder.stateStore;
+        this.logger = builder.logger;
+        this.latency = builder.latencyRecorder != null
+            ? builder.latencyRecorder
+            : new LatencyRecorder(builder.stateStore, builder.clock);
+        this.tracer = builder.tracer != null
+            ? builder.tracer
+            : new Tracer(builder.clock, null);
+        this.networkAccounting = builder.networkAccounting != null
+            ? builder.networkAccounting
+            : new NetworkAccounting(builder.stateStore, builder.clock);
+        this.rateLimiter = builder.rateLimiter != null
+            ? builder.rateLimiter
+            : new RateLimiter(builder.stateStore, builder.clock);
+        this.registry = new ResolverRegistry(
+            builder.resolvers != null
+                ? builder.resolvers
+                : parseResolvers(builder.resolverSpec),
+            builder.stateStore,
+            builder.clock
+        );
+        this.resolverQuorum = builder.resolverQuorum;
+        this.consensus = builder.consensus;
+        this.insufficientEvidence = builder.insufficientEvidence;
+        this.authoritative = builder.authoritativeCheck
+            ? new AuthoritativeResolver(
+                builder.authoritativeBootstrap,
+                builder.authoritativePort,
+                builder.stateStore,
+                builder.clock,
+                networkAccounting
+            )
+            : null;
+        this.propagation = new PropagationTracker(
+            builder.stateStore,
+            builder.clock
+        );
+        this.maxUrlLength = builder.maxUrlLength;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * DNS servers to check: Cloudflare and Google over DNS-over-HTTPS, and
+     * OpenDNS, which has no public DoH endpoint, through the system resolver.
+     */
+    public static List<DnsResolver> defaultResolvers(HttpTransport transport) {
+        return Arrays.<DnsResolver>asList(
+            new DohJsonResolver(
+                "1.1.1.1",
+                "https://1.1.1.1/dns-query",
+                transport
+            ),
+            new DohJsonResolver(
+                "8.8.8.8",
+                "https://8.8.8.8/resolve",
+                transport
+            ),
+            new SystemDnsResolver("208.67.222.222")
+        );
+    }
+
+    /** @return Every configured resolver; a check queries a subset */
+    public List<DnsResolver> getResolvers() {
+        return registry.getResolvers();
+    }
+
+    /**
+     * Replace the resolvers checks choose from, e.g. after a new list was
+     * saved. Health is kept by resolver name, so resolvers on both lists
+     * keep theirs.
+     *
+     * @param spec See {@link ResolverRegistry#parse}; blank for the defaults
+     * @throws IllegalArgumentException on an invalid entry
+     */
+    public synchronized void setResolverSpec(String spec) {
+        ResolverRegistry replaced = new ResolverRegistry(
+            parseResolvers(spec),
+            stateStore,
+            clock
+        );
+        // The new registry reads the health the old one wrote
+        registry.flush();
+        registry = replaced;
+    }
+
+    private List<DnsResolver> parseResolvers(String spec) {
+        return spec.trim().isEmpty()
+            ? defaultResolvers(transport)
+            : ResolverRegistry.parse(spec, transport, networkAccounting);
+    }
+
+    /** @return Health of the resolvers, choosing those a check queries */
+    public ResolverRegistry getResolverRegistry() {
+        return registry;
+    }
+
+    /** @return Updated records whose new address is not confirmed yet */
+    public PropagationTracker getPropagationTracker() {
+        return propagation;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public StateStore getStateStore() {
+        return stateStore;
+    }
+
+    public UpdateLogger getLogger() {
+        return logger;
+    }
+
+    /** @return Per-phase latency histograms; callers flush after a run */
+    public LatencyRecorder getLatencyRecorder() {
+        return latency;
+    }
+
+    /** @return Tracer whose spans nest under the caller's current span */
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * @return Traffic counters fed by the transport; callers bracket runs
+     *     and flush
+     */
+    public NetworkAccounting getNetworkAccounting() {
+        return networkAccounting;
+    }
+
+    /** @return Token buckets every outbound call of the engine takes from */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Start connecting to every origin a check calls, all in parallel: the
+     * DoH resolvers and the IP echoes. An echo is left out when the
+     * interfaces already tell the family's address (see
+     * {@link #findOutdated}), and so is any origin the {@link RateLimiter}
+     * would shed at this thread's priority. DuckDNS is left out as most
+     * checks never call it; an update resumes the TLS session of the last
+     * one. Does nothing unless the transport is a
+     * {@link ConnectionPrewarmer}.
+     *
+     * @param discoverIp false if the target IPv4 address is configured, which
+     *     skips the IPv4 echo
+     * @return Pending stage to {@link Prewarm#await()} before the first call
+     */
+    public Prewarm prewarm(boolean discoverIp) {
+        if (!(transport instanceof ConnectionPrewarmer)) {
+            return Prewarm.NONE;
+        }
+        Map<String, HttpRequest> origins = new LinkedHashMap<>();
+        for (DnsResolver resolver : registry.select(resolverQuorum)) {
+            if (resolver instanceof DohJsonResolver) {
+                addOrigin(
+                    origins,
+                    ((DohJsonResolver) resolver).getBaseUrl(),
+                    Endpoint.DOH
+                );
+            }
+        }
+        LocalAddresses local = LocalAddresses.read(localAddresses, logger);
+        if (discoverIp && needsEcho(local, AddressFamily.IPV4)) {
+            addOrigin(origins, ipEchoUrl, Endpoint.IP_ECHO);
+        }
+        if (ipv6EchoUrl != null && needsEcho(local, AddressFamily.IPV6)) {
+            addOrigin(origins, ipv6EchoUrl, Endpoint.IP_ECHO);
+        }
+
+        long start = latency.start();
+        List<HttpRequest> requests = new ArrayList<>(origins.values());
+        logger.debug("Pre-connecting to " + origins.keySet());
+        return new Prewarm(
+            ((ConnectionPrewarmer) transport).prewarm(requests),
+            requests.size(),
+            start,
+            latency,
+            tracer
+        );
+    }
+
+    // Whether a check detecting the family's address will ask its echo
+    private boolean needsEcho(LocalAddresses local, AddressFamily family) {
+        if (!local.isKnown()) {
+            return true;
+        }
+        if (local.pickGlobal(family, stateStore) != null) {
+            return false;
+        }
+        return family == AddressFamily.IPV4 || local.isTranslated(family);
+    }
+
+    // Keyed by scheme and authority, the request targets the origin's root.
+    // Pre-connects send no request, so they check the bucket but take no
+    // token
+    private void addOrigin(
+        Map<String, HttpRequest> origins,
+        String url,
+        Endpoint endpoint
+    ) {
+        if (
+            !rateLimiter.isAvailable(endpoint, RateLimiter.currentPriority())
+        ) {
+            return;
+        }
+        int schemeEnd = url.indexOf("://");
+        int pathStart = url.indexOf('/', schemeEnd + 3);
+        String origin = (pathStart < 0 ? url : url.substring(0, pathStart))
+            .toLowerCase(Locale.ROOT);
+        if (!origins.containsKey(origin)) {
+            origins.put(origin, HttpRequest.get(origin + "/", endpoint));
+        }
+    }
+
+    /**
+     * Run the smart DNS check and update DuckDNS only if needed.
+     *
+     * @param target What to update
+     * @param logPrefix Prefix of event log entries, e.g. "AutoUpdate"
+     * @return Outcome, skipped if DNS was already up to date
+     */
+    public UpdateResult checkAndUpdate(UpdateTarget target, String logPrefix) {
+        try (Span span = tracer.startSpan("check_and_update")) {
+            span.setAttribute("domains", target.getDomains());
+            UpdateTarget outdated = findOutdated(target, logPrefix);
+            if (outdated == null) {
+                span.setAttribute("outcome", "skipped");
+                return UpdateResult.skipped();
+            }
+            UpdateResult result = performUpdate(outdated, logPrefix);
+            span.setAttribute("outcome", result.getStatus().name());
+            if (!result.isSuccess()) {
+                span.setError(result.getMessage());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Check if DuckDNS update should be performed by comparing current/configured IP
+     * with DNS resolution results from multiple DNS servers.
+     *
+     * @param target What to update
+     * @param logPrefix Prefix of event log entries
+     * @return true if update should be performed, false if DNS is already up to date
+     */
+    public boolean shouldPerformUpdate(UpdateTarget target, String logPrefix) {
+        return findOutdated(target, logPrefix) != null;
+    }
+
+    /**
+     * Re-check the records whose propagation check is due, see
+     * {@link PropagationTracker#nextCheckMillis()}. Agreeing resolvers
+     * confirm a record; after the last re-check it is given up, so the
+     * next regular check updates it again if still outdated.
+     *
+     * @param logPrefix Prefix of event log entries
+     * @return Records re-checked
+     */
+    public int verifyPropagation(String logPrefix) {
+        List<PropagationTracker.Pending> due = propagation.due();
+        if (due.isEmpty()) {
+            return 0;
+        }
+        // Re-checks are the first traffic shed when buckets run low
+        RateLimiter.Priority priority = RateLimiter.currentPriority();
+        RateLimiter.setPriority(RateLimiter.Priority.VERIFICATION);
+        try (Span span = tracer.startSpan("propagation_check")) {
+            span.setAttribute("records", due.size());
+            List<DnsResolver> selected = registry.select(resolverQuorum);
+            for (PropagationTracker.Pending record : due) {
+                isOutdated(
+                    record.getFqdn(),
+                    record.getFamily(),
+                    record.getExpectedIp(),
+                    "propagation",
+                    selected
+                );
+                if (
+                    propagation.isTracked(record) &&
+                    !propagation.reschedule(record)
+                ) {
+                    logger.event(
+                        logPrefix +
+                            ": " +
+                            record.getFqdn() +
+                            " " +
+                            record.getFamily().getRecordType() +
+                            " " +
+                            record.getExpectedIp() +
+                            " - NOT PROPAGATED (gave up after " +
+                            PropagationTracker.MAX_CHECKS +
+                            " checks)"
+                    );
+                }
+            }
+            return due.size();
+        } finally {
+            RateLimiter.setPriority(priority);
+            registry.flush();
+        }
+    }
+
+    /**
+     * Run the smart DNS check of the A and AAAA records, both families
+     * concurrently, each with its own address and mismatch vote.
+     *
+     * A family's address is the configured one, else a global address of
+     * the host's interfaces ({@link AddressScope#GLOBAL}), else the IP echo
+     * when the family sits behind NAT (private, CGNAT or ULA addresses).
+     * IPv4 always falls back to the echo; IPv6 without a global or ULA
+     * address means no IPv6 connectivity and skips the family, as does a
+     * failed IPv6 echo.
+     *
+     * Both families query the same resolvers, the fastest healthy quorum
+     * chosen by the {@link ResolverRegistry} for this check, and decide
+     * with the {@link ConsensusPolicy}. With the authoritative check on, the
+     * zone's nameservers decide instead whenever they answer.
+     *
+     * @param target What to update
+     * @param logPrefix Prefix of event log entries
+     * @return Target carrying the address of every checked family if either
+     *     is outdated, so one call updates both; null if DNS is up to date
+     */
+    private UpdateTarget findOutdated(
+        final UpdateTarget target,
+        String logPrefix
+    ) {
+        long checkStart = latency.start();
+        Span span = tracer.startSpan(LatencyRecorder.PHASE_DNS_CHECK);
+        try {
+            stateStore.putLong(STATE_LAST_CHECK, clock.currentTimeMillis());
+            final List<DnsResolver> selected = registry.select(
+                resolverQuorum
+            );
+            logger.debug("Querying resolvers " + names(selected));
+            LocalAddresses local = null;
+            List<Callable<FamilyCheck>> checks = new ArrayList<>(2);
+            for (final AddressFamily family : AddressFamily.values()) {
+                IpAddress localIp = null;
+                if (target.getIp(family).isEmpty()) {
+                    if (local == null) {
+                        local = LocalAddresses.read(localAddresses, logger);
+                    }
+                    if (local.isKnown()) {
+                        localIp = local.pickGlobal(family, stateStore);
+                    }
+                    if (
+                        family == AddressFamily.IPV6 &&
+                        localIp == null &&
+                        (ipv6EchoUrl == null ||
+                            (local.isKnown() && !local.isTranslated(family)))
+                    ) {
+                        logger.debug("No IPv6 connectivity, skipping AAAA");
+                        continue;
+                    }
+                }
+                final IpAddress knownIp = localIp;
+                checks.add(
+                    new Callable<FamilyCheck>() {
+                        @Override
+                        public FamilyCheck call() {
+                            return checkFamily(
+                                target,
+                                family,
+                                knownIp,
+                                selected
+                            );
+                        }
+                    }
+                );
+            }
+
+            boolean outdated = false;
+            String ip = target.getIp();
+            String ipv6 = target.getIpv6();
+            List<String> checked = new ArrayList<>(2);
+            for (Future<FamilyCheck> future : ParallelUpdates.runAll(
+                this,
+                checks,
+                checks.size(),
+                "family_check",
+                "duckdns-family"
+            )) {
+                FamilyCheck check;
+                try {
+                    check = future.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception
+                        ? (Exception) e.getCause()
+                        : e;
+                }
+                outdated |= check.outdated;
+                if (check.address == null) {
+                    continue;
+                }
+                checked.add(check.address);
+                if (check.family == AddressFamily.IPV6) {
+                    ipv6 = check.address;
+                } else {
+                    ip = check.address;
+                }
+            }
+            if (outdated) {
+                return target.withIps(ip, ipv6);
+            }
+
+            // All domains are up to date
+            logger.event(
+                logPrefix +
+                    ": " +
+                    target.getDomains() +
+                    " - SKIPPED (DNS already up to date with IP: " +
+                    UpdateBatchPlanner.join(checked) +
+                    ")"
+            );
+            logger.debug("DNS already up to date, skipping update");
+            return null;
+        } catch (Exception e) {
+            logger.error(
+                "Error checking if update needed: " + e.getMessage(),
+                e
+            );
+            span.setError(e.toString());
+            return target; // On error, proceed with update to be safe
+        } finally {
+            registry.flush();
+            latency.record(LatencyRecorder.PHASE_DNS_CHECK, checkStart);
+            span.end();
+        }
+    }
+
+    private static List<String> names(List<DnsResolver> resolvers) {
+        List<String> names = new ArrayList<>(resolvers.size());
+        for (DnsResolver resolver : resolvers) {
+            names.add(resolver.getName());
+        }
+        return names;
+    }
+
+    /**
+     * One family's address and vote over every domain.
+     *
+     * @param localIp Global interface address, null to ask the IP echo
+     * @param selected Resolvers chosen for this check
+     */
+    private FamilyCheck checkFamily(
+        UpdateTarget target,
+        AddressFamily family,
+        IpAddress localIp,
+        List<DnsResolver> selected
+    ) {
+        String configured = target.getIp(family);
+        IpAddress targetIp;
+        String source = "configured";
+
+        if (configured.isEmpty() && localIp != null) {
+            // Case A: global interface address, no request needed
+            targetIp = localIp;
+            source = "interface";
+            logger.debug("Using interface " + family + ": " + targetIp);
+        } else if (configured.isEmpty()) {
+            // Case B: No IP configured - get current public IP
+            source = "echo";
+            logger.debug(
+                "No " + family + " configured, getting current public IP"
+            );
+            targetIp = discoverPublicIp(family);
+
+            if (targetIp == null) {
+                if (family == AddressFamily.IPV6) {
+                    logger.debug("No public IPv6, skipping the AAAA check");
+                    return new FamilyCheck(family, null, false);
+                }
+                // If we can't get IP, proceed with update
+                logger.warn("Failed to get public IP, proceeding with update");
+                return new FamilyCheck(family, null, true);
+            }
+
+            logger.debug("Current public " + family + ": " + targetIp);
+        } else {
+            // Case C: IP is configured
+            targetIp = IpAddress.parse(configured);
+            if (targetIp == null || targetIp.getFamily() != family) {
+                // Nothing to compare, DuckDNS decides whether it is valid
+                logger.warn(
+                    "Configured " +
+                        family +
+                        " " +
+                        configured +
+                        " is not a valid address, proceeding with update"
+                );
+                return new FamilyCheck(family, configured, true);
+            }
+            logger.debug("Using configured " + family + ": " + targetIp);
+        }
+
+        // Check each normalized domain
+        String address = targetIp.toString();
+        for (String fullDomain : target.getFqdns()) {
+            if (isOutdated(fullDomain, family, targetIp, source, selected)) {
+                return new FamilyCheck(family, address, true);
+            }
+        }
+        return new FamilyCheck(family, address, false);
+    }
+
+    private static final class FamilyCheck {
+
+        final AddressFamily family;
+        // Configured or detected address, null if detection failed
+        final String address;
+        final boolean outdated;
+
+        FamilyCheck(AddressFamily family, String address, boolean outdated) {
+            this.family = family;
+            this.address = address;
+            this.outdated = outdated;
+        }
+    }
+
+    /**
+     * Vote on one record: the authoritative answer when enabled and
+     * reachable, else the selected resolvers queried fastest first until
+     * the consensus can no longer change.
+     */
+    private boolean isOutdated(
+        String fullDomain,
+        AddressFamily family,
+        IpAddress targetIp,
+        String source,
+        List<DnsResolver> selected
+    ) {
+        Span decision = tracer.startSpan("decision")
+            .setAttribute("domain", fullDomain)
+            .setAttribute("family", family.getRecordType())
+            .setAttribute("target_ip", targetIp.toString())
+            .setAttribute("ip_source", source);
+        // An unreachable nameserver (UDP blocked) opens its breaker, so
+        // the fallback doesn't wait for a timeout on every check
+        if (authoritative != null && registry.isAvailable(authoritative)) {
+            try {
+                DnsAnswer record = query(authoritative, fullDomain, family);
+                IpAddress answer = record != null ? record.getIp() : null;
+                boolean needed = !targetIp.equals(answer);
+                if (record != null) {
+                    propagation.observeTtl(
+                        fullDomain,
+                        family,
+                        record.getTtlSeconds()
+                    );
+                }
+                // No cache in between, a mismatch is never propagation lag
+                if (!needed) {
+                    confirmPropagation(fullDomain, family, targetIp);
+                } else {
+                    logger.debug(
+                        "Update needed: authoritative " +
+                            family.getRecordType() +
+                            " for " +
+                            fullDomain +
+                            " is " +
+                            answer
+                    );
+                }
+                decision
+                    .setAttribute("verification", AuthoritativeResolver.NAME)
+                    .setAttribute("update", needed)
+                    .end();
+                return needed;
+            } catch (Exception e) {
+                // Logged by query, the recursive resolvers decide
+            }
+        }
+        decision.setAttribute("verification", "consensus");
+        int totalWeight = 0;
+        for (DnsResolver resolver : selected) {
+            totalWeight += consensus.weight(resolver);
+        }
+        ConsensusTally tally = new ConsensusTally(totalWeight);
+        ConsensusPolicy.Verdict verdict = ConsensusPolicy.Verdict.UNDECIDED;
+        List<IpAddress> answers = new ArrayList<>(selected.size());
+
+        for (DnsResolver resolver : selected) {
+            IpAddress answer = null;
+            ConsensusTally.Vote vote;
+            try {
+                DnsAnswer record = query(resolver, fullDomain, family);
+                if (record != null) {
+                    answer = record.getIp();
+                    propagation.observeTtl(
+                        fullDomain,
+                        family,
+                        record.getTtlSeconds()
+                    );
+                }
+                if (answer == null) {
+                    vote = ConsensusTally.Vote.NO_ANSWER;
+                } else if (answer.equals(targetIp)) {
+                    vote = ConsensusTally.Vote.MATCH;
+                } else {
+                    vote = ConsensusTally.Vote.MISMATCH;
+                    logger.debug(
+                        "DNS mismatch for " +
+                            fullDomain +
+                            ": got " +
+                            answer +
+                            ", expected " +
+                            targetIp
+                    );
+                }
+            } catch (Exception e) {
+                vote = ConsensusTally.Vote.FAILED;
+            }
+            answers.add(answer);
+            tally.add(vote, consensus.weight(resolver));
+            verdict = consensus.evaluate(tally);
+            if (verdict != ConsensusPolicy.Verdict.UNDECIDED) {
+                break;
+            }
+        }
+        recordAgreement(selected, answers);
+        if (verdict == ConsensusPolicy.Verdict.UNDECIDED) {
+            // Nothing left to ask
+            verdict = ConsensusPolicy.Verdict.INSUFFICIENT_EVIDENCE;
+        }
+
+        boolean needed = verdict == ConsensusPolicy.Verdict.OUTDATED;
+        if (verdict == ConsensusPolicy.Verdict.UP_TO_DATE) {
+            confirmPropagation(fullDomain, family, targetIp);
+        } else if (propagation.isPending(fullDomain, family, targetIp)) {
+            // Updated to this very address, the resolvers still cache the
+            // old record; updating again changes nothing
+            logger.debug(
+                "Propagation of " +
+                    family.getRecordType() +
+                    " " +
+                    targetIp +
+                    " for " +
+                    fullDomain +
+                    " pending (" +
+                    tally +
+                    "), not updating again"
+            );
+            decision.setAttribute("suppressed", "propagation_pending");
+            needed = false;
+        } else if (verdict == ConsensusPolicy.Verdict.INSUFFICIENT_EVIDENCE) {
+            needed = insufficientEvidence == EvidencePolicy.UPDATE;
+            logger.warn(
+                "Insufficient DNS evidence for " +
+                    fullDomain +
+                    " " +
+                    family.getRecordType() +
+                    " (" +
+                    tally +
+                    "), " +
+                    (needed ? "updating" : "skipping")
+            );
+        } else if (needed) {
+            logger.debug(
+                "Update needed: DNS servers have outdated " +
+                    family.getRecordType() +
+                    " for " +
+                    fullDomain +
+                    " (" +
+                    tally +
+                    ")"
+            );
+        }
+        decision
+            .setAttribute("verdict", verdict.name())
+            .setAttribute("mismatches", tally.get(ConsensusTally.Vote.MISMATCH))
+            .setAttribute("queried", answers.size())
+            .setAttribute("update", needed)
+            .end();
+        return needed;
+    }
+
+    // The check agrees with the target; ends a pending propagation
+    private void confirmPropagation(
+        String fullDomain,
+        AddressFamily family,
+        IpAddress targetIp
+    ) {
+        long millis = propagation.confirm(fullDomain, family, targetIp);
+        if (millis < 0) {
+            return;
+        }
+        latency.recordMicros(
+            LatencyRecorder.PHASE_PROPAGATION,
+            TimeUnit.MILLISECONDS.toMicros(millis)
+        );
+        logger.event(
+            fullDomain +
+                " " +
+                family.getRecordType() +
+                " " +
+                targetIp +
+                " - PROPAGATED (" +
+                TimeUnit.MILLISECONDS.toSeconds(millis) +
+                " s after update)"
+        );
+    }
+
+    /**
+     * Get current public IP address from v4.ident.me
+     *
+     * @return Public IP address or null if failed
+     */
+    public String getCurrentPublicIp() {
+        return getCurrentPublicIp(AddressFamily.IPV4);
+    }
+
+    /**
+     * Get the current public address of one family from its IP echo.
+     *
+     * @return Public address, or null if failed or IPv6 detection is off
+     */
+    public String getCurrentPublicIp(AddressFamily family) {
+        IpAddress ip = discoverPublicIp(family);
+        return ip != null ? ip.toString() : null;
+    }
+
+    // Echo answers that are no address of the family count as failures
+    private IpAddress discoverPublicIp(AddressFamily family) {
+        String echoUrl = family == AddressFamily.IPV6
+            ? ipv6EchoUrl
+            : ipEchoUrl;
+        if (echoUrl == null) {
+            return null;
+        }
+        if (
+            !rateLimiter.acquire(
+                Endpoint.IP_ECHO,
+                RateLimiter.currentPriority(),
+                RATE_LIMIT_WAIT_MILLIS
+            )
+        ) {
+            logger.warn("Rate limited, not asking " + echoUrl);
+            return null;
+        }
+        String phase = family == AddressFamily.IPV6
+            ? LatencyRecorder.PHASE_IP6_DISCOVERY
+            : LatencyRecorder.PHASE_IP_DISCOVERY;
+        long start = latency.start();
+        Span span = tracer.startSpan(phase);
+        try {
+            HttpResponse response = transport.execute(
+                HttpRequest.get(echoUrl, Endpoint.IP_ECHO)
+            );
+            setHttpAttributes(span, response);
+            if (!response.isSuccessful()) {
+                span.setError("HTTP " + response.getCode());
+                return null;
+            }
+            IpAddress ip = IpAddress.parse(response.getBody());
+            if (ip == null || ip.getFamily() != family) {
+                logger.warn("No " + family + " address from " + echoUrl);
+                span.setError("Invalid address");
+                return null;
+            }
+            logger.debug("Got public IP from " + echoUrl + ": " + ip);
+            span.setAttribute("ip", ip.toString());
+            return ip;
+        } catch (Exception e) {
+            logger.warn(
+                "Failed to get public " + family + ": " + e.getMessage()
+            );
+            span.setError(e.toString());
+        } finally {
+            latency.record(phase, start);
+            span.end();
+        }
+        return null;
+    }
+
+    /**
+     * Resolve domain using multiple DNS servers
+     *
+     * @param domain Domain to resolve (e.g., mydomain.duckdns.org)
+     * @return List of IP addresses resolved by each DNS server (may contain nulls)
+     */
+    public List<String> resolveDomainOnDnsServers(String domain) {
+        return resolveDomainOnDnsServers(domain, AddressFamily.IPV4);
+    }
+
+    /**
+     * Resolve the A or AAAA record of a domain on the DNS servers the
+     * {@link ResolverRegistry} selects.
+     *
+     * @return Address from each DNS server, in resolver order (may contain
+     *     nulls)
+     */
+    public List<String> resolveDomainOnDnsServers(
+        String domain,
+        AddressFamily family
+    ) {
+        try {
+            return resolveOn(registry.select(resolverQuorum), domain, family);
+        } finally {
+            registry.flush();
+        }
+    }
+
+    // Queries one resolver after the other, null for failed queries
+    private List<String> resolveOn(
+        List<DnsResolver> resolvers,
+        String domain,
+        AddressFamily family
+    ) {
+        List<String> results = new ArrayList<>(resolvers.size());
+        for (DnsResolver resolver : resolvers) {
+            String resolvedIp = null;
+            try {
+                DnsAnswer answer = query(resolver, domain, family);
+                resolvedIp = answer != null ? answer.getAddress() : null;
+            } catch (Exception e) {
+                // Logged by query
+            }
+            results.add(resolvedIp);
+        }
+        return results;
+    }
+
+    /**
+     * Query one resolver, feeding its latency and outcome to the registry.
+     * Queries the {@link RateLimiter} sheds fail without counting against
+     * the resolver, so their votes abstain.
+     *
+     * @return First record with its TTL, or null if the name has none of
+     *     that family
+     * @throws Exception if the query failed or was shed
+     */
+    private DnsAnswer query(
+        DnsResolver resolver,
+        String domain,
+        AddressFamily family
+    ) throws Exception {
+        if (
+            !rateLimiter.tryAcquire(
+                resolver instanceof DohJsonResolver
+                    ? Endpoint.DOH
+                    : Endpoint.DNS,
+                RateLimiter.currentPriority()
+            )
+        ) {
+            logger.debug(
+                "Rate limited, not querying DNS " + resolver.getName()
+            );
+            throw new IOException("Rate limited");
+        }
+        // Separate histograms for AAAA, e.g. "resolver:1.1.1.1/AAAA"
+        String phaseSuffix = family == AddressFamily.IPV6
+            ? "/" + family.getRecordType()
+            : "";
+        boolean failed = false;
+        long start = latency.start();
+        Span span = tracer.startSpan("resolver_query")
+            .setAttribute("resolver", resolver.getName())
+            .setAttribute("domain", domain)
+            .setAttribute("family", family.getRecordType());
+        try {
+            DnsAnswer answer = resolver.resolveRecord(domain, family);
+            String resolvedIp = answer != null ? answer.getAddress() : null;
+            span.setAttribute("answer", resolvedIp);
+            if (answer != null) {
+                span.setAttribute("ttl", answer.getTtlSeconds());
+                logger.debug(
+                    "DNS " +
+                        resolver.getName() +
+                        " resolved " +
+                        domain +
+                        " to " +
+                        resolvedIp
+                );
+            } else {
+                logger.debug(
+                    "DNS " + resolver.getName() + " has no record for " + domain
+                );
+            }
+            return answer;
+        } catch (Exception e) {
+            failed = true;
+            span.setError(e.toString());
+            logger.debug(
+                "Failed to resolve " +
+                    domain +
+                    " with DNS " +
+                    resolver.getName() +
+                    ": " +
+                    e.getMessage()
+            );
+            throw e;
+        } finally {
+            long micros = latency.record(
+                LatencyRecorder.PHASE_RESOLVER_PREFIX +
+                    resolver.getName() +
+                    phaseSuffix,
+                start
+            );
+            registry.record(resolver, micros, failed);
+            span.end();
+        }
+    }
+
+    // Answers against their strict majority, for the resolvers' staleness
+    private void recordAgreement(
+        List<DnsResolver> resolvers,
+        List<IpAddress> answers
+    ) {
+        Map<IpAddress, Integer> counts = new LinkedHashMap<>();
+        int answered = 0;
+        for (IpAddress answer : answers) {
+            if (answer != null) {
+                Integer count = counts.get(answer);
+                counts.put(answer, count == null ? 1 : count + 1);
+                answered++;
+            }
+        }
+        IpAddress majority = null;
+        for (Map.Entry<IpAddress, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() * 2 > answered) {
+                majority = entry.getKey();
+            }
+        }
+        if (majority == null || answered < 2) {
+            return;
+        }
+        for (int i = 0; i < answers.size(); i++) {
+            if (answers.get(i) != null) {
+                registry.recordAgreement(
+                    resolvers.get(i),
+                    majority.equals(answers.get(i))
+                );
+            }
+        }
+    }
+
+    /**
+     * Build the DuckDNS update URL.
+     *
+     * @param target What to update
+     * @return Update URL including the token
+     */
+    public static String buildUpdateUrl(UpdateTarget target) {
+        return buildUpdateUrl(DUCKDNS_UPDATE_URL, target);
+    }
+
+    /**
+     * @param updateUrl Update endpoint without query
+     * @param target What to update
+     * @return Update URL including the token
+     */
+    public static String buildUpdateUrl(String updateUrl, UpdateTarget target) {
+        StringBuilder urlBuilder = new StringBuilder(
+            updateUrl.length() + 64 + target.getDomains().length()
+        );
+        urlBuilder
+            .append(updateUrl)
+            .append("?domains=")
+            .append(target.getDomains())
+            .append("&token=")
+            .append(target.getToken());
+        for (AddressFamily family : AddressFamily.values()) {
+            String ip = target.getIp(family);
+            if (!ip.isEmpty()) {
+                urlBuilder
+                    .append('&')
+                    .append(family.getUpdateParam())
+                    .append('=')
+                    .append(ip);
+            }
+        }
+        return urlBuilder.toString();
+    }
+
+    // Sanitized URL for logs, without exposing the token
+    static String sanitizeUrl(String url) {
+        return url.replaceAll("token=[^&]*", "token=***");
+    }
+
+    /**
+     * Call the DuckDNS update API and classify the response.
+     *
+     * Domains that don't fit one URL are split into several calls
+     * ({@link UpdateBatchPlanner}) sent concurrently. A call answered KO is
+     * bisected to isolate the rejected domain; each domain's outcome is kept
+     * under {@link #STATE_DOMAIN_STATUS_PREFIX}.
+     *
+     * @param target What to update
+     * @param logPrefix Prefix of event log entries
+     * @return Classified outcome with a short status message, "KO: domains"
+     *     naming the rejected domains when they could be isolated
+     */
+    public UpdateResult performUpdate(
+        UpdateTarget target,
+        final String logPrefix
+    ) {
+        List<UpdateTarget> chunks = UpdateBatchPlanner.plan(
+            updateUrl,
+            target,
+            maxUrlLength
+        );
+        if (chunks.size() > 1) {
+            logger.debug(
+                "Splitting " +
+                    target.getFqdns().size() +
+                    " domains into " +
+                    chunks.size() +
+                    " update calls"
+            );
+        }
+        final Map<String, UpdateResult> byDomain = Collections.synchronizedMap(
+            new LinkedHashMap<String, UpdateResult>()
+        );
+        List<Callable<UpdateResult>> calls = new ArrayList<>(chunks.size());
+        for (final UpdateTarget chunk : chunks) {
+            calls.add(
+                new Callable<UpdateResult>() {
+                    @Override
+                    public UpdateResult call() {
+                        return sendBatch(chunk, logPrefix, byDomain);
+                    }
+                }
+            );
+        }
+        List<UpdateResult> results = ParallelUpdates.invokeAll(
+            this,
+            calls,
+            MAX_PARALLEL_UPDATE_CALLS,
+            "update_batch",
+            "duckdns-update"
+        );
+
+        UpdateResult result = combine(results, byDomain);
+        recordUpdate(result.getStatus());
+        if (result.isSuccess()) {
+            propagation.track(target);
+        }
+        return result;
+    }
+
+    /**
+     * Send one planned call. On KO, send both halves (concurrently) and
+     * recurse into the half that is still rejected, so one bad domain among
+     * n is found in about 2 log2(n) extra calls while the good ones get
+     * updated on the way. When both halves are rejected, the token or
+     * several domains are bad and bisecting stops there.
+     */
+    private UpdateResult sendBatch(
+        UpdateTarget batch,
+        String logPrefix,
+        Map<String, UpdateResult> byDomain
+    ) {
+        UpdateResult result = sendUpdate(batch, logPrefix);
+        if (result.getStatus() == UpdateStatus.KO) {
+            result = isolateRejected(batch, logPrefix, byDomain);
+        } else {
+            recordDomains(batch, result, byDomain);
+        }
+        return result;
+    }
+
+    // The batch was just answered KO
+    private UpdateResult isolateRejected(
+        UpdateTarget rejected,
+        final String logPrefix,
+        Map<String, UpdateResult> byDomain
+    ) {
+        final UpdateResult ko = UpdateResult.of(UpdateStatus.KO, "KO");
+        if (rejected.getFqdns().size() < 2) {
+            recordDomains(rejected, ko, byDomain);
+            return ko;
+        }
+        List<UpdateTarget> halves = UpdateBatchPlanner.halves(rejected);
+        List<Callable<UpdateResult>> calls = new ArrayList<>(2);
+        for (final UpdateTarget half : halves) {
+            calls.add(
+                new Callable<UpdateResult>() {
+                    @Override
+                    public UpdateResult call() {
+                        return sendUpdate(half, logPrefix + " (bisect)");
+                    }
+                }
+            );
+        }
+        List<UpdateResult> results = ParallelUpdates.invokeAll(
+            this,
+            calls,
+            2,
+            "bisect",
+            "duckdns-bisect"
+        );
+
+        boolean leftKo = results.get(0).getStatus() == UpdateStatus.KO;
+        boolean rightKo = results.get(1).getStatus() == UpdateStatus.KO;
+        if (leftKo && rightKo) {
+            recordDomains(rejected, ko, byDomain);
+            return ko;
+        }
+        for (int i = 0; i < 2; i++) {
+            if (results.get(i).getStatus() == UpdateStatus.KO) {
+                isolateRejected(halves.get(i), logPrefix, byDomain);
+            } else {
+                recordDomains(halves.get(i), results.get(i), byDomain);
+            }
+        }
+        return ko;
+    }
+
+    private void recordDomains(
+        UpdateTarget batch,
+        UpdateResult result,
+        Map<String, UpdateResult> byDomain
+    ) {
+        String value =
+            result.getStatus().name() + ";" + clock.currentTimeMillis();
+        for (String fqdn : batch.getFqdns()) {
+            byDomain.put(fqdn, result);
+            stateStore.put(
+                STATE_DOMAIN_STATUS_PREFIX + fqdn.toLowerCase(Locale.ROOT),
+                value
+            );
+        }
+    }
+
+    /**
+     * Outcome of all calls: the first retryable failure, else KO naming the
+     * rejected domains if only some were, else the first result.
+     */
+    private static UpdateResult combine(
+        List<UpdateResult> results,
+        Map<String, UpdateResult> byDomain
+    ) {
+        for (UpdateResult result : results) {
+            if (result.getStatus().isRetryable()) {
+                return result;
+            }
+        }
+        List<String> rejected = new ArrayList<>();
+        synchronized (byDomain) {
+            for (Map.Entry<String, UpdateResult> entry : byDomain.entrySet()) {
+                if (entry.getValue().getStatus() == UpdateStatus.KO) {
+                    rejected.add(entry.getKey());
+                }
+            }
+            if (!rejected.isEmpty() && rejected.size() < byDomain.size()) {
+                return UpdateResult.of(
+                    UpdateStatus.KO,
+                    "KO: " + UpdateBatchPlanner.join(rejected)
+                );
+            }
+        }
+        for (UpdateResult result : results) {
+            if (!result.isSuccess()) {
+                return result;
+            }
+        }
+        return results.get(0);
+    }
+
+    /**
+     * @param fqdn Domain as checked, e.g. "myhome.duckdns.org"
+     * @return Status of the last update call that carried the domain, null
+     *     if none did
+     */
+    public UpdateStatus getDomainStatus(String fqdn) {
+        String value = stateStore.get(
+            STATE_DOMAIN_STATUS_PREFIX + fqdn.toLowerCase(Locale.ROOT),
+            ""
+        );
+        int separator = value.indexOf(';');
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            return UpdateStatus.valueOf(value.substring(0, separator));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // One update call, classified and logged
+    private UpdateResult sendUpdate(UpdateTarget target, String logPrefix) {
+        String domains = target.getDomains();
+        if (
+            !rateLimiter.acquire(
+                Endpoint.DUCKDNS_UPDATE,
+                RateLimiter.currentPriority(),
+                RATE_LIMIT_WAIT_MILLIS
+            )
+        ) {
+            logger.event(
+                logPrefix + ": " + domains + " - FAILED (rate limited)"
+            );
+            return UpdateResult.of(UpdateStatus.RATE_LIMITED, "Rate limited");
+        }
+        try {
+            logger.debug("Starting DuckDNS update for domains: " + domains);
+
+            String url = buildUpdateUrl(updateUrl, target);
+            logger.debug("Constructed URL: " + sanitizeUrl(url));
+
+            long start = latency.start();
+            Span span = tracer.startSpan(LatencyRecorder.PHASE_UPDATE_CALL)
+                .setAttribute("domains", domains);
+            HttpResponse response;
+            try {
+                response = transport.execute(
+                    HttpRequest.get(url, Endpoint.DUCKDNS_UPDATE)
+                );
+                setHttpAttributes(span, response);
+            } catch (Exception e) {
+                span.setError(e.toString());
+                throw e;
+            } finally {
+                latency.record(LatencyRecorder.PHASE_UPDATE_CALL, start);
+                span.end();
+            }
+            int responseCode = response.getCode();
+            String responseBody = response.getBody();
+            logger.debug("HTTP Response Code: " + responseCode);
+            logger.debug("Response body: " + responseBody);
+
+            // Determine success based on response code and body content
+            UpdateStatus status = UpdateStatus.fromResponse(
+                responseCode,
+                responseBody
+            );
+            String statusMessage;
+            if (status == UpdateStatus.KO) {
+                statusMessage = "KO";
+            } else if (status.isSuccess() && responseBody.contains("OK")) {
+                statusMessage = "OK";
+            } else {
+                statusMessage = "HTTP " + responseCode;
+            }
+
+            // Create compact log message without token
+            String ipInfo = "";
+            if (target.hasIp() || target.hasIpv6()) {
+                List<String> ips = new ArrayList<>(2);
+                for (AddressFamily family : AddressFamily.values()) {
+                    if (!target.getIp(family).isEmpty()) {
+                        ips.add(target.getIp(family));
+                    }
+                }
+                ipInfo = " [IP: " + UpdateBatchPlanner.join(ips) + "]";
+            }
+            logger.event(
+                logPrefix +
+                    ": " +
+                    domains +
+                    ipInfo +
+                    " - " +
+                    (status.isSuccess() ? "SUCCESS" : "FAILED") +
+                    " (" +
+                    statusMessage +
+                    ")"
+            );
+
+            logger.debug("Update completed with status: " + status);
+            return UpdateResult.of(status, statusMessage);
+        } catch (Exception e) {
+            logger.error("Exception in performUpdate: " + e.getMessage(), e);
+            logger.event(domains + " - ERROR: " + e.getMessage());
+            return UpdateResult.of(
+                UpdateStatus.fromException(e),
+                e.getMessage()
+            );
+        }
+    }
+
+    /**
+     * Tag a span with the HTTP status and response size, for
+     * transports and resolvers running inside a traced phase.
+     */
+    public static void setHttpAttributes(Span span, HttpResponse response) {
+        span.setAttribute("http.status_code", response.getCode());
+        span.setAttribute("http.response_bytes", utf8Length(response.getBody()));
+    }
+
+    private static long utf8Length(String body) {
+        long bytes = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private void recordUpdate(UpdateStatus status) {
+        stateStore.put(STATE_LAST_STATUS, status.name());
+        if (status.isSuccess()) {
+            stateStore.putLong(STATE_LAST_UPDATE, clock.currentTimeMillis());
+        }
+    }
+
+    public static final class Builder {
+
+        private HttpTransport transport;
+        private String updateUrl = DUCKDNS_UPDATE_URL;
+        private String ipEchoUrl = IP_ECHO_URL;
+        private String ipv6EchoUrl = IP6_ECHO_URL;
+        private LocalAddressSource localAddresses = LocalAddressSource.SYSTEM;
+        private List<DnsResolver> resolvers;
+        private String resolverSpec = "";
+        private int resolverQuorum = ResolverRegistry.DEFAULT_QUORUM;
+        private ConsensusPolicy consensus = QuorumConsensus.DEFAULT;
+        private EvidencePolicy insufficientEvidence = EvidencePolicy.UPDATE;
+        private boolean authoritativeCheck;
+        private String authoritativeBootstrap =
+            AuthoritativeResolver.DEFAULT_BOOTSTRAP;
+        private int authoritativePort = UdpDnsResolver.DEFAULT_PORT;
+        private Clock clock = Clock.SYSTEM;
+        private StateStore stateStore = new InMemoryStateStore();
+        private UpdateLogger logger;
+        private LatencyRecorder latencyRecorder;
+        private Tracer tracer;
+        private NetworkAccounting networkAccounting;
+        private RateLimiter rateLimiter;
+        private int maxUrlLength = UpdateBatchPlanner.DEFAULT_MAX_URL_LENGTH;
+
+        private Builder() {}
+
+        public Builder transport(HttpTransport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        /** DuckDNS update endpoint, replaced by simulations */
+        public Builder updateUrl(String updateUrl) {
+            this.updateUrl = updateUrl;
+            return this;
+        }
+
+        /** Public IP echo endpoint, replaced by simulations */
+        public Builder ipEchoUrl(String ipEchoUrl) {
+            this.ipEchoUrl = ipEchoUrl;
+            return this;
+        }
+
+        /**
+         * @param ipv6EchoUrl IPv6 echo endpoint, null to detect IPv6 from the
+         *     interfaces only
+         */
+        public Builder ipv6EchoUrl(String ipv6EchoUrl) {
+            this.ipv6EchoUrl = ipv6EchoUrl;
+            return this;
+        }
+
+        /**
+         * Interfaces consulted before the IP echoes, {@link
+         * LocalAddressSource#NONE} to always ask the echoes
+         */
+        public Builder localAddresses(LocalAddressSource localAddresses) {
+            this.localAddresses = localAddresses;
+            return this;
+        }
+
+        /** Longest update URL before domains are split across calls */
+        public Builder maxUrlLength(int maxUrlLength) {
+            this.maxUrlLength = maxUrlLength;
+            return this;
+        }
+
+        /** Resolvers for the DNS check, defaults to {@link #defaultResolvers} */
+        public Builder resolvers(List<DnsResolver> resolvers) {
+            this.resolvers = resolvers;
+            return this;
+        }
+
+        /**
+         * Resolvers as listed by the user, see
+         * {@link ResolverRegistry#parse}; ignored when {@link #resolvers}
+         * is set, blank for the defaults
+         */
+        public Builder resolverSpec(String resolverSpec) {
+            this.resolverSpec = resolverSpec != null ? resolverSpec : "";
+            return this;
+        }
+
+        /**
+         * Healthy resolvers queried per check, at least
+         * {@link UpdateEngine#MISMATCH_THRESHOLD} so they can outvote a stale
+         * record
+         */
+        public Builder resolverQuorum(int resolverQuorum) {
+            this.resolverQuorum = Math.max(MISMATCH_THRESHOLD, resolverQuorum);
+            return this;
+        }
+
+        /** Vote on each record, defaults to {@link QuorumConsensus#DEFAULT} */
+        public Builder consensus(ConsensusPolicy consensus) {
+            this.consensus = consensus;
+            return this;
+        }
+
+        /**
+         * What to do when too few resolvers answered, defaults to
+         * {@link EvidencePolicy#UPDATE}
+         */
+        public Builder insufficientEvidence(EvidencePolicy insufficientEvidence) {
+            this.insufficientEvidence = insufficientEvidence;
+            return this;
+        }
+
+        /**
+         * Ask the zone's authoritative nameservers first, bypassing the
+         * recursive resolvers' caches; off by default
+         */
+        public Builder authoritativeCheck(boolean authoritativeCheck) {
+            this.authoritativeCheck = authoritativeCheck;
+            return this;
+        }
+
+        /**
+         * Recursive server of the NS lookups and port of every server of the
+         * authoritative check, replaced by simulations with a local stub
+         */
+        public Builder authoritativeBootstrap(String server, int port) {
+            this.authoritativeBootstrap = server;
+            this.authoritativePort = port;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public Builder stateStore(StateStore stateStore) {
+            this.stateStore = stateStore;
+            return this;
+        }
+
+        public Builder logger(UpdateLogger logger) {
+            this.logger = logger;
+            return this;
+        }
+
+        /** Latency histograms, defaults to one persisted in the state store */
+        public Builder latencyRecorder(LatencyRecorder latencyRecorder) {
+            this.latencyRecorder = latencyRecorder;
+            return this;
+        }
+
+        /** Run tracing, defaults to a tracer that drops finished traces */
+        public Builder tracer(Tracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        /**
+         * Traffic counters, defaults to ones persisted in the state store.
+         * Pass the instance the transport reports to.
+         */
+        public Builder networkAccounting(NetworkAccounting networkAccounting) {
+            this.networkAccounting = networkAccounting;
+            return this;
+        }
+
+        /**
+         * Outbound call limits, defaults to {@link RateLimiter#DEFAULT_LIMITS}
+         * persisted in the state store. Share one instance per process.
+         */
+        public Builder rateLimiter(RateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        public UpdateEngine build() {
+            if (transport == null) {
+                throw new IllegalStateException("transport is required");
+            }
+            if (logger == null) {
+                throw new IllegalStateException("logger is required");
+            }
+            return new UpdateEngine(this);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.simple.duckdns.core;
+
+/**
+ * Logging sink of the engine.
+ *
+ * Debug, warning and error messages are diagnostics (logcat, stderr).
+ * Events are the user-visible history shown in the app's log view;
+ * implementations prepend the timestamp.
+ */
+public interface UpdateLogger {
+    void debug(String message);
+
+    void warn(String message);
+
+    void error(String message, Throwable error);
+
+    /**
+     * Record a user-visible event.
+     *
+     * @param message Event text without timestamp
+     */
+    void event(String message);
+}
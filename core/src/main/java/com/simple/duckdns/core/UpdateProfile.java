@@ -0,0 +1,43 @@
+package com.simple.duckdns.core;
+
+/**
+ * One DuckDNS account's share of the configuration: a named
+ * {@link UpdateTarget} (token, domains, fixed or detected IP) checked on its
+ * own interval.
+ */
+public final class UpdateProfile {
+
+    /** Name of the profile built from the top-level config keys */
+    public static final String DEFAULT_NAME = "default";
+
+    private final String name;
+    private final UpdateTarget target;
+    private final int intervalMinutes;
+
+    /**
+     * @param name Unique name, used in log entries and state keys
+     * @param target What to update
+     * @param intervalMinutes Minutes between checks, at least 1
+     */
+    public UpdateProfile(
+        String name,
+        UpdateTarget target,
+        int intervalMinutes
+    ) {
+        this.name = name;
+        this.target = target;
+        this.intervalMinutes = Math.max(1, intervalMinutes);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public UpdateTarget getTarget() {
+        return target;
+    }
+
+    public int getIntervalMinutes() {
+        return intervalMinutes;
+    }
+}
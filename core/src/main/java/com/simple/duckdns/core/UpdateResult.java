@@ -0,0 +1,47 @@
+package com.simple.duckdns.core;
+
+/**
+ * Outcome of a check-and-update run.
+ */
+public final class UpdateResult {
+
+    private final UpdateStatus status;
+    private final boolean skipped;
+    private final String message;
+
+    private UpdateResult(UpdateStatus status, boolean skipped, String message) {
+        this.status = status;
+        this.skipped = skipped;
+        this.message = message != null ? message : "";
+    }
+
+    /** DNS already matched, no update call was made. */
+    public static UpdateResult skipped() {
+        return new UpdateResult(UpdateStatus.SUCCESS, true, "");
+    }
+
+    /**
+     * @param status Classified status of the update call
+     * @param message Short status, e.g. "OK", "KO", "HTTP 500" or an error
+     */
+    public static UpdateResult of(UpdateStatus status, String message) {
+        return new UpdateResult(status, false, message);
+    }
+
+    public UpdateStatus getStatus() {
+        return status;
+    }
+
+    /** @return true if the update was skipped because DNS was up to date */
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isSuccess() {
+        return status.isSuccess();
+    }
+}
@@ -0,0 +1,81 @@
+package com.simple.duckdns.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Classified outcome of a DuckDNS update attempt.
+ *
+ * Transient failures (network, timeout, HTTP 5xx) are retryable and are
+ * handed back to WorkManager's backoff policy; everything else waits for the
+ * next scheduled run, including calls the {@link RateLimiter} shed.
+ */
+public enum UpdateStatus {
+    SUCCESS(false),
+    NETWORK_ERROR(true),
+    TIMEOUT(true),
+    SERVER_ERROR(true),
+    KO(false),
+    HTTP_ERROR(false),
+    BAD_CONFIG(false),
+    RATE_LIMITED(false);
+
+    private final boolean retryable;
+
+    UpdateStatus(boolean retryable) {
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    public boolean isSuccess() {
+        return this == SUCCESS;
+    }
+
+    /**
+     * Classify a completed HTTP exchange with the DuckDNS update endpoint.
+     *
+     * @param responseCode HTTP status code
+     * @param responseBody Response body (may be empty)
+     * @return Classified status
+     */
+    public static UpdateStatus fromResponse(
+        int responseCode,
+        String responseBody
+    ) {
+        // 5xx bodies come from proxies/load balancers, never from DuckDNS itself
+        if (responseCode >= 500) {
+            return SERVER_ERROR;
+        }
+        if (responseBody != null && responseBody.contains("OK")) {
+            return SUCCESS;
+        }
+        if (responseBody != null && responseBody.contains("KO")) {
+            return KO;
+        }
+        return responseCode == 200 ? SUCCESS : HTTP_ERROR;
+    }
+
+    /**
+     * Classify an exception thrown while talking to DuckDNS.
+     *
+     * @param e Exception raised by the HTTP call
+     * @return Classified status
+     */
+    public static UpdateStatus fromException(Exception e) {
+        // SocketTimeoutException is an InterruptedIOException
+        if (e instanceof InterruptedIOException) {
+            return TIMEOUT;
+        }
+        if (e instanceof IOException) {
+            return NETWORK_ERROR;
+        }
+        if (e instanceof IllegalArgumentException) {
+            // OkHttp rejects URLs it cannot build from the configured domains/IP
+            return BAD_CONFIG;
+        }
+        return HTTP_ERROR;
+    }
+}
@@ -0,0 +1,116 @@
+package com.simple.duckdns.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable description of what to update: the domains exactly as entered,
+ * their normalized FQDNs, the token and the optional fixed IPv4 and IPv6
+ * addresses.
+ */
+public final class UpdateTarget {
+
+    public static final String DUCKDNS_SUFFIX = ".duckdns.org";
+
+    private final String domains;
+    private final List<String> fqdns;
+    private final String token;
+    private final String ip;
+    private final String ipv6;
+
+    public UpdateTarget(String domains, String token, String ip) {
+        this(domains, token, ip, "");
+    }
+
+    /**
+     * @param ip Fixed IPv4 address, empty to detect it
+     * @param ipv6 Fixed IPv6 address, empty to detect it
+     */
+    public UpdateTarget(String domains, String token, String ip, String ipv6) {
+        this.domains = domains != null ? domains.trim() : "";
+        this.token = token != null ? token.trim() : "";
+        this.ip = ip != null ? ip.trim() : "";
+        this.ipv6 = ipv6 != null ? ipv6.trim() : "";
+        this.fqdns = normalizeDomains(this.domains);
+    }
+
+    /**
+     * @return Copy with other domains, keeping the token and addresses
+     */
+    public UpdateTarget withDomains(String domains) {
+        return new UpdateTarget(domains, token, ip, ipv6);
+    }
+
+    /**
+     * @return Copy carrying the given addresses, e.g. the discovered ones
+     */
+    public UpdateTarget withIps(String ip, String ipv6) {
+        return new UpdateTarget(domains, token, ip, ipv6);
+    }
+
+    /**
+     * Split a comma-separated domain list into FQDNs, adding .duckdns.org to
+     * bare subdomain names.
+     *
+     * @param domains Comma-separated list of domains
+     * @return Unmodifiable list of FQDNs, empty entries dropped
+     */
+    public static List<String> normalizeDomains(String domains) {
+        if (domains == null || domains.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> result = new ArrayList<>();
+        for (String domain : domains.split(",")) {
+            domain = domain.trim();
+            if (!domain.isEmpty()) {
+                result.add(
+                    domain.contains(".") ? domain : domain + DUCKDNS_SUFFIX
+                );
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /** @return true if both domains and token are set */
+    public boolean isComplete() {
+        return !domains.isEmpty() && !token.isEmpty();
+    }
+
+    /** @return Domains exactly as entered, used for the DuckDNS update call */
+    public String getDomains() {
+        return domains;
+    }
+
+    /** @return Normalized FQDNs used for the DNS check */
+    public List<String> getFqdns() {
+        return fqdns;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /** @return Fixed IP, empty if DuckDNS should detect it */
+    public String getIp() {
+        return ip;
+    }
+
+    public boolean hasIp() {
+        return !ip.isEmpty();
+    }
+
+    /** @return Fixed IPv6 address, empty if it is detected */
+    public String getIpv6() {
+        return ipv6;
+    }
+
+    public boolean hasIpv6() {
+        return !ipv6.isEmpty();
+    }
+
+    /** @return Fixed address of one family, empty if it is detected */
+    public String getIp(AddressFamily family) {
+        return family == AddressFamily.IPV6 ? ipv6 : ip;
+    }
+}
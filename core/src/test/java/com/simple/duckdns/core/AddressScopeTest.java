@@ -0,0 +1,186 @@
+package com.simple.duckdns.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * First and last address of every classified range, and the addresses just
+ * outside it.
+ */
+@RunWith(Parameterized.class)
+public class AddressScopeTest {
+
+    @Parameters(name = "{0} is {1}")
+    public static Collection<Object[]> ranges() {
+        return Arrays.asList(
+            new Object[][] {
+                // 0.0.0.0/8
+                { "0.0.0.0", AddressScope.SPECIAL },
+                { "0.255.255.255", AddressScope.SPECIAL },
+                { "1.0.0.0", AddressScope.GLOBAL },
+                // 10.0.0.0/8
+                { "9.255.255.255", AddressScope.GLOBAL },
+                { "10.0.0.0", AddressScope.PRIVATE },
+                { "10.255.255.255", AddressScope.PRIVATE },
+                { "11.0.0.0", AddressScope.GLOBAL },
+                // 100.64.0.0/10
+                { "100.63.255.255", AddressScope.GLOBAL },
+                { "100.64.0.0", AddressScope.CGNAT },
+                { "100.127.255.255", AddressScope.CGNAT },
+                { "100.128.0.0", AddressScope.GLOBAL },
+                // 127.0.0.0/8
+                { "126.255.255.255", AddressScope.GLOBAL },
+                { "127.0.0.1", AddressScope.SPECIAL },
+                { "127.255.255.255", AddressScope.SPECIAL },
+                { "128.0.0.0", AddressScope.GLOBAL },
+                // 169.254.0.0/16
+                { "169.253.255.255", AddressScope.GLOBAL },
+                { "169.254.0.0", AddressScope.LINK_LOCAL },
+                { "169.254.255.255", AddressScope.LINK_LOCAL },
+                { "169.255.0.0", AddressScope.GLOBAL },
+                // 172.16.0.0/12
+                { "172.15.255.255", AddressScope.GLOBAL },
+                { "172.16.0.0", AddressScope.PRIVATE },
+                { "172.31.255.255", AddressScope.PRIVATE },
+                { "172.32.0.0", AddressScope.GLOBAL },
+                // 192.0.0.0/24 and 192.0.2.0/24
+                { "191.255.255.255", AddressScope.GLOBAL },
+                { "192.0.0.0", AddressScope.SPECIAL },
+                { "192.0.0.255", AddressScope.SPECIAL },
+                { "192.0.1.0", AddressScope.GLOBAL },
+                { "192.0.2.0", AddressScope.SPECIAL },
+                { "192.0.2.255", AddressScope.SPECIAL },
+                { "192.0.3.0", AddressScope.GLOBAL },
+                // 192.168.0.0/16
+                { "192.167.255.255", AddressScope.GLOBAL },
+                { "192.168.0.0", AddressScope.PRIVATE },
+                { "192.168.255.255", AddressScope.PRIVATE },
+                { "192.169.0.0", AddressScope.GLOBAL },
+                // 198.18.0.0/15
+                { "198.17.255.255", AddressScope.GLOBAL },
+                { "198.18.0.0", AddressScope.SPECIAL },
+                { "198.19.255.255", AddressScope.SPECIAL },
+                { "198.20.0.0", AddressScope.GLOBAL },
+                // 198.51.100.0/24
+                { "198.51.99.255", AddressScope.GLOBAL },
+                { "198.51.100.0", AddressScope.SPECIAL },
+                { "198.51.100.255", AddressScope.SPECIAL },
+                { "198.51.101.0", AddressScope.GLOBAL },
+                // 203.0.113.0/24
+                { "203.0.112.255", AddressScope.GLOBAL },
+                { "203.0.113.0", AddressScope.SPECIAL },
+                { "203.0.113.255", AddressScope.SPECIAL },
+                { "203.0.114.0", AddressScope.GLOBAL },
+                // 224.0.0.0/4 and 240.0.0.0/4
+                { "223.255.255.255", AddressScope.GLOBAL },
+                { "224.0.0.0", AddressScope.SPECIAL },
+                { "240.0.0.0", AddressScope.SPECIAL },
+                { "255.255.255.255", AddressScope.SPECIAL },
+                { "8.8.8.8", AddressScope.GLOBAL },
+                // Mapped addresses are IPv4
+                { "::ffff:10.0.0.1", AddressScope.PRIVATE },
+                { "::ffff:100.64.0.1", AddressScope.CGNAT },
+                { "::ffff:8.8.8.8", AddressScope.GLOBAL },
+                // ::/128, ::1/128 and IPv4-compatible ::/96
+                { "::", AddressScope.SPECIAL },
+                { "::1", AddressScope.SPECIAL },
+                { "::1.2.3.4", AddressScope.SPECIAL },
+                { "::ffff:ffff", AddressScope.SPECIAL },
+                // 64:ff9b::/96 and 64:ff9b:1::/48
+                {
+                    "64:ff9a:ffff:ffff:ffff:ffff:ffff:ffff",
+                    AddressScope.GLOBAL,
+                },
+                { "64:ff9b::", AddressScope.TUNNELED },
+                { "64:ff9b::1.2.3.4", AddressScope.TUNNELED },
+                { "64:ff9b:1::1", AddressScope.TUNNELED },
+                { "64:ff9c::", AddressScope.GLOBAL },
+                // 100::/64
+                { "100::", AddressScope.SPECIAL },
+                { "100::ffff:ffff:ffff:ffff", AddressScope.SPECIAL },
+                { "100:0:0:1::", AddressScope.GLOBAL },
+                // 2001::/32
+                {
+                    "2000:ffff:ffff:ffff:ffff:ffff:ffff:ffff",
+                    AddressScope.GLOBAL,
+                },
+                { "2001::", AddressScope.TUNNELED },
+                {
+                    "2001:0:ffff:ffff:ffff:ffff:ffff:ffff",
+                    AddressScope.TUNNELED,
+                },
+                { "2001:1::", AddressScope.GLOBAL },
+                // 2001:db8::/32
+                {
+                    "2001:db7:ffff:ffff:ffff:ffff:ffff:ffff",
+                    AddressScope.GLOBAL,
+                },
+                { "2001:db8::", AddressScope.SPECIAL },
+                {
+                    "2001:db8:ffff:ffff:ffff:ffff:ffff:ffff",
+                    AddressScope.SPECIAL,
+                },
+                { "2001:db9::", AddressScope.GLOBAL },
+                // 2002::/16
+                {
+                    "2001:ffff:ffff:ffff:ffff:ffff:ffff:ffff",
+                    AddressScope.GLOBAL,
+                },
+                { "2002::", AddressScope.TUNNELED },
+                {
+                    "2002:ffff:ffff:ffff:ffff:ffff:ffff:ffff",
+                    AddressScope.TUNNELED,
+                },
+                { "2003::", AddressScope.GLOBAL },
+                { "2606:4700:4700::1111", AddressScope.GLOBAL },
+                // fc00::/7
+                {
+                    "fbff:ffff:ffff:ffff:ffff:ffff:ffff:ffff",
+                    AddressScope.GLOBAL,
+                },
+                { "fc00::", AddressScope.ULA },
+                { "fdff:ffff:ffff:ffff:ffff:ffff:ffff:ffff", AddressScope.ULA },
+                // fe80::/10
+                { "fe80::", AddressScope.LINK_LOCAL },
+                {
+                    "febf:ffff:ffff:ffff:ffff:ffff:ffff:ffff",
+                    AddressScope.LINK_LOCAL,
+                },
+                // fec0::/10
+                { "fec0::", AddressScope.SPECIAL },
+                {
+                    "feff:ffff:ffff:ffff:ffff:ffff:ffff:ffff",
+                    AddressScope.SPECIAL,
+                },
+                // ff00::/8
+                { "ff00::", AddressScope.SPECIAL },
+                { "ff02::1", AddressScope.SPECIAL },
+            }
+        );
+    }
+
+    private final String address;
+    private final AddressScope scope;
+
+    public AddressScopeTest(String address, AddressScope scope) {
+        this.address = address;
+        this.scope = scope;
+    }
+
+    @Test
+    public void classifiesPackedAddress() {
+        assertEquals(scope, AddressScope.of(IpAddress.parse(address)));
+    }
+
+    @Test
+    public void classifiesInetAddress() throws Exception {
+        assertEquals(scope, AddressScope.of(InetAddress.getByName(address)));
+    }
+}
@@ -0,0 +1,289 @@
+package com.simple.duckdns.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+
+public class DnsMessageTest {
+
+    private static final int TYPE_A = DohJsonResolver.TYPE_A;
+    private static final int TYPE_AAAA = DohJsonResolver.TYPE_AAAA;
+
+    @Test
+    public void encodesQuery() {
+        byte[] query = DnsMessage.query(0x1234, "a.duckdns.org", TYPE_A, true);
+        assertArrayEquals(
+            bytes(
+                // ID, RD, one question
+                0x12, 0x34, 0x01, 0x00, 0, 1, 0, 0, 0, 0, 0, 0,
+                1, 'a',
+                7, 'd', 'u', 'c', 'k', 'd', 'n', 's',
+                3, 'o', 'r', 'g',
+                0,
+                // type A, class IN
+                0, 1, 0, 1
+            ),
+            query
+        );
+    }
+
+    @Test
+    public void encodesQueryWithoutRecursion() {
+        byte[] query = DnsMessage.query(1, "org.", DnsMessage.TYPE_NS, false);
+        assertEquals(0, query[2]);
+        assertEquals(0, query[3]);
+        // The trailing dot adds no empty label
+        assertEquals(12 + 5 + 4, query.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyLabel() {
+        DnsMessage.query(1, "a..org", TYPE_A, true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLongLabel() {
+        StringBuilder label = new StringBuilder();
+        for (int i = 0; i < 64; i++) {
+            label.append('x');
+        }
+        DnsMessage.query(1, label + ".org", TYPE_A, true);
+    }
+
+    @Test
+    public void readsResponseId() {
+        byte[] response = response(0xbeef, 0x8180, answerA(1, 2, 3, 4));
+        assertEquals(0xbeef, DnsMessage.responseId(response, response.length));
+    }
+
+    @Test
+    public void queryIsNoResponse() {
+        byte[] query = DnsMessage.query(7, "a.org", TYPE_A, true);
+        assertEquals(-1, DnsMessage.responseId(query, query.length));
+    }
+
+    @Test
+    public void shortDatagramIsNoResponse() {
+        byte[] response = response(7, 0x8180, answerA(1, 2, 3, 4));
+        assertEquals(-1, DnsMessage.responseId(response, 11));
+    }
+
+    @Test
+    public void readsFlags() {
+        assertTrue(DnsMessage.isAuthoritative(response(1, 0x8400)));
+        assertFalse(DnsMessage.isAuthoritative(response(1, 0x8180)));
+        assertTrue(DnsMessage.isTruncated(response(1, 0x8380)));
+        assertFalse(DnsMessage.isTruncated(response(1, 0x8180)));
+    }
+
+    @Test
+    public void parsesAddressesWithCompressedOwner() throws IOException {
+        byte[] response = response(
+            1,
+            0x8180,
+            answerA(1, 2, 3, 4),
+            answerA(5, 6, 7, 8)
+        );
+        List<DnsAnswer> answers = DnsMessage.parseAnswers(
+            response,
+            response.length,
+            TYPE_A
+        );
+        assertEquals(2, answers.size());
+        assertEquals("1.2.3.4", answers.get(0).getAddress());
+        assertEquals(300, answers.get(0).getTtlSeconds());
+        assertEquals("5.6.7.8", answers.get(1).getAddress());
+    }
+
+    @Test
+    public void parsesAaaaAndSkipsOtherTypes() throws IOException {
+        byte[] response = response(
+            1,
+            0x8180,
+            // CNAME to the question name, then the AAAA record
+            record(5, bytes(0xc0, 12)),
+            record(
+                TYPE_AAAA,
+                bytes(
+                    0x20, 0x01, 0x0d, 0xb8, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 1
+                )
+            )
+        );
+        List<DnsAnswer> answers = DnsMessage.parseAnswers(
+            response,
+            response.length,
+            TYPE_AAAA
+        );
+        assertEquals(1, answers.size());
+        assertEquals("2001:db8::1", answers.get(0).getAddress());
+    }
+
+    @Test
+    public void skipsAddressOfWrongLength() throws IOException {
+        byte[] response = response(1, 0x8180, record(TYPE_A, bytes(1, 2, 3)));
+        assertTrue(
+            DnsMessage.parseAnswers(response, response.length, TYPE_A)
+                .isEmpty()
+        );
+    }
+
+    @Test
+    public void parsesCompressedNameserverNames() throws IOException {
+        // ns1.example.org, then ns2 pointing into the first name's suffix
+        byte[] first = bytes(
+            3, 'n', 's', '1',
+            7, 'e', 'x', 'a', 'm', 'p', 'l', 'e',
+            3, 'o', 'r', 'g',
+            0
+        );
+        int firstData = 12 + QUESTION.length + 12;
+        byte[] response = response(
+            1,
+            0x8180,
+            record(DnsMessage.TYPE_NS, first),
+            record(
+                DnsMessage.TYPE_NS,
+                bytes(3, 'n', 's', '2', 0xc0, firstData + 4)
+            )
+        );
+        List<DnsAnswer> answers = DnsMessage.parseAnswers(
+            response,
+            response.length,
+            DnsMessage.TYPE_NS
+        );
+        assertEquals(2, answers.size());
+        assertEquals("ns1.example.org", answers.get(0).getAddress());
+        assertEquals("ns2.example.org", answers.get(1).getAddress());
+    }
+
+    @Test
+    public void rejectsPointerLoop() {
+        int data = 12 + QUESTION.length + 12;
+        // The name points at itself
+        byte[] response = response(
+            1,
+            0x8180,
+            record(DnsMessage.TYPE_NS, bytes(0xc0, data))
+        );
+        assertMalformed(response, response.length, DnsMessage.TYPE_NS);
+    }
+
+    @Test
+    public void rejectsTruncatedRecordData() {
+        byte[] response = response(1, 0x8180, answerA(1, 2, 3, 4));
+        assertMalformed(response, response.length - 1, TYPE_A);
+    }
+
+    @Test
+    public void rejectsTruncatedRecordHeader() {
+        byte[] response = response(1, 0x8180, answerA(1, 2, 3, 4));
+        assertMalformed(response, 12 + QUESTION.length + 5, TYPE_A);
+    }
+
+    @Test
+    public void rejectsTruncatedName() {
+        byte[] response = response(1, 0x8180);
+        assertMalformed(response, 12 + 4, TYPE_A);
+    }
+
+    @Test
+    public void nxdomainHasNoAnswers() throws IOException {
+        byte[] response = response(1, 0x8183);
+        assertTrue(
+            DnsMessage.parseAnswers(response, response.length, TYPE_A)
+                .isEmpty()
+        );
+    }
+
+    @Test
+    public void servfailIsAnError() {
+        byte[] response = response(1, 0x8182);
+        try {
+            DnsMessage.parseAnswers(response, response.length, TYPE_A);
+            fail("SERVFAIL parsed");
+        } catch (IOException e) {
+            assertEquals("DNS error, rcode 2", e.getMessage());
+        }
+    }
+
+    @Test
+    public void refusedIsAnError() {
+        byte[] response = response(1, 0x8185);
+        try {
+            DnsMessage.parseAnswers(response, response.length, TYPE_A);
+            fail("REFUSED parsed");
+        } catch (IOException e) {
+            assertEquals("DNS error, rcode 5", e.getMessage());
+        }
+    }
+
+    private static void assertMalformed(byte[] message, int length, int type) {
+        try {
+            DnsMessage.parseAnswers(message, length, type);
+            fail("Malformed message parsed");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    // Question of a.org A IN
+    static final byte[] QUESTION = bytes(
+        1, 'a', 3, 'o', 'r', 'g', 0,
+        0, 1, 0, 1
+    );
+
+    /** Response to {@link #QUESTION} with the given flags and answers. */
+    static byte[] response(int id, int flags, byte[]... answers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeShort(out, id);
+        writeShort(out, flags);
+        writeShort(out, 1);
+        writeShort(out, answers.length);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        out.write(QUESTION, 0, QUESTION.length);
+        for (byte[] answer : answers) {
+            out.write(answer, 0, answer.length);
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] answerA(int a, int b, int c, int d) {
+        return record(TYPE_A, bytes(a, b, c, d));
+    }
+
+    /** Record owned by the question name, TTL 300. */
+    static byte[] record(int type, byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // Pointer to the question name
+        writeShort(out, 0xc000 | 12);
+        writeShort(out, type);
+        writeShort(out, 1);
+        writeShort(out, 0);
+        writeShort(out, 300);
+        writeShort(out, data.length);
+        out.write(data, 0, data.length);
+        return out.toByteArray();
+    }
+
+    static byte[] bytes(int... values) {
+        byte[] result = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (byte) values[i];
+        }
+        return result;
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
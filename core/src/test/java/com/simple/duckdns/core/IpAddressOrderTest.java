@@ -0,0 +1,60 @@
+package com.simple.duckdns.core;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Neighbouring addresses in compareTo order: IPv4 before IPv6, then
+ * unsigned, so addresses with the top bit set sort last.
+ */
+@RunWith(Parameterized.class)
+public class IpAddressOrderTest {
+
+    @Parameters(name = "{0} < {1}")
+    public static Collection<Object[]> pairs() {
+        return Arrays.asList(
+            new Object[][] {
+                { "0.0.0.0", "0.0.0.1" },
+                { "1.2.3.4", "1.2.3.5" },
+                { "127.255.255.255", "128.0.0.0" },
+                { "9.255.255.255", "200.0.0.0" },
+                { "254.255.255.255", "255.255.255.255" },
+                { "255.255.255.255", "::" },
+                { "::ffff:1.2.3.4", "::1" },
+                { "::", "::1" },
+                { "::ffff:ffff:ffff", "1::" },
+                { "0:0:0:1::", "0:0:0:1::1" },
+                { "7fff:ffff:ffff:ffff::", "8000::" },
+                { "2001:db8::ffff", "2001:db8::1:0" },
+                { "fe80::", "ff02::1" },
+            }
+        );
+    }
+
+    private final IpAddress lower;
+    private final IpAddress higher;
+
+    public IpAddressOrderTest(String lower, String higher) {
+        this.lower = IpAddress.parse(lower);
+        this.higher = IpAddress.parse(higher);
+    }
+
+    @Test
+    public void ordersAscending() {
+        assertTrue(lower.compareTo(higher) < 0);
+        assertTrue(higher.compareTo(lower) > 0);
+    }
+
+    @Test
+    public void differentAddressesAreNotEqual() {
+        assertFalse(lower.equals(higher));
+        assertFalse(higher.equals(lower));
+    }
+}
@@ -0,0 +1,153 @@
+package com.simple.duckdns.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.InetAddress;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Literals and the address they parse to, written the way toString prints
+ * it, or null where the literal is rejected.
+ */
+@RunWith(Parameterized.class)
+public class IpAddressTest {
+
+    @Parameters(name = "\"{0}\" is {1}")
+    public static Collection<Object[]> literals() {
+        return Arrays.asList(
+            new Object[][] {
+                // IPv4
+                { "1.2.3.4", "1.2.3.4" },
+                { "0.0.0.0", "0.0.0.0" },
+                { "255.255.255.255", "255.255.255.255" },
+                { "01.002.3.004", "1.2.3.4" },
+                { "010.0.0.1", "10.0.0.1" },
+                { " 1.2.3.4\n", "1.2.3.4" },
+                { "1.2.3", null },
+                { "1.2.3.4.5", null },
+                { "256.1.1.1", null },
+                { "1.2.3.0004", null },
+                { "1..3.4", null },
+                { "1.2.3.4.", null },
+                { "1.2.3.-4", null },
+                { "1.2.3.4 5", null },
+                { "", null },
+                { "   ", null },
+                // IPv4-mapped IPv6 is IPv4
+                { "::ffff:1.2.3.4", "1.2.3.4" },
+                { "::FFFF:102:304", "1.2.3.4" },
+                { "0:0:0:0:0:ffff:0102:0304", "1.2.3.4" },
+                { "::ffff:01.002.3.004", "1.2.3.4" },
+                // IPv4-compatible and translated forms stay IPv6
+                { "::1.2.3.4", "::102:304" },
+                { "64:ff9b::1.2.3.4", "64:ff9b::102:304" },
+                // IPv6 compression and zero padding
+                { "::", "::" },
+                { "::1", "::1" },
+                { "1::", "1::" },
+                { "2001:DB8::1", "2001:db8::1" },
+                { "2001:0db8:0000:0000:0000:0000:0000:0001", "2001:db8::1" },
+                { "2001:db8:0:0:1:0:0:1", "2001:db8::1:0:0:1" },
+                { "2001:db8:0:0:1::1", "2001:db8::1:0:0:1" },
+                { "2001:0:0:1:0:0:0:1", "2001:0:0:1::1" },
+                { "2001:db8:0:1:1:1:1:1", "2001:db8:0:1:1:1:1:1" },
+                { "1:2:3:4:5:6:7::", "1:2:3:4:5:6:7:0" },
+                { "::2:3:4:5:6:7:8", "0:2:3:4:5:6:7:8" },
+                { "fe80::1", "fe80::1" },
+                // Invalid IPv6
+                { ":::", null },
+                { "1::2::3", null },
+                { ":1::", null },
+                { "1:2:3:4:5:6:7:", null },
+                { "1:2:3:4:5:6:7", null },
+                { "1:2:3:4:5:6:7:8:9", null },
+                { "1:2:3:4::5:6:7:8", null },
+                { "12345::1", null },
+                { "g::1", null },
+                { "fe80::1%eth0", null },
+                { "::ffff:1.2.3", null },
+                { "::1.2.3.4:5", null },
+            }
+        );
+    }
+
+    private final String literal;
+    private final String expected;
+
+    public IpAddressTest(String literal, String expected) {
+        this.literal = literal;
+        this.expected = expected;
+    }
+
+    @Test
+    public void parsesString() {
+        IpAddress address = IpAddress.parse(literal);
+        if (expected == null) {
+            assertNull(address);
+        } else {
+            assertEquals(expected, address.toString());
+        }
+    }
+
+    @Test
+    public void parsesCharSequenceRange() {
+        CharBuffer chars = CharBuffer.wrap("x" + literal + "y");
+        assertEquals(
+            IpAddress.parse(literal),
+            IpAddress.parse(chars, 1, 1 + literal.length())
+        );
+    }
+
+    @Test
+    public void parsesAsciiRange() {
+        byte[] ascii = ("x" + literal + "y").getBytes(
+            StandardCharsets.US_ASCII
+        );
+        assertEquals(
+            IpAddress.parse(literal),
+            IpAddress.parse(ascii, 1, literal.length())
+        );
+    }
+
+    @Test
+    public void equalsCanonicalForm() {
+        Assume.assumeNotNull(expected);
+        IpAddress address = IpAddress.parse(literal);
+        IpAddress canonical = IpAddress.parse(expected);
+        assertEquals(canonical, address);
+        assertEquals(canonical.hashCode(), address.hashCode());
+        assertEquals(
+            expected.indexOf(':') < 0
+                ? AddressFamily.IPV4
+                : AddressFamily.IPV6,
+            address.getFamily()
+        );
+    }
+
+    @Test
+    public void matchesInetAddress() throws Exception {
+        Assume.assumeNotNull(expected);
+        IpAddress address = IpAddress.parse(literal);
+        InetAddress inet = InetAddress.getByName(expected);
+        assertEquals(IpAddress.of(inet), address);
+        assertArrayEquals(inet.getAddress(), address.toBytes());
+    }
+
+    @Test
+    public void roundTripsBytes() {
+        Assume.assumeNotNull(expected);
+        IpAddress address = IpAddress.parse(literal);
+        byte[] raw = address.toBytes();
+        assertEquals(address, IpAddress.fromBytes(raw, 0, raw.length));
+    }
+}
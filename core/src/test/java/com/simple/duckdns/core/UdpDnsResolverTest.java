@@ -0,0 +1,224 @@
+package com.simple.duckdns.core;
+
+import static com.simple.duckdns.core.DnsMessageTest.answerA;
+import static com.simple.duckdns.core.DnsMessageTest.response;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Queries a scripted DNS server on the loopback interface. */
+public class UdpDnsResolverTest {
+
+    private static final int TYPE_A = DohJsonResolver.TYPE_A;
+
+    private InetAddress loopback;
+    private DatagramSocket udp;
+    private ServerSocket tcp;
+    private Thread server;
+
+    @Before
+    public void setUp() throws IOException {
+        loopback = InetAddress.getByName("127.0.0.1");
+        udp = new DatagramSocket(0, loopback);
+        udp.setSoTimeout(5000);
+        tcp = new ServerSocket(udp.getLocalPort(), 1, loopback);
+        tcp.setSoTimeout(5000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        udp.close();
+        tcp.close();
+        if (server != null) {
+            server.join(5000);
+        }
+    }
+
+    @Test
+    public void ignoresStrayAndMismatchedDatagrams() throws Exception {
+        serveUdp(
+            new Reply() {
+                @Override
+                public void answer(
+                    int id,
+                    DatagramPacket query
+                ) throws IOException {
+                    send(response(id ^ 1, 0x8180, answerA(6, 6, 6, 6)), query);
+                    // A query, not a response, carrying our ID
+                    send(DnsMessage.query(id, "a.org", TYPE_A, true), query);
+                    send(response(id, 0x8180, answerA(1, 2, 3, 4)), query);
+                }
+            }
+        );
+        List<DnsAnswer> answers = resolver(true).resolveAll("a.org", TYPE_A);
+        assertEquals(1, answers.size());
+        assertEquals("1.2.3.4", answers.get(0).getAddress());
+    }
+
+    @Test
+    public void retriesTruncatedResponseOverTcp() throws Exception {
+        serveUdp(
+            new Reply() {
+                @Override
+                public void answer(
+                    int id,
+                    DatagramPacket query
+                ) throws IOException {
+                    // TC set: the datagram's partial answer must be ignored
+                    send(response(id, 0x8380, answerA(6, 6, 6, 6)), query);
+                    serveTcp(id, id);
+                }
+            }
+        );
+        List<DnsAnswer> answers = resolver(true).resolveAll("a.org", TYPE_A);
+        assertEquals(2, answers.size());
+        assertEquals("1.2.3.4", answers.get(0).getAddress());
+        assertEquals("5.6.7.8", answers.get(1).getAddress());
+    }
+
+    @Test
+    public void rejectsMismatchedTcpResponse() throws Exception {
+        serveUdp(
+            new Reply() {
+                @Override
+                public void answer(
+                    int id,
+                    DatagramPacket query
+                ) throws IOException {
+                    send(response(id, 0x8380), query);
+                    serveTcp(id, id ^ 1);
+                }
+            }
+        );
+        assertFails(resolver(true), "DNS response ID mismatch: test");
+    }
+
+    @Test
+    public void requiresAuthoritativeAnswerWithoutRecursion()
+        throws Exception {
+        serveUdp(
+            new Reply() {
+                @Override
+                public void answer(
+                    int id,
+                    DatagramPacket query
+                ) throws IOException {
+                    send(response(id, 0x8000, answerA(1, 2, 3, 4)), query);
+                }
+            }
+        );
+        assertFails(resolver(false), "Not authoritative: test");
+    }
+
+    @Test
+    public void reportsServerFailure() throws Exception {
+        serveUdp(
+            new Reply() {
+                @Override
+                public void answer(
+                    int id,
+                    DatagramPacket query
+                ) throws IOException {
+                    send(response(id, 0x8182), query);
+                }
+            }
+        );
+        assertFails(resolver(true), "DNS error, rcode 2");
+    }
+
+    private interface Reply {
+        void answer(int id, DatagramPacket query) throws IOException;
+    }
+
+    private UdpDnsResolver resolver(boolean recursion) {
+        return new UdpDnsResolver(
+            "test",
+            loopback,
+            udp.getLocalPort(),
+            recursion,
+            null
+        );
+    }
+
+    private static void assertFails(UdpDnsResolver resolver, String message)
+        throws Exception {
+        try {
+            resolver.resolveAll("a.org", TYPE_A);
+            fail("Resolved");
+        } catch (IOException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private void serveUdp(final Reply reply) {
+        server = new Thread(
+            new Runnable() {
+                @Override
+                public void run() {
+                    byte[] buffer = new byte[DnsMessage.MAX_UDP_SIZE];
+                    DatagramPacket query = new DatagramPacket(
+                        buffer,
+                        buffer.length
+                    );
+                    try {
+                        udp.receive(query);
+                        int id = ((buffer[0] & 0xff) << 8) |
+                        (buffer[1] & 0xff);
+                        reply.answer(id, query);
+                    } catch (IOException e) {
+                        // The resolver's own timeout fails the test
+                    }
+                }
+            }
+        );
+        server.start();
+    }
+
+    private void send(byte[] message, DatagramPacket query)
+        throws IOException {
+        udp.send(
+            new DatagramPacket(
+                message,
+                message.length,
+                query.getSocketAddress()
+            )
+        );
+    }
+
+    // Answers one length-prefixed query with the full response
+    private void serveTcp(int expectedId, int responseId) throws IOException {
+        try (Socket socket = tcp.accept()) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] query = new byte[in.readUnsignedShort()];
+            in.readFully(query);
+            int id = ((query[0] & 0xff) << 8) | (query[1] & 0xff);
+            if (id != expectedId) {
+                return;
+            }
+            byte[] message = response(
+                responseId,
+                0x8180,
+                answerA(1, 2, 3, 4),
+                answerA(5, 6, 7, 8)
+            );
+            DataOutputStream out = new DataOutputStream(
+                socket.getOutputStream()
+            );
+            out.writeShort(message.length);
+            out.write(message);
+            out.flush();
+        }
+    }
+}
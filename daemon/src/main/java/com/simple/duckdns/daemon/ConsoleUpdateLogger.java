@@ -0,0 +1,43 @@
+package com.simple.duckdns.daemon;
+
+import com.simple.duckdns.core.LogTimestamp;
+import com.simple.duckdns.core.UpdateLogger;
+
+/**
+ * Engine logger for the daemon: events go to stdout in the same format as
+ * the app's log file, diagnostics go to stderr (debug only when verbose).
+ */
+public final class ConsoleUpdateLogger implements UpdateLogger {
+
+
+    private final boolean verbose;
+
+    public ConsoleUpdateLogger(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    @Override
+    public void debug(String message) {
+        if (verbose) {
+            System.err.println("D " + message);
+        }
+    }
+
+    @Override
+    public void warn(String message) {
+        System.err.println("W " + message);
+    }
+
+    @Override
+    public void error(String message, Throwable error) {
+        System.err.println("E " + message);
+        if (verbose && error != null) {
+            error.printStackTrace();
+        }
+    }
+
+    @Override
+    public void event(String message) {
+        System.out.println("[" + LogTimestamp.now() + "] " + message);
+    }
+}
@@ -0,0 +1,342 @@
+package com.simple.duckdns.daemon;
+
+import com.simple.duckdns.core.ConsensusPolicy;
+import com.simple.duckdns.core.Endpoint;
+import com.simple.duckdns.core.EvidencePolicy;
+import com.simple.duckdns.core.QuorumConsensus;
+import com.simple.duckdns.core.RateLimiter;
+import com.simple.duckdns.core.ResolverRegistry;
+import com.simple.duckdns.core.UpdateProfile;
+import com.simple.duckdns.core.UpdateTarget;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Daemon configuration, read from a properties file and/or the environment.
+ *
+ * The file uses the same keys as the app's "config" preferences
+ * (domains, token, ip, interval) plus ipv6, ipv6_detect,
+ * interface_addresses, resolvers, resolver_quorum, consensus,
+ * resolver_weights, no_answer, insufficient_evidence,
+ * authoritative_check, rate_limits, state_file and trace_dir. Environment
+ * variables DUCKDNS_DOMAINS, DUCKDNS_TOKEN, DUCKDNS_IP, DUCKDNS_IPV6,
+ * DUCKDNS_INTERVAL, DUCKDNS_STATE_FILE etc. override the file, so secrets
+ * can stay out of it.
+ *
+ * Further accounts are named in "profiles" (comma-separated) and configured
+ * with profile.NAME.domains, .token, .ip, .ipv6 and .interval, overridable as
+ * DUCKDNS_PROFILE_NAME_TOKEN etc. The top-level keys form the "default"
+ * profile when set; a profile without interval uses the top-level one.
+ */
+public final class DaemonConfig {
+
+    public static final int DEFAULT_INTERVAL_MINUTES = 15;
+
+    private static final String ENV_PREFIX = "DUCKDNS_";
+
+    private final List<UpdateProfile> profiles;
+    private final int intervalMinutes;
+    private final boolean ipv6Detect;
+    private final boolean interfaceAddresses;
+    private final String resolvers;
+    private final int resolverQuorum;
+    private final ConsensusPolicy consensus;
+    private final EvidencePolicy insufficientEvidence;
+    private final boolean authoritativeCheck;
+    private final Map<Endpoint, RateLimiter.Limit> rateLimits;
+    private final Path stateFile;
+    private final Path traceDir;
+
+    private DaemonConfig(
+        List<UpdateProfile> profiles,
+        int intervalMinutes,
+        boolean ipv6Detect,
+        boolean interfaceAddresses,
+        String resolvers,
+        int resolverQuorum,
+        ConsensusPolicy consensus,
+        EvidencePolicy insufficientEvidence,
+        boolean authoritativeCheck,
+        Map<Endpoint, RateLimiter.Limit> rateLimits,
+        Path stateFile,
+        Path traceDir
+    ) {
+        this.profiles = Collections.unmodifiableList(profiles);
+        this.intervalMinutes = intervalMinutes;
+        this.ipv6Detect = ipv6Detect;
+        this.interfaceAddresses = interfaceAddresses;
+        this.resolvers = resolvers;
+        this.resolverQuorum = resolverQuorum;
+        this.consensus = consensus;
+        this.insufficientEvidence = insufficientEvidence;
+        this.authoritativeCheck = authoritativeCheck;
+        this.rateLimits = rateLimits;
+        this.stateFile = stateFile;
+        this.traceDir = traceDir;
+    }
+
+    /**
+     * @param configFile Properties file, or null to use the environment only
+     * @param env Environment, usually System.getenv()
+     * @return Parsed configuration
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if an interval, the quorum, the
+     *     consensus or a weight is not a positive number, a resolver is
+     *     neither a DoH URL nor an IP address, no_answer or
+     *     insufficient_evidence has an unknown value, a rate limit is
+     *     malformed, or a profile uses the reserved name "default"
+     */
+    public static DaemonConfig load(Path configFile, Map<String, String> env)
+        throws IOException {
+        Properties props = new Properties();
+        if (configFile != null) {
+            try (InputStream in = Files.newInputStream(configFile)) {
+                props.load(in);
+            }
+        }
+
+        String domains = value(props, env, "domains");
+        String token = value(props, env, "token");
+        String stateFile = value(props, env, "state_file");
+        String traceDir = value(props, env, "trace_dir");
+        int intervalMinutes = parseInterval(
+            value(props, env, "interval"),
+            DEFAULT_INTERVAL_MINUTES
+        );
+
+        List<UpdateProfile> profiles = new ArrayList<>();
+        if (!domains.isEmpty() || !token.isEmpty()) {
+            profiles.add(
+                new UpdateProfile(
+                    UpdateProfile.DEFAULT_NAME,
+                    new UpdateTarget(
+                        domains,
+                        token,
+                        value(props, env, "ip"),
+                        value(props, env, "ipv6")
+                    ),
+                    intervalMinutes
+                )
+            );
+        }
+        for (String name : value(props, env, "profiles").split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (UpdateProfile.DEFAULT_NAME.equals(name)) {
+                throw new IllegalArgumentException(
+                    "Profile name is reserved: " + name
+                );
+            }
+            String prefix = "profile." + name + ".";
+            profiles.add(
+                new UpdateProfile(
+                    name,
+                    new UpdateTarget(
+                        value(props, env, prefix + "domains"),
+                        value(props, env, prefix + "token"),
+                        value(props, env, prefix + "ip"),
+                        value(props, env, prefix + "ipv6")
+                    ),
+                    parseInterval(
+                        value(props, env, prefix + "interval"),
+                        intervalMinutes
+                    )
+                )
+            );
+        }
+
+        return new DaemonConfig(
+            profiles,
+            intervalMinutes,
+            !"false".equalsIgnoreCase(value(props, env, "ipv6_detect")),
+            !"false".equalsIgnoreCase(
+                value(props, env, "interface_addresses")
+            ),
+            checkResolvers(value(props, env, "resolvers")),
+            parseQuorum(value(props, env, "resolver_quorum")),
+            QuorumConsensus.parse(
+                value(props, env, "consensus"),
+                value(props, env, "resolver_weights"),
+                parseNoAnswer(value(props, env, "no_answer"))
+            ),
+            parseEvidencePolicy(value(props, env, "insufficient_evidence")),
+            "true".equalsIgnoreCase(value(props, env, "authoritative_check")),
+            RateLimiter.parseLimits(value(props, env, "rate_limits")),
+            stateFile.isEmpty() ? null : Paths.get(stateFile),
+            traceDir.isEmpty() ? null : Paths.get(traceDir)
+        );
+    }
+
+    private static int parseInterval(String interval, int defaultMinutes) {
+        if (interval.isEmpty()) {
+            return defaultMinutes;
+        }
+        int minutes;
+        try {
+            minutes = Integer.parseInt(interval);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+        if (minutes <= 0) {
+            throw new IllegalArgumentException(
+                "Interval must be positive: " + interval
+            );
+        }
+        return minutes;
+    }
+
+    // Fails on entries that are neither a DoH URL nor an IP address
+    private static String checkResolvers(String resolvers) {
+        ResolverRegistry.parse(resolvers, null, null);
+        return resolvers;
+    }
+
+    private static int parseQuorum(String quorum) {
+        if (quorum.isEmpty()) {
+            return ResolverRegistry.DEFAULT_QUORUM;
+        }
+        try {
+            int parsed = Integer.parseInt(quorum);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(
+            "Invalid resolver_quorum: " + quorum
+        );
+    }
+
+    // Whether an answer without a record disagrees with the target IP
+    private static boolean parseNoAnswer(String noAnswer) {
+        if (noAnswer.isEmpty() || "mismatch".equalsIgnoreCase(noAnswer)) {
+            return true;
+        }
+        if ("abstain".equalsIgnoreCase(noAnswer)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Invalid no_answer: " + noAnswer);
+    }
+
+    private static EvidencePolicy parseEvidencePolicy(String policy) {
+        if (policy.isEmpty()) {
+            return EvidencePolicy.UPDATE;
+        }
+        try {
+            return EvidencePolicy.valueOf(policy.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                "Invalid insufficient_evidence: " + policy
+            );
+        }
+    }
+
+    // Environment wins over the file, missing keys are empty
+    private static String value(
+        Properties props,
+        Map<String, String> env,
+        String key
+    ) {
+        String value = env.get(
+            ENV_PREFIX + key.toUpperCase(Locale.ROOT).replace('.', '_')
+        );
+        if (value == null) {
+            value = props.getProperty(key, "");
+        }
+        return value.trim();
+    }
+
+    /** @return Configured profiles, "default" first when set */
+    public List<UpdateProfile> getProfiles() {
+        return profiles;
+    }
+
+    /** @return true if there is a profile and each has domains and token */
+    public boolean isComplete() {
+        for (UpdateProfile profile : profiles) {
+            if (!profile.getTarget().isComplete()) {
+                return false;
+            }
+        }
+        return !profiles.isEmpty();
+    }
+
+    /** @return Top-level interval, the default of every profile */
+    public int getIntervalMinutes() {
+        return intervalMinutes;
+    }
+
+    /** @return false if only configured IPv6 addresses are checked */
+    public boolean isIpv6Detect() {
+        return ipv6Detect;
+    }
+
+    /**
+     * @return false to always ask the IP echoes, e.g. when a VPN interface
+     *     holds a global address that is not the one to publish
+     */
+    public boolean isInterfaceAddresses() {
+        return interfaceAddresses;
+    }
+
+    /**
+     * @return DoH URLs and plain DNS IPs to check, see
+     *     {@link ResolverRegistry#parse}; empty for the defaults
+     */
+    public String getResolvers() {
+        return resolvers;
+    }
+
+    /** @return Healthy resolvers queried per check */
+    public int getResolverQuorum() {
+        return resolverQuorum;
+    }
+
+    /** @return Vote deciding whether a record is outdated */
+    public ConsensusPolicy getConsensus() {
+        return consensus;
+    }
+
+    /** @return What to do when too few resolvers answered */
+    public EvidencePolicy getInsufficientEvidence() {
+        return insufficientEvidence;
+    }
+
+    /**
+     * @return true to ask DuckDNS's nameservers first, bypassing resolver
+     *     caches
+     */
+    public boolean isAuthoritativeCheck() {
+        return authoritativeCheck;
+    }
+
+    /**
+     * @return Limit per endpoint class, see {@link RateLimiter#parseLimits};
+     *     the defaults unless configured
+     */
+    public Map<Endpoint, RateLimiter.Limit> getRateLimits() {
+        return rateLimits;
+    }
+
+    /** @return File persisting engine state, or null to keep it in memory */
+    public Path getStateFile() {
+        return stateFile;
+    }
+
+    /** @return Directory of the run trace ring buffer, or null for none */
+    public Path getTraceDir() {
+        return traceDir;
+    }
+}
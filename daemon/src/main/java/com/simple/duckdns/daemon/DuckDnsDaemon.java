@@ -0,0 +1,419 @@
+package com.simple.duckdns.daemon;
+
+import com.simple.duckdns.core.Clock;
+import com.simple.duckdns.core.FileTraceStore;
+import com.simple.duckdns.core.InMemoryStateStore;
+import com.simple.duckdns.core.LatencyRecorder;
+import com.simple.duckdns.core.LocalAddressSource;
+import com.simple.duckdns.core.ProfileFanOut;
+import com.simple.duckdns.core.PropagationTracker;
+import com.simple.duckdns.core.RateLimiter;
+import com.simple.duckdns.core.Span;
+import com.simple.duckdns.core.SpanData;
+import com.simple.duckdns.core.StateStore;
+import com.simple.duckdns.core.TraceExporter;
+import com.simple.duckdns.core.Tracer;
+import com.simple.duckdns.core.UpdateEngine;
+import com.simple.duckdns.core.UpdateLogger;
+import com.simple.duckdns.core.UpdateProfile;
+import com.simple.duckdns.core.UpdateResult;
+import com.simple.duckdns.core.UpdateStatus;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless entry point running the update engine on a fixed interval.
+ *
+ * Usage: duckdns-daemon [--config FILE]
+ *     [--once | --stats | --traces otlp|chrome] [--verbose]
+ *
+ * The schedule mirrors DuckDNSUpdateWorker: one smart DNS check and update
+ * per interval, transient failures retried with jittered exponential backoff
+ * that never runs past the next regular run. With several profiles the
+ * scheduler wakes on the shortest interval and checks the profiles due.
+ * Everything runs on a single scheduler thread (virtual on Java 21+);
+ * SIGTERM wakes it up, lets the in-flight run finish and exits.
+ */
+public final class DuckDnsDaemon {
+
+    private static final String LOG_PREFIX = "AutoUpdate";
+    private static final String THREAD_NAME = "duckdns-scheduler";
+    private static final String TRACE_NAME = "daemon_run";
+
+    // Same retry policy as the app's worker
+    private static final long BACKOFF_INITIAL_SECONDS = 30;
+    private static final long BACKOFF_JITTER_SECONDS = 15;
+    private static final int MAX_RETRY_ATTEMPTS = 5;
+
+    // Upper bound for an in-flight run to finish on shutdown
+    private static final long SHUTDOWN_GRACE_SECONDS = 20;
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILED = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private final UpdateEngine engine;
+    private final UpdateLogger logger;
+    private final DaemonConfig config;
+    private final ProfileFanOut fanOut;
+    private final CountDownLatch stopSignal = new CountDownLatch(1);
+
+    DuckDnsDaemon(UpdateEngine engine, UpdateLogger logger, DaemonConfig config) {
+        this.engine = engine;
+        this.logger = logger;
+        this.config = config;
+        this.fanOut = new ProfileFanOut(
+            engine,
+            ProfileFanOut.DEFAULT_MAX_PARALLEL
+        );
+    }
+
+    public static void main(String[] args) {
+        Path configFile = null;
+        boolean once = false;
+        boolean stats = false;
+        String traceFormat = null;
+        boolean verbose = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("--config".equals(args[i]) && i + 1 < args.length) {
+                configFile = Paths.get(args[++i]);
+            } else if ("--once".equals(args[i])) {
+                once = true;
+            } else if ("--stats".equals(args[i])) {
+                stats = true;
+            } else if ("--traces".equals(args[i]) && i + 1 < args.length) {
+                traceFormat = args[++i];
+            } else if ("--verbose".equals(args[i])) {
+                verbose = true;
+            } else {
+                usage();
+            }
+        }
+
+        UpdateLogger logger = new ConsoleUpdateLogger(verbose);
+        DaemonConfig config;
+        StateStore stateStore;
+        try {
+            config = DaemonConfig.load(configFile, System.getenv());
+            stateStore = config.getStateFile() != null
+                ? new FileStateStore(config.getStateFile())
+                : new InMemoryStateStore();
+        } catch (Exception e) {
+            logger.error("Failed to load configuration: " + e.getMessage(), e);
+            System.exit(EXIT_USAGE);
+            return;
+        }
+        if (traceFormat != null) {
+            exportTraces(config, traceFormat, logger);
+        }
+        if (stats) {
+            // Latency percentiles persisted in the state file, as CSV
+            System.out.print(
+                new LatencyRecorder(stateStore, Clock.SYSTEM).exportCsv()
+            );
+            System.exit(EXIT_OK);
+        }
+        if (!config.isComplete()) {
+            logger.event(LOG_PREFIX + " FAILED - No configuration found");
+            System.exit(EXIT_USAGE);
+            return;
+        }
+
+        FileTraceStore traces = config.getTraceDir() != null
+            ? new FileTraceStore(
+                config.getTraceDir().toFile(),
+                FileTraceStore.DEFAULT_CAPACITY,
+                logger
+            )
+            : null;
+        UpdateEngine engine = UpdateEngine.builder()
+            .transport(new UrlConnectionTransport())
+            .ipv6EchoUrl(
+                config.isIpv6Detect() ? UpdateEngine.IP6_ECHO_URL : null
+            )
+            .localAddresses(
+                config.isInterfaceAddresses()
+                    ? LocalAddressSource.SYSTEM
+                    : LocalAddressSource.NONE
+            )
+            .stateStore(stateStore)
+            .logger(logger)
+            .tracer(new Tracer(Clock.SYSTEM, traces))
+            .resolverSpec(config.getResolvers())
+            .resolverQuorum(config.getResolverQuorum())
+            .consensus(config.getConsensus())
+            .insufficientEvidence(config.getInsufficientEvidence())
+            .authoritativeCheck(config.isAuthoritativeCheck())
+            .rateLimiter(
+                new RateLimiter(
+                    stateStore,
+                    Clock.SYSTEM,
+                    config.getRateLimits()
+                )
+            )
+            .build();
+        DuckDnsDaemon daemon = new DuckDnsDaemon(engine, logger, config);
+
+        if (once) {
+            // Run by hand, like the app's manual update
+            RateLimiter.setPriority(RateLimiter.Priority.MANUAL);
+            System.exit(
+                daemon.runOnce(true).isSuccess() ? EXIT_OK : EXIT_FAILED
+            );
+        }
+        daemon.runUntilStopped();
+    }
+
+    private static void usage() {
+        System.err.println(
+            "Usage: duckdns-daemon [--config FILE]" +
+                " [--once | --stats | --traces otlp|chrome] [--verbose]"
+        );
+        System.exit(EXIT_USAGE);
+    }
+
+    // Stored run traces on stdout, for an OTLP collector or chrome://tracing
+    private static void exportTraces(
+        DaemonConfig config,
+        String format,
+        UpdateLogger logger
+    ) {
+        if (!"otlp".equals(format) && !"chrome".equals(format)) {
+            usage();
+        }
+        if (config.getTraceDir() == null) {
+            logger.error("No trace_dir configured", null);
+            System.exit(EXIT_USAGE);
+        }
+        List<List<SpanData>> traces = new FileTraceStore(
+            config.getTraceDir().toFile(),
+            FileTraceStore.DEFAULT_CAPACITY,
+            logger
+        ).readAll();
+        System.out.print(
+            "otlp".equals(format)
+                ? TraceExporter.toOtlpJson(traces)
+                : TraceExporter.toChromeTrace(traces)
+        );
+        System.exit(EXIT_OK);
+    }
+
+    /**
+     * Run a single check-and-update of the profiles under a root span and
+     * persist its phase latencies.
+     *
+     * @param all true to run every profile, false for the due ones only
+     */
+    UpdateResult runOnce(boolean all) {
+        LatencyRecorder latency = engine.getLatencyRecorder();
+        long start = latency.start();
+        try (Span span = engine.getTracer().startSpan(TRACE_NAME)) {
+            List<UpdateProfile> profiles = all
+                ? config.getProfiles()
+                : fanOut.due(config.getProfiles());
+            if (profiles.isEmpty()) {
+                logger.debug("No profile due");
+                return UpdateResult.skipped();
+            }
+            Map<String, UpdateResult> results = fanOut.run(
+                profiles,
+                LOG_PREFIX
+            );
+            UpdateResult result = ProfileFanOut.summarize(results);
+            if (!result.isSuccess()) {
+                span.setError(result.getMessage());
+            }
+            return result;
+        } finally {
+            latency.record(LatencyRecorder.PHASE_RUN, start);
+            latency.flush();
+            engine.getRateLimiter().flush();
+        }
+    }
+
+    /**
+     * Start the scheduler thread and block until it exits after SIGTERM
+     * (or any other orderly JVM shutdown).
+     */
+    void runUntilStopped() {
+        final Thread scheduler = schedulerThreadFactory().newThread(
+            new Runnable() {
+                @Override
+                public void run() {
+                    schedulerLoop();
+                }
+            }
+        );
+
+        Runtime.getRuntime().addShutdownHook(
+            new Thread(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        logger.event(LOG_PREFIX + ": shutting down");
+                        stopSignal.countDown();
+                        try {
+                            scheduler.join(
+                                TimeUnit.SECONDS.toMillis(
+                                    SHUTDOWN_GRACE_SECONDS
+                                )
+                            );
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                },
+                "duckdns-shutdown"
+            )
+        );
+
+        List<String> profiles = new ArrayList<>();
+        for (UpdateProfile profile : config.getProfiles()) {
+            profiles.add(
+                profile.getName() +
+                    " (" +
+                    profile.getTarget().getDomains() +
+                    " every " +
+                    profile.getIntervalMinutes() +
+                    " min)"
+            );
+        }
+        logger.event(LOG_PREFIX + ": daemon started for " + profiles);
+        scheduler.start();
+        try {
+            // Virtual threads are daemon threads, keep the JVM alive here
+            scheduler.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void schedulerLoop() {
+        long intervalSeconds = TimeUnit.MINUTES.toSeconds(
+            ProfileFanOut.minIntervalMinutes(
+                config.getProfiles(),
+                config.getIntervalMinutes()
+            )
+        );
+        int attempt = 0;
+        try {
+            while (true) {
+                UpdateStatus status;
+                try {
+                    status = runOnce(false).getStatus();
+                } catch (RuntimeException e) {
+                    logger.event(LOG_PREFIX + " ERROR: " + e.getMessage());
+                    status = UpdateStatus.fromException(e);
+                }
+
+                long delaySeconds;
+                if (
+                    status.isRetryable() && shouldRetry(attempt, intervalSeconds)
+                ) {
+                    delaySeconds = backoffSeconds(attempt);
+                    attempt++;
+                    logger.event(
+                        LOG_PREFIX + ": " + status + " - retrying with backoff"
+                    );
+                } else {
+                    attempt = 0;
+                    delaySeconds = intervalSeconds;
+                }
+                logger.debug("Next run in " + delaySeconds + " seconds");
+
+                if (awaitNextRun(delaySeconds)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.debug("Scheduler stopped");
+    }
+
+    /**
+     * Sleep until the next run, waking for the propagation re-checks due
+     * before it (one TTL apart after an update).
+     *
+     * @return true on shutdown
+     */
+    private boolean awaitNextRun(long delaySeconds)
+        throws InterruptedException {
+        PropagationTracker propagation = engine.getPropagationTracker();
+        Clock clock = engine.getClock();
+        long nextRun =
+            clock.currentTimeMillis() + TimeUnit.SECONDS.toMillis(delaySeconds);
+        boolean recheck = true;
+        while (true) {
+            long wakeAt = nextRun;
+            long due = recheck ? propagation.nextCheckMillis() : -1;
+            if (due >= 0 && due < nextRun) {
+                wakeAt = due;
+            }
+            long waitMillis = Math.max(0, wakeAt - clock.currentTimeMillis());
+            if (stopSignal.await(waitMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            if (wakeAt == nextRun) {
+                return false;
+            }
+            try {
+                engine.verifyPropagation(LOG_PREFIX);
+            } catch (RuntimeException e) {
+                // Left to the next run, rather than retrying in a loop
+                logger.warn("Propagation check failed: " + e.getMessage());
+                recheck = false;
+            } finally {
+                engine.getLatencyRecorder().flush();
+                engine.getRateLimiter().flush();
+            }
+        }
+    }
+
+    private static boolean shouldRetry(int attempt, long intervalSeconds) {
+        return (
+            attempt < MAX_RETRY_ATTEMPTS &&
+            (BACKOFF_INITIAL_SECONDS << attempt) < intervalSeconds
+        );
+    }
+
+    private static long backoffSeconds(int attempt) {
+        return (
+            (BACKOFF_INITIAL_SECONDS << attempt) +
+            ThreadLocalRandom.current().nextLong(BACKOFF_JITTER_SECONDS + 1)
+        );
+    }
+
+    /**
+     * Scheduler thread factory: a virtual thread when the runtime has them
+     * (Java 21+), a plain platform thread otherwise. Resolved reflectively so
+     * the daemon still builds and runs on Java 8.
+     */
+    static ThreadFactory schedulerThreadFactory() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass
+                .getMethod("name", String.class)
+                .invoke(builder, THREAD_NAME);
+            return (ThreadFactory) builderClass
+                .getMethod("factory")
+                .invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Pre-21 runtime, or virtual threads still in preview
+            return new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    return new Thread(task, THREAD_NAME);
+                }
+            };
+        }
+    }
+}
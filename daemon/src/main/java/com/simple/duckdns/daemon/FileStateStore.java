@@ -0,0 +1,85 @@
+package com.simple.duckdns.daemon;
+
+import com.simple.duckdns.core.StateStore;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * StateStore persisted to a properties file, rewritten atomically on every
+ * change so a kill never leaves it half written.
+ */
+public final class FileStateStore implements StateStore {
+
+    private final Path file;
+    private final Properties values = new Properties();
+
+    public FileStateStore(Path file) throws IOException {
+        this.file = file;
+        try (InputStream in = Files.newInputStream(file)) {
+            values.load(in);
+        } catch (NoSuchFileException e) {
+            // First run, start empty
+        }
+    }
+
+    @Override
+    public synchronized String get(String key, String defaultValue) {
+        return values.getProperty(key, defaultValue);
+    }
+
+    @Override
+    public synchronized long getLong(String key, long defaultValue) {
+        String value = values.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, String value) {
+        values.setProperty(key, value);
+        save();
+    }
+
+    @Override
+    public synchronized void putLong(String key, long value) {
+        put(key, Long.toString(value));
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        if (values.remove(key) != null) {
+            save();
+        }
+    }
+
+    private void save() {
+        Path parent = file.toAbsolutePath().getParent();
+        try {
+            Path tmp = Files.createTempFile(parent, ".duckdns-state", ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                values.store(out, "DuckDNS updater state");
+            }
+            Files.move(
+                tmp,
+                file,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE
+            );
+        } catch (IOException e) {
+            // State is an optimization, keep running with the in-memory copy
+            System.err.println("W Failed to save state: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.simple.duckdns.daemon;
+
+import com.simple.duckdns.core.Endpoint;
+import com.simple.duckdns.core.HttpRequest;
+import com.simple.duckdns.core.HttpResponse;
+import com.simple.duckdns.core.HttpTransport;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JDK-only transport for the daemon, so it needs no third-party HTTP client.
+ * Timeouts match the app's OkHttp clients.
+ */
+public final class UrlConnectionTransport implements HttpTransport {
+
+    private static final int TIMEOUT_MILLIS =
+        (int) TimeUnit.SECONDS.toMillis(15);
+    private static final int QUICK_TIMEOUT_MILLIS =
+        (int) TimeUnit.SECONDS.toMillis(2);
+
+    // DuckDNS, ident.me and DoH answers are tiny; cap what we keep in memory
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        int timeout = request.getEndpoint() == Endpoint.DUCKDNS_UPDATE
+            ? TIMEOUT_MILLIS
+            : QUICK_TIMEOUT_MILLIS;
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+            request.getUrl()
+        ).openConnection();
+        try {
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            connection.setUseCaches(false);
+            Map<String, String> headers = request.getHeaders();
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(
+                    header.getKey(),
+                    header.getValue()
+                );
+            }
+
+            int code = connection.getResponseCode();
+            InputStream in = code >= 400
+                ? connection.getErrorStream()
+                : connection.getInputStream();
+            // Closing a fully read stream returns the socket to the
+            // keep-alive cache, so only failed calls disconnect
+            return new HttpResponse(code, readBody(in));
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream body = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                if (out.size() + read > MAX_BODY_BYTES) {
+                    throw new IOException(
+                        "Response body exceeds " + MAX_BODY_BYTES + " bytes"
+                    );
+                }
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
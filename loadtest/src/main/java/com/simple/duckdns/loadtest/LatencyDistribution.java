@@ -0,0 +1,75 @@
+package com.simple.duckdns.loadtest;
+
+import java.util.Random;
+
+/**
+ * Response delay of a simulated server.
+ *
+ * Specs: "fixed:20", "uniform:5-80", "exp:30" (mean) and
+ * "lognormal:20,0.8" (median, sigma), all in milliseconds.
+ */
+abstract class LatencyDistribution {
+
+    abstract long sampleMillis(Random random);
+
+    static LatencyDistribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Invalid latency: " + spec);
+        }
+        String kind = spec.substring(0, colon);
+        String args = spec.substring(colon + 1);
+        switch (kind) {
+            case "fixed":
+                return fixed(Long.parseLong(args));
+            case "uniform": {
+                int dash = args.indexOf('-');
+                final long min = Long.parseLong(args.substring(0, dash));
+                final long max = Long.parseLong(args.substring(dash + 1));
+                return new LatencyDistribution() {
+                    @Override
+                    long sampleMillis(Random random) {
+                        return min + (long) (random.nextDouble() * (max - min));
+                    }
+                };
+            }
+            case "exp": {
+                final double mean = Double.parseDouble(args);
+                return new LatencyDistribution() {
+                    @Override
+                    long sampleMillis(Random random) {
+                        return (long) (-mean * Math.log(1 - random.nextDouble()));
+                    }
+                };
+            }
+            case "lognormal": {
+                int comma = args.indexOf(',');
+                final double mu = Math.log(
+                    Double.parseDouble(args.substring(0, comma))
+                );
+                final double sigma = Double.parseDouble(
+                    args.substring(comma + 1)
+                );
+                return new LatencyDistribution() {
+                    @Override
+                    long sampleMillis(Random random) {
+                        return (long) Math.exp(
+                            mu + sigma * random.nextGaussian()
+                        );
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Invalid latency: " + spec);
+        }
+    }
+
+    static LatencyDistribution fixed(final long millis) {
+        return new LatencyDistribution() {
+            @Override
+            long sampleMillis(Random random) {
+                return millis;
+            }
+        };
+    }
+}
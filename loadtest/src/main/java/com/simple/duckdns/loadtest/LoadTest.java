@@ -0,0 +1,436 @@
+package com.simple.duckdns.loadtest;
+
+import com.simple.duckdns.core.Clock;
+import com.simple.duckdns.core.DnsResolver;
+import com.simple.duckdns.core.DohJsonResolver;
+import com.simple.duckdns.core.Endpoint;
+import com.simple.duckdns.core.InMemoryStateStore;
+import com.simple.duckdns.core.LocalAddressSource;
+import com.simple.duckdns.core.RateLimiter;
+import com.simple.duckdns.core.StateStore;
+import com.simple.duckdns.core.UpdateEngine;
+import com.simple.duckdns.core.UpdateLogger;
+import com.simple.duckdns.core.UpdateResult;
+import com.simple.duckdns.core.UpdateStatus;
+import com.simple.duckdns.core.UpdateTarget;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Offline end-to-end load test of the check-and-update flow.
+ *
+ * Each of --concurrency simulated devices owns one domain and runs the
+ * engine in a loop. Before every run its public IP changes with probability
+ * --ip-change; the run is then scored against the ground truth of whether
+ * the record actually needed an update.
+ *
+ * Options (defaults in brackets):
+ *   --runs N [2000]            total check-and-update runs
+ *   --concurrency N [4]        simulated devices running in parallel
+ *   --resolvers N [3]          simulated DoH resolvers
+ *   --ip-change P [0.3]        probability the public IP changed before a run
+ *   --stale P [0.1]            probability a resolver answers the old record
+ *   --duckdns-latency D [lognormal:120,0.5]
+ *   --doh-latency D [lognormal:25,0.6]
+ *   --echo-latency D [lognormal:40,0.5]
+ *   --duckdns-errors P [0.01], --doh-errors P [0.02], --echo-errors P [0.01]
+ *   --authoritative B [false]  verify against a stub authoritative
+ *                              nameserver first
+ *   --ns-latency D [lognormal:20,0.5], --ns-errors P [0.01]
+ *   --timeout-ms N [15000]     DuckDNS call timeout
+ *   --quick-timeout-ms N [2000] IP echo and DoH timeout
+ *   --rate-limits SPEC [off]   each device's {@link RateLimiter} limits,
+ *                              see {@link RateLimiter#parseLimits}
+ *   --seed N [42]              seed for public IPs
+ *
+ * Latency specs are described in {@link LatencyDistribution}.
+ */
+public final class LoadTest {
+
+    private static final String TOKEN = "00000000-0000-0000-0000-000000000000";
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        final int runs = intOption(options, "runs", 2000);
+        int concurrency = intOption(options, "concurrency", 4);
+        int resolverCount = intOption(options, "resolvers", 3);
+        final double ipChange = doubleOption(options, "ip-change", 0.3);
+        boolean authoritative = Boolean.parseBoolean(
+            option(options, "authoritative", "false")
+        );
+        long seed = Long.parseLong(option(options, "seed", "42"));
+        Map<Endpoint, RateLimiter.Limit> rateLimits = RateLimiter.parseLimits(
+            option(options, "rate-limits", "off")
+        );
+
+        // MockWebServer logs every request at INFO
+        Logger.getLogger("okhttp3.mockwebserver").setLevel(Level.WARNING);
+
+        SimulatedWorld world = new SimulatedWorld();
+        final TunableOkHttpTransport transport = new TunableOkHttpTransport(
+            intOption(options, "timeout-ms", 15000),
+            intOption(options, "quick-timeout-ms", 2000)
+        );
+        final Stats stats = new Stats(runs);
+
+        try (
+            SimulatedServers servers = new SimulatedServers(
+                world,
+                profile(options, "duckdns", "lognormal:120,0.5", 0.01),
+                profile(options, "echo", "lognormal:40,0.5", 0.01),
+                profile(options, "doh", "lognormal:25,0.6", 0.02),
+                resolverCount,
+                doubleOption(options, "stale", 0.1)
+            )
+        ) {
+            if (authoritative) {
+                servers.startNameserver(
+                    profile(options, "ns", "lognormal:20,0.5", 0.01)
+                );
+            }
+            StubNameserver nameserver = servers.nameserver();
+            List<DnsResolver> resolvers = new ArrayList<>();
+            List<String> dohUrls = servers.dohUrls();
+            for (int i = 0; i < dohUrls.size(); i++) {
+                resolvers.add(
+                    new DohJsonResolver("doh" + i, dohUrls.get(i), transport)
+                );
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(
+                concurrency
+            );
+            List<Future<?>> devices = new ArrayList<>();
+            Random seeds = new Random(seed);
+            for (int d = 0; d < concurrency; d++) {
+                final String device = SimulatedWorld.device(d);
+                final Random random = new Random(seeds.nextLong());
+                world.setPublicIp(device, randomIp(random));
+                world.setRecord(
+                    SimulatedWorld.fqdn(device),
+                    world.getPublicIp(device)
+                );
+                StateStore stateStore = new InMemoryStateStore();
+                RateLimiter rateLimiter = new RateLimiter(
+                    stateStore,
+                    Clock.SYSTEM,
+                    rateLimits
+                );
+                stats.addRateLimiter(rateLimiter);
+                UpdateEngine.Builder builder = UpdateEngine.builder()
+                    .transport(transport)
+                    .updateUrl(servers.updateUrl())
+                    .ipEchoUrl(servers.ipEchoUrl(device))
+                    // The simulated world is IPv4-only, behind NAT
+                    .ipv6EchoUrl(null)
+                    .localAddresses(LocalAddressSource.NONE)
+                    .resolvers(resolvers)
+                    .stateStore(stateStore)
+                    .rateLimiter(rateLimiter)
+                    .logger(QUIET);
+                if (nameserver != null) {
+                    builder
+                        .authoritativeCheck(true)
+                        .authoritativeBootstrap(
+                            nameserver.getAddress(),
+                            nameserver.getPort()
+                        );
+                }
+                final UpdateEngine engine = builder.build();
+                final int deviceRuns =
+                    runs / concurrency + (d < runs % concurrency ? 1 : 0);
+                final SimulatedWorld deviceWorld = world;
+                devices.add(
+                    executor.submit(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                runDevice(
+                                    engine,
+                                    deviceWorld,
+                                    device,
+                                    deviceRuns,
+                                    ipChange,
+                                    random,
+                                    stats
+                                );
+                            }
+                        }
+                    )
+                );
+            }
+
+            long start = System.nanoTime();
+            for (Future<?> device : devices) {
+                device.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            executor.shutdown();
+
+            stats.print(elapsed, concurrency, servers.getCounters());
+        } finally {
+            transport.shutdown();
+        }
+    }
+
+    private static void runDevice(
+        UpdateEngine engine,
+        SimulatedWorld world,
+        String device,
+        int runs,
+        double ipChange,
+        Random random,
+        Stats stats
+    ) {
+        UpdateTarget target = new UpdateTarget(device, TOKEN, "");
+        for (int i = 0; i < runs; i++) {
+            if (random.nextDouble() < ipChange) {
+                world.setPublicIp(device, randomIp(random));
+            }
+            boolean needed = world.needsUpdate(device);
+
+            long start = System.nanoTime();
+            UpdateResult result = engine.checkAndUpdate(target, "LoadTest");
+            long latency = System.nanoTime() - start;
+
+            stats.record(latency, needed, result);
+        }
+    }
+
+    /** Thread-safe run statistics. */
+    private static final class Stats {
+
+        private final long[] latencies;
+        private int count;
+        private int updatesNeeded;
+        private int correct;
+        private int missedUpdates;
+        private int unnecessaryUpdates;
+        private int failedNeeded;
+        private final Map<UpdateStatus, Integer> statuses = new EnumMap<>(
+            UpdateStatus.class
+        );
+        private final List<RateLimiter> rateLimiters = new ArrayList<>();
+
+        Stats(int runs) {
+            latencies = new long[runs];
+        }
+
+        synchronized void addRateLimiter(RateLimiter rateLimiter) {
+            rateLimiters.add(rateLimiter);
+        }
+
+        synchronized void record(
+            long latencyNanos,
+            boolean needed,
+            UpdateResult result
+        ) {
+            latencies[count++] = latencyNanos;
+            boolean updated = !result.isSkipped();
+            if (needed) {
+                updatesNeeded++;
+            }
+            if (needed == updated) {
+                correct++;
+            } else if (needed) {
+                missedUpdates++;
+            } else {
+                unnecessaryUpdates++;
+            }
+            if (needed && !result.isSuccess()) {
+                failedNeeded++;
+            }
+            Integer seen = statuses.get(result.getStatus());
+            statuses.put(result.getStatus(), seen == null ? 1 : seen + 1);
+        }
+
+        synchronized void print(
+            long elapsedNanos,
+            int concurrency,
+            List<SimulatedServers.Counters> counters
+        ) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            double seconds = elapsedNanos / 1e9;
+
+            System.out.println(
+                String.format(
+                    Locale.ROOT,
+                    "runs=%d concurrency=%d elapsed=%.1fs throughput=%.1f runs/s",
+                    count,
+                    concurrency,
+                    seconds,
+                    count / seconds
+                )
+            );
+            System.out.println(
+                String.format(
+                    Locale.ROOT,
+                    "latency ms: p50=%.1f p90=%.1f p95=%.1f p99=%.1f max=%.1f",
+                    percentile(sorted, 0.50),
+                    percentile(sorted, 0.90),
+                    percentile(sorted, 0.95),
+                    percentile(sorted, 0.99),
+                    sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0
+                )
+            );
+
+            StringBuilder requests = new StringBuilder("requests:");
+            for (SimulatedServers.Counters server : counters) {
+                requests
+                    .append(' ')
+                    .append(server.name)
+                    .append('=')
+                    .append(server.requests.get())
+                    .append(" (")
+                    .append(server.errors.get())
+                    .append(" errors)");
+            }
+            System.out.println(requests);
+
+            System.out.println(
+                String.format(
+                    Locale.ROOT,
+                    "decisions: accuracy=%.2f%% needed=%d missed=%d unnecessary=%d failed-needed=%d",
+                    count == 0 ? 0 : correct * 100.0 / count,
+                    updatesNeeded,
+                    missedUpdates,
+                    unnecessaryUpdates,
+                    failedNeeded
+                )
+            );
+            System.out.println("statuses: " + statuses);
+
+            // Calls of all devices, by endpoint class
+            StringBuilder limited = new StringBuilder("rate limits:");
+            for (Endpoint endpoint : Endpoint.values()) {
+                long granted = 0;
+                long delayed = 0;
+                long shed = 0;
+                for (RateLimiter rateLimiter : rateLimiters) {
+                    granted += rateLimiter.getGranted(endpoint);
+                    delayed += rateLimiter.getDelayed(endpoint);
+                    shed += rateLimiter.getShed(endpoint);
+                }
+                if (granted + shed > 0) {
+                    limited
+                        .append(' ')
+                        .append(endpoint)
+                        .append('=')
+                        .append(granted)
+                        .append(" (")
+                        .append(delayed)
+                        .append(" delayed, ")
+                        .append(shed)
+                        .append(" shed)");
+                }
+            }
+            System.out.println(
+                limited.indexOf("=") < 0 ? "rate limits: off" : limited
+            );
+        }
+
+        // Nearest-rank percentile, in milliseconds
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, rank)] / 1e6;
+        }
+    }
+
+    private static final UpdateLogger QUIET = new UpdateLogger() {
+        @Override
+        public void debug(String message) {}
+
+        @Override
+        public void warn(String message) {}
+
+        @Override
+        public void error(String message, Throwable error) {}
+
+        @Override
+        public void event(String message) {}
+    };
+
+    private static String randomIp(Random random) {
+        // TEST-NET-3 and friends would collide too often, use 10.0.0.0/8
+        return (
+            "10." +
+            random.nextInt(256) +
+            "." +
+            random.nextInt(256) +
+            "." +
+            (1 + random.nextInt(254))
+        );
+    }
+
+    private static SimulatedServers.Profile profile(
+        Map<String, String> options,
+        String server,
+        String defaultLatency,
+        double defaultErrors
+    ) {
+        return new SimulatedServers.Profile(
+            LatencyDistribution.parse(
+                option(options, server + "-latency", defaultLatency)
+            ),
+            doubleOption(options, server + "-errors", defaultErrors)
+        );
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Invalid option: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    private static String option(
+        Map<String, String> options,
+        String name,
+        String defaultValue
+    ) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private static int intOption(
+        Map<String, String> options,
+        String name,
+        int defaultValue
+    ) {
+        return Integer.parseInt(
+            option(options, name, Integer.toString(defaultValue))
+        );
+    }
+
+    private static double doubleOption(
+        Map<String, String> options,
+        String name,
+        double defaultValue
+    ) {
+        return Double.parseDouble(
+            option(options, name, Double.toString(defaultValue))
+        );
+    }
+}
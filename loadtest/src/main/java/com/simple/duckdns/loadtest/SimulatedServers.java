@@ -0,0 +1,241 @@
+package com.simple.duckdns.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+/**
+ * Local stand-ins for www.duckdns.org/update, the DoH JSON endpoints,
+ * v4.ident.me and optionally DuckDNS's nameservers, all backed by one
+ * {@link SimulatedWorld}.
+ */
+final class SimulatedServers implements AutoCloseable {
+
+    /** Behaviour of one simulated server. */
+    static final class Profile {
+
+        final LatencyDistribution latency;
+        final double errorRate;
+
+        Profile(LatencyDistribution latency, double errorRate) {
+            this.latency = latency;
+            this.errorRate = errorRate;
+        }
+    }
+
+    /** Request counters of one simulated server. */
+    static final class Counters {
+
+        final String name;
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+
+        Counters(String name) {
+            this.name = name;
+        }
+    }
+
+    private final SimulatedWorld world;
+    private final MockWebServer duckDns = new MockWebServer();
+    private final MockWebServer ipEcho = new MockWebServer();
+    private final List<MockWebServer> dohServers = new ArrayList<>();
+    private final List<Counters> counters = new ArrayList<>();
+    private final double staleRate;
+    private StubNameserver nameserver;
+
+    SimulatedServers(
+        SimulatedWorld world,
+        Profile duckDnsProfile,
+        Profile echoProfile,
+        Profile dohProfile,
+        int dohCount,
+        double staleRate
+    ) throws IOException {
+        this.world = world;
+        this.staleRate = staleRate;
+
+        duckDns.setDispatcher(duckDnsDispatcher(duckDnsProfile));
+        duckDns.start();
+        ipEcho.setDispatcher(echoDispatcher(echoProfile));
+        ipEcho.start();
+        for (int i = 0; i < dohCount; i++) {
+            MockWebServer doh = new MockWebServer();
+            doh.setDispatcher(dohDispatcher("doh" + i, dohProfile));
+            doh.start();
+            dohServers.add(doh);
+        }
+    }
+
+    /** Start the authoritative nameserver stub, see {@link #nameserver()} */
+    void startNameserver(Profile profile) throws IOException {
+        nameserver = new StubNameserver(world, profile, register("ns"));
+    }
+
+    /** @return Nameserver stub, null unless started */
+    StubNameserver nameserver() {
+        return nameserver;
+    }
+
+    String updateUrl() {
+        return duckDns.url("/update").toString();
+    }
+
+    String ipEchoUrl(String device) {
+        return ipEcho.url("/" + device).toString();
+    }
+
+    /** Cloudflare-style /dns-query and Google-style /resolve alternate */
+    List<String> dohUrls() {
+        List<String> urls = new ArrayList<>(dohServers.size());
+        for (int i = 0; i < dohServers.size(); i++) {
+            urls.add(
+                dohServers
+                    .get(i)
+                    .url(i % 2 == 0 ? "/dns-query" : "/resolve")
+                    .toString()
+            );
+        }
+        return urls;
+    }
+
+    List<Counters> getCounters() {
+        return counters;
+    }
+
+    private Dispatcher duckDnsDispatcher(final Profile profile) {
+        final Counters stats = register("duckdns");
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse failure = maybeFail(profile, stats);
+                if (failure != null) {
+                    return failure;
+                }
+                HttpUrl url = request.getRequestUrl();
+                String domains = url.queryParameter("domains");
+                String ip = url.queryParameter("ip");
+                if (domains == null || url.queryParameter("token") == null) {
+                    return delayed(profile, "KO");
+                }
+                for (String domain : domains.split(",")) {
+                    domain = domain.trim();
+                    String device = domain.endsWith(".duckdns.org")
+                        ? domain.substring(0, domain.indexOf('.'))
+                        : domain;
+                    // Like DuckDNS, no ip parameter means the caller's IP
+                    world.setRecord(
+                        SimulatedWorld.fqdn(device),
+                        ip != null ? ip : world.getPublicIp(device)
+                    );
+                }
+                return delayed(profile, "OK");
+            }
+        };
+    }
+
+    private Dispatcher echoDispatcher(final Profile profile) {
+        final Counters stats = register("ident.me");
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse failure = maybeFail(profile, stats);
+                if (failure != null) {
+                    return failure;
+                }
+                String device = request.getRequestUrl().encodedPath().substring(1);
+                String ip = world.getPublicIp(device);
+                return ip != null
+                    ? delayed(profile, ip)
+                    : delayed(profile, "").setResponseCode(404);
+            }
+        };
+    }
+
+    private Dispatcher dohDispatcher(String name, final Profile profile) {
+        final Counters stats = register(name);
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse failure = maybeFail(profile, stats);
+                if (failure != null) {
+                    return failure;
+                }
+                String domain = request.getRequestUrl().queryParameter("name");
+                Random random = ThreadLocalRandom.current();
+                String ip = random.nextDouble() < staleRate
+                    ? world.getPreviousRecord(domain)
+                    : world.getRecord(domain);
+                String answer = ip == null
+                    ? ""
+                    : ",\"Answer\":[{\"name\":\"" +
+                        domain +
+                        "\",\"type\":1,\"TTL\":60,\"data\":\"" +
+                        ip +
+                        "\"}]";
+                return delayed(
+                    profile,
+                    "{\"Status\":" +
+                        (ip == null ? 3 : 0) +
+                        ",\"Question\":[{\"name\":\"" +
+                        domain +
+                        "\",\"type\":1}]" +
+                        answer +
+                        "}"
+                ).setHeader("Content-Type", "application/dns-json");
+            }
+        };
+    }
+
+    private Counters register(String name) {
+        Counters stats = new Counters(name);
+        counters.add(stats);
+        return stats;
+    }
+
+    // Errors are split between HTTP 503 and a dropped connection
+    private static MockResponse maybeFail(Profile profile, Counters stats) {
+        stats.requests.incrementAndGet();
+        Random random = ThreadLocalRandom.current();
+        if (random.nextDouble() >= profile.errorRate) {
+            return null;
+        }
+        stats.errors.incrementAndGet();
+        if (random.nextBoolean()) {
+            return delayed(profile, "").setResponseCode(503);
+        }
+        return new MockResponse().setSocketPolicy(
+            SocketPolicy.DISCONNECT_AT_START
+        );
+    }
+
+    private static MockResponse delayed(Profile profile, String body) {
+        return new MockResponse()
+            .setBody(body)
+            .setHeadersDelay(
+                profile.latency.sampleMillis(ThreadLocalRandom.current()),
+                TimeUnit.MILLISECONDS
+            );
+    }
+
+    @Override
+    public void close() throws IOException {
+        duckDns.shutdown();
+        ipEcho.shutdown();
+        for (MockWebServer doh : dohServers) {
+            doh.shutdown();
+        }
+        if (nameserver != null) {
+            nameserver.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.simple.duckdns.loadtest;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Ground truth shared by the simulated servers: each simulated device's
+ * public IP, and the current and previous A record of each domain.
+ *
+ * Device i owns domain "device{i}" and is reached by the IP echo under
+ * "/device{i}", so concurrent runs never share state.
+ */
+final class SimulatedWorld {
+
+    private final ConcurrentMap<String, String> publicIps =
+        new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> records =
+        new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> previousRecords =
+        new ConcurrentHashMap<>();
+
+    static String device(int index) {
+        return "device" + index;
+    }
+
+    static String fqdn(String device) {
+        return device + ".duckdns.org";
+    }
+
+    void setPublicIp(String device, String ip) {
+        publicIps.put(device, ip);
+    }
+
+    String getPublicIp(String device) {
+        return publicIps.get(device);
+    }
+
+    /** Authoritative record, what a fully propagated resolver returns */
+    String getRecord(String fqdn) {
+        return records.get(fqdn);
+    }
+
+    /** Record before the last update, what a stale resolver returns */
+    String getPreviousRecord(String fqdn) {
+        String previous = previousRecords.get(fqdn);
+        return previous != null ? previous : records.get(fqdn);
+    }
+
+    void setRecord(String fqdn, String ip) {
+        String old = records.put(fqdn, ip);
+        if (old != null && !old.equals(ip)) {
+            previousRecords.put(fqdn, old);
+        }
+    }
+
+    /** @return true if the record doesn't point at the device's public IP */
+    boolean needsUpdate(String device) {
+        String ip = publicIps.get(device);
+        return ip != null && !ip.equals(records.get(fqdn(device)));
+    }
+}
@@ -0,0 +1,219 @@
+package com.simple.duckdns.loadtest;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local UDP stand-in for both the recursive server of the NS lookup and
+ * DuckDNS's authoritative nameserver "ns1.duckdns.org", answering from the
+ * {@link SimulatedWorld} records with the AA flag set, so it never serves
+ * a stale record.
+ *
+ * Errors drop the query, which the client sees as a timeout.
+ */
+final class StubNameserver implements AutoCloseable {
+
+    static final String ZONE = "duckdns.org";
+    static final String NAMESERVER = "ns1.duckdns.org";
+
+    private static final int TYPE_A = 1;
+    private static final int TYPE_NS = 2;
+    private static final int RCODE_NXDOMAIN = 3;
+    // QR, AA and RA; RD is copied from the query
+    private static final int RESPONSE_FLAGS = 0x8000 | 0x0400 | 0x0080;
+    private static final int RECORD_TTL = 60;
+    private static final int NS_TTL = 3600;
+
+    private final SimulatedWorld world;
+    private final SimulatedServers.Profile profile;
+    private final SimulatedServers.Counters stats;
+    private final DatagramSocket socket;
+    private final ScheduledExecutorService replies =
+        Executors.newSingleThreadScheduledExecutor();
+    private final Thread receiver;
+
+    StubNameserver(
+        SimulatedWorld world,
+        SimulatedServers.Profile profile,
+        SimulatedServers.Counters stats
+    ) throws IOException {
+        this.world = world;
+        this.profile = profile;
+        this.stats = stats;
+        this.socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        this.receiver = new Thread(
+            new Runnable() {
+                @Override
+                public void run() {
+                    receiveLoop();
+                }
+            },
+            "stub-nameserver"
+        );
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    String getAddress() {
+        return socket.getLocalAddress().getHostAddress();
+    }
+
+    int getPort() {
+        return socket.getLocalPort();
+    }
+
+    private void receiveLoop() {
+        byte[] buffer = new byte[512];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (IOException e) {
+                return; // Closed
+            }
+            stats.requests.incrementAndGet();
+            Random random = ThreadLocalRandom.current();
+            if (random.nextDouble() < profile.errorRate) {
+                stats.errors.incrementAndGet();
+                continue;
+            }
+            final byte[] response = answer(
+                Arrays.copyOf(packet.getData(), packet.getLength())
+            );
+            if (response == null) {
+                continue;
+            }
+            final SocketAddress client = packet.getSocketAddress();
+            replies.schedule(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            socket.send(
+                                new DatagramPacket(
+                                    response,
+                                    response.length,
+                                    client
+                                )
+                            );
+                        } catch (IOException e) {
+                            // Closed while the reply was delayed
+                        }
+                    }
+                },
+                profile.latency.sampleMillis(random),
+                TimeUnit.MILLISECONDS
+            );
+        }
+    }
+
+    // Response to a one-question query, null for anything unparsable
+    private byte[] answer(byte[] query) {
+        if (query.length < 12) {
+            return null;
+        }
+        StringBuilder name = new StringBuilder();
+        int offset = 12;
+        while (offset < query.length && query[offset] != 0) {
+            int length = query[offset] & 0xff;
+            if (offset + 1 + length > query.length) {
+                return null;
+            }
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            name.append(
+                new String(query, offset + 1, length, StandardCharsets.US_ASCII)
+            );
+            offset += length + 1;
+        }
+        int questionEnd = offset + 5;
+        if (questionEnd > query.length) {
+            return null;
+        }
+        int type =
+            ((query[offset + 1] & 0xff) << 8) | (query[offset + 2] & 0xff);
+
+        String domain = name.toString();
+        byte[] data = null;
+        int ttl = RECORD_TTL;
+        int rcode = 0;
+        if (type == TYPE_NS && ZONE.equals(domain)) {
+            data = encodeName(NAMESERVER);
+            ttl = NS_TTL;
+        } else if (type == TYPE_A && NAMESERVER.equals(domain)) {
+            data = socket.getLocalAddress().getAddress();
+            ttl = NS_TTL;
+        } else if (type == TYPE_A) {
+            String ip = world.getRecord(domain);
+            if (ip != null) {
+                data = ipv4(ip);
+            } else {
+                rcode = RCODE_NXDOMAIN;
+            }
+        }
+
+        int size = questionEnd + (data != null ? 12 + data.length : 0);
+        byte[] response = Arrays.copyOf(query, size);
+        int flags = RESPONSE_FLAGS | (query[2] & 0x01) << 8 | rcode;
+        putShort(response, 2, flags);
+        putShort(response, 6, data != null ? 1 : 0);
+        putShort(response, 8, 0);
+        putShort(response, 10, 0);
+        if (data != null) {
+            int record = questionEnd;
+            // Owner name points at the question
+            putShort(response, record, 0xc000 | 12);
+            putShort(response, record + 2, type);
+            putShort(response, record + 4, 1);
+            putShort(response, record + 6, ttl >>> 16);
+            putShort(response, record + 8, ttl);
+            putShort(response, record + 10, data.length);
+            System.arraycopy(data, 0, response, record + 12, data.length);
+        }
+        return response;
+    }
+
+    private static byte[] encodeName(String name) {
+        byte[] encoded = new byte[name.length() + 2];
+        int offset = 0;
+        for (String label : name.split("\\.")) {
+            encoded[offset++] = (byte) label.length();
+            byte[] ascii = label.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(ascii, 0, encoded, offset, ascii.length);
+            offset += ascii.length;
+        }
+        encoded[offset] = 0;
+        return encoded;
+    }
+
+    private static byte[] ipv4(String ip) {
+        String[] parts = ip.split("\\.");
+        byte[] address = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            address[i] = (byte) Integer.parseInt(parts[i]);
+        }
+        return address;
+    }
+
+    private static void putShort(byte[] message, int offset, int value) {
+        message[offset] = (byte) (value >>> 8);
+        message[offset + 1] = (byte) value;
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        replies.shutdownNow();
+    }
+}
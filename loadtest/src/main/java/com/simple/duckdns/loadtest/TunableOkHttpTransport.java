@@ -0,0 +1,60 @@
+package com.simple.duckdns.loadtest;
+
+import com.simple.duckdns.core.Endpoint;
+import com.simple.duckdns.core.HttpRequest;
+import com.simple.duckdns.core.HttpResponse;
+import com.simple.duckdns.core.HttpTransport;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Same client split as the app's OkHttpTransport (a slow client for the
+ * DuckDNS call, a quick one sharing its pool for IP and DNS checks), with
+ * the timeouts under test passed in.
+ */
+final class TunableOkHttpTransport implements HttpTransport {
+
+    private final OkHttpClient client;
+    private final OkHttpClient quickClient;
+
+    TunableOkHttpTransport(long timeoutMillis, long quickTimeoutMillis) {
+        client = new OkHttpClient.Builder()
+            .connectTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+            .readTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+            .writeTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+            .build();
+        quickClient = client
+            .newBuilder()
+            .connectTimeout(quickTimeoutMillis, TimeUnit.MILLISECONDS)
+            .readTimeout(quickTimeoutMillis, TimeUnit.MILLISECONDS)
+            .writeTimeout(quickTimeoutMillis, TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        Request.Builder builder = new Request.Builder().url(request.getUrl());
+        Map<String, String> headers = request.getHeaders();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            builder.addHeader(header.getKey(), header.getValue());
+        }
+        OkHttpClient selected = request.getEndpoint() == Endpoint.DUCKDNS_UPDATE
+            ? client
+            : quickClient;
+        try (Response response = selected.newCall(builder.build()).execute()) {
+            String body = response.body() != null
+                ? response.body().string()
+                : "";
+            return new HttpResponse(response.code(), body);
+        }
+    }
+
+    void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}